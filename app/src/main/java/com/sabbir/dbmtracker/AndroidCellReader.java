@@ -0,0 +1,115 @@
+package com.sabbir.dbmtracker;
+
+import android.telephony.CellIdentityNr;
+import android.telephony.CellInfo;
+import android.telephony.CellInfoCdma;
+import android.telephony.CellInfoGsm;
+import android.telephony.CellInfoLte;
+import android.telephony.CellInfoNr;
+import android.telephony.CellInfoTdscdma;
+import android.telephony.CellInfoWcdma;
+import android.telephony.CellSignalStrengthLte;
+import android.telephony.CellSignalStrengthNr;
+
+import com.sabbir.dbmtracker.core.CellBatch;
+import com.sabbir.dbmtracker.core.CellCapture;
+
+/** Reads {@link CellInfo} objects for {@link CellCapture}: the RAT-specific getter behind each column. */
+final class AndroidCellReader implements CellCapture.Reader<CellInfo> {
+
+    static final AndroidCellReader INSTANCE = new AndroidCellReader();
+
+    private AndroidCellReader() {
+    }
+
+    @Override
+    public int rat(CellInfo cell) {
+        if (cell instanceof CellInfoLte) {
+            return CellBatch.RAT_LTE;
+        } else if (cell instanceof CellInfoNr) {
+            return CellBatch.RAT_NR;
+        } else if (cell instanceof CellInfoWcdma) {
+            return CellBatch.RAT_WCDMA;
+        } else if (cell instanceof CellInfoGsm) {
+            return CellBatch.RAT_GSM;
+        } else if (cell instanceof CellInfoTdscdma) {
+            return CellBatch.RAT_TDSCDMA;
+        } else if (cell instanceof CellInfoCdma) {
+            return CellBatch.RAT_CDMA;
+        }
+        return CellBatch.RAT_UNKNOWN;
+    }
+
+    @Override
+    public boolean registered(CellInfo cell) {
+        return cell.isRegistered();
+    }
+
+    @Override
+    public int get(CellInfo cell, int rat, int column) {
+        switch (rat) {
+            case CellBatch.RAT_LTE:
+                return lte((CellInfoLte) cell, column);
+            case CellBatch.RAT_NR:
+                return nr((CellInfoNr) cell, column);
+            case CellBatch.RAT_WCDMA: {
+                CellInfoWcdma wcdma = (CellInfoWcdma) cell;
+                return column == CellBatch.PCI ? wcdma.getCellIdentity().getPsc()
+                        : column == CellBatch.CHANNEL ? wcdma.getCellIdentity().getUarfcn()
+                        : wcdma.getCellSignalStrength().getDbm();
+            }
+            case CellBatch.RAT_GSM: {
+                CellInfoGsm gsm = (CellInfoGsm) cell;
+                return column == CellBatch.PCI ? gsm.getCellIdentity().getBsic()
+                        : column == CellBatch.CHANNEL ? gsm.getCellIdentity().getArfcn()
+                        : gsm.getCellSignalStrength().getDbm();
+            }
+            case CellBatch.RAT_TDSCDMA: {
+                CellInfoTdscdma tdscdma = (CellInfoTdscdma) cell;
+                return column == CellBatch.PCI ? tdscdma.getCellIdentity().getCpid()
+                        : column == CellBatch.CHANNEL ? tdscdma.getCellIdentity().getUarfcn()
+                        : column == CellBatch.RSRP ? tdscdma.getCellSignalStrength().getRscp()
+                        : tdscdma.getCellSignalStrength().getDbm();
+            }
+            case CellBatch.RAT_CDMA:
+                return ((CellInfoCdma) cell).getCellSignalStrength().getDbm();
+            default:
+                return CellBatch.UNAVAILABLE;
+        }
+    }
+
+    private static int lte(CellInfoLte cell, int column) {
+        CellSignalStrengthLte signal = cell.getCellSignalStrength();
+        switch (column) {
+            case CellBatch.PCI:
+                return cell.getCellIdentity().getPci();
+            case CellBatch.CHANNEL:
+                return cell.getCellIdentity().getEarfcn();
+            case CellBatch.DBM:
+                return signal.getDbm();
+            case CellBatch.RSRP:
+                return signal.getRsrp();
+            case CellBatch.RSRQ:
+                return signal.getRsrq();
+            default:
+                return signal.getRssnr();
+        }
+    }
+
+    private static int nr(CellInfoNr cell, int column) {
+        switch (column) {
+            case CellBatch.PCI:
+                return ((CellIdentityNr) cell.getCellIdentity()).getPci();
+            case CellBatch.CHANNEL:
+                return ((CellIdentityNr) cell.getCellIdentity()).getNrarfcn();
+            case CellBatch.DBM:
+                return cell.getCellSignalStrength().getDbm();
+            case CellBatch.RSRP:
+                return ((CellSignalStrengthNr) cell.getCellSignalStrength()).getSsRsrp();
+            case CellBatch.RSRQ:
+                return ((CellSignalStrengthNr) cell.getCellSignalStrength()).getSsRsrq();
+            default:
+                return ((CellSignalStrengthNr) cell.getCellSignalStrength()).getSsSinr();
+        }
+    }
+}
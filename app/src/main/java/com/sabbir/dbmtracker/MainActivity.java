@@ -1,8 +1,10 @@
 package com.sabbir.dbmtracker;
 
 import android.annotation.SuppressLint;
+import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
+import android.content.ServiceConnection;
 import android.content.pm.PackageManager;
 import android.location.Location;
 import android.location.LocationListener;
@@ -11,6 +13,8 @@ import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.IBinder;
+import android.provider.DocumentsContract;
 import android.provider.Settings;
 import android.telephony.CellSignalStrength;
 import android.telephony.SignalStrength;
@@ -18,8 +22,10 @@ import android.telephony.SubscriptionInfo;
 import android.telephony.SubscriptionManager;
 import android.telephony.TelephonyManager;
 import android.util.Log;
+import android.view.Choreographer;
 import android.view.View;
 import android.widget.Button;
+import android.widget.CheckBox;
 import android.widget.TextView;
 import android.widget.Toast;
 
@@ -33,21 +39,82 @@ import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
 
+import com.sabbir.dbmtracker.core.ExportFormat;
+import com.sabbir.dbmtracker.core.LiveSnapshot;
+import com.sabbir.dbmtracker.core.PublishTarget;
+import com.sabbir.dbmtracker.core.Sample;
+import com.sabbir.dbmtracker.core.SampleWriter;
+import com.sabbir.dbmtracker.core.SamplingMode;
+import com.sabbir.dbmtracker.core.SessionExporter;
+import com.sabbir.dbmtracker.core.SessionManifest;
+import com.sabbir.dbmtracker.core.SessionPublisher;
+import com.sabbir.dbmtracker.core.SessionReader;
+import com.sabbir.dbmtracker.core.SignalHistory;
+
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class MainActivity extends AppCompatActivity {
 
     private static final int LOCATION_PERMISSION_REQUEST_CODE = 1001;
+    private static final int PUBLISH_TREE_REQUEST_CODE = 1002;
+    // Ten minutes at one reading per second, with headroom for event-driven bursts.
+    private static final long SPARKLINE_WINDOW_MS = 10 * 60_000;
+    private static final int SPARKLINE_CAPACITY = 1200;
+    private static final int SPARKLINE_MAX_SIMS = 4;
+    private static final String[] EXPORT_CHOICES = {"CSV", "GeoJSON", "KML (coloured by dBm)", "Columnar",
+            "Publish folder\u2026"};
+
     private boolean isPaused = false;
     private TextView statusText;
-    private Button startButton, pauseButton, stopButton;
+    private TextView liveText;
+    private SparklineView sparkline;
+    private Button startButton, pauseButton, stopButton, exportButton;
+    private CheckBox eventSamplingCheckBox;
+
+    private final SignalHistory signalHistory = new SignalHistory(SPARKLINE_CAPACITY, SPARKLINE_MAX_SIMS);
+    private final StringBuilder liveTextBuilder = new StringBuilder();
+    private TrackingService trackingService;
+    // Main thread only: the newest snapshot waiting for the next frame.
+    private LiveSnapshot pendingSnapshot;
+    private boolean frameScheduled;
+    private final Choreographer.FrameCallback frameCallback = this::onFrame;
+    // While an export runs the export button cancels it.
+    private boolean exporting;
+    private final AtomicBoolean exportCancelled = new AtomicBoolean();
+
+    private final TrackingService.LiveListener liveListener = snapshot -> {
+        pendingSnapshot = snapshot;
+        if (!frameScheduled) {
+            frameScheduled = true;
+            Choreographer.getInstance().postFrameCallback(frameCallback);
+        }
+    };
+
+    private final ServiceConnection serviceConnection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder binder) {
+            trackingService = ((TrackingService.LocalBinder) binder).getService();
+            trackingService.addLiveListener(liveListener);
+            LiveSnapshot current = trackingService.getLiveSnapshot();
+            if (current != null) {
+                liveListener.onLiveSnapshot(current);
+            }
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            trackingService = null;
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -58,14 +125,84 @@ public class MainActivity extends AppCompatActivity {
         startButton = findViewById(R.id.btnStart);
         pauseButton = findViewById(R.id.btnPause);
         stopButton = findViewById(R.id.btnStop);
+        exportButton = findViewById(R.id.btnExport);
+        eventSamplingCheckBox = findViewById(R.id.chkEventSampling);
+        liveText = findViewById(R.id.liveText);
+        sparkline = findViewById(R.id.sparkline);
+        sparkline.setHistory(signalHistory, SPARKLINE_WINDOW_MS);
 
         startButton.setOnClickListener(v -> startTracking());
         pauseButton.setOnClickListener(v -> pauseTracking());
         stopButton.setOnClickListener(v -> stopTracking());
+        exportButton.setOnClickListener(v -> onExportClicked());
 
         checkAndRequestPermissions();
     }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        // No BIND_AUTO_CREATE: the dashboard attaches to a running service but never starts one.
+        bindService(new Intent(this, TrackingService.class), serviceConnection, 0);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if (trackingService != null) {
+            trackingService.removeLiveListener(liveListener);
+            trackingService = null;
+        }
+        unbindService(serviceConnection);
+        Choreographer.getInstance().removeFrameCallback(frameCallback);
+        frameScheduled = false;
+    }
+
+    /** Renders at most once per display frame, however often the service publishes. */
+    private void onFrame(long frameTimeNanos) {
+        frameScheduled = false;
+        LiveSnapshot snapshot = pendingSnapshot;
+        if (snapshot == null) {
+            return;
+        }
+        pendingSnapshot = null;
+
+        isPaused = snapshot.paused;
+        String status = !snapshot.tracking ? "Status: Stopped"
+                : snapshot.paused ? "Status: Paused" : "Status: Tracking";
+        statusText.setText(snapshot.storageError == null ? status : status + "\n" + snapshot.storageError);
+        pauseButton.setText(snapshot.paused ? "Resume" : "Pause");
+
+        StringBuilder text = liveTextBuilder;
+        text.setLength(0);
+        for (int column = 0; column < snapshot.simCount(); column++) {
+            text.append("SIM").append(column + 1).append(' ').append(snapshot.operatorName(column)).append(": ");
+            int dbm = snapshot.dbm(column);
+            if (dbm == Sample.NO_SIGNAL) {
+                text.append("N/A");
+            } else {
+                text.append(dbm).append(" dBm");
+            }
+            text.append('\n');
+        }
+        if (snapshot.hasFix) {
+            text.append(String.format(Locale.US, "%.6f, %.6f", snapshot.latitudeE6 / 1e6, snapshot.longitudeE6 / 1e6));
+            if (!Float.isNaN(snapshot.accuracyMeters)) {
+                text.append(" \u00b1").append(Math.round(snapshot.accuracyMeters)).append(" m");
+            }
+            text.append(" (").append(Math.max(0, (snapshot.timestampMillis - snapshot.fixTimeMillis) / 1000))
+                    .append(" s old)");
+        } else {
+            text.append("Waiting for GPS fix");
+        }
+        liveText.setText(text);
+
+        if (snapshot.tracking) {
+            signalHistory.add(snapshot);
+            sparkline.invalidate();
+        }
+    }
+
     private void startTracking() {
         if (!hasRequiredPermissions()) {
             requestPermissions();
@@ -75,8 +212,10 @@ public class MainActivity extends AppCompatActivity {
         statusText.setText("Status: Tracking");
         Intent intent = new Intent(this, TrackingService.class);
         intent.putExtra("command", "start");
+        intent.putExtra(TrackingService.EXTRA_SAMPLING_MODE, eventSamplingCheckBox.isChecked()
+                ? SamplingMode.EVENT_DRIVEN.name() : SamplingMode.FIXED_INTERVAL.name());
+        signalHistory.clear();
         startService(intent);
-        Toast.makeText(this, "Tracking Started", Toast.LENGTH_SHORT).show();
     }
 
     private void pauseTracking() {
@@ -85,7 +224,6 @@ public class MainActivity extends AppCompatActivity {
         Intent intent = new Intent(this, TrackingService.class);
         intent.putExtra("command", isPaused ? "pause" : "resume");
         startService(intent);
-        Toast.makeText(this, isPaused ? "Tracking Paused" : "Tracking Resumed", Toast.LENGTH_SHORT).show();
     }
 
     private void stopTracking() {
@@ -93,7 +231,133 @@ public class MainActivity extends AppCompatActivity {
         Intent intent = new Intent(this, TrackingService.class);
         intent.putExtra("command", "stop");
         startService(intent);
-        Toast.makeText(this, "Tracking Stopped", Toast.LENGTH_SHORT).show();
+    }
+
+    private void onExportClicked() {
+        if (exporting) {
+            exportCancelled.set(true);
+            exportButton.setEnabled(false);
+            return;
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("Export sessions")
+                .setItems(EXPORT_CHOICES, (dialog, which) -> {
+                    if (which == 0) {
+                        exportCsv();
+                    } else if (which == EXPORT_CHOICES.length - 1) {
+                        pickPublishFolder();
+                    } else {
+                        exportSessions(ExportFormat.values()[which - 1], EXPORT_CHOICES[which]);
+                    }
+                })
+                .show();
+    }
+
+    /** Closed sessions are published as CSV into the picked folder instead of Documents/DBMTracker. */
+    private void pickPublishFolder() {
+        Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT_TREE);
+        Uri current = SessionStorage.publishTree(this);
+        if (current != null) {
+            intent.putExtra(DocumentsContract.EXTRA_INITIAL_URI, current);
+        }
+        startActivityForResult(intent, PUBLISH_TREE_REQUEST_CODE);
+    }
+
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+        if (requestCode == PUBLISH_TREE_REQUEST_CODE && resultCode == RESULT_OK && data != null
+                && data.getData() != null) {
+            try {
+                SessionStorage.setPublishTree(this, data.getData());
+                Toast.makeText(this, "Sessions will be published to the chosen folder", Toast.LENGTH_SHORT).show();
+            } catch (SecurityException e) {
+                Toast.makeText(this, "Could not keep access to that folder", Toast.LENGTH_SHORT).show();
+            }
+        }
+    }
+
+    private void beginExport() {
+        exporting = true;
+        exportCancelled.set(false);
+        exportButton.setText("Cancel export");
+    }
+
+    private void finishExport(String message) {
+        exporting = false;
+        exportButton.setEnabled(true);
+        exportButton.setText("Export");
+        Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
+    }
+
+    /**
+     * Exports each whole session, across its segments, to {@code format} in the folder closed sessions are
+     * published to; streamed and cancellable.
+     */
+    private void exportSessions(ExportFormat format, String label) {
+        beginExport();
+        File appDirectory = SessionStorage.sessionDirectory(this);
+        PublishTarget target = SessionStorage.publishTarget(this);
+        new Thread(() -> {
+            int exported = 0;
+            boolean cancelled = false;
+            List<SessionManifest> sessions = new ArrayList<>();
+            try {
+                sessions = SessionManifest.listSessions(appDirectory);
+            } catch (IOException e) {
+                Log.e("MainActivity", "Error listing sessions: " + e.getMessage());
+            }
+            for (SessionManifest session : sessions) {
+                try {
+                    target.publish(session.baseName() + format.extension, format.mimeType, out -> {
+                        try (SessionReader reader = new SessionReader(session);
+                             SampleWriter writer = format.open(out, session.baseName())) {
+                            SessionExporter.export(reader, writer, exportCancelled, null);
+                        }
+                    });
+                    exported++;
+                } catch (InterruptedIOException e) {
+                    cancelled = true;
+                    break;
+                } catch (IOException e) {
+                    Log.e("MainActivity", "Error exporting " + session.baseName() + ": " + e.getMessage());
+                }
+            }
+            String message = (cancelled ? "Export cancelled after " : "Exported ") + exported
+                    + " session(s) to " + label;
+            runOnUiThread(() -> finishExport(message));
+        }).start();
+    }
+
+    /** Exports each session as the CSV closed sessions are published as, into the same folder; cancellable. */
+    private void exportCsv() {
+        beginExport();
+        File appDirectory = SessionStorage.sessionDirectory(this);
+        SessionPublisher publisher = new SessionPublisher(SessionStorage.publishTarget(this), TimeZone.getDefault());
+        new Thread(() -> {
+            int exported = 0;
+            boolean cancelled = false;
+            List<SessionManifest> sessions = new ArrayList<>();
+            try {
+                sessions = SessionManifest.listSessions(appDirectory);
+            } catch (IOException e) {
+                Log.e("MainActivity", "Error listing sessions: " + e.getMessage());
+            }
+            for (SessionManifest session : sessions) {
+                try {
+                    publisher.publish(session, exportCancelled);
+                    exported++;
+                } catch (InterruptedIOException e) {
+                    cancelled = true;
+                    break;
+                } catch (IOException e) {
+                    Log.e("MainActivity", "Error exporting " + session.baseName() + ": " + e.getMessage());
+                }
+            }
+            String message = (cancelled ? "Export cancelled after " : "Exported ") + exported
+                    + " session(s) to CSV";
+            runOnUiThread(() -> finishExport(message));
+        }).start();
     }
 
     private void checkAndRequestPermissions() {
@@ -111,9 +375,7 @@ public class MainActivity extends AppCompatActivity {
             requestPermissions(new String[]{
                     android.Manifest.permission.ACCESS_FINE_LOCATION,
                     android.Manifest.permission.ACCESS_COARSE_LOCATION,
-                    android.Manifest.permission.READ_PHONE_STATE,
-                    android.Manifest.permission.WRITE_EXTERNAL_STORAGE,
-                    android.Manifest.permission.READ_EXTERNAL_STORAGE
+                    android.Manifest.permission.READ_PHONE_STATE
             }, 1000);
         }
     }
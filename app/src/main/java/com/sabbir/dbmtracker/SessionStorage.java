@@ -0,0 +1,196 @@
+package com.sabbir.dbmtracker;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Environment;
+import android.provider.DocumentsContract;
+import android.provider.MediaStore;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+import androidx.annotation.Nullable;
+import com.sabbir.dbmtracker.core.PreallocatedFileOutputStream;
+import com.sabbir.dbmtracker.core.PublishTarget;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Where sessions are kept. They are recorded in the app's own external
+ * files directory, which needs no storage permission, and each closed
+ * session is published as CSV for the user to pick up: into the folder they
+ * chose through the Storage Access Framework, or else through MediaStore
+ * into Documents/DBMTracker, where sessions used to be written directly.
+ */
+final class SessionStorage {
+
+    static final String PUBLIC_FOLDER = "DBMTracker";
+    private static final String PREFERENCES = "storage";
+    private static final String KEY_PUBLISH_TREE = "publishTree";
+
+    /**
+     * Reserves each extent of a segment with posix_fallocate, so appends do not look for blocks. File systems
+     * that cannot, e.g. behind FUSE, get the file extended instead.
+     */
+    static final PreallocatedFileOutputStream.Allocator RESERVE_BLOCKS = (file, offset, length) -> {
+        try {
+            Os.posix_fallocate(file.getFD(), offset, length);
+        } catch (ErrnoException e) {
+            if (e.errno != OsConstants.EOPNOTSUPP && e.errno != OsConstants.ENOSYS) {
+                throw new IOException("Could not reserve " + length + " bytes: " + e.getMessage(), e);
+            }
+            PreallocatedFileOutputStream.EXTEND.allocate(file, offset, length);
+        }
+    };
+
+    private SessionStorage() {
+    }
+
+    static File sessionDirectory(Context context) {
+        File root = context.getExternalFilesDir(null);
+        return new File(root != null ? root : context.getFilesDir(), "sessions");
+    }
+
+    static PublishTarget publishTarget(Context context) {
+        Uri tree = publishTree(context);
+        ContentResolver resolver = context.getContentResolver();
+        return tree != null ? new DocumentTreeTarget(resolver, tree) : new MediaStoreTarget(resolver);
+    }
+
+    /** Folder picked with ACTION_OPEN_DOCUMENT_TREE, or null for Documents/DBMTracker. */
+    @Nullable
+    static Uri publishTree(Context context) {
+        String tree = preferences(context).getString(KEY_PUBLISH_TREE, null);
+        return tree != null ? Uri.parse(tree) : null;
+    }
+
+    /** Keeps access to {@code tree} across reboots and publishes there from now on. */
+    static void setPublishTree(Context context, Uri tree) {
+        context.getContentResolver().takePersistableUriPermission(tree,
+                Intent.FLAG_GRANT_READ_URI_PERMISSION | Intent.FLAG_GRANT_WRITE_URI_PERMISSION);
+        preferences(context).edit().putString(KEY_PUBLISH_TREE, tree.toString()).apply();
+    }
+
+    private static SharedPreferences preferences(Context context) {
+        return context.getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE);
+    }
+
+    /** Shared Documents/DBMTracker; pending until written, so a half-written file is never visible. */
+    private static final class MediaStoreTarget implements PublishTarget {
+
+        private static final String RELATIVE_PATH = Environment.DIRECTORY_DOCUMENTS + "/" + PUBLIC_FOLDER + "/";
+
+        private final ContentResolver resolver;
+
+        MediaStoreTarget(ContentResolver resolver) {
+            this.resolver = resolver;
+        }
+
+        @Override
+        public void publish(String name, String mimeType, Content content) throws IOException {
+            Uri collection = MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY);
+            Uri item;
+            try {
+                // Only files this app published before can match; others are not visible to it.
+                resolver.delete(collection, MediaStore.MediaColumns.DISPLAY_NAME + "=? AND "
+                        + MediaStore.MediaColumns.RELATIVE_PATH + "=?", new String[] {name, RELATIVE_PATH});
+                ContentValues values = new ContentValues();
+                values.put(MediaStore.MediaColumns.DISPLAY_NAME, name);
+                values.put(MediaStore.MediaColumns.MIME_TYPE, mimeType);
+                values.put(MediaStore.MediaColumns.RELATIVE_PATH, RELATIVE_PATH);
+                values.put(MediaStore.MediaColumns.IS_PENDING, 1);
+                item = resolver.insert(collection, values);
+            } catch (RuntimeException e) {
+                throw new IOException("Could not publish " + name + ": " + e.getMessage(), e);
+            }
+            if (item == null) {
+                throw new IOException("Shared storage refused " + name);
+            }
+            try {
+                try (OutputStream out = resolver.openOutputStream(item)) {
+                    if (out == null) {
+                        throw new IOException("Could not open " + item);
+                    }
+                    content.writeTo(out);
+                }
+                ContentValues done = new ContentValues();
+                done.put(MediaStore.MediaColumns.IS_PENDING, 0);
+                resolver.update(item, done, null, null);
+            } catch (IOException | RuntimeException e) {
+                resolver.delete(item, null, null);
+                throw e instanceof IOException ? (IOException) e
+                        : new IOException("Could not publish " + name + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /** A folder the user picked; written under a temporary name and renamed once complete. */
+    private static final class DocumentTreeTarget implements PublishTarget {
+
+        private final ContentResolver resolver;
+        private final Uri tree;
+
+        DocumentTreeTarget(ContentResolver resolver, Uri tree) {
+            this.resolver = resolver;
+            this.tree = tree;
+        }
+
+        @Override
+        public void publish(String name, String mimeType, Content content) throws IOException {
+            String folderId = DocumentsContract.getTreeDocumentId(tree);
+            Uri folder = DocumentsContract.buildDocumentUriUsingTree(tree, folderId);
+            Uri temp;
+            try {
+                temp = DocumentsContract.createDocument(resolver, folder, mimeType, ".pending-" + name);
+            } catch (RuntimeException e) {
+                throw new IOException("Could not publish " + name + ": " + e.getMessage(), e);
+            }
+            if (temp == null) {
+                throw new IOException("Folder refused " + name + "; pick it again");
+            }
+            try {
+                try (OutputStream out = resolver.openOutputStream(temp, "w")) {
+                    if (out == null) {
+                        throw new IOException("Could not open " + temp);
+                    }
+                    content.writeTo(out);
+                }
+                Uri existing = find(folderId, name);
+                if (existing != null) {
+                    DocumentsContract.deleteDocument(resolver, existing);
+                }
+                if (DocumentsContract.renameDocument(resolver, temp, name) == null) {
+                    throw new IOException("Could not rename " + temp + " to " + name);
+                }
+            } catch (IOException | RuntimeException e) {
+                try {
+                    DocumentsContract.deleteDocument(resolver, temp);
+                } catch (IOException | RuntimeException ignored) {
+                    // Leaves a ".pending-" file behind; the next publish of the same name does not mind.
+                }
+                throw e instanceof IOException ? (IOException) e
+                        : new IOException("Could not publish " + name + ": " + e.getMessage(), e);
+            }
+        }
+
+        @Nullable
+        private Uri find(String folderId, String name) {
+            Uri children = DocumentsContract.buildChildDocumentsUriUsingTree(tree, folderId);
+            try (Cursor cursor = resolver.query(children, new String[] {
+                    DocumentsContract.Document.COLUMN_DOCUMENT_ID,
+                    DocumentsContract.Document.COLUMN_DISPLAY_NAME}, null, null, null)) {
+                while (cursor != null && cursor.moveToNext()) {
+                    if (name.equals(cursor.getString(1))) {
+                        return DocumentsContract.buildDocumentUriUsingTree(tree, cursor.getString(0));
+                    }
+                }
+            }
+            return null;
+        }
+    }
+}
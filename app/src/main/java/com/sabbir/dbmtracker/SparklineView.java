@@ -0,0 +1,91 @@
+package com.sabbir.dbmtracker;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.View;
+
+import com.sabbir.dbmtracker.core.Sample;
+import com.sabbir.dbmtracker.core.SignalHistory;
+
+/**
+ * Draws one dBm line per SIM from a {@link SignalHistory} over a fixed
+ * time window ending at the newest reading. The point buffer and paints
+ * are allocated up front, so drawing allocates nothing.
+ */
+public class SparklineView extends View {
+
+    private static final int MIN_DBM = -130;
+    private static final int MAX_DBM = -50;
+    private static final int[] COLORS = {0xFF1E88E5, 0xFFE53935, 0xFF43A047, 0xFFFB8C00};
+
+    private final Paint[] linePaints = new Paint[COLORS.length];
+    private final Paint gridPaint = new Paint();
+    private SignalHistory history;
+    private long windowMillis;
+    private float[] points = new float[0];
+
+    public SparklineView(Context context) {
+        this(context, null);
+    }
+
+    public SparklineView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        float density = context.getResources().getDisplayMetrics().density;
+        for (int i = 0; i < COLORS.length; i++) {
+            linePaints[i] = new Paint(Paint.ANTI_ALIAS_FLAG);
+            linePaints[i].setColor(COLORS[i]);
+            linePaints[i].setStrokeWidth(2 * density);
+        }
+        gridPaint.setColor(Color.LTGRAY);
+        gridPaint.setStrokeWidth(density);
+    }
+
+    public void setHistory(SignalHistory history, long windowMillis) {
+        this.history = history;
+        this.windowMillis = windowMillis;
+        this.points = new float[history.capacity() * 4];
+        invalidate();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        float width = getWidth() - getPaddingLeft() - getPaddingRight();
+        float height = getHeight() - getPaddingTop() - getPaddingBottom();
+        float left = getPaddingLeft();
+        float top = getPaddingTop();
+        // Reference lines every 20 dB.
+        for (int dbm = MIN_DBM + 20; dbm < MAX_DBM; dbm += 20) {
+            float y = top + height * (MAX_DBM - dbm) / (MAX_DBM - MIN_DBM);
+            canvas.drawLine(left, y, left + width, y, gridPaint);
+        }
+        if (history == null || history.size() < 2) {
+            return;
+        }
+        long end = history.timestampAt(history.size() - 1);
+        long start = end - windowMillis;
+        for (int column = 0; column < history.columnCount(); column++) {
+            int count = 0;
+            for (int i = 1; i < history.size(); i++) {
+                long previousTime = history.timestampAt(i - 1);
+                int previous = history.valueAt(i - 1, column);
+                int current = history.valueAt(i, column);
+                if (previousTime < start || previous == Sample.NO_SIGNAL || current == Sample.NO_SIGNAL) {
+                    continue;
+                }
+                points[count++] = left + width * (previousTime - start) / windowMillis;
+                points[count++] = top + height * (MAX_DBM - clamp(previous)) / (MAX_DBM - MIN_DBM);
+                points[count++] = left + width * (history.timestampAt(i) - start) / windowMillis;
+                points[count++] = top + height * (MAX_DBM - clamp(current)) / (MAX_DBM - MIN_DBM);
+            }
+            canvas.drawLines(points, 0, count, linePaints[column % linePaints.length]);
+        }
+    }
+
+    private static int clamp(int dbm) {
+        return Math.max(MIN_DBM, Math.min(MAX_DBM, dbm));
+    }
+}
@@ -3,18 +3,24 @@ package com.sabbir.dbmtracker;
 import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
+import android.app.PendingIntent;
 import android.app.Service;
+import android.content.BroadcastReceiver;
+import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
 import android.content.pm.PackageManager;
 import android.location.Location;
-import android.location.LocationManager;
-// Remove the import statement for android.location.LocationRequest
+import android.os.BatteryManager;
+import android.os.Binder;
 import android.os.Build;
-import android.os.Environment;
 import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.IBinder;
 import android.os.Looper;
 import android.os.PowerManager;
+import android.os.Process;
+import android.telephony.CellInfo;
 import android.telephony.CellSignalStrength;
 import android.telephony.PhoneStateListener;
 import android.telephony.SignalStrength;
@@ -31,97 +37,405 @@ import androidx.core.content.ContextCompat;
 
 import com.google.android.gms.location.FusedLocationProviderClient;
 import com.google.android.gms.location.LocationCallback;
+import com.google.android.gms.location.LocationRequest;
 import com.google.android.gms.location.LocationResult;
 import com.google.android.gms.location.LocationServices;
 import com.google.android.gms.location.Priority;
+import com.sabbir.dbmtracker.core.AdaptiveScheduler;
+import com.sabbir.dbmtracker.core.AggregatingSampleWriter;
+import com.sabbir.dbmtracker.core.CellCapture;
+import com.sabbir.dbmtracker.core.ChangeDetector;
+import com.sabbir.dbmtracker.core.CountingOutputStream;
+import com.sabbir.dbmtracker.core.InstrumentedSampleWriter;
+import com.sabbir.dbmtracker.core.LiveSnapshot;
+import com.sabbir.dbmtracker.core.LocationStage;
+import com.sabbir.dbmtracker.core.MetricsSnapshot;
+import com.sabbir.dbmtracker.core.PipelineDefaults;
+import com.sabbir.dbmtracker.core.PipelineMetrics;
+import com.sabbir.dbmtracker.core.Sample;
+import com.sabbir.dbmtracker.core.SampleEncoder;
+import com.sabbir.dbmtracker.core.SampleQueue;
+import com.sabbir.dbmtracker.core.SampleWriter;
+import com.sabbir.dbmtracker.core.SamplingMode;
+import com.sabbir.dbmtracker.core.SessionCheckpoint;
+import com.sabbir.dbmtracker.core.SessionCompactor;
+import com.sabbir.dbmtracker.core.SessionManifest;
+import com.sabbir.dbmtracker.core.SessionPublisher;
+import com.sabbir.dbmtracker.core.SessionRecorder;
+import com.sabbir.dbmtracker.core.SessionStore;
+import com.sabbir.dbmtracker.core.StagedStartup;
+import com.sabbir.dbmtracker.core.SubscriptionRegistry;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
-
-import com.google.android.gms.location.Priority;
-import com.google.android.gms.location.LocationRequest;
+import java.util.TimeZone;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class TrackingService extends Service {
-    private static final int LOCATION_UPDATE_INTERVAL = 2000;
+    private static final long WAKE_LOCK_TIMEOUT_MS = 10 * 60_000;
     private static final int NOTIFICATION_ID = 1;
     private static final String CHANNEL_ID = "DBMTrackerChannel";
-
-    private boolean isTracking = false;
-    private boolean isPaused = false;
+    private static final int MIN_SIM_COLUMNS = PipelineDefaults.MIN_SIM_COLUMNS;
+    static final String SESSION_EXTENSION = SessionStore.SESSION_EXTENSION;
+    // Closed sessions are packed into ~32 MB compressed segments.
+    private static final long COMPACTED_SEGMENT_BYTES = 32L << 20;
+    static final String EXTRA_SAMPLING_MODE = "samplingMode";
+    private static final long METRICS_INTERVAL_MS = 1000;
+    // Android rate-limits notification updates; a few seconds is plenty for a glance.
+    private static final long NOTIFICATION_REFRESH_MS = 5000;
+    // A full queue drops a sample per tick; the first drop in each window is enough in the log.
+    private static final long DROP_LOG_INTERVAL_MS = 60_000;
+
+    private volatile boolean isTracking = false;
+    private volatile boolean isPaused = false;
+    private volatile SamplingMode samplingMode = SamplingMode.FIXED_INTERVAL;
     private TelephonyManager telephonyManager;
-    private LocationManager locationManager;
-    private FileWriter csvWriter;
-    private Handler handler = new Handler();
+    private SampleWriter sampleWriter;
+    private HandlerThread samplerThread;
+    private Handler samplerHandler;
+    private HandlerThread writerThread;
+    private Handler writerHandler;
+    private HandlerThread compactorThread;
+    private Handler compactorHandler;
+    // Writer thread only.
+    private SessionRecorder recorder;
+    private File sessionDirectory;
+    private SessionCheckpoint leftoverCheckpoint;
+    // Set in onCreate and started from the main thread; file, telephony and location come up on the first
+    // "start", or on a resume. Startup phases are timed from onCreate and logged with the first sample.
+    private StagedStartup startup;
+    // Main thread only.
+    private boolean destroyed;
+    // Shown on the dashboard until the next write, or publish, succeeds.
+    private volatile String writeError;
+    private volatile String publishError;
     private PowerManager.WakeLock wakeLock;
+    // Set up on the compactor thread and re-requested from the sampler thread; guarded by locationLock.
+    private final Object locationLock = new Object();
     private FusedLocationProviderClient fusedLocationClient;
     private LocationCallback locationCallback;
-    private Location currentLocation;
     private LocationRequest locationRequest;
+    private boolean batteryReceiverRegistered;
+
+    // Telephony state is confined to the sampler thread: listeners are created there and call back there.
+    private SubscriptionManager subscriptionManager;
+    private SubscriptionManager.OnSubscriptionsChangedListener subscriptionsChangedListener;
+    private final SubscriptionRegistry<SimListener> subscriptions =
+            new SubscriptionRegistry<>(MIN_SIM_COLUMNS, new SubscriptionRegistry.Binder<SimListener>() {
+                @Override
+                public SimListener bind(int subscriptionId, int column) {
+                    TelephonyManager subscriptionTelephony = telephonyManager.createForSubscriptionId(subscriptionId);
+                    SimListener listener = new SimListener(column, subscriptionTelephony);
+                    subscriptionTelephony.listen(listener,
+                            PhoneStateListener.LISTEN_SIGNAL_STRENGTHS | PhoneStateListener.LISTEN_CELL_INFO);
+                    return listener;
+                }
+
+                @Override
+                public void unbind(SimListener listener) {
+                    listener.telephony.listen(listener, PhoneStateListener.LISTEN_NONE);
+                }
+            });
+    private boolean cellInfoChanged;
+
+    private final Sample sample = new Sample(MIN_SIM_COLUMNS);
+    private final SampleEncoder sampleEncoder = new SampleEncoder();
+    private final SampleQueue sampleQueue = new SampleQueue(PipelineDefaults.SAMPLE_QUEUE_CAPACITY, sample.simCount());
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final ChangeDetector changeDetector = PipelineDefaults.changeDetector(sample.simCount());
+
+    // Sampler thread only.
+    private final AdaptiveScheduler scheduler = new AdaptiveScheduler(new AdaptiveScheduler.Policy());
+    // Sampler thread only: gates fixes and positions each row at its own time before it is queued.
+    private final LocationStage locationStage =
+            new LocationStage(new LocationStage.Policy(), MIN_SIM_COLUMNS, this::enqueueSample);
+    private volatile AdaptiveScheduler.Plan appliedPlan;
+
+    /** Receives metrics snapshots on the main thread, about once per {@link #METRICS_INTERVAL_MS}. */
+    public interface MetricsListener {
+        void onMetrics(MetricsSnapshot snapshot);
+    }
+
+    /**
+     * Receives the latest {@link LiveSnapshot} on the main thread. Deliveries are coalesced: if several
+     * snapshots arrive before the main thread gets to one, only the newest is delivered.
+     */
+    public interface LiveListener {
+        void onLiveSnapshot(LiveSnapshot snapshot);
+    }
+
+    /** Local binding: activities in this process talk to the service directly. */
+    public class LocalBinder extends Binder {
+        public TrackingService getService() {
+            return TrackingService.this;
+        }
+    }
+
+    private final IBinder binder = new LocalBinder();
+    private final PipelineMetrics metrics = new PipelineMetrics();
+    private final CopyOnWriteArrayList<MetricsListener> metricsListeners = new CopyOnWriteArrayList<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private volatile MetricsSnapshot latestMetrics;
+    private final CopyOnWriteArrayList<LiveListener> liveListeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean liveDeliveryPending = new AtomicBoolean();
+    private volatile LiveSnapshot liveSnapshot;
+
+    private final Runnable liveDelivery = new Runnable() {
+        @Override
+        public void run() {
+            liveDeliveryPending.set(false);
+            LiveSnapshot snapshot = liveSnapshot;
+            for (LiveListener listener : liveListeners) {
+                listener.onLiveSnapshot(snapshot);
+            }
+        }
+    };
+    // Sampler thread only.
+    private long lastNotificationMillis;
+    private long lastDropLogMillis;
 
-    private int sim1SignalStrength = -999;
-    private int sim2SignalStrength = -999;
-    private String sim1OperatorName = "Unknown";
-    private String sim2OperatorName = "Unknown";
-    private PhoneStateListener sim1Listener;
-    private PhoneStateListener sim2Listener;
+    private final Runnable metricsRunnable = new Runnable() {
+        @Override
+        public void run() {
+            long now = System.currentTimeMillis();
+            MetricsSnapshot snapshot = metrics.snapshot(now, latestMetrics, sampleQueue);
+            latestMetrics = snapshot;
+            if (!metricsListeners.isEmpty()) {
+                mainHandler.post(() -> {
+                    for (MetricsListener listener : metricsListeners) {
+                        listener.onMetrics(snapshot);
+                    }
+                });
+            }
+            if (isTracking && now - lastNotificationMillis >= NOTIFICATION_REFRESH_MS) {
+                lastNotificationMillis = now;
+                getSystemService(NotificationManager.class).notify(NOTIFICATION_ID, buildNotification(snapshot));
+            }
+            samplerHandler.postDelayed(this, METRICS_INTERVAL_MS);
+        }
+    };
 
     private Runnable dataLoggerRunnable = new Runnable() {
         @Override
         public void run() {
             if (isTracking && !isPaused) {
-                writeDataToCSV();
+                refreshPlan();
+                publishSample();
+                locationStage.release(System.currentTimeMillis());
+            }
+            samplerHandler.postDelayed(this, appliedPlan.loggingIntervalMillis);
+        }
+    };
+
+    private final BroadcastReceiver batteryReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            int level = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+            int scale = intent.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+            boolean charging = intent.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+            if (level >= 0 && scale > 0) {
+                scheduler.onBattery(level * 100 / scale, charging);
             }
-            handler.postDelayed(this, LOCATION_UPDATE_INTERVAL);
         }
     };
 
+    private final Runnable drainRunnable = new Runnable() {
+        @Override
+        public void run() {
+            drainScheduled.set(false);
+            drainSampleQueue();
+        }
+    };
+
+    /**
+     * Only the foreground notification is set up here. File, telephony and location subsystems are brought
+     * up in parallel, off the main thread, by the first "start" command or by resuming a session the process
+     * died with; see {@link #bringUpSubsystems()}.
+     */
     @Override
     public void onCreate() {
         super.onCreate();
+        startup = new StagedStartup();
 
         createNotificationChannel();
-        startForeground(NOTIFICATION_ID, buildNotification());
+        startForeground(NOTIFICATION_ID, buildNotification(null));
+        startup.mark("foreground");
+
+        samplerThread = new HandlerThread("DBMTracker-Sampler");
+        samplerThread.start();
+        samplerHandler = new Handler(samplerThread.getLooper());
+        writerThread = new HandlerThread("DBMTracker-Writer", Process.THREAD_PRIORITY_BACKGROUND);
+        writerThread.start();
+        writerHandler = new Handler(writerThread.getLooper());
+        compactorThread = new HandlerThread("DBMTracker-Compactor", Process.THREAD_PRIORITY_LOWEST);
+        compactorThread.start();
+        compactorHandler = new Handler(compactorThread.getLooper());
 
         PowerManager powerManager = (PowerManager) getSystemService(POWER_SERVICE);
         wakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK,
                 "DBMTracker::DataLoggingWakeLock");
-        wakeLock.acquire();
+        wakeLock.setReferenceCounted(false);
+        appliedPlan = scheduler.plan();
 
-        telephonyManager = (TelephonyManager) getSystemService(TELEPHONY_SERVICE);
-        locationManager = (LocationManager) getSystemService(LOCATION_SERVICE);
+        writerHandler.post(this::readCheckpoint);
+        samplerHandler.post(metricsRunnable);
+    }
 
-        fusedLocationClient = LocationServices.getFusedLocationProviderClient(this);
-        createLocationCallback();
-        startLocationUpdates();
-        startSignalStrengthListener();
+    /**
+     * Writer thread: a checkpoint left behind means the process died with a session open. It is a few dozen
+     * bytes; if tracking was on, the subsystems come up straight away and logging carries on into the same
+     * session from the first tick.
+     */
+    private void readCheckpoint() {
+        sessionDirectory = SessionStorage.sessionDirectory(this);
+        leftoverCheckpoint = SessionCheckpoint.readFrom(SessionRecorder.checkpointFile(sessionDirectory));
+        SessionCheckpoint checkpoint = leftoverCheckpoint;
+        if (checkpoint != null && checkpoint.tracking) {
+            mainHandler.post(() -> resumeTracking(checkpoint));
+        }
+    }
 
-        initializeCSVWriter();
+    /** Main thread. A "start" that got here first has already brought tracking up. */
+    private void resumeTracking(SessionCheckpoint checkpoint) {
+        if (destroyed || isTracking) {
+            return;
+        }
+        Log.i("TrackingService", "Resuming session " + checkpoint.sessionBase + " after "
+                + checkpoint.sequence + " row(s)");
+        isTracking = true;
+        isPaused = checkpoint.paused;
+        samplingMode = checkpoint.mode;
+        samplerHandler.post(dataLoggerRunnable);
+        samplerHandler.post(this::publishState);
+        bringUpSubsystems();
     }
 
-    private void initializeCSVWriter() {
-        try {
-            File documentsPath = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOCUMENTS);
-            File appDirectory = new File(documentsPath, "DBMTracker");
-            if (!appDirectory.exists()) {
-                appDirectory.mkdirs();
-            }
+    /**
+     * Main thread: starts file, telephony and location bring-up, each on the thread that goes on to use it,
+     * once per service. The first tick is posted ahead of them and waits for none: rows queue until the
+     * session is open, and carry no signal or fix until the radios report.
+     */
+    private void bringUpSubsystems() {
+        if (startup.started()) {
+            return;
+        }
+        startup.add("file", writerHandler::post, this::openSession);
+        startup.add("telephony", samplerHandler::post, this::startSubscriptionTracking);
+        // The compactor is idle until now; compaction of older sessions queues behind this.
+        startup.add("location", compactorHandler::post, this::startLocation);
+        startup.start();
+        compactorHandler.post(this::compactClosedSessions);
+    }
+
+    /** Writer thread: logs a storage failure and shows it on the dashboard; sampling carries on regardless. */
+    private void reportStorageError(String message) {
+        Log.e("TrackingService", message);
+        writeError = message;
+        samplerHandler.post(this::publishState);
+    }
+
+    private void clearStorageError() {
+        if (writeError != null) {
+            writeError = null;
+            samplerHandler.post(this::publishState);
+        }
+    }
 
+    /**
+     * Writer thread: resumes the session the leftover checkpoint describes if it was tracking, otherwise
+     * closes that session and starts a new one.
+     */
+    private void openSession() {
+        SessionCheckpoint checkpoint = leftoverCheckpoint;
+        leftoverCheckpoint = null;
+        File appDirectory = sessionDirectory;
+        if (!appDirectory.isDirectory() && !appDirectory.mkdirs()) {
+            reportStorageError("Cannot create " + appDirectory);
+            return;
+        }
+
+        // A new segment file starts when the number of SIM columns changes or a segment hits its size or time
+        // limit; each gets a block index, and the manifest lists the closed ones in order.
+        SessionRecorder.Options options = PipelineDefaults.recorderOptions();
+        options.segmentStreams = out -> new CountingOutputStream(out, metrics);
+        options.allocator = SessionStorage.RESERVE_BLOCKS;
+        if (checkpoint != null && checkpoint.tracking) {
+            try {
+                recorder = SessionRecorder.resume(appDirectory, checkpoint, options);
+            } catch (IOException e) {
+                reportStorageError("Error resuming session " + checkpoint.sessionBase + ": " + e.getMessage());
+            }
+        } else if (checkpoint != null) {
+            try {
+                SessionRecorder.finish(appDirectory, checkpoint);
+            } catch (IOException e) {
+                reportStorageError("Error closing session " + checkpoint.sessionBase + ": " + e.getMessage());
+            }
+        }
+        if (recorder == null) {
             String timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date());
-            File file = new File(appDirectory, "tracking_data_" + timeStamp + ".csv");
-            boolean isNewFile = !file.exists();
-            csvWriter = new FileWriter(file, true);
-            if (isNewFile) {
-                csvWriter.append("Timestamp,Latitude,Longitude,SIM1 Name,SIM1 Signal Strength (dBm),SIM2 Name,SIM2 Signal Strength (dBm)\n");
-                csvWriter.flush();
+            try {
+                recorder = SessionRecorder.start(appDirectory, "tracking_data_" + timeStamp, options);
+            } catch (IOException e) {
+                reportStorageError("Error starting session: " + e.getMessage());
+                return;
+            }
+        }
+        recorder.setState(isTracking, isPaused, samplingMode);
+        // Per-tile coverage stats for the whole session, rewritten on every flush and caught up on resume.
+        SampleWriter session = recorder;
+        try {
+            session = AggregatingSampleWriter.resume(recorder, PipelineDefaults.TILE_SIZE_E6,
+                    AggregatingSampleWriter.fileFor(appDirectory, recorder.base()));
+        } catch (IOException e) {
+            Log.e("TrackingService", "Error rebuilding tiles of " + recorder.base() + ": " + e.getMessage());
+        }
+        sampleWriter = new InstrumentedSampleWriter(session, metrics);
+    }
+
+    /**
+     * Compactor thread: packs and compresses every session that has been closed but not compacted yet,
+     * publishes closed sessions to shared storage, then schedules their upload.
+     */
+    private void compactClosedSessions() {
+        File directory = SessionStorage.sessionDirectory(this);
+        File[] manifests = directory.listFiles(
+                (dir, name) -> name.endsWith(SessionManifest.EXTENSION));
+        if (manifests == null) {
+            return;
+        }
+        SessionCompactor compactor = new SessionCompactor(COMPACTED_SEGMENT_BYTES);
+        for (File file : manifests) {
+            try {
+                compactor.compact(file);
+            } catch (IOException e) {
+                Log.e("TrackingService", "Error compacting " + file.getName() + ": " + e.getMessage());
+            }
+        }
+        if (BuildConfig.DEBUG && compactor.segmentsIn() > 0) {
+            Log.d("TrackingService", "Compacted " + compactor.segmentsIn() + " segment(s) into "
+                    + compactor.segmentsOut() + ", " + compactor.bytesIn() + " -> " + compactor.bytesOut()
+                    + " bytes, " + compactor.duplicatesDropped() + " duplicate row(s) dropped");
+        }
+        try {
+            int published = new SessionPublisher(SessionStorage.publishTarget(this), TimeZone.getDefault())
+                    .publishClosed(directory);
+            if (published > 0) {
+                Log.i("TrackingService", "Published " + published + " session(s)");
             }
+            publishError = null;
         } catch (IOException e) {
-            e.printStackTrace();
+            Log.e("TrackingService", "Error publishing sessions: " + e.getMessage());
+            publishError = "Error publishing sessions: " + e.getMessage();
         }
+        samplerHandler.post(this::publishState);
+        // Compacted sessions are what gets uploaded; the job waits for an unmetered network or a charger.
+        UploadJobService.schedule(this);
     }
 
     private void createNotificationChannel() {
@@ -135,108 +449,298 @@ public class TrackingService extends Service {
         }
     }
 
-    private Notification buildNotification() {
+    private Notification buildNotification(@Nullable MetricsSnapshot snapshot) {
+        PendingIntent openApp = PendingIntent.getActivity(this, 0, new Intent(this, MainActivity.class),
+                PendingIntent.FLAG_IMMUTABLE);
         NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
                 .setContentTitle("DBM Tracker Active")
                 .setContentText("Tracking signal strength and location")
                 .setSmallIcon(R.drawable.ic_launcher_foreground)
+                .setContentIntent(openApp)
+                .setOngoing(true)
+                .setOnlyAlertOnce(true)
                 .setPriority(NotificationCompat.PRIORITY_LOW);
+        if (snapshot != null) {
+            String summary = String.format(Locale.US, "%.1f samples/s \u00b7 fix %s \u00b7 queue %d/%d",
+                    snapshot.samplesPerSecond, formatAge(snapshot.millisSinceFix),
+                    snapshot.queueDepth, snapshot.queueCapacity);
+            StringBuilder details = new StringBuilder(summary);
+            for (int column = 0; column < snapshot.signalColumnCount(); column++) {
+                details.append("\nSIM").append(column + 1).append(" signal ")
+                        .append(formatAge(snapshot.millisSinceSignal(column)));
+            }
+            details.append(String.format(Locale.US, "\nWrite p50/p99 %d/%d \u00b5s \u00b7 %d KB written",
+                    snapshot.writeP50Micros, snapshot.writeP99Micros, snapshot.bytesWritten / 1024));
+            details.append(String.format(Locale.US, "\nWake lock held %d s \u00b7 %d dropped",
+                    snapshot.wakeLockHeldMillis / 1000, snapshot.queueDrops));
+            builder.setContentText(summary)
+                    .setStyle(new NotificationCompat.BigTextStyle().bigText(details));
+        }
         return builder.build();
     }
 
+    private static String formatAge(long millis) {
+        return millis < 0 ? "never" : millis / 1000 + " s ago";
+    }
+
+    /** Latest metrics, or null before the first snapshot. Safe from any thread. */
+    @Nullable
+    public MetricsSnapshot getMetrics() {
+        return latestMetrics;
+    }
+
+    public void addMetricsListener(MetricsListener listener) {
+        metricsListeners.add(listener);
+    }
+
+    public void removeMetricsListener(MetricsListener listener) {
+        metricsListeners.remove(listener);
+    }
+
+    /** Latest live values, or null before tracking has produced any. Safe from any thread. */
+    @Nullable
+    public LiveSnapshot getLiveSnapshot() {
+        return liveSnapshot;
+    }
+
+    public void addLiveListener(LiveListener listener) {
+        liveListeners.add(listener);
+    }
+
+    public void removeLiveListener(LiveListener listener) {
+        liveListeners.remove(listener);
+    }
+
     private void createLocationCallback() {
         locationCallback = new LocationCallback() {
             @Override
             public void onLocationResult(LocationResult locationResult) {
-                if (locationResult != null) {
-                    currentLocation = locationResult.getLastLocation();
+                if (locationResult == null) {
+                    return;
+                }
+                // Batched deliveries carry several fixes; each one goes through the gate in order.
+                boolean accepted = false;
+                long now = System.currentTimeMillis();
+                for (Location location : locationResult.getLocations()) {
+                    int latitudeE6 = Sample.toE6(location.getLatitude());
+                    int longitudeE6 = Sample.toE6(location.getLongitude());
+                    int result = locationStage.onFix(location.getTime(), latitudeE6, longitudeE6,
+                            location.hasAccuracy() ? location.getAccuracy() : Float.NaN, now);
+                    if (result != LocationStage.FIX_ACCEPTED) {
+                        if (BuildConfig.DEBUG) {
+                            Log.d("TrackingService", "Fix rejected (" + result + "): " + location);
+                        }
+                        continue;
+                    }
+                    accepted = true;
+                    scheduler.onFix(location.getTime(), latitudeE6, longitudeE6);
+                }
+                if (!accepted) {
+                    return;
+                }
+                metrics.onFix(now);
+                if (isTracking && !isPaused) {
+                    refreshPlan();
                 }
+                onSampleInputChanged();
             }
         };
     }
 
-    private void startLocationUpdates() {
+    /** Compactor thread: the location part of {@link #bringUpSubsystems()}. */
+    private void startLocation() {
+        registerReceiver(batteryReceiver, new IntentFilter(Intent.ACTION_BATTERY_CHANGED), null, samplerHandler);
+        synchronized (locationLock) {
+            batteryReceiverRegistered = true;
+            fusedLocationClient = LocationServices.getFusedLocationProviderClient(this);
+            createLocationCallback();
+            // A plan the sampler applied while the client was being created is picked up here.
+            startLocationUpdates(appliedPlan);
+        }
+    }
+
+    /** Compactor thread: undoes {@link #startLocation()}, if it ran. */
+    private void stopLocation() {
+        synchronized (locationLock) {
+            if (batteryReceiverRegistered) {
+                unregisterReceiver(batteryReceiver);
+                batteryReceiverRegistered = false;
+            }
+            if (fusedLocationClient != null) {
+                fusedLocationClient.removeLocationUpdates(locationCallback);
+                fusedLocationClient = null;
+            }
+        }
+    }
+
+    /** Sampler or compactor thread; does nothing until location has been brought up. */
+    private void startLocationUpdates(AdaptiveScheduler.Plan plan) {
+        synchronized (locationLock) {
+            if (fusedLocationClient == null) {
+                return;
+            }
+            requestLocationUpdates(plan);
+        }
+    }
+
+    private void requestLocationUpdates(AdaptiveScheduler.Plan plan) {
+        int priority = toLocationPriority(plan.priority);
+        long interval = plan.locationIntervalMillis;
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
-            locationRequest = new LocationRequest.Builder(2000L)
-                    .setPriority(Priority.PRIORITY_HIGH_ACCURACY)
-                    .setMinUpdateIntervalMillis(1000L)
-                    .setMaxUpdateDelayMillis(2000L)
+            locationRequest = new LocationRequest.Builder(interval)
+                    .setPriority(priority)
+                    .setMinUpdateIntervalMillis(interval / 2)
+                    .setMaxUpdateDelayMillis(interval)
                     .build();
         } else {
             locationRequest = LocationRequest.create()
-                    .setPriority(LocationRequest.PRIORITY_HIGH_ACCURACY)
-                    .setInterval(2000)
-                    .setFastestInterval(1000);
+                    .setPriority(priority)
+                    .setInterval(interval)
+                    .setFastestInterval(interval / 2);
         }
 
         if (ActivityCompat.checkSelfPermission(this, android.Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED) {
-            fusedLocationClient.requestLocationUpdates(locationRequest, locationCallback, Looper.getMainLooper());
+            fusedLocationClient.requestLocationUpdates(locationRequest, locationCallback, samplerThread.getLooper());
         }
     }
 
-    private void startSignalStrengthListener() {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-            SubscriptionManager subscriptionManager = SubscriptionManager.from(getApplicationContext());
-
-            sim1Listener = new PhoneStateListener() {
-                @Override
-                public void onSignalStrengthsChanged(SignalStrength signalStrength) {
-                    super.onSignalStrengthsChanged(signalStrength);
-                    updateSim1SignalStrength(signalStrength);
-                }
-            };
+    private static int toLocationPriority(AdaptiveScheduler.Priority priority) {
+        switch (priority) {
+            case BALANCED_POWER:
+                return Priority.PRIORITY_BALANCED_POWER_ACCURACY;
+            case LOW_POWER:
+                return Priority.PRIORITY_LOW_POWER;
+            default:
+                return Priority.PRIORITY_HIGH_ACCURACY;
+        }
+    }
 
-            sim2Listener = new PhoneStateListener() {
-                @Override
-                public void onSignalStrengthsChanged(SignalStrength signalStrength) {
-                    super.onSignalStrengthsChanged(signalStrength);
-                    updateSim2SignalStrength(signalStrength);
-                }
-            };
-
-            List<SubscriptionInfo> subscriptionInfoList = subscriptionManager.getActiveSubscriptionInfoList();
-            if (subscriptionInfoList != null) {
-                for (SubscriptionInfo subInfo : subscriptionInfoList) {
-                    int slotIndex = subInfo.getSimSlotIndex();
-                    String operatorName = subInfo.getDisplayName().toString();
-                    int subId = subInfo.getSubscriptionId();
-
-                    if (slotIndex == 0) {
-                        sim1OperatorName = operatorName;
-                        TelephonyManager tm1 = getSystemService(TelephonyManager.class).createForSubscriptionId(subId);
-                        tm1.listen(sim1Listener, PhoneStateListener.LISTEN_SIGNAL_STRENGTHS);
-                    } else if (slotIndex == 1) {
-                        sim2OperatorName = operatorName;
-                        TelephonyManager tm2 = getSystemService(TelephonyManager.class).createForSubscriptionId(subId);
-                        tm2.listen(sim2Listener, PhoneStateListener.LISTEN_SIGNAL_STRENGTHS);
-                    }
-                }
+    /**
+     * Sampler thread: re-evaluates the adaptive plan and applies location and wake-lock changes.
+     * The logging tick picks up a new cadence when it next reschedules itself.
+     */
+    private void refreshPlan() {
+        AdaptiveScheduler.Plan plan = scheduler.update(System.currentTimeMillis());
+        if (plan != appliedPlan) {
+            Log.i("TrackingService", "Adaptive plan " + appliedPlan.name + " -> " + plan);
+            AdaptiveScheduler.Plan previous = appliedPlan;
+            // Applied before the request, so a location bring-up still in progress requests this plan.
+            appliedPlan = plan;
+            if (plan.priority != previous.priority || plan.locationIntervalMillis != previous.locationIntervalMillis) {
+                startLocationUpdates(plan);
             }
         }
+        if (isTracking && !isPaused && plan.holdWakeLock) {
+            wakeLock.acquire(WAKE_LOCK_TIMEOUT_MS);
+            metrics.onWakeLockAcquired(System.currentTimeMillis());
+        } else {
+            releaseWakeLock();
+        }
     }
 
-    private void updateSim1SignalStrength(SignalStrength signalStrength) {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-            List<CellSignalStrength> cellSignalStrengths = signalStrength.getCellSignalStrengths();
-            if (!cellSignalStrengths.isEmpty()) {
-                sim1SignalStrength = cellSignalStrengths.get(0).getDbm();
-                Log.d("SignalStrength", "SIM1 DBM updated: " + sim1SignalStrength);
+    private void releaseWakeLock() {
+        if (wakeLock.isHeld()) {
+            wakeLock.release();
+        }
+        metrics.onWakeLockReleased(System.currentTimeMillis());
+    }
+
+    private void logWakeTimeSaved() {
+        Log.i("TrackingService", "Adaptive scheduler: tracked " + scheduler.trackedMillis() / 1000
+                + " s, wake lock avoided for " + scheduler.wakeTimeSavedMillis() / 1000 + " s");
+    }
+
+    /** Sampler thread: the telephony part of {@link #bringUpSubsystems()}. */
+    private void startSubscriptionTracking() {
+        telephonyManager = getSystemService(TelephonyManager.class);
+        subscriptionManager = getSystemService(SubscriptionManager.class);
+        subscriptionsChangedListener = new SubscriptionManager.OnSubscriptionsChangedListener() {
+            @Override
+            public void onSubscriptionsChanged() {
+                syncSubscriptions();
             }
+        };
+        subscriptionManager.addOnSubscriptionsChangedListener(subscriptionsChangedListener);
+        syncSubscriptions();
+    }
+
+    /** Sampler thread: unregisters every per-subscription listener through the TelephonyManager it was bound to. */
+    private void stopSubscriptionTracking() {
+        if (subscriptionManager != null) {
+            subscriptionManager.removeOnSubscriptionsChangedListener(subscriptionsChangedListener);
+        }
+        subscriptions.clear();
+    }
+
+    /** Sampler thread: binds listeners for new subscriptions and unbinds removed ones without stopping tracking. */
+    private void syncSubscriptions() {
+        List<SubscriptionInfo> subscriptionInfoList;
+        try {
+            subscriptionInfoList = subscriptionManager.getActiveSubscriptionInfoList();
+        } catch (SecurityException e) {
+            Log.e("TrackingService", "No permission to read subscriptions: " + e.getMessage());
+            return;
+        }
+        int count = subscriptionInfoList != null ? subscriptionInfoList.size() : 0;
+        int[] subscriptionIds = new int[count];
+        int[] slotIndexes = new int[count];
+        String[] operatorNames = new String[count];
+        for (int i = 0; i < count; i++) {
+            SubscriptionInfo subInfo = subscriptionInfoList.get(i);
+            subscriptionIds[i] = subInfo.getSubscriptionId();
+            slotIndexes[i] = subInfo.getSimSlotIndex();
+            operatorNames[i] = subInfo.getDisplayName().toString();
         }
+        subscriptions.sync(subscriptionIds, slotIndexes, operatorNames, count);
+        Log.i("TrackingService", "Tracking " + count + " subscription(s) in " + subscriptions.columnCount() + " columns");
     }
 
-    private void updateSim2SignalStrength(SignalStrength signalStrength) {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+    /** Listener bound to one subscription's column; created on, and called back on, the sampler thread. */
+    private final class SimListener extends PhoneStateListener {
+        final int column;
+        final TelephonyManager telephony;
+        List<CellInfo> cellInfo;
+
+        SimListener(int column, TelephonyManager telephony) {
+            this.column = column;
+            this.telephony = telephony;
+        }
+
+        @Override
+        public void onSignalStrengthsChanged(SignalStrength signalStrength) {
+            super.onSignalStrengthsChanged(signalStrength);
+            if (subscriptions.handle(column) != this) {
+                return;
+            }
             List<CellSignalStrength> cellSignalStrengths = signalStrength.getCellSignalStrengths();
             if (!cellSignalStrengths.isEmpty()) {
-                sim2SignalStrength = cellSignalStrengths.get(0).getDbm();
-                Log.d("SignalStrength", "SIM2 DBM updated: " + sim2SignalStrength);
+                int dbm = cellSignalStrengths.get(0).getDbm();
+                subscriptions.setDbm(column, dbm);
+                metrics.onSignal(column, System.currentTimeMillis());
+                if (BuildConfig.DEBUG) {
+                    Log.d("SignalStrength", "SIM" + (column + 1) + " DBM updated: " + dbm);
+                }
+                onSampleInputChanged();
+            }
+        }
+
+        @Override
+        public void onCellInfoChanged(List<CellInfo> cellInfo) {
+            super.onCellInfoChanged(cellInfo);
+            if (subscriptions.handle(column) != this) {
+                return;
             }
+            this.cellInfo = cellInfo;
+            cellInfoChanged = true;
         }
     }
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
+        if (intent == null) {
+            // Restarted after the process was killed; onCreate already picked up the checkpoint.
+            return START_STICKY;
+        }
         String command = intent.getStringExtra("command");
 
         if (command != null) {
@@ -244,30 +748,43 @@ public class TrackingService extends Service {
                 case "start":
                     isTracking = true;
                     isPaused = false;
-                    handler.removeCallbacks(dataLoggerRunnable);
-                    handler.post(dataLoggerRunnable);
-                    if (!wakeLock.isHeld()) {
-                        wakeLock.acquire();
-                    }
+                    String mode = intent.getStringExtra(EXTRA_SAMPLING_MODE);
+                    samplingMode = mode != null ? SamplingMode.valueOf(mode) : SamplingMode.FIXED_INTERVAL;
+                    samplerHandler.removeCallbacks(dataLoggerRunnable);
+                    samplerHandler.post(changeDetector::reset);
+                    samplerHandler.post(dataLoggerRunnable);
+                    samplerHandler.post(this::publishState);
+                    bringUpSubsystems();
+                    writerHandler.post(this::checkpointState);
                     break;
                 case "pause":
                     isPaused = true;
-                    if (wakeLock.isHeld()) {
-                        wakeLock.release();
-                    }
+                    samplerHandler.post(() -> {
+                        locationStage.flush();
+                        writerHandler.post(this::drainAndFlush);
+                    });
+                    samplerHandler.post(scheduler::suspend);
+                    samplerHandler.post(this::publishState);
+                    writerHandler.post(this::checkpointState);
+                    releaseWakeLock();
                     break;
                 case "resume":
                     isPaused = false;
-                    if (!wakeLock.isHeld()) {
-                        wakeLock.acquire();
-                    }
+                    samplerHandler.post(this::refreshPlan);
+                    samplerHandler.post(this::publishState);
+                    writerHandler.post(this::checkpointState);
                     break;
                 case "stop":
                     isTracking = false;
-                    handler.removeCallbacks(dataLoggerRunnable);
-                    if (wakeLock.isHeld()) {
-                        wakeLock.release();
-                    }
+                    samplerHandler.removeCallbacks(dataLoggerRunnable);
+                    samplerHandler.post(this::logWakeTimeSaved);
+                    samplerHandler.post(this::publishState);
+                    samplerHandler.post(() -> {
+                        locationStage.flush();
+                        writerHandler.post(this::drainAndFlush);
+                    });
+                    writerHandler.post(this::checkpointState);
+                    releaseWakeLock();
                     stopSelf();
                     break;
             }
@@ -276,65 +793,158 @@ public class TrackingService extends Service {
         return START_STICKY;
     }
 
-    private void writeDataToCSV() {
-        try {
-            String timestamp = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault()).format(new Date());
-            String[] simData = getSimSignalStrength();
+    /** Sampler thread: in event-driven mode a new fix or signal reading may produce a row right away. */
+    private void onSampleInputChanged() {
+        if (isTracking && !isPaused && samplingMode == SamplingMode.EVENT_DRIVEN) {
+            publishSample();
+        }
+    }
 
-            String dataRow = String.format("%s,%s,%s,%s,%s,%s,%s\n",
-                    timestamp,
-                    currentLocation != null ? String.format("%.6f", currentLocation.getLatitude()) : "0.0",
-                    currentLocation != null ? String.format("%.6f", currentLocation.getLongitude()) : "0.0",
-                    simData[0], simData[1], simData[2], simData[3]);
+    /**
+     * Sampler thread: refreshes the reusable sample from the latest signal readings, positioned from the
+     * fixes accepted so far. Rows that get logged are positioned again, at their own time, by the location
+     * stage.
+     */
+    private void fillSample() {
+        sample.timestampMillis = System.currentTimeMillis();
+        locationStage.locate(sample);
+        subscriptions.fill(sample);
+    }
 
-            csvWriter.append(dataRow);
-            csvWriter.flush();
-            Log.d("TrackingService", "Data written: " + dataRow);
+    /** Sampler thread: publishes the current state to the UI without logging a row. */
+    private void publishState() {
+        fillSample();
+        publishLive();
+    }
 
-        } catch (IOException e) {
-            Log.e("TrackingService", "Error writing to CSV: " + e.getMessage());
-            e.printStackTrace();
+    private void publishLive() {
+        liveSnapshot = LiveSnapshot.of(sample, isTracking, isPaused, samplingMode,
+                sample.accuracyDecimeters == Sample.NO_ACCURACY ? Float.NaN : sample.accuracyDecimeters / 10f,
+                sample.timestampMillis - sample.fixAgeMillis, writeError != null ? writeError : publishError);
+        if (!liveListeners.isEmpty() && liveDeliveryPending.compareAndSet(false, true)) {
+            mainHandler.post(liveDelivery);
         }
     }
 
-    private String[] getSimSignalStrength() {
-        String[] data = {
-                sim1OperatorName,
-                sim1SignalStrength == -999 ? "N/A" : String.valueOf(sim1SignalStrength),
-                sim2OperatorName,
-                sim2SignalStrength == -999 ? "N/A" : String.valueOf(sim2SignalStrength)
-        };
-        return data;
+    private void publishSample() {
+        fillSample();
+        publishLive();
+        sample.cells.clear();
+        boolean newCells = cellInfoChanged;
+        if (newCells) {
+            cellInfoChanged = false;
+            for (int column = 0; column < sample.simCount(); column++) {
+                SimListener listener = subscriptions.handle(column);
+                if (listener != null) {
+                    CellCapture.extract(listener.cellInfo, column, sample.cells, AndroidCellReader.INSTANCE);
+                }
+            }
+        }
+        if (samplingMode == SamplingMode.EVENT_DRIVEN && !changeDetector.shouldEmit(sample) && !newCells) {
+            return;
+        }
+
+        locationStage.submit(sample, sample.timestampMillis);
     }
 
-    @Override
-    public void onDestroy() {
-        if (wakeLock.isHeld()) {
-            wakeLock.release();
+    /** Sampler thread: the location stage hands over each row here once it has its position. */
+    private void enqueueSample(Sample positioned) {
+        if (!sampleQueue.offer(positioned) && positioned.timestampMillis - lastDropLogMillis >= DROP_LOG_INTERVAL_MS) {
+            lastDropLogMillis = positioned.timestampMillis;
+            Log.w("TrackingService", "Sample queue full, dropped sample; drops=" + sampleQueue.drops());
         }
-        if (fusedLocationClient != null && locationCallback != null) {
-            fusedLocationClient.removeLocationUpdates(locationCallback);
+        if (drainScheduled.compareAndSet(false, true)) {
+            writerHandler.post(drainRunnable);
         }
-        if (sim1Listener != null) {
-            telephonyManager.listen(sim1Listener, PhoneStateListener.LISTEN_NONE);
+        if (BuildConfig.DEBUG) {
+            int length = sampleEncoder.encode(positioned);
+            Log.d("TrackingService", "Data queued: " + new String(sampleEncoder.buffer(), 0, length));
         }
-        if (sim2Listener != null) {
-            telephonyManager.listen(sim2Listener, PhoneStateListener.LISTEN_NONE);
+    }
+
+    private void drainSampleQueue() {
+        if (sampleWriter == null) {
+            return;
         }
-        super.onDestroy();
-        handler.removeCallbacks(dataLoggerRunnable);
         try {
-            if (csvWriter != null) {
-                csvWriter.close();
+            if (sampleQueue.drainTo(sampleWriter) > 0 && startup.mark(StagedStartup.FIRST_SAMPLE)) {
+                Log.i("TrackingService", "Startup: " + startup + "; first sample "
+                        + startup.millisBetween(StagedStartup.START, StagedStartup.FIRST_SAMPLE) + " ms after start");
             }
+            recorder.maybeCheckpoint(System.currentTimeMillis());
+            clearStorageError();
         } catch (IOException e) {
-            e.printStackTrace();
+            reportStorageError("Error writing session: " + e.getMessage());
         }
     }
 
+    /** Writer thread: saves a tracking state change right away, so a restart comes back in that state. */
+    private void checkpointState() {
+        if (recorder == null) {
+            return;
+        }
+        recorder.setState(isTracking, isPaused, samplingMode);
+        try {
+            recorder.checkpoint(System.currentTimeMillis());
+        } catch (IOException e) {
+            reportStorageError("Error writing checkpoint: " + e.getMessage());
+        }
+    }
+
+    private void drainAndFlush() {
+        drainSampleQueue();
+        if (sampleWriter == null) {
+            return;
+        }
+        try {
+            sampleWriter.flush();
+        } catch (IOException e) {
+            reportStorageError("Error flushing session: " + e.getMessage());
+        }
+    }
+
+    private void closeSampleWriter() {
+        drainSampleQueue();
+        Log.i("TrackingService", "Sample queue: published=" + sampleQueue.published()
+                + " drops=" + sampleQueue.drops() + " highWaterMark=" + sampleQueue.highWaterMark());
+        try {
+            // Closing the recorder marks the session closed and drops its checkpoint.
+            if (sampleWriter != null) {
+                sampleWriter.close();
+            }
+        } catch (IOException e) {
+            Log.e("TrackingService", "Error closing session: " + e.getMessage());
+        }
+        // Compaction of the session just closed runs after the writer is done with it.
+        compactorHandler.post(this::compactClosedSessions);
+        compactorThread.quitSafely();
+    }
+
+    @Override
+    public void onDestroy() {
+        destroyed = true;
+        releaseWakeLock();
+        // Behind the location bring-up, if it is still running.
+        compactorHandler.post(this::stopLocation);
+        super.onDestroy();
+        isTracking = false;
+        samplerHandler.removeCallbacks(dataLoggerRunnable);
+        samplerHandler.removeCallbacks(metricsRunnable);
+        metricsListeners.clear();
+        liveListeners.clear();
+        samplerHandler.post(this::stopSubscriptionTracking);
+        // Runs after any in-flight tick, so the writer sees every published sample before closing.
+        samplerHandler.post(() -> {
+            locationStage.flush();
+            writerHandler.post(this::closeSampleWriter);
+            writerThread.quitSafely();
+        });
+        samplerThread.quitSafely();
+    }
+
     @Nullable
     @Override
     public IBinder onBind(Intent intent) {
-        return null;
+        return binder;
     }
 }
\ No newline at end of file
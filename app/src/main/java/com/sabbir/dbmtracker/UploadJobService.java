@@ -0,0 +1,102 @@
+package com.sabbir.dbmtracker;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Process;
+import android.provider.Settings;
+import android.util.Log;
+import com.sabbir.dbmtracker.core.HttpUploadTransport;
+import com.sabbir.dbmtracker.core.SessionUploader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Uploads finished sessions to {@link BuildConfig#COLLECTOR_URL} from a
+ * job of its own, never from the tracking service's threads. Scheduled
+ * twice, because JobScheduler constraints only combine with "and": once for
+ * any unmetered network and once for any network while charging. Whichever
+ * runs first does the work.
+ */
+public class UploadJobService extends JobService {
+
+    private static final int JOB_UNMETERED = 1001;
+    private static final int JOB_CHARGING = 1002;
+    private static final long JOB_BACKOFF_MS = 60_000;
+    private static final int CONNECT_TIMEOUT_MS = 15_000;
+    private static final int READ_TIMEOUT_MS = 60_000;
+    // One upload at a time, whichever job started it.
+    private static final AtomicBoolean running = new AtomicBoolean();
+
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private Thread worker;
+
+    /** Asks for an upload run once the constraints allow; cheap, and a no-op when no collector is configured. */
+    static void schedule(Context context) {
+        if (BuildConfig.COLLECTOR_URL.isEmpty()) {
+            return;
+        }
+        JobScheduler scheduler = context.getSystemService(JobScheduler.class);
+        ComponentName service = new ComponentName(context, UploadJobService.class);
+        scheduler.schedule(new JobInfo.Builder(JOB_UNMETERED, service)
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_UNMETERED)
+                .setBackoffCriteria(JOB_BACKOFF_MS, JobInfo.BACKOFF_POLICY_EXPONENTIAL)
+                .build());
+        scheduler.schedule(new JobInfo.Builder(JOB_CHARGING, service)
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                .setRequiresCharging(true)
+                .setBackoffCriteria(JOB_BACKOFF_MS, JobInfo.BACKOFF_POLICY_EXPONENTIAL)
+                .build());
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        String deviceId = Settings.Secure.getString(getContentResolver(), Settings.Secure.ANDROID_ID);
+        SessionUploader uploader = new SessionUploader(SessionStorage.sessionDirectory(this),
+                new HttpUploadTransport(BuildConfig.COLLECTOR_URL, deviceId, CONNECT_TIMEOUT_MS, READ_TIMEOUT_MS),
+                new SessionUploader.Policy());
+        worker = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            boolean reschedule = false;
+            try {
+                reschedule = !uploader.uploadPending(cancelled);
+            } catch (InterruptedIOException e) {
+                // onStopJob already asked for a reschedule.
+            } catch (IOException e) {
+                Log.e("UploadJobService", "Error uploading sessions: " + e.getMessage());
+                reschedule = true;
+            } finally {
+                running.set(false);
+            }
+            Log.i("UploadJobService", "Uploaded " + uploader.sessionsUploaded() + " session(s), "
+                    + uploader.bytesRead() + " bytes in " + uploader.chunksSent() + " chunks, "
+                    + uploader.retries() + " retries");
+            if (!cancelled.get()) {
+                if (!reschedule) {
+                    // Done; the other job has nothing left to do either.
+                    getSystemService(JobScheduler.class).cancel(
+                            params.getJobId() == JOB_UNMETERED ? JOB_CHARGING : JOB_UNMETERED);
+                }
+                jobFinished(params, reschedule);
+            }
+        }, "DBMTracker-Uploader");
+        worker.start();
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        cancelled.set(true);
+        if (worker != null) {
+            worker.interrupt();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,53 @@
+package com.sabbir.dbmtracker.benchmark;
+
+import com.sabbir.dbmtracker.core.Sample;
+import com.sabbir.dbmtracker.core.TileAggregator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of folding one two-SIM sample into the per-tile aggregate while
+ * moving through a ~10 km square, so lookups mix hits and new tiles.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AggregationBenchmark {
+
+    private final Sample sample = new Sample(2);
+    private TileAggregator aggregator;
+    private int step;
+
+    @Setup
+    public void setUp() {
+        aggregator = new TileAggregator(1000);
+        sample.operatorNames[0] = "Grameenphone";
+        sample.operatorNames[1] = "Robi";
+        sample.hasLocation = true;
+    }
+
+    @Benchmark
+    public int addSample() {
+        int i = step++;
+        sample.latitudeE6 = 23_760_000 + (i * 37 & 0xFFFF) % 100_000;
+        sample.longitudeE6 = 90_360_000 + (i * 53 & 0xFFFF) % 100_000;
+        sample.dbm[0] = -70 - (i & 63);
+        sample.dbm[1] = -75 - (i >> 3 & 31);
+        aggregator.add(sample);
+        return aggregator.size();
+    }
+}
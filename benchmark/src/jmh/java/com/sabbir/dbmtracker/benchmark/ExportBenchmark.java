@@ -0,0 +1,121 @@
+package com.sabbir.dbmtracker.benchmark;
+
+import com.sabbir.dbmtracker.core.BinarySessionReader;
+import com.sabbir.dbmtracker.core.BinarySessionWriter;
+import com.sabbir.dbmtracker.core.CsvExporter;
+import com.sabbir.dbmtracker.core.ExportFormat;
+import com.sabbir.dbmtracker.core.Sample;
+import com.sabbir.dbmtracker.core.SampleWriter;
+import com.sabbir.dbmtracker.core.SessionExporter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Export throughput per format, in time per row, from an in-memory binary
+ * session to a discarding stream, so the numbers are decode plus encode
+ * only. CSV through {@link CsvExporter} is the baseline. Output bytes per
+ * row are printed once per trial for comparing sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExportBenchmark {
+
+    private static final int ROWS = 100_000;
+    private static final long START = 1_735_689_600_000L;
+
+    @Param({"CSV", "GEOJSON", "KML", "COLUMNAR"})
+    public String format;
+
+    private byte[] session;
+    private final CountingSink sink = new CountingSink();
+
+    /** Counts and discards. */
+    private static final class CountingSink extends OutputStream {
+        long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Sample sample = new Sample(2);
+        sample.operatorNames[0] = "Grameenphone";
+        sample.operatorNames[1] = "Robi";
+        try (BinarySessionWriter writer = new BinarySessionWriter(out, 2, 30, 60_000)) {
+            int lat = 23_810_000;
+            int lon = 90_410_000;
+            for (int i = 0; i < ROWS; i++) {
+                lat += random.nextInt(201) - 60;
+                lon += random.nextInt(201) - 100;
+                sample.timestampMillis = START + i * 1000L;
+                sample.hasLocation = i % 500 >= 20;
+                sample.latitudeE6 = sample.hasLocation ? lat : 0;
+                sample.longitudeE6 = sample.hasLocation ? lon : 0;
+                sample.dbm[0] = -70 - random.nextInt(50);
+                sample.dbm[1] = i % 7 == 0 ? Sample.NO_SIGNAL : -80 - random.nextInt(40);
+                writer.write(sample);
+            }
+        }
+        session = out.toByteArray();
+        sink.bytes = 0;
+        export();
+        System.out.println();
+        System.out.println(format + ": " + sink.bytes / ROWS + " bytes/row");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long export() throws IOException {
+        if ("CSV".equals(format)) {
+            return CsvExporter.export(new ByteArrayInputStream(session),
+                    new BufferedWriter(new OutputStreamWriter(sink, StandardCharsets.UTF_8), 64 * 1024),
+                    TimeZone.getTimeZone("UTC"));
+        }
+        BinarySessionReader source = new BinarySessionReader(new ByteArrayInputStream(session));
+        try (SampleWriter writer = ExportFormat.valueOf(format).open(sink, "benchmark")) {
+            return SessionExporter.export(source, writer, new AtomicBoolean(), null);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.sabbir.dbmtracker.benchmark;
+
+import com.sabbir.dbmtracker.core.BatchedSampleSink;
+import com.sabbir.dbmtracker.core.BinarySessionWriter;
+import com.sabbir.dbmtracker.core.Sample;
+import com.sabbir.dbmtracker.core.SampleEncoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of persisting one row to a real file: the original FileWriter with a
+ * flush after every row, the batched CSV sink, and the binary session writer,
+ * both with the service's 30-row / 60 s batch policy. The CSV variants write a
+ * row encoded once in setup; the binary writer delta-encodes against the
+ * previous record as it writes, so its figure includes encoding.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersistBenchmark {
+
+    private static final int BATCH_ROWS = 30;
+    private static final long BATCH_WINDOW_MS = 60_000;
+
+    private final Sample sample = new Sample(2);
+    private final SampleEncoder encoder = new SampleEncoder();
+    private String legacyRow;
+    private char[] csvRow;
+    private File directory;
+    private FileWriter perRowWriter;
+    private BatchedSampleSink batchedSink;
+    private BinarySessionWriter binaryWriter;
+    private long tick;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        sample.operatorNames[0] = "Grameenphone";
+        sample.operatorNames[1] = "Robi";
+        sample.dbm[0] = -87;
+        sample.dbm[1] = -101;
+        sample.setLocation(23.8103324, 90.4125181);
+        sample.timestampMillis = 1_735_689_600_000L;
+        legacyRow = new String(encoder.buffer(), 0, encoder.encode(sample));
+        csvRow = legacyRow.toCharArray();
+
+        directory = File.createTempFile("persist", "");
+        directory.delete();
+        directory.mkdirs();
+        perRowWriter = new FileWriter(new File(directory, "per_row.csv"), true);
+        batchedSink = new BatchedSampleSink(
+                new FileWriter(new File(directory, "batched.csv"), true), BATCH_ROWS, BATCH_WINDOW_MS);
+        binaryWriter = new BinarySessionWriter(new FileOutputStream(new File(directory, "session.dbms")),
+                sample.simCount(), BATCH_ROWS, BATCH_WINDOW_MS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        perRowWriter.close();
+        batchedSink.close();
+        binaryWriter.close();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public void perRowFlush() throws IOException {
+        perRowWriter.append(legacyRow);
+        perRowWriter.flush();
+    }
+
+    @Benchmark
+    public void batchedCsv() throws IOException {
+        batchedSink.append(csvRow, 0, csvRow.length);
+    }
+
+    @Benchmark
+    public void batchedBinary() throws IOException {
+        sample.timestampMillis += 1000;
+        sample.dbm[0] = -80 - (int) (tick++ & 15);
+        binaryWriter.write(sample);
+    }
+}
@@ -0,0 +1,79 @@
+package com.sabbir.dbmtracker.benchmark;
+
+import com.sabbir.dbmtracker.core.Sample;
+import com.sabbir.dbmtracker.core.SampleEncoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of producing one CSV row: the original String.format path from
+ * TrackingService.writeDataToCSV() against {@link SampleEncoder}. Both
+ * hand only the finished row to the blackhole; the old debug log line is not
+ * part of either.
+ * Run with {@code ./gradlew :benchmark:jmh}; the gc profiler reports
+ * allocated bytes per row as gc.alloc.rate.norm.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowEncodingBenchmark {
+
+    private final Sample sample = new Sample(2);
+    private final SampleEncoder encoder = new SampleEncoder();
+    private double latitude;
+    private double longitude;
+    private long tick;
+
+    @Setup
+    public void setUp() {
+        latitude = 23.8103324;
+        longitude = 90.4125181;
+        sample.operatorNames[0] = "Grameenphone";
+        sample.operatorNames[1] = "Robi";
+        sample.dbm[0] = -87;
+        sample.dbm[1] = Sample.NO_SIGNAL;
+    }
+
+    @Benchmark
+    public void legacyStringFormat(Blackhole blackhole) {
+        String timestamp = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault()).format(new Date());
+        String[] simData = {
+                sample.operatorNames[0],
+                sample.dbm[0] == -999 ? "N/A" : String.valueOf(sample.dbm[0]),
+                sample.operatorNames[1],
+                sample.dbm[1] == -999 ? "N/A" : String.valueOf(sample.dbm[1])
+        };
+        String dataRow = String.format("%s,%s,%s,%s,%s,%s,%s\n",
+                timestamp,
+                String.format("%.6f", latitude),
+                String.format("%.6f", longitude),
+                simData[0], simData[1], simData[2], simData[3]);
+        blackhole.consume(dataRow);
+    }
+
+    @Benchmark
+    public void sampleEncoder(Blackhole blackhole) {
+        sample.timestampMillis = System.currentTimeMillis() + (tick++ & 0xFFFF) * 1000;
+        sample.setLocation(latitude, longitude);
+        blackhole.consume(encoder.encode(sample));
+        blackhole.consume(encoder.buffer());
+    }
+}
@@ -0,0 +1,198 @@
+package com.sabbir.dbmtracker.benchmark;
+
+import com.sabbir.dbmtracker.core.BinarySessionWriter;
+import com.sabbir.dbmtracker.core.BoundingBox;
+import com.sabbir.dbmtracker.core.CsvSampleWriter;
+import com.sabbir.dbmtracker.core.IndexedSessionWriter;
+import com.sabbir.dbmtracker.core.Sample;
+import com.sabbir.dbmtracker.core.SampleEncoder;
+import com.sabbir.dbmtracker.core.SampleSink;
+import com.sabbir.dbmtracker.core.SampleWriter;
+import com.sabbir.dbmtracker.core.SessionStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * "All samples in this area during this hour" over a multi-day survey
+ * (1M+ rows at 1 Hz): the indexed session store against a linear scan of the
+ * same rows as CSV. The CSV scan is given every advantage: timestamps are
+ * compared as strings and only the latitude/longitude fields are parsed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SessionQueryBenchmark {
+
+    private static final long START = 1_735_689_600_000L;
+
+    @Param({"1000000"})
+    public int rows;
+
+    private File directory;
+    private File csv;
+    private SessionStore store;
+    private long fromMillis;
+    private long toMillis;
+    private BoundingBox box;
+    private String fromText;
+    private String toText;
+
+    private final SampleWriter counter = new SampleWriter() {
+        @Override
+        public void write(Sample sample) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = File.createTempFile("sessions", "");
+        directory.delete();
+        directory.mkdirs();
+        File segment = new File(directory, "survey" + SessionStore.SESSION_EXTENSION);
+        csv = new File(directory, "survey.csv");
+        Writer csvOut = new BufferedWriter(new FileWriter(csv), 1 << 16);
+        SampleEncoder encoder = new SampleEncoder(TimeZone.getTimeZone("UTC"));
+        CsvSampleWriter csvWriter = new CsvSampleWriter(new SampleSink() {
+            @Override
+            public void append(char[] row, int offset, int length) throws IOException {
+                csvOut.write(row, offset, length);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                csvOut.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                csvOut.close();
+            }
+        }, encoder);
+        csvWriter.writeHeader(2);
+
+        Random random = new Random(42);
+        Sample sample = new Sample(2);
+        sample.operatorNames[0] = "Grameenphone";
+        sample.operatorNames[1] = "Robi";
+        sample.hasLocation = true;
+        // A vehicle wandering around a ~40 km area, with a heading change every few minutes.
+        double lat = 23.81;
+        double lon = 90.41;
+        double heading = 0;
+        long midpointMillis = START + rows / 2 * 1000L;
+        try (IndexedSessionWriter writer = new IndexedSessionWriter(
+                new BinarySessionWriter(new FileOutputStream(segment), 2, 30, 60_000),
+                new FileOutputStream(SessionStore.indexFileFor(segment)), IndexedSessionWriter.DEFAULT_BLOCK_RECORDS)) {
+            for (int i = 0; i < rows; i++) {
+                if (i % 240 == 0) {
+                    heading = random.nextDouble() * 2 * Math.PI;
+                }
+                lat = Math.max(23.63, Math.min(23.99, lat + Math.cos(heading) * 0.0001));
+                lon = Math.max(90.23, Math.min(90.59, lon + Math.sin(heading) * 0.0001));
+                sample.timestampMillis = START + i * 1000L;
+                sample.latitudeE6 = Sample.toE6(lat);
+                sample.longitudeE6 = Sample.toE6(lon);
+                sample.dbm[0] = -70 - random.nextInt(50);
+                sample.dbm[1] = -80 - random.nextInt(40);
+                writer.write(sample);
+                csvWriter.write(sample);
+                if (sample.timestampMillis == midpointMillis) {
+                    box = new BoundingBox(sample.latitudeE6 - 10_000, sample.longitudeE6 - 10_000,
+                            sample.latitudeE6 + 10_000, sample.longitudeE6 + 10_000);
+                }
+            }
+        }
+        csvWriter.close();
+
+        fromMillis = midpointMillis - 1_800_000;
+        toMillis = midpointMillis + 1_800_000;
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        fromText = format.format(new Date(fromMillis));
+        toText = format.format(new Date(toMillis));
+        store = new SessionStore(directory);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public long indexedTimeAndBox() throws IOException {
+        return store.query(fromMillis, toMillis, box, counter);
+    }
+
+    /** Box only, across the whole survey: pruning comes from the spatial side of the index alone. */
+    @Benchmark
+    public long indexedBoxOnly() throws IOException {
+        return store.query(Long.MIN_VALUE, Long.MAX_VALUE, box, counter);
+    }
+
+    @Benchmark
+    public long csvScanTimeAndBox() throws IOException {
+        long matches = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader(csv), 1 << 16)) {
+            reader.readLine();
+            for (String line; (line = reader.readLine()) != null; ) {
+                int timeEnd = line.indexOf(',');
+                String timestamp = line.substring(0, timeEnd);
+                if (timestamp.compareTo(fromText) < 0 || timestamp.compareTo(toText) > 0) {
+                    continue;
+                }
+                int latEnd = line.indexOf(',', timeEnd + 1);
+                int lonEnd = line.indexOf(',', latEnd + 1);
+                int lat = Sample.toE6(Double.parseDouble(line.substring(timeEnd + 1, latEnd)));
+                int lon = Sample.toE6(Double.parseDouble(line.substring(latEnd + 1, lonEnd)));
+                if (box.contains(lat, lon)) {
+                    matches++;
+                }
+            }
+        }
+        return matches;
+    }
+}
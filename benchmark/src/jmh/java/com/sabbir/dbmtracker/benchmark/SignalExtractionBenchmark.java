@@ -0,0 +1,86 @@
+package com.sabbir.dbmtracker.benchmark;
+
+import com.sabbir.dbmtracker.core.CellBatch;
+import com.sabbir.dbmtracker.core.CellCapture;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning a cell list into numbers, through the same
+ * {@link CellCapture} the service runs on every tick. This module has no
+ * Android dependencies, so only the {@link CellCapture.Reader} is a stand-in:
+ * plain cell objects whose getters are field reads, where the app's reader
+ * calls the android.telephony getters.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SignalExtractionBenchmark {
+
+    static final class Cell {
+        final int rat;
+        final boolean registered;
+        final int[] values = new int[CellBatch.COLUMN_COUNT];
+
+        Cell(int rat, boolean registered, int pci, int channel, int dbm, int rsrp, int rsrq, int sinr) {
+            this.rat = rat;
+            this.registered = registered;
+            values[CellBatch.PCI] = pci;
+            values[CellBatch.CHANNEL] = channel;
+            values[CellBatch.DBM] = dbm;
+            values[CellBatch.RSRP] = rsrp;
+            values[CellBatch.RSRQ] = rsrq;
+            values[CellBatch.SINR] = sinr;
+        }
+    }
+
+    private static final CellCapture.Reader<Cell> READER = new CellCapture.Reader<Cell>() {
+        @Override
+        public int rat(Cell cell) {
+            return cell.rat;
+        }
+
+        @Override
+        public boolean registered(Cell cell) {
+            return cell.registered;
+        }
+
+        @Override
+        public int get(Cell cell, int rat, int column) {
+            return cell.values[column];
+        }
+    };
+
+    private static final int NONE = CellBatch.UNAVAILABLE;
+
+    private final List<Cell> cells = List.of(
+            new Cell(CellBatch.RAT_LTE, true, 312, 1300, -97, -97, -11, 7),
+            new Cell(CellBatch.RAT_LTE, false, 87, 1300, -105, -105, -13, 2),
+            new Cell(CellBatch.RAT_LTE, false, 144, 3050, -111, -111, -15, -1),
+            new Cell(CellBatch.RAT_NR, false, 501, 632628, -104, -104, -12, 5),
+            new Cell(CellBatch.RAT_GSM, false, 41, 62, -89, NONE, NONE, NONE),
+            new Cell(CellBatch.RAT_GSM, false, 12, 70, -95, NONE, NONE, NONE));
+    private final CellBatch batch = new CellBatch(16);
+
+    /** Full neighbour list into the reusable column batch, as the service does per tick. */
+    @Benchmark
+    public int cellListToBatch() {
+        batch.clear();
+        CellCapture.extract(cells, 0, batch, READER);
+        return batch.size();
+    }
+}
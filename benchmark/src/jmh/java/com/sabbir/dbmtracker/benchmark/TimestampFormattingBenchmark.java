@@ -0,0 +1,58 @@
+package com.sabbir.dbmtracker.benchmark;
+
+import com.sabbir.dbmtracker.core.Sample;
+import com.sabbir.dbmtracker.core.SampleEncoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the row timestamp alone: the original per-call SimpleDateFormat,
+ * a shared instance, and SampleEncoder on a sample with only a timestamp
+ * (no fix, no SIM columns), whose date part is cached per day.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimestampFormattingBenchmark {
+
+    private final SimpleDateFormat shared = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault());
+    private final SampleEncoder encoder = new SampleEncoder();
+    private final Sample sample = new Sample(0);
+    private long tick;
+
+    private long nextMillis() {
+        return 1_735_689_600_000L + (tick++ & 0xFFFF) * 1000;
+    }
+
+    @Benchmark
+    public String simpleDateFormatPerCall() {
+        return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault()).format(new Date(nextMillis()));
+    }
+
+    @Benchmark
+    public String sharedSimpleDateFormat() {
+        return shared.format(new Date(nextMillis()));
+    }
+
+    @Benchmark
+    public int sampleEncoder() {
+        sample.timestampMillis = nextMillis();
+        return encoder.encode(sample);
+    }
+}
@@ -0,0 +1,160 @@
+package com.sabbir.dbmtracker.core;
+
+/**
+ * Chooses location priority, location/logging intervals and whether to hold
+ * the wake lock from measured speed, stationarity and battery state. Pure
+ * Java: the service feeds it fixes and battery readings and applies the
+ * {@link Plan} it returns; tests feed it simulated traces.
+ * <p>
+ * Speed comes from consecutive fixes and is smoothed with an exponential
+ * moving average. The device counts as stationary once the smoothed speed has
+ * stayed below {@link Policy#stationarySpeedMps} for
+ * {@link Policy#stationaryDwellMillis}. Battery limits do not apply while
+ * charging.
+ */
+public final class AdaptiveScheduler {
+
+    public enum Priority {
+        HIGH_ACCURACY,
+        BALANCED_POWER,
+        LOW_POWER
+    }
+
+    public static final class Plan {
+        public final String name;
+        public final Priority priority;
+        public final long locationIntervalMillis;
+        public final long loggingIntervalMillis;
+        public final boolean holdWakeLock;
+
+        public Plan(String name, Priority priority, long locationIntervalMillis,
+                    long loggingIntervalMillis, boolean holdWakeLock) {
+            this.name = name;
+            this.priority = priority;
+            this.locationIntervalMillis = locationIntervalMillis;
+            this.loggingIntervalMillis = loggingIntervalMillis;
+            this.holdWakeLock = holdWakeLock;
+        }
+
+        @Override
+        public String toString() {
+            return name + "(" + priority + ", location " + locationIntervalMillis + " ms, logging "
+                    + loggingIntervalMillis + " ms, wakeLock=" + holdWakeLock + ")";
+        }
+    }
+
+    /** Tunable thresholds and the plan used in each state. */
+    public static final class Policy {
+        public double stationarySpeedMps = 0.7;
+        public long stationaryDwellMillis = 120_000;
+        public double fastSpeedMps = 15;
+        public double speedSmoothing = 0.3;
+        public int lowBatteryPercent = 20;
+        public int criticalBatteryPercent = 10;
+
+        public Plan fast = new Plan("fast", Priority.HIGH_ACCURACY, 1000, 1000, true);
+        public Plan moving = new Plan("moving", Priority.HIGH_ACCURACY, 2000, 2000, true);
+        public Plan stationary = new Plan("stationary", Priority.BALANCED_POWER, 30_000, 10_000, false);
+        public Plan lowBattery = new Plan("lowBattery", Priority.BALANCED_POWER, 10_000, 10_000, false);
+        public Plan criticalBattery = new Plan("criticalBattery", Priority.LOW_POWER, 60_000, 60_000, false);
+    }
+
+    private final Policy policy;
+
+    private boolean hasFix;
+    private long lastFixAt;
+    private int lastLatitudeE6;
+    private int lastLongitudeE6;
+    private double smoothedSpeedMps;
+    private long slowSince = -1;
+
+    private int batteryPercent = 100;
+    private boolean charging;
+
+    private Plan plan;
+    private long lastUpdateAt = -1;
+    private long wakeTimeSavedMillis;
+    private long trackedMillis;
+
+    public AdaptiveScheduler(Policy policy) {
+        this.policy = policy;
+        this.plan = policy.moving;
+    }
+
+    public void onFix(long timestampMillis, int latitudeE6, int longitudeE6) {
+        if (hasFix && timestampMillis > lastFixAt) {
+            double meters = ChangeDetector.distanceMeters(lastLatitudeE6, lastLongitudeE6, latitudeE6, longitudeE6);
+            double speed = meters * 1000.0 / (timestampMillis - lastFixAt);
+            smoothedSpeedMps += policy.speedSmoothing * (speed - smoothedSpeedMps);
+        }
+        if (smoothedSpeedMps < policy.stationarySpeedMps) {
+            if (slowSince < 0) {
+                slowSince = timestampMillis;
+            }
+        } else {
+            slowSince = -1;
+        }
+        hasFix = true;
+        lastFixAt = timestampMillis;
+        lastLatitudeE6 = latitudeE6;
+        lastLongitudeE6 = longitudeE6;
+    }
+
+    public void onBattery(int percent, boolean charging) {
+        this.batteryPercent = percent;
+        this.charging = charging;
+    }
+
+    /**
+     * Re-evaluates the plan at {@code nowMillis} and accounts the time since
+     * the previous call to the plan that was in force. Returns the same
+     * instance while nothing changed, so callers can compare by identity.
+     */
+    public Plan update(long nowMillis) {
+        if (lastUpdateAt >= 0 && nowMillis > lastUpdateAt) {
+            long elapsed = nowMillis - lastUpdateAt;
+            trackedMillis += elapsed;
+            if (!plan.holdWakeLock) {
+                wakeTimeSavedMillis += elapsed;
+            }
+        }
+        lastUpdateAt = nowMillis;
+        plan = choose(nowMillis);
+        return plan;
+    }
+
+    /** Forgets accumulated time, e.g. while tracking is paused. */
+    public void suspend() {
+        lastUpdateAt = -1;
+    }
+
+    private Plan choose(long nowMillis) {
+        if (!charging && batteryPercent <= policy.criticalBatteryPercent) {
+            return policy.criticalBattery;
+        }
+        if (slowSince >= 0 && nowMillis - slowSince >= policy.stationaryDwellMillis) {
+            return policy.stationary;
+        }
+        if (!charging && batteryPercent <= policy.lowBatteryPercent) {
+            return policy.lowBattery;
+        }
+        return smoothedSpeedMps >= policy.fastSpeedMps ? policy.fast : policy.moving;
+    }
+
+    public Plan plan() {
+        return plan;
+    }
+
+    public double speedMps() {
+        return smoothedSpeedMps;
+    }
+
+    /** Time spent in plans that let the CPU sleep, i.e. wake-lock time avoided versus always holding it. */
+    public long wakeTimeSavedMillis() {
+        return wakeTimeSavedMillis;
+    }
+
+    public long trackedMillis() {
+        return trackedMillis;
+    }
+}
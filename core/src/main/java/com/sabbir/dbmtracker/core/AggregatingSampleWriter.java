@@ -0,0 +1,120 @@
+package com.sabbir.dbmtracker.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Feeds every written sample into a {@link TileAggregator} before passing it
+ * on, and persists the aggregate to {@code target} on every flush and on
+ * close. The file is replaced atomically, so a reader never sees a torn
+ * aggregate.
+ * <p>
+ * The file only covers the rows written up to the last flush. For a session
+ * carried on after a process death, {@link #resume} reads the rows written
+ * since back from the session's segments, so none is lost or counted twice.
+ */
+public class AggregatingSampleWriter implements SampleWriter {
+
+    public static final String EXTENSION = ".tiles";
+
+    private final SampleWriter delegate;
+    private final TileAggregator aggregator;
+    private final File target;
+
+    public AggregatingSampleWriter(SampleWriter delegate, TileAggregator aggregator, File target) {
+        this.delegate = delegate;
+        this.aggregator = aggregator;
+        this.target = target;
+    }
+
+    /** Aggregate of the session whose segments are named {@code base}*. */
+    public static File fileFor(File directory, String base) {
+        return new File(directory, base + EXTENSION);
+    }
+
+    /**
+     * Aggregates the session {@code recorder} writes into {@code target},
+     * carrying on the aggregate saved there. The rows it does not cover yet
+     * are read back from the session first; a missing, unreadable or
+     * mismatched aggregate is rebuilt from the whole session. Call before
+     * anything is written to {@code recorder}.
+     */
+    public static AggregatingSampleWriter resume(SessionRecorder recorder, int tileSizeE6, File target)
+            throws IOException {
+        TileAggregator aggregator = read(target);
+        if (aggregator == null || aggregator.tileSizeE6() != tileSizeE6
+                || aggregator.rows() > recorder.sequence()) {
+            aggregator = new TileAggregator(tileSizeE6);
+        }
+        if (aggregator.rows() < recorder.sequence()) {
+            Sample sample = new Sample(0);
+            try (SessionReader reader = new SessionReader(recorder.manifest())) {
+                reader.skip(aggregator.rows());
+                while (reader.next(sample)) {
+                    aggregator.add(sample);
+                }
+            }
+        }
+        return new AggregatingSampleWriter(recorder, aggregator, target);
+    }
+
+    private static TileAggregator read(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            return TileAggregator.readFrom(in);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public TileAggregator aggregator() {
+        return aggregator;
+    }
+
+    @Override
+    public void write(Sample sample) throws IOException {
+        aggregator.add(sample);
+        delegate.write(sample);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        delegate.flush();
+        persist();
+    }
+
+    @Override
+    public long position() {
+        return delegate.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            delegate.close();
+        } finally {
+            persist();
+        }
+    }
+
+    private void persist() throws IOException {
+        if (aggregator.size() == 0) {
+            return;
+        }
+        File temp = new File(target.getPath() + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temp))) {
+            aggregator.writeTo(out);
+        }
+        if (!temp.renameTo(target)) {
+            throw new IOException("Could not replace " + target);
+        }
+    }
+}
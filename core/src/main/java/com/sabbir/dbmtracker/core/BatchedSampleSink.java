@@ -0,0 +1,112 @@
+package com.sabbir.dbmtracker.core;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.function.LongSupplier;
+
+/**
+ * Copies rows into an in-memory batch buffer and hands them to the underlying
+ * writer in one write, followed by a single flush. A batch goes out when it
+ * holds maxRows rows, when the oldest pending row is older than the time
+ * window, or when {@link #flush()} / {@link #close()} is called. The window
+ * is only checked when a row is appended or {@link #flushIfDue()} is called,
+ * so a caller whose rows can stop arriving (a paused session) must call
+ * flushIfDue() from its periodic drain; with that, at most one batch (maxRows
+ * rows, or maxDelayMillis worth of rows) is lost on a crash.
+ * <p>
+ * The buffer is sized once, for maxRows rows of a typical length, and never
+ * grows, so appends do not allocate. If a batch of unusually long rows does
+ * not fit, what is buffered so far is written to the underlying writer early,
+ * without a flush; the batch still ends in a single flush.
+ */
+public class BatchedSampleSink implements SampleSink {
+
+    private static final int ESTIMATED_ROW_CHARS = 96;
+
+    private final Writer out;
+    private final int maxRows;
+    private final long maxDelayMillis;
+    private final LongSupplier clock;
+
+    private final char[] pending;
+    private int pendingChars;
+    private int pendingRows;
+    private long oldestPendingAt;
+    private long batchesWritten;
+
+    public BatchedSampleSink(Writer out, int maxRows, long maxDelayMillis) {
+        this(out, maxRows, maxDelayMillis, System::currentTimeMillis);
+    }
+
+    public BatchedSampleSink(Writer out, int maxRows, long maxDelayMillis, LongSupplier clock) {
+        if (maxRows <= 0) {
+            throw new IllegalArgumentException("maxRows must be positive: " + maxRows);
+        }
+        this.out = out;
+        this.maxRows = maxRows;
+        this.maxDelayMillis = maxDelayMillis;
+        this.clock = clock;
+        this.pending = new char[maxRows * ESTIMATED_ROW_CHARS];
+    }
+
+    @Override
+    public void append(char[] row, int offset, int length) throws IOException {
+        long now = clock.getAsLong();
+        if (pendingRows == 0) {
+            oldestPendingAt = now;
+        }
+        if (pendingChars + length > pending.length) {
+            drain();
+        }
+        if (length > pending.length) {
+            out.write(row, offset, length);
+        } else {
+            System.arraycopy(row, offset, pending, pendingChars, length);
+            pendingChars += length;
+        }
+        pendingRows++;
+        if (pendingRows >= maxRows || now - oldestPendingAt >= maxDelayMillis) {
+            flush();
+        }
+    }
+
+    /** Flushes the pending batch if its oldest row has outlived the time window. */
+    public void flushIfDue() throws IOException {
+        if (pendingRows > 0 && clock.getAsLong() - oldestPendingAt >= maxDelayMillis) {
+            flush();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (pendingRows == 0) {
+            return;
+        }
+        drain();
+        pendingRows = 0;
+        out.flush();
+        batchesWritten++;
+    }
+
+    private void drain() throws IOException {
+        out.write(pending, 0, pendingChars);
+        pendingChars = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    public int pendingRows() {
+        return pendingRows;
+    }
+
+    public long batchesWritten() {
+        return batchesWritten;
+    }
+}
@@ -0,0 +1,236 @@
+package com.sabbir.dbmtracker.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streams samples back out of a file written by {@link BinarySessionWriter}.
+ * A record cut short at the end of the file (e.g. after a crash) is treated
+ * as end of session.
+ * <p>
+ * A reader can also start in the middle of a session, at a block written
+ * after {@link BinarySessionWriter#startBlock()}; the header is then not in
+ * the stream and the SIM column count and format version are passed in.
+ * <p>
+ * From version 4 on, a zero byte where a tag should be also ends the
+ * session: it is the preallocated tail of a file still being written, or of
+ * one whose writer never closed it.
+ */
+public class BinarySessionReader implements SampleSource {
+
+    private final InputStream in;
+    private final ByteBuffer buffer = ByteBuffer.allocate(8192).order(ByteOrder.LITTLE_ENDIAN);
+    private final int simCount;
+    private final boolean taggedRecords;
+    private final String[] names;
+
+    private long bytesFilled;
+    private long recordEnd;
+    private long timestamp;
+    private int latitudeE6;
+    private int longitudeE6;
+
+    public BinarySessionReader(InputStream in) throws IOException {
+        this.in = in;
+        buffer.limit(0);
+        if (!ensure(BinarySessionWriter.HEADER_SIZE)) {
+            throw new IOException("Not a binary session: too short");
+        }
+        for (byte b : BinarySessionWriter.MAGIC) {
+            if (buffer.get() != b) {
+                throw new IOException("Not a binary session: bad magic");
+            }
+        }
+        int version = buffer.get() & 0xFF;
+        if (version < 1 || version > BinarySessionWriter.VERSION) {
+            throw new IOException("Unsupported session version " + version);
+        }
+        simCount = buffer.get() & 0xFF;
+        buffer.getShort();
+        taggedRecords = version >= 4;
+        names = unknownNames(simCount);
+        recordEnd = BinarySessionWriter.HEADER_SIZE;
+    }
+
+    /** Reads a current-version session from a block boundary; {@code in} starts right at the block. */
+    public BinarySessionReader(InputStream in, int simCount) {
+        this(in, simCount, BinarySessionWriter.VERSION);
+    }
+
+    /**
+     * Reads from a block boundary of a session in format {@code version}
+     * (see {@link #version(byte[])}); {@code in} starts right at the block,
+     * with no header.
+     */
+    public BinarySessionReader(InputStream in, int simCount, int version) {
+        this.in = in;
+        buffer.limit(0);
+        this.simCount = simCount;
+        this.taggedRecords = version >= 4;
+        this.names = unknownNames(simCount);
+    }
+
+    /** Format version from the first {@link BinarySessionWriter#HEADER_SIZE} bytes of a session. */
+    public static int version(byte[] header) throws IOException {
+        if (header.length < BinarySessionWriter.HEADER_SIZE) {
+            throw new IOException("Not a binary session: too short");
+        }
+        for (int i = 0; i < BinarySessionWriter.MAGIC.length; i++) {
+            if (header[i] != BinarySessionWriter.MAGIC[i]) {
+                throw new IOException("Not a binary session: bad magic");
+            }
+        }
+        return header[4] & 0xFF;
+    }
+
+    private static String[] unknownNames(int simCount) {
+        String[] names = new String[simCount];
+        for (int i = 0; i < simCount; i++) {
+            names[i] = "Unknown";
+        }
+        return names;
+    }
+
+    public int simCount() {
+        return simCount;
+    }
+
+    /**
+     * Reads the next sample into {@code sample}, including any cell snapshot
+     * recorded with it; returns false at end of session.
+     */
+    @Override
+    public boolean next(Sample sample) throws IOException {
+        sample.setSimCount(simCount);
+        sample.cells.clear();
+        while (ensure(1)) {
+            int tag = buffer.get() & 0xFF;
+            if (taggedRecords && (tag & BinarySessionWriter.FLAG_TAG) == 0) {
+                buffer.position(buffer.position() - 1);
+                return false;
+            }
+            int kind = tag & BinarySessionWriter.KIND_MASK;
+            boolean hasLocation = (tag & BinarySessionWriter.FLAG_LOCATION) != 0;
+            int quality = (tag & BinarySessionWriter.FLAG_QUALITY) != 0 ? 4 : 0;
+            if (kind == BinarySessionWriter.KIND_NAME) {
+                if (!ensure(3)) {
+                    return false;
+                }
+                int slot = buffer.get() & 0xFF;
+                int length = buffer.getShort() & 0xFFFF;
+                if (!ensure(length)) {
+                    return false;
+                }
+                String name = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+                buffer.position(buffer.position() + length);
+                if (slot < simCount) {
+                    names[slot] = name;
+                }
+                continue;
+            }
+            if (kind == BinarySessionWriter.KIND_CELLS) {
+                if (!ensure(1)) {
+                    return false;
+                }
+                int count = buffer.get() & 0xFF;
+                if (!ensure(count * BinarySessionWriter.CELL_RECORD_SIZE)) {
+                    return false;
+                }
+                readCells(count, sample.cells);
+                continue;
+            }
+            if (kind == BinarySessionWriter.KIND_DELTA) {
+                if (!ensure(6 + simCount + quality)) {
+                    return false;
+                }
+                timestamp += buffer.getShort() & 0xFFFF;
+                int dLat = buffer.getShort();
+                int dLon = buffer.getShort();
+                if (hasLocation) {
+                    latitudeE6 += dLat;
+                    longitudeE6 += dLon;
+                }
+                for (int i = 0; i < simCount; i++) {
+                    byte dbm = buffer.get();
+                    sample.dbm[i] = dbm == BinarySessionWriter.DBM_NOT_AVAILABLE ? Sample.NO_SIGNAL : dbm;
+                }
+            } else if (kind == BinarySessionWriter.KIND_KEY) {
+                if (!ensure(16 + 4 * simCount + quality)) {
+                    return false;
+                }
+                timestamp = buffer.getLong();
+                latitudeE6 = buffer.getInt();
+                longitudeE6 = buffer.getInt();
+                for (int i = 0; i < simCount; i++) {
+                    sample.dbm[i] = buffer.getInt();
+                }
+            }
+            if (quality > 0) {
+                sample.fixAgeMillis = buffer.getShort() & 0xFFFF;
+                int accuracy = buffer.getShort() & 0xFFFF;
+                sample.accuracyDecimeters = accuracy == BinarySessionWriter.U16_UNAVAILABLE
+                        ? Sample.NO_ACCURACY : accuracy;
+            } else {
+                sample.clearFixQuality();
+            }
+            sample.timestampMillis = timestamp;
+            sample.hasLocation = hasLocation;
+            sample.latitudeE6 = hasLocation ? latitudeE6 : 0;
+            sample.longitudeE6 = hasLocation ? longitudeE6 : 0;
+            System.arraycopy(names, 0, sample.operatorNames, 0, simCount);
+            recordEnd = bytesFilled - buffer.remaining();
+            return true;
+        }
+        return false;
+    }
+
+    private void readCells(int count, CellBatch cells) {
+        for (int i = 0; i < count; i++) {
+            int slot = buffer.get() & 0xFF;
+            int rat = buffer.get() & 0xFF;
+            boolean registered = buffer.get() != 0;
+            int row = cells.add(slot, rat, registered);
+            cells.set(CellBatch.PCI, row, buffer.getInt());
+            cells.set(CellBatch.CHANNEL, row, buffer.getInt());
+            for (int column = CellBatch.DBM; column <= CellBatch.SINR; column++) {
+                short value = buffer.getShort();
+                cells.set(column, row, value == BinarySessionWriter.I16_UNAVAILABLE ? CellBatch.UNAVAILABLE : value);
+            }
+        }
+    }
+
+    /** Makes at least {@code bytes} bytes readable; false if the stream ends first. */
+    private boolean ensure(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return true;
+        }
+        if (bytes > buffer.capacity()) {
+            throw new IOException("Record larger than read buffer: " + bytes);
+        }
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            int read = in.read(buffer.array(), buffer.position(), buffer.remaining());
+            if (read < 0) {
+                buffer.flip();
+                return false;
+            }
+            buffer.position(buffer.position() + read);
+            bytesFilled += read;
+        }
+        buffer.flip();
+        return true;
+    }
+
+    /** Bytes of the stream up to the end of the last sample returned, header included. */
+    public long recordEnd() {
+        return recordEnd;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
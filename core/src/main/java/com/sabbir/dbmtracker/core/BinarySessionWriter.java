@@ -0,0 +1,253 @@
+package com.sabbir.dbmtracker.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes samples in the compact binary session format. All values are
+ * little-endian.
+ * <pre>
+ * header:  'D' 'B' 'M' 'S'  version:u8  simCount:u8  reserved:u16
+ * record:  tag:u8 ...
+ *   DELTA  dt:u16(ms)  dLat:i16  dLon:i16  dbm:i8[simCount]      (7 + n bytes)
+ *   KEY    t:i64(ms)   lat:i32   lon:i32   dbm:i32[simCount]     (17 + 4n bytes)
+ *   NAME   slot:u8  length:u16  utf8:byte[length]
+ *   CELLS  count:u8  count x (slot:u8 rat:u8 registered:u8 pci:i32 channel:i32
+ *                             dbm:i16 rsrp:i16 rsrq:i16 sinr:i16)
+ *   DELTA and KEY records with {@link #FLAG_QUALITY} end in
+ *          fixAge:u16(ms)  accuracy:u16(0.1 m)                     (+4 bytes)
+ * </pre>
+ * The low two bits of the tag select the record kind; {@link #FLAG_LOCATION}
+ * marks records that carry a fix. Since version 4 every tag also has
+ * {@link #FLAG_TAG} set, so a zero byte where a tag should be is the
+ * unwritten, preallocated end of a file (see
+ * {@link PreallocatedFileOutputStream}) rather than a record. Fix age saturates at 65535 ms and an
+ * accuracy of 0xFFFF means none was reported; version 2 files have no
+ * quality fields. Coordinates are 1e-6 degree fixed point and
+ * deltas are taken against the previous record's time and the last fix. A
+ * DELTA record is used whenever every value fits, otherwise a KEY record.
+ * Operator names are written once and again only when they change. A CELLS
+ * record belongs to the DELTA or KEY record that follows it; cell metrics that
+ * are unavailable or do not fit in 16 bits are stored as {@link #I16_UNAVAILABLE}.
+ * <p>
+ * Records are batched in memory like {@link BatchedSampleSink}: at most
+ * maxRecords records, or maxDelayMillis of sample time, are pending at once.
+ * <p>
+ * {@link #startBlock()} makes the following bytes decodable on their own
+ * (see the block constructor of {@link BinarySessionReader}),
+ * which is what {@link IndexedSessionWriter} builds its index on.
+ */
+public class BinarySessionWriter implements SampleWriter {
+
+    static final byte[] MAGIC = {'D', 'B', 'M', 'S'};
+    static final int VERSION = 4;
+    static final int HEADER_SIZE = 8;
+
+    static final int KIND_MASK = 0x03;
+    static final int KIND_DELTA = 0;
+    static final int KIND_KEY = 1;
+    static final int KIND_NAME = 2;
+    static final int KIND_CELLS = 3;
+    static final int FLAG_LOCATION = 0x04;
+    static final int FLAG_QUALITY = 0x08;
+    static final int FLAG_TAG = 0x80;
+    static final int U16_UNAVAILABLE = 0xFFFF;
+
+    static final byte DBM_NOT_AVAILABLE = Byte.MIN_VALUE;
+    static final short I16_UNAVAILABLE = Short.MIN_VALUE;
+    static final int CELL_RECORD_SIZE = 19;
+    static final int MAX_CELLS = 255;
+
+    private final OutputStream out;
+    private final int simCount;
+    private final int maxRecords;
+    private final long maxDelayMillis;
+    private final ByteBuffer buffer;
+    private final String[] lastNames;
+
+    private boolean started;
+    private long lastTimestamp;
+    private int lastLatitudeE6;
+    private int lastLongitudeE6;
+    private int pendingRecords;
+    private long oldestPendingAt;
+    private long bytesWritten;
+
+    public BinarySessionWriter(OutputStream out, int simCount, int maxRecords, long maxDelayMillis) throws IOException {
+        if (simCount < 0 || simCount > 255) {
+            throw new IllegalArgumentException("simCount out of range: " + simCount);
+        }
+        this.out = out;
+        this.simCount = simCount;
+        this.maxRecords = maxRecords;
+        this.maxDelayMillis = maxDelayMillis;
+        this.lastNames = new String[simCount];
+        this.buffer = ByteBuffer.allocate(Math.max(8192, maxRecords * (17 + 4 * simCount) + 1024))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(MAGIC).put((byte) VERSION).put((byte) simCount).putShort((short) 0);
+        flush();
+    }
+
+    @Override
+    public void write(Sample sample) throws IOException {
+        if (sample.simCount() != simCount) {
+            throw new IllegalArgumentException("Session has " + simCount + " SIM columns, sample has "
+                    + sample.simCount());
+        }
+        for (int i = 0; i < simCount; i++) {
+            String name = sample.operatorNames[i];
+            if (!name.equals(lastNames[i])) {
+                writeName(i, name);
+                lastNames[i] = name;
+            }
+        }
+
+        if (sample.cells.size() > 0) {
+            writeCells(sample.cells);
+        }
+
+        ensureRoom(21 + 4 * simCount);
+        boolean quality = sample.fixAgeMillis != Sample.NO_FIX_AGE;
+        int flags = FLAG_TAG | (sample.hasLocation ? FLAG_LOCATION : 0) | (quality ? FLAG_QUALITY : 0);
+        long dt = sample.timestampMillis - lastTimestamp;
+        int dLat = sample.hasLocation ? sample.latitudeE6 - lastLatitudeE6 : 0;
+        int dLon = sample.hasLocation ? sample.longitudeE6 - lastLongitudeE6 : 0;
+        if (started && dt >= 0 && dt <= 0xFFFF && fitsShort(dLat) && fitsShort(dLon) && signalsFitByte(sample)) {
+            buffer.put((byte) (KIND_DELTA | flags));
+            buffer.putShort((short) dt);
+            buffer.putShort((short) dLat);
+            buffer.putShort((short) dLon);
+            for (int i = 0; i < simCount; i++) {
+                int dbm = sample.dbm[i];
+                buffer.put(dbm == Sample.NO_SIGNAL ? DBM_NOT_AVAILABLE : (byte) dbm);
+            }
+        } else {
+            buffer.put((byte) (KIND_KEY | flags));
+            buffer.putLong(sample.timestampMillis);
+            buffer.putInt(sample.hasLocation ? sample.latitudeE6 : lastLatitudeE6);
+            buffer.putInt(sample.hasLocation ? sample.longitudeE6 : lastLongitudeE6);
+            for (int i = 0; i < simCount; i++) {
+                buffer.putInt(sample.dbm[i]);
+            }
+            started = true;
+        }
+        if (quality) {
+            buffer.putShort((short) Math.min(sample.fixAgeMillis, U16_UNAVAILABLE));
+            buffer.putShort((short) (sample.accuracyDecimeters == Sample.NO_ACCURACY ? U16_UNAVAILABLE
+                    : Math.min(sample.accuracyDecimeters, U16_UNAVAILABLE - 1)));
+        }
+        lastTimestamp = sample.timestampMillis;
+        if (sample.hasLocation) {
+            lastLatitudeE6 = sample.latitudeE6;
+            lastLongitudeE6 = sample.longitudeE6;
+        }
+
+        if (pendingRecords == 0) {
+            oldestPendingAt = sample.timestampMillis;
+        }
+        pendingRecords++;
+        if (pendingRecords >= maxRecords || sample.timestampMillis - oldestPendingAt >= maxDelayMillis) {
+            flush();
+        }
+    }
+
+    private void writeName(int slot, String name) throws IOException {
+        byte[] utf8 = name.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(utf8.length, 0xFFFF);
+        ensureRoom(4 + length);
+        if (buffer.remaining() < 4 + length) {
+            throw new IOException("Operator name too long: " + length + " bytes");
+        }
+        buffer.put((byte) (KIND_NAME | FLAG_TAG)).put((byte) slot).putShort((short) length).put(utf8, 0, length);
+    }
+
+    private void writeCells(CellBatch cells) throws IOException {
+        int count = Math.min(cells.size(), MAX_CELLS);
+        ensureRoom(2 + count * CELL_RECORD_SIZE);
+        buffer.put((byte) (KIND_CELLS | FLAG_TAG)).put((byte) count);
+        for (int row = 0; row < count; row++) {
+            buffer.put((byte) cells.get(CellBatch.SLOT, row));
+            buffer.put((byte) cells.get(CellBatch.RAT, row));
+            buffer.put((byte) cells.get(CellBatch.REGISTERED, row));
+            buffer.putInt(cells.get(CellBatch.PCI, row));
+            buffer.putInt(cells.get(CellBatch.CHANNEL, row));
+            for (int column = CellBatch.DBM; column <= CellBatch.SINR; column++) {
+                int value = cells.get(column, row);
+                buffer.putShort(fitsShort(value) && value != I16_UNAVAILABLE ? (short) value : I16_UNAVAILABLE);
+            }
+        }
+    }
+
+    private boolean signalsFitByte(Sample sample) {
+        for (int i = 0; i < simCount; i++) {
+            int dbm = sample.dbm[i];
+            if (dbm != Sample.NO_SIGNAL && (dbm <= Byte.MIN_VALUE || dbm > Byte.MAX_VALUE)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean fitsShort(int value) {
+        return value >= Short.MIN_VALUE && value <= Short.MAX_VALUE;
+    }
+
+    private void ensureRoom(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        if (buffer.position() > 0) {
+            out.write(buffer.array(), 0, buffer.position());
+            bytesWritten += buffer.position();
+            buffer.clear();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+        pendingRecords = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Starts an independently decodable block: the next record is a KEY
+     * record and every operator name is written again before it. Returns the
+     * file offset the block starts at.
+     */
+    public long startBlock() {
+        started = false;
+        Arrays.fill(lastNames, null);
+        return position();
+    }
+
+    /** File offset of the next byte, counting bytes still buffered. */
+    @Override
+    public long position() {
+        return bytesWritten + buffer.position();
+    }
+
+    public int simCount() {
+        return simCount;
+    }
+
+    public long bytesWritten() {
+        return bytesWritten;
+    }
+}
@@ -0,0 +1,37 @@
+package com.sabbir.dbmtracker.core;
+
+/** An inclusive latitude/longitude rectangle in 1e-6 degree fixed point. Does not wrap the antimeridian. */
+public final class BoundingBox {
+
+    public final int minLatitudeE6;
+    public final int minLongitudeE6;
+    public final int maxLatitudeE6;
+    public final int maxLongitudeE6;
+
+    public BoundingBox(int minLatitudeE6, int minLongitudeE6, int maxLatitudeE6, int maxLongitudeE6) {
+        if (minLatitudeE6 > maxLatitudeE6 || minLongitudeE6 > maxLongitudeE6) {
+            throw new IllegalArgumentException("Empty bounding box");
+        }
+        this.minLatitudeE6 = minLatitudeE6;
+        this.minLongitudeE6 = minLongitudeE6;
+        this.maxLatitudeE6 = maxLatitudeE6;
+        this.maxLongitudeE6 = maxLongitudeE6;
+    }
+
+    public static BoundingBox ofDegrees(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+        return new BoundingBox(Sample.toE6(minLatitude), Sample.toE6(minLongitude),
+                Sample.toE6(maxLatitude), Sample.toE6(maxLongitude));
+    }
+
+    public boolean contains(int latitudeE6, int longitudeE6) {
+        return latitudeE6 >= minLatitudeE6 && latitudeE6 <= maxLatitudeE6
+                && longitudeE6 >= minLongitudeE6 && longitudeE6 <= maxLongitudeE6;
+    }
+
+    /** False for an empty rectangle (min above max), which is how blocks without a fix are stored. */
+    public boolean intersects(int minLatE6, int minLonE6, int maxLatE6, int maxLonE6) {
+        return minLatE6 <= maxLatE6 && minLonE6 <= maxLonE6
+                && minLatE6 <= maxLatitudeE6 && maxLatE6 >= minLatitudeE6
+                && minLonE6 <= maxLongitudeE6 && maxLonE6 >= minLongitudeE6;
+    }
+}
@@ -0,0 +1,110 @@
+package com.sabbir.dbmtracker.core;
+
+/**
+ * Column-oriented batch of per-cell measurements: one primitive array per
+ * metric, one row per reported cell (serving and neighbours, every
+ * subscription). Columns grow to the largest cell count seen and are reused
+ * after {@link #clear()}, so steady-state capture does not allocate.
+ * Metrics a RAT does not report hold {@link #UNAVAILABLE}.
+ */
+public final class CellBatch {
+
+    /** Same value Android uses for CellInfo.UNAVAILABLE. */
+    public static final int UNAVAILABLE = Integer.MAX_VALUE;
+
+    public static final int RAT_UNKNOWN = 0;
+    public static final int RAT_GSM = 1;
+    public static final int RAT_WCDMA = 2;
+    public static final int RAT_LTE = 3;
+    public static final int RAT_NR = 4;
+    public static final int RAT_CDMA = 5;
+    public static final int RAT_TDSCDMA = 6;
+
+    public static final int SLOT = 0;
+    public static final int RAT = 1;
+    public static final int REGISTERED = 2;
+    /** PCI for LTE/NR, PSC for WCDMA, CPID for TD-SCDMA, BSIC for GSM. */
+    public static final int PCI = 3;
+    /** EARFCN, NR-ARFCN, UARFCN or ARFCN depending on RAT. */
+    public static final int CHANNEL = 4;
+    public static final int DBM = 5;
+    /** LTE RSRP, NR SS-RSRP, TD-SCDMA RSCP. */
+    public static final int RSRP = 6;
+    /** LTE RSRQ, NR SS-RSRQ. */
+    public static final int RSRQ = 7;
+    /** LTE RSSNR, NR SS-SINR. */
+    public static final int SINR = 8;
+    public static final int COLUMN_COUNT = 9;
+
+    private final int[][] columns = new int[COLUMN_COUNT][];
+    private int size;
+
+    public CellBatch(int initialCapacity) {
+        for (int c = 0; c < COLUMN_COUNT; c++) {
+            columns[c] = new int[Math.max(1, initialCapacity)];
+        }
+    }
+
+    /** Appends a row with every metric UNAVAILABLE and returns its index. */
+    public int add(int slot, int rat, boolean registered) {
+        if (size == columns[0].length) {
+            grow(size * 2);
+        }
+        int row = size++;
+        columns[SLOT][row] = slot;
+        columns[RAT][row] = rat;
+        columns[REGISTERED][row] = registered ? 1 : 0;
+        for (int c = PCI; c < COLUMN_COUNT; c++) {
+            columns[c][row] = UNAVAILABLE;
+        }
+        return row;
+    }
+
+    public void set(int column, int row, int value) {
+        columns[column][row] = value;
+    }
+
+    public int get(int column, int row) {
+        return columns[column][row];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void copyFrom(CellBatch other) {
+        if (columns[0].length < other.size) {
+            grow(other.size);
+        }
+        for (int c = 0; c < COLUMN_COUNT; c++) {
+            System.arraycopy(other.columns[c], 0, columns[c], 0, other.size);
+        }
+        size = other.size;
+    }
+
+    public boolean sameAs(CellBatch other) {
+        if (size != other.size) {
+            return false;
+        }
+        for (int c = 0; c < COLUMN_COUNT; c++) {
+            for (int row = 0; row < size; row++) {
+                if (columns[c][row] != other.columns[c][row]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void grow(int capacity) {
+        for (int c = 0; c < COLUMN_COUNT; c++) {
+            int[] grown = new int[capacity];
+            System.arraycopy(columns[c], 0, grown, 0, size);
+            columns[c] = grown;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.sabbir.dbmtracker.core;
+
+import java.util.List;
+
+/**
+ * Copies RAT-specific metrics out of a platform cell list into a
+ * {@link CellBatch}. Which metrics each RAT reports is decided here; reading
+ * one value out of a platform cell object is left to a {@link Reader}, the
+ * only part that depends on android.telephony.
+ */
+public final class CellCapture {
+
+    /** Reads platform cell objects of type {@code T}. */
+    public interface Reader<T> {
+
+        /** The cell's {@code CellBatch.RAT_*} constant, or {@link CellBatch#RAT_UNKNOWN} to skip it. */
+        int rat(T cell);
+
+        boolean registered(T cell);
+
+        /**
+         * The cell's value for {@code column}, one of {@link CellBatch#PCI}
+         * to {@link CellBatch#SINR}; only asked for the columns {@code rat}
+         * reports.
+         */
+        int get(T cell, int rat, int column);
+    }
+
+    private static final int[] NONE = {};
+    private static final int[] IDENTITY_AND_DBM = {CellBatch.PCI, CellBatch.CHANNEL, CellBatch.DBM};
+    private static final int[] ALL = {CellBatch.PCI, CellBatch.CHANNEL, CellBatch.DBM, CellBatch.RSRP,
+            CellBatch.RSRQ, CellBatch.SINR};
+
+    /** Columns reported per RAT, indexed by {@code CellBatch.RAT_*}; the rest stay UNAVAILABLE. */
+    private static final int[][] COLUMNS = new int[CellBatch.RAT_TDSCDMA + 1][];
+
+    static {
+        COLUMNS[CellBatch.RAT_UNKNOWN] = NONE;
+        COLUMNS[CellBatch.RAT_GSM] = IDENTITY_AND_DBM;
+        COLUMNS[CellBatch.RAT_WCDMA] = IDENTITY_AND_DBM;
+        COLUMNS[CellBatch.RAT_LTE] = ALL;
+        COLUMNS[CellBatch.RAT_NR] = ALL;
+        COLUMNS[CellBatch.RAT_CDMA] = new int[] {CellBatch.DBM};
+        COLUMNS[CellBatch.RAT_TDSCDMA] = new int[] {CellBatch.PCI, CellBatch.CHANNEL, CellBatch.DBM,
+                CellBatch.RSRP};
+    }
+
+    private CellCapture() {
+    }
+
+    /** Appends one row per cell of a known RAT in {@code cells}, tagged with {@code slot}. */
+    public static <T> void extract(List<T> cells, int slot, CellBatch batch, Reader<? super T> reader) {
+        if (cells == null) {
+            return;
+        }
+        for (int i = 0; i < cells.size(); i++) {
+            T cell = cells.get(i);
+            int rat = reader.rat(cell);
+            if (rat <= CellBatch.RAT_UNKNOWN || rat >= COLUMNS.length) {
+                continue;
+            }
+            int row = batch.add(slot, rat, reader.registered(cell));
+            for (int column : COLUMNS[rat]) {
+                batch.set(column, row, reader.get(cell, rat, column));
+            }
+        }
+    }
+}
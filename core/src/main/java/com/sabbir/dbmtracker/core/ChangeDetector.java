@@ -0,0 +1,71 @@
+package com.sabbir.dbmtracker.core;
+
+/**
+ * Decides whether a candidate sample differs enough from the last emitted one
+ * to be worth a row: moved at least minDistanceMeters, any SIM changed by at
+ * least minDbmDelta (or gained/lost signal or changed operator), the fix
+ * appeared or disappeared, or maxSilenceMillis passed since the last row.
+ */
+public final class ChangeDetector {
+
+    private static final double EARTH_RADIUS_METERS = 6_371_000.0;
+    private static final double E6_TO_RADIANS = Math.PI / 180.0 / Sample.E6;
+
+    private final double minDistanceMeters;
+    private final int minDbmDelta;
+    private final long maxSilenceMillis;
+    private final Sample lastEmitted;
+    private boolean hasEmitted;
+
+    public ChangeDetector(int simCount, double minDistanceMeters, int minDbmDelta, long maxSilenceMillis) {
+        this.minDistanceMeters = minDistanceMeters;
+        this.minDbmDelta = minDbmDelta;
+        this.maxSilenceMillis = maxSilenceMillis;
+        this.lastEmitted = new Sample(simCount);
+    }
+
+    /** Returns true, and remembers the sample as the new baseline, if it should be written. */
+    public boolean shouldEmit(Sample candidate) {
+        if (!hasEmitted || hasChanged(candidate)) {
+            lastEmitted.copyFrom(candidate);
+            hasEmitted = true;
+            return true;
+        }
+        return false;
+    }
+
+    public void reset() {
+        hasEmitted = false;
+    }
+
+    private boolean hasChanged(Sample candidate) {
+        if (candidate.timestampMillis - lastEmitted.timestampMillis >= maxSilenceMillis) {
+            return true;
+        }
+        if (candidate.hasLocation != lastEmitted.hasLocation || candidate.simCount() != lastEmitted.simCount()) {
+            return true;
+        }
+        if (candidate.hasLocation && distanceMeters(lastEmitted.latitudeE6, lastEmitted.longitudeE6,
+                candidate.latitudeE6, candidate.longitudeE6) >= minDistanceMeters) {
+            return true;
+        }
+        for (int i = 0; i < candidate.simCount(); i++) {
+            int before = lastEmitted.dbm[i];
+            int after = candidate.dbm[i];
+            if ((before == Sample.NO_SIGNAL) != (after == Sample.NO_SIGNAL)
+                    || Math.abs(after - before) >= minDbmDelta
+                    || !candidate.operatorNames[i].equals(lastEmitted.operatorNames[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Equirectangular approximation; accurate to well under a metre at the distances compared here. */
+    public static double distanceMeters(int lat1E6, int lon1E6, int lat2E6, int lon2E6) {
+        double meanLat = (lat1E6 + (double) lat2E6) / 2 * E6_TO_RADIANS;
+        double x = (lon2E6 - (double) lon1E6) * E6_TO_RADIANS * Math.cos(meanLat);
+        double y = (lat2E6 - (double) lat1E6) * E6_TO_RADIANS;
+        return Math.sqrt(x * x + y * y) * EARTH_RADIUS_METERS;
+    }
+}
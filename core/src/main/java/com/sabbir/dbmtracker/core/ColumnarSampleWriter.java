@@ -0,0 +1,265 @@
+package com.sabbir.dbmtracker.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes samples column by column in row groups ("chunks"), each column
+ * with an encoding suited to its data, for analytics tools that read a few
+ * columns over many rows. Integers are little-endian; varints are unsigned
+ * LEB128, and signed values are zigzag-encoded first.
+ * <pre>
+ * header:  'D' 'B' 'M' 'C'  version:u8  reserved:u8[3]
+ * chunk:   rows:u32  simCount:u8  columnCount:u8
+ *          dictionarySize:varint  (length:varint utf8:byte[length])*
+ *          columnCount x (id:u8  encoding:u8  length:u32  data:byte[length])
+ * end:     rows:u32 = 0
+ * </pre>
+ * Columns are {@link #COLUMN_TIME} (delta-of-delta), {@link #COLUMN_FIX}
+ * (bitmap), {@link #COLUMN_LAT} and {@link #COLUMN_LON} (delta, only rows
+ * with a fix), then per SIM an operator name column (runs of dictionary
+ * indexes) and a dBm column (delta, {@link Sample#NO_SIGNAL} kept as is),
+ * and last {@link #COLUMN_FIX_AGE} and {@link #COLUMN_ACCURACY} (delta, with
+ * the {@link Sample} "unknown" values kept as is).
+ * A chunk ends after {@code chunkRows} rows or when the SIM count changes,
+ * so memory use is bounded by the chunk size, not the session. Cell
+ * snapshots are not exported.
+ */
+public final class ColumnarSampleWriter implements SampleWriter {
+
+    static final byte[] MAGIC = {'D', 'B', 'M', 'C'};
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+
+    static final int ENCODING_DELTA_OF_DELTA = 1;
+    static final int ENCODING_BITMAP = 2;
+    static final int ENCODING_DELTA = 3;
+    static final int ENCODING_DICTIONARY_RUNS = 4;
+
+    static final int COLUMN_TIME = 0;
+    static final int COLUMN_FIX = 1;
+    static final int COLUMN_LAT = 2;
+    static final int COLUMN_LON = 3;
+    /** SIM {@code i} has its name column at {@code COLUMN_SIM_BASE + 2i} and dBm column right after. */
+    static final int COLUMN_SIM_BASE = 4;
+    static final int COLUMN_FIX_AGE = 0xFE;
+    static final int COLUMN_ACCURACY = 0xFD;
+
+    public static final int DEFAULT_CHUNK_ROWS = 8192;
+
+    private final OutputStream out;
+    private final int chunkRows;
+    private final long[] times;
+    private final byte[] fixes;
+    private final int[] latitudes;
+    private final int[] longitudes;
+    private final int[] fixAges;
+    private final int[] accuracies;
+    private int[][] nameIndexes = new int[0][];
+    private int[][] signals = new int[0][];
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private final List<String> dictionaryOrder = new ArrayList<>();
+
+    private int simCount = -1;
+    private int rows;
+    private int fixCount;
+    private byte[] scratch = new byte[16 * 1024];
+    private int length;
+
+    public ColumnarSampleWriter(OutputStream out, int chunkRows) throws IOException {
+        if (chunkRows <= 0) {
+            throw new IllegalArgumentException("chunkRows must be positive: " + chunkRows);
+        }
+        this.out = out;
+        this.chunkRows = chunkRows;
+        times = new long[chunkRows];
+        fixes = new byte[(chunkRows + 7) / 8];
+        latitudes = new int[chunkRows];
+        longitudes = new int[chunkRows];
+        fixAges = new int[chunkRows];
+        accuracies = new int[chunkRows];
+        out.write(MAGIC);
+        out.write(new byte[]{VERSION, 0, 0, 0});
+    }
+
+    @Override
+    public void write(Sample sample) throws IOException {
+        if (sample.simCount() != simCount) {
+            writeChunk();
+            simCount = sample.simCount();
+            if (nameIndexes.length < simCount) {
+                nameIndexes = new int[simCount][chunkRows];
+                signals = new int[simCount][chunkRows];
+            }
+        }
+        times[rows] = sample.timestampMillis;
+        if (sample.hasLocation) {
+            fixes[rows >> 3] |= (byte) (1 << (rows & 7));
+            latitudes[fixCount] = sample.latitudeE6;
+            longitudes[fixCount] = sample.longitudeE6;
+            fixCount++;
+        }
+        fixAges[rows] = sample.fixAgeMillis;
+        accuracies[rows] = sample.accuracyDecimeters;
+        for (int i = 0; i < simCount; i++) {
+            nameIndexes[i][rows] = indexOf(sample.operatorNames[i]);
+            signals[i][rows] = sample.dbm[i];
+        }
+        rows++;
+        if (rows == chunkRows) {
+            writeChunk();
+        }
+    }
+
+    private int indexOf(String name) {
+        Integer index = dictionary.get(name);
+        if (index == null) {
+            index = dictionaryOrder.size();
+            dictionary.put(name, index);
+            dictionaryOrder.add(name);
+        }
+        return index;
+    }
+
+    private void writeChunk() throws IOException {
+        if (rows == 0) {
+            return;
+        }
+        length = 0;
+        putInt(rows);
+        putByte(simCount);
+        putByte(COLUMN_SIM_BASE + 2 * simCount + 2);
+        putVarint(dictionaryOrder.size());
+        for (String name : dictionaryOrder) {
+            byte[] utf8 = name.getBytes(StandardCharsets.UTF_8);
+            putVarint(utf8.length);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, scratch, length, utf8.length);
+            length += utf8.length;
+        }
+
+        int start = beginColumn(COLUMN_TIME, ENCODING_DELTA_OF_DELTA);
+        long previous = 0;
+        long previousDelta = 0;
+        for (int row = 0; row < rows; row++) {
+            long delta = times[row] - previous;
+            putSigned(delta - previousDelta);
+            previous = times[row];
+            previousDelta = delta;
+        }
+        endColumn(start);
+
+        start = beginColumn(COLUMN_FIX, ENCODING_BITMAP);
+        int bitmapBytes = (rows + 7) / 8;
+        ensure(bitmapBytes);
+        System.arraycopy(fixes, 0, scratch, length, bitmapBytes);
+        length += bitmapBytes;
+        endColumn(start);
+
+        writeDeltas(COLUMN_LAT, latitudes, fixCount);
+        writeDeltas(COLUMN_LON, longitudes, fixCount);
+        for (int i = 0; i < simCount; i++) {
+            start = beginColumn(COLUMN_SIM_BASE + 2 * i, ENCODING_DICTIONARY_RUNS);
+            int[] indexes = nameIndexes[i];
+            int runStart = 0;
+            for (int row = 1; row <= rows; row++) {
+                if (row == rows || indexes[row] != indexes[runStart]) {
+                    putVarint(row - runStart);
+                    putVarint(indexes[runStart]);
+                    runStart = row;
+                }
+            }
+            endColumn(start);
+            writeDeltas(COLUMN_SIM_BASE + 2 * i + 1, signals[i], rows);
+        }
+        writeDeltas(COLUMN_FIX_AGE, fixAges, rows);
+        writeDeltas(COLUMN_ACCURACY, accuracies, rows);
+
+        out.write(scratch, 0, length);
+        rows = 0;
+        fixCount = 0;
+        Arrays.fill(fixes, (byte) 0);
+        dictionary.clear();
+        dictionaryOrder.clear();
+    }
+
+    private void writeDeltas(int column, int[] values, int count) {
+        int start = beginColumn(column, ENCODING_DELTA);
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            putSigned(values[i] - previous);
+            previous = values[i];
+        }
+        endColumn(start);
+    }
+
+    private int beginColumn(int id, int encoding) {
+        putByte(id);
+        putByte(encoding);
+        int start = length;
+        putInt(0);
+        return start;
+    }
+
+    private void endColumn(int start) {
+        int columnLength = length - start - 4;
+        scratch[start] = (byte) columnLength;
+        scratch[start + 1] = (byte) (columnLength >>> 8);
+        scratch[start + 2] = (byte) (columnLength >>> 16);
+        scratch[start + 3] = (byte) (columnLength >>> 24);
+    }
+
+    private void putByte(int value) {
+        ensure(1);
+        scratch[length++] = (byte) value;
+    }
+
+    private void putInt(int value) {
+        ensure(4);
+        scratch[length++] = (byte) value;
+        scratch[length++] = (byte) (value >>> 8);
+        scratch[length++] = (byte) (value >>> 16);
+        scratch[length++] = (byte) (value >>> 24);
+    }
+
+    private void putSigned(long value) {
+        putVarint((value << 1) ^ (value >> 63));
+    }
+
+    private void putVarint(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            scratch[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        scratch[length++] = (byte) value;
+    }
+
+    private void ensure(int bytes) {
+        if (length + bytes > scratch.length) {
+            scratch = Arrays.copyOf(scratch, Math.max(length + bytes, scratch.length * 2));
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writeChunk();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            writeChunk();
+            out.write(new byte[4]);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.sabbir.dbmtracker.core;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads a file written by {@link ColumnarSampleWriter} back into samples,
+ * one chunk at a time. Columns with an unknown id are skipped.
+ */
+public final class ColumnarSessionReader implements SampleSource {
+
+    private final InputStream in;
+    private byte[] column = new byte[16 * 1024];
+    private int position;
+
+    private long[] times = new long[0];
+    private boolean[] fixes = new boolean[0];
+    private int[] latitudes = new int[0];
+    private int[] longitudes = new int[0];
+    private int[] fixAges = new int[0];
+    private int[] accuracies = new int[0];
+    private String[] dictionary = new String[0];
+    private int[][] names = new int[0][];
+    private int[][] signals = new int[0][];
+    private int simCount;
+    private int rows;
+    private int row;
+    private int fixRow;
+    private boolean ended;
+
+    public ColumnarSessionReader(InputStream in) throws IOException {
+        this.in = in;
+        byte[] header = new byte[ColumnarSampleWriter.HEADER_SIZE];
+        readFully(header, header.length);
+        for (int i = 0; i < ColumnarSampleWriter.MAGIC.length; i++) {
+            if (header[i] != ColumnarSampleWriter.MAGIC[i]) {
+                throw new IOException("Not a columnar export: bad magic");
+            }
+        }
+        if (header[4] != ColumnarSampleWriter.VERSION) {
+            throw new IOException("Unsupported columnar version " + header[4]);
+        }
+    }
+
+    @Override
+    public boolean next(Sample sample) throws IOException {
+        if (row == rows && !readChunk()) {
+            return false;
+        }
+        sample.setSimCount(simCount);
+        sample.cells.clear();
+        sample.timestampMillis = times[row];
+        sample.hasLocation = fixes[row];
+        if (fixes[row]) {
+            sample.latitudeE6 = latitudes[fixRow];
+            sample.longitudeE6 = longitudes[fixRow];
+            fixRow++;
+        } else {
+            sample.latitudeE6 = 0;
+            sample.longitudeE6 = 0;
+        }
+        sample.fixAgeMillis = fixAges[row];
+        sample.accuracyDecimeters = accuracies[row];
+        for (int i = 0; i < simCount; i++) {
+            sample.operatorNames[i] = dictionary[names[i][row]];
+            sample.dbm[i] = signals[i][row];
+        }
+        row++;
+        return true;
+    }
+
+    private boolean readChunk() throws IOException {
+        if (ended) {
+            return false;
+        }
+        readFully(column, 4);
+        position = 0;
+        int chunkRows = getInt();
+        if (chunkRows == 0) {
+            ended = true;
+            return false;
+        }
+        readFully(column, 2);
+        simCount = column[0] & 0xFF;
+        int columnCount = column[1] & 0xFF;
+        allocate(chunkRows);
+        int dictionarySize = (int) readVarint();
+        dictionary = new String[dictionarySize];
+        for (int i = 0; i < dictionarySize; i++) {
+            int length = (int) readVarint();
+            ensureColumn(length);
+            readFully(column, length);
+            dictionary[i] = new String(column, 0, length, StandardCharsets.UTF_8);
+        }
+
+        int fixCount = 0;
+        for (int c = 0; c < columnCount; c++) {
+            readFully(column, 6);
+            int id = column[0] & 0xFF;
+            position = 2;
+            int length = getInt();
+            ensureColumn(length);
+            readFully(column, length);
+            position = 0;
+            if (id == ColumnarSampleWriter.COLUMN_TIME) {
+                long previous = 0;
+                long previousDelta = 0;
+                for (int r = 0; r < chunkRows; r++) {
+                    long delta = previousDelta + getSigned();
+                    previous += delta;
+                    previousDelta = delta;
+                    times[r] = previous;
+                }
+            } else if (id == ColumnarSampleWriter.COLUMN_FIX) {
+                fixCount = 0;
+                for (int r = 0; r < chunkRows; r++) {
+                    fixes[r] = (column[r >> 3] & (1 << (r & 7))) != 0;
+                    if (fixes[r]) {
+                        fixCount++;
+                    }
+                }
+            } else if (id == ColumnarSampleWriter.COLUMN_LAT) {
+                readDeltas(latitudes, fixCount);
+            } else if (id == ColumnarSampleWriter.COLUMN_LON) {
+                readDeltas(longitudes, fixCount);
+            } else if (id == ColumnarSampleWriter.COLUMN_FIX_AGE) {
+                readDeltas(fixAges, chunkRows);
+            } else if (id == ColumnarSampleWriter.COLUMN_ACCURACY) {
+                readDeltas(accuracies, chunkRows);
+            } else if (id >= ColumnarSampleWriter.COLUMN_SIM_BASE
+                    && id < ColumnarSampleWriter.COLUMN_SIM_BASE + 2 * simCount) {
+                int sim = (id - ColumnarSampleWriter.COLUMN_SIM_BASE) / 2;
+                if ((id - ColumnarSampleWriter.COLUMN_SIM_BASE) % 2 == 0) {
+                    for (int r = 0; r < chunkRows; ) {
+                        int run = (int) getVarint();
+                        int index = (int) getVarint();
+                        for (int end = r + run; r < end; r++) {
+                            names[sim][r] = index;
+                        }
+                    }
+                } else {
+                    readDeltas(signals[sim], chunkRows);
+                }
+            }
+        }
+        rows = chunkRows;
+        row = 0;
+        fixRow = 0;
+        return true;
+    }
+
+    private void allocate(int chunkRows) {
+        if (times.length < chunkRows) {
+            times = new long[chunkRows];
+            fixes = new boolean[chunkRows];
+            latitudes = new int[chunkRows];
+            longitudes = new int[chunkRows];
+            fixAges = new int[chunkRows];
+            accuracies = new int[chunkRows];
+        }
+        if (names.length < simCount || (names.length > 0 && names[0].length < times.length)) {
+            names = new int[simCount][times.length];
+            signals = new int[simCount][times.length];
+        }
+    }
+
+    private void readDeltas(int[] values, int count) {
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            previous += getSigned();
+            values[i] = (int) previous;
+        }
+    }
+
+    private int getInt() {
+        int value = (column[position] & 0xFF) | (column[position + 1] & 0xFF) << 8
+                | (column[position + 2] & 0xFF) << 16 | (column[position + 3] & 0xFF) << 24;
+        position += 4;
+        return value;
+    }
+
+    private long getSigned() {
+        long value = getVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private long getVarint() {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = column[position++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    /** Varint straight from the stream, for the chunk header. */
+    private long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Columnar export cut short");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    private void ensureColumn(int length) {
+        if (length > column.length) {
+            column = new byte[Math.max(length, column.length * 2)];
+        }
+    }
+
+    private void readFully(byte[] buffer, int length) throws IOException {
+        int read = 0;
+        while (read < length) {
+            int n = in.read(buffer, read, length - read);
+            if (n < 0) {
+                throw new EOFException("Columnar export cut short");
+            }
+            read += n;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
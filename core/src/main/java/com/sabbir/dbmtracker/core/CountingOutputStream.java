@@ -0,0 +1,28 @@
+package com.sabbir.dbmtracker.core;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/** Reports every byte that reaches the underlying stream to {@link PipelineMetrics}. */
+public final class CountingOutputStream extends FilterOutputStream {
+
+    private final PipelineMetrics metrics;
+
+    public CountingOutputStream(OutputStream out, PipelineMetrics metrics) {
+        super(out);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        metrics.onBytesWritten(1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        metrics.onBytesWritten(len);
+    }
+}
@@ -0,0 +1,38 @@
+package com.sabbir.dbmtracker.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.TimeZone;
+
+/**
+ * Streams a binary session into the CSV schema TrackingService has always
+ * written, one row at a time so memory use does not depend on session size.
+ */
+public final class CsvExporter {
+
+    private CsvExporter() {
+    }
+
+    /** Writes header and rows to {@code csv} and returns the number of rows. */
+    public static long export(InputStream binary, Writer csv, TimeZone timeZone) throws IOException {
+        return export(binary, csv, timeZone, false);
+    }
+
+    /** As {@link #export(InputStream, Writer, TimeZone)}, optionally with fix age and accuracy columns. */
+    public static long export(InputStream binary, Writer csv, TimeZone timeZone, boolean fixQuality)
+            throws IOException {
+        BinarySessionReader reader = new BinarySessionReader(binary);
+        Sample sample = new Sample(reader.simCount());
+        SampleEncoder encoder = new SampleEncoder(timeZone, fixQuality);
+        csv.write(SampleEncoder.csvHeader(reader.simCount(), fixQuality));
+        long rows = 0;
+        while (reader.next(sample)) {
+            int length = encoder.encode(sample);
+            csv.write(encoder.buffer(), 0, length);
+            rows++;
+        }
+        csv.flush();
+        return rows;
+    }
+}
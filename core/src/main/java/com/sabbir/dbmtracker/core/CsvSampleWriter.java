@@ -0,0 +1,36 @@
+package com.sabbir.dbmtracker.core;
+
+import java.io.IOException;
+
+/** Writes samples as CSV rows through a {@link SampleSink}. */
+public class CsvSampleWriter implements SampleWriter {
+
+    private final SampleSink sink;
+    private final SampleEncoder encoder;
+
+    public CsvSampleWriter(SampleSink sink, SampleEncoder encoder) {
+        this.sink = sink;
+        this.encoder = encoder;
+    }
+
+    public void writeHeader(int simCount) throws IOException {
+        sink.append(SampleEncoder.csvHeader(simCount));
+        sink.flush();
+    }
+
+    @Override
+    public void write(Sample sample) throws IOException {
+        int length = encoder.encode(sample);
+        sink.append(encoder.buffer(), 0, length);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        sink.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        sink.close();
+    }
+}
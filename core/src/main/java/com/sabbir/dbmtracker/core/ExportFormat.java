@@ -0,0 +1,41 @@
+package com.sabbir.dbmtracker.core;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+/** Bulk export formats beyond the CSV of {@link SessionPublisher}. */
+public enum ExportFormat {
+    /** GeoJSON FeatureCollection of points, see {@link GeoJsonSampleWriter}. */
+    GEOJSON(".geojson", "application/geo+json"),
+    /** KML placemarks coloured by signal, see {@link KmlSampleWriter}. */
+    KML(".kml", "application/vnd.google-earth.kml+xml"),
+    /** Chunked columnar file for analytics, see {@link ColumnarSampleWriter}. */
+    COLUMNAR(".dbmc", "application/octet-stream");
+
+    public final String extension;
+    public final String mimeType;
+
+    ExportFormat(String extension, String mimeType) {
+        this.extension = extension;
+        this.mimeType = mimeType;
+    }
+
+    /** Wraps {@code out} in a buffered writer for this format; closing the writer closes {@code out}. */
+    public SampleWriter open(OutputStream out, String title) throws IOException {
+        switch (this) {
+            case GEOJSON:
+                return new GeoJsonSampleWriter(new BufferedWriter(
+                        new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024));
+            case KML:
+                return new KmlSampleWriter(new BufferedWriter(
+                        new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024), title);
+            default:
+                return new ColumnarSampleWriter(new BufferedOutputStream(out, 64 * 1024),
+                        ColumnarSampleWriter.DEFAULT_CHUNK_ROWS);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.sabbir.dbmtracker.core;
+
+/** Allocation-free text helpers shared by the GeoJSON and KML writers. */
+final class ExportText {
+
+    private ExportText() {
+    }
+
+    /** Appends a 1e-6 degree fixed-point value with all six decimals. */
+    static void appendE6(StringBuilder out, int valueE6) {
+        long value = valueE6;
+        if (value < 0) {
+            out.append('-');
+            value = -value;
+        }
+        out.append(value / Sample.E6).append('.');
+        int fraction = (int) (value % Sample.E6);
+        for (int divisor = 100_000; divisor > 0; divisor /= 10) {
+            out.append((char) ('0' + fraction / divisor % 10));
+        }
+    }
+
+    /** Appends {@code yyyy-MM-ddTHH:mm:ssZ}; {@code utc} must be a UTC encoder. */
+    static void appendIsoTime(StringBuilder out, SampleEncoder utc, long millis) {
+        utc.encodeTimestamp(millis);
+        char[] buffer = utc.buffer();
+        out.append(buffer, 0, 10).append('T').append(buffer, 11, 8).append('Z');
+    }
+
+    static void appendJsonString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 15, 16));
+            } else {
+                out.append(c);
+            }
+        }
+        out.append('"');
+    }
+
+    static void appendXml(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '<':
+                    out.append("&lt;");
+                    break;
+                case '>':
+                    out.append("&gt;");
+                    break;
+                case '&':
+                    out.append("&amp;");
+                    break;
+                case '"':
+                    out.append("&quot;");
+                    break;
+                default:
+                    if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+                        out.append(c);
+                    }
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.sabbir.dbmtracker.core;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.TimeZone;
+
+/**
+ * Streams samples as a GeoJSON FeatureCollection, one Point feature per
+ * line. Samples without a fix keep their row with a null geometry. Each
+ * feature carries the UTC time and one {@code {"name", "dbm"}} entry per SIM,
+ * with a null dBm when there was no signal, plus {@code fixAgeMs} and
+ * {@code accuracyM} when known.
+ */
+public final class GeoJsonSampleWriter implements SampleWriter {
+
+    private final Writer out;
+    private final SampleEncoder utc = new SampleEncoder(TimeZone.getTimeZone("UTC"));
+    private final StringBuilder row = new StringBuilder(256);
+    private boolean started;
+
+    public GeoJsonSampleWriter(Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void write(Sample sample) throws IOException {
+        row.setLength(0);
+        if (!started) {
+            row.append("{\"type\":\"FeatureCollection\",\"features\":[\n");
+            started = true;
+        } else {
+            row.append(",\n");
+        }
+        row.append("{\"type\":\"Feature\",\"geometry\":");
+        if (sample.hasLocation) {
+            row.append("{\"type\":\"Point\",\"coordinates\":[");
+            ExportText.appendE6(row, sample.longitudeE6);
+            row.append(',');
+            ExportText.appendE6(row, sample.latitudeE6);
+            row.append("]}");
+        } else {
+            row.append("null");
+        }
+        row.append(",\"properties\":{\"time\":\"");
+        ExportText.appendIsoTime(row, utc, sample.timestampMillis);
+        row.append("\",\"sims\":[");
+        for (int i = 0; i < sample.simCount(); i++) {
+            if (i > 0) {
+                row.append(',');
+            }
+            row.append("{\"name\":");
+            ExportText.appendJsonString(row, sample.operatorNames[i]);
+            row.append(",\"dbm\":");
+            if (sample.dbm[i] == Sample.NO_SIGNAL) {
+                row.append("null");
+            } else {
+                row.append(sample.dbm[i]);
+            }
+            row.append('}');
+        }
+        row.append(']');
+        if (sample.fixAgeMillis != Sample.NO_FIX_AGE) {
+            row.append(",\"fixAgeMs\":").append(sample.fixAgeMillis);
+        }
+        if (sample.accuracyDecimeters != Sample.NO_ACCURACY) {
+            row.append(",\"accuracyM\":").append(sample.accuracyDecimeters / 10).append('.')
+                    .append(sample.accuracyDecimeters % 10);
+        }
+        row.append("}}");
+        out.append(row);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            out.write(started ? "\n]}\n" : "{\"type\":\"FeatureCollection\",\"features\":[]}\n");
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.sabbir.dbmtracker.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+
+/**
+ * {@link UploadTransport} over plain HTTP. Each device has its own
+ * namespace on the collector:
+ * <pre>
+ * HEAD {base}/{device}/{object}             -> 200 X-Committed-Length, or 404
+ * PUT  {base}/{device}/{object}?offset=N    -> 200 X-Committed-Length, or 409 X-Committed-Length
+ *      X-Chunk-Id  X-Chunk-Length  X-Chunk-Crc32  X-Total-Length  [Content-Encoding: deflate]
+ * </pre>
+ * Offsets and lengths count bytes of the uncompressed file; the CRC is of
+ * the uncompressed chunk. 5xx, 408 and 429 answers and network errors are
+ * worth retrying, any other 4xx is not.
+ */
+public final class HttpUploadTransport implements UploadTransport {
+
+    static final String COMMITTED_LENGTH = "X-Committed-Length";
+
+    private final String base;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+
+    public HttpUploadTransport(String collectorUrl, String deviceId, int connectTimeoutMillis, int readTimeoutMillis) {
+        String url = collectorUrl.endsWith("/") ? collectorUrl : collectorUrl + "/";
+        this.base = url + encode(deviceId) + "/";
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    @Override
+    public long committed(String object) throws IOException {
+        HttpURLConnection connection = open(base + encode(object), "HEAD");
+        try {
+            int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_FOUND) {
+                drain(connection);
+                return 0;
+            }
+            check(status, object);
+            long committed = committedLength(connection, object);
+            drain(connection);
+            return committed;
+        } catch (IOException e) {
+            connection.disconnect();
+            throw e;
+        }
+    }
+
+    @Override
+    public long put(String object, UploadChunk chunk) throws IOException {
+        HttpURLConnection connection = open(base + encode(object) + "?offset=" + chunk.offset, "PUT");
+        try {
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(chunk.bodyLength);
+            connection.setRequestProperty("Content-Type", "application/octet-stream");
+            connection.setRequestProperty("X-Chunk-Id", chunk.id);
+            connection.setRequestProperty("X-Chunk-Length", Integer.toString(chunk.length));
+            connection.setRequestProperty("X-Chunk-Crc32", Long.toHexString(chunk.crc32));
+            connection.setRequestProperty("X-Total-Length", Long.toString(chunk.totalLength));
+            if (chunk.deflated) {
+                connection.setRequestProperty("Content-Encoding", "deflate");
+            }
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(chunk.body, 0, chunk.bodyLength);
+            }
+            int status = connection.getResponseCode();
+            if (status != HttpURLConnection.HTTP_CONFLICT) {
+                check(status, object);
+            }
+            long committed = committedLength(connection, object);
+            drain(connection);
+            return committed;
+        } catch (IOException e) {
+            connection.disconnect();
+            throw e;
+        }
+    }
+
+    private HttpURLConnection open(String url, String method) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(connectTimeoutMillis);
+        connection.setReadTimeout(readTimeoutMillis);
+        connection.setUseCaches(false);
+        return connection;
+    }
+
+    private static void check(int status, String object) throws IOException {
+        if (status / 100 == 2) {
+            return;
+        }
+        String message = "Collector answered " + status + " for " + object;
+        if (status / 100 == 4 && status != HttpURLConnection.HTTP_CLIENT_TIMEOUT && status != 429) {
+            throw new UploadRejectedException(message);
+        }
+        throw new IOException(message);
+    }
+
+    private static long committedLength(HttpURLConnection connection, String object) throws IOException {
+        String value = connection.getHeaderField(COMMITTED_LENGTH);
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IOException("No " + COMMITTED_LENGTH + " for " + object + ": " + value);
+        }
+    }
+
+    /**
+     * Reads off the response body so the connection goes back to the pool for
+     * the next chunk; connections are only dropped after a failure.
+     */
+    private static void drain(HttpURLConnection connection) {
+        try (InputStream in = connection.getResponseCode() / 100 == 2
+                ? connection.getInputStream() : connection.getErrorStream()) {
+            if (in != null) {
+                byte[] skip = new byte[512];
+                while (in.read(skip) >= 0) {
+                    // discard
+                }
+            }
+        } catch (IOException ignored) {
+            // Only costs the connection.
+        }
+    }
+
+    private static String encode(String segment) {
+        try {
+            return URLEncoder.encode(segment, "UTF-8").replace("+", "%20");
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.sabbir.dbmtracker.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Writes a binary session segment and its {@link SessionIndex} side by side.
+ * Every {@code blockRecords} samples the block is finished: the session is
+ * flushed and the block's entry appended to the index, so the index is built
+ * incrementally, never points past what is on disk, and never needs a rescan.
+ */
+public class IndexedSessionWriter implements SampleWriter {
+
+    public static final int DEFAULT_BLOCK_RECORDS = 256;
+
+    private final BinarySessionWriter session;
+    private final OutputStream indexOut;
+    private final int blockRecords;
+    private final ByteBuffer entry = ByteBuffer.allocate(SessionIndex.ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    private boolean inBlock;
+    private long blockOffset;
+    private int blockCount;
+    private long minTime;
+    private long maxTime;
+    private int minLat;
+    private int minLon;
+    private int maxLat;
+    private int maxLon;
+
+    public IndexedSessionWriter(BinarySessionWriter session, OutputStream indexOut, int blockRecords) throws IOException {
+        if (blockRecords <= 0) {
+            throw new IllegalArgumentException("blockRecords must be positive: " + blockRecords);
+        }
+        this.session = session;
+        this.indexOut = indexOut;
+        this.blockRecords = blockRecords;
+        ByteBuffer header = ByteBuffer.allocate(SessionIndex.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        SessionIndex.writeHeader(header, session.simCount());
+        indexOut.write(header.array());
+        indexOut.flush();
+    }
+
+    @Override
+    public void write(Sample sample) throws IOException {
+        if (!inBlock) {
+            startBlock();
+        }
+        session.write(sample);
+        blockCount++;
+        minTime = Math.min(minTime, sample.timestampMillis);
+        maxTime = Math.max(maxTime, sample.timestampMillis);
+        if (sample.hasLocation) {
+            minLat = Math.min(minLat, sample.latitudeE6);
+            minLon = Math.min(minLon, sample.longitudeE6);
+            maxLat = Math.max(maxLat, sample.latitudeE6);
+            maxLon = Math.max(maxLon, sample.longitudeE6);
+        }
+        if (blockCount >= blockRecords) {
+            finishBlock();
+        }
+    }
+
+    private void startBlock() {
+        blockOffset = session.startBlock();
+        blockCount = 0;
+        minTime = Long.MAX_VALUE;
+        maxTime = Long.MIN_VALUE;
+        minLat = Integer.MAX_VALUE;
+        minLon = Integer.MAX_VALUE;
+        maxLat = Integer.MIN_VALUE;
+        maxLon = Integer.MIN_VALUE;
+        inBlock = true;
+    }
+
+    private void finishBlock() throws IOException {
+        session.flush();
+        entry.clear();
+        entry.putLong(blockOffset)
+                .putInt((int) (session.position() - blockOffset))
+                .putInt(blockCount)
+                .putLong(minTime)
+                .putLong(maxTime)
+                .putInt(minLat)
+                .putInt(minLon)
+                .putInt(maxLat)
+                .putInt(maxLon);
+        indexOut.write(entry.array(), 0, SessionIndex.ENTRY_SIZE);
+        indexOut.flush();
+        inBlock = false;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        session.flush();
+    }
+
+    @Override
+    public long position() {
+        return session.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (inBlock && blockCount > 0) {
+                finishBlock();
+            }
+        } finally {
+            try {
+                session.close();
+            } finally {
+                indexOut.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.sabbir.dbmtracker.core;
+
+import java.io.IOException;
+
+/** Times every write of the wrapped writer into {@link PipelineMetrics}. Writer thread only. */
+public class InstrumentedSampleWriter implements SampleWriter {
+
+    private final SampleWriter delegate;
+    private final PipelineMetrics metrics;
+
+    public InstrumentedSampleWriter(SampleWriter delegate, PipelineMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void write(Sample sample) throws IOException {
+        long start = System.nanoTime();
+        delegate.write(sample);
+        metrics.onSampleWritten((System.nanoTime() - start) / 1000);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        delegate.flush();
+    }
+
+    @Override
+    public long position() {
+        return delegate.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+}
@@ -0,0 +1,122 @@
+package com.sabbir.dbmtracker.core;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.TimeZone;
+
+/**
+ * Streams samples as a KML document, one Placemark per sample with a fix,
+ * coloured by the strongest signal across SIMs so coverage shows up at a
+ * glance in Google Earth or any GIS tool. Samples without a fix are skipped.
+ */
+public final class KmlSampleWriter implements SampleWriter {
+
+    /** Lower bounds, in dBm, of every style but the last signal style. */
+    static final int[] THRESHOLDS_DBM = {-80, -90, -100, -110};
+    /** KML colours are aabbggrr: green, yellow-green, yellow, orange, red, then grey for no signal. */
+    private static final String[] COLORS = {"ff00c800", "ff00d296", "ff00dcff", "ff0080ff", "ff0000dc", "ff808080"};
+    static final int NO_SIGNAL_STYLE = COLORS.length - 1;
+
+    private final Writer out;
+    private final SampleEncoder utc = new SampleEncoder(TimeZone.getTimeZone("UTC"));
+    private final StringBuilder row = new StringBuilder(256);
+    private final String name;
+    private boolean started;
+    private long skipped;
+
+    public KmlSampleWriter(Writer out, String name) {
+        this.out = out;
+        this.name = name;
+    }
+
+    /** Style index for a sample: by its best dBm, or {@link #NO_SIGNAL_STYLE}. */
+    static int styleOf(Sample sample) {
+        int best = Sample.NO_SIGNAL;
+        for (int i = 0; i < sample.simCount(); i++) {
+            if (sample.dbm[i] != Sample.NO_SIGNAL && (best == Sample.NO_SIGNAL || sample.dbm[i] > best)) {
+                best = sample.dbm[i];
+            }
+        }
+        if (best == Sample.NO_SIGNAL) {
+            return NO_SIGNAL_STYLE;
+        }
+        for (int style = 0; style < THRESHOLDS_DBM.length; style++) {
+            if (best >= THRESHOLDS_DBM[style]) {
+                return style;
+            }
+        }
+        return THRESHOLDS_DBM.length;
+    }
+
+    private void start() throws IOException {
+        row.setLength(0);
+        row.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<kml xmlns=\"http://www.opengis.net/kml/2.2\">\n")
+                .append("<Document>\n<name>");
+        ExportText.appendXml(row, name);
+        row.append("</name>\n");
+        for (int style = 0; style < COLORS.length; style++) {
+            row.append("<Style id=\"s").append(style).append("\"><IconStyle><color>").append(COLORS[style])
+                    .append("</color><scale>0.6</scale></IconStyle></Style>\n");
+        }
+        out.append(row);
+        started = true;
+    }
+
+    @Override
+    public void write(Sample sample) throws IOException {
+        if (!started) {
+            start();
+        }
+        if (!sample.hasLocation) {
+            skipped++;
+            return;
+        }
+        row.setLength(0);
+        row.append("<Placemark><styleUrl>#s").append(styleOf(sample)).append("</styleUrl><TimeStamp><when>");
+        ExportText.appendIsoTime(row, utc, sample.timestampMillis);
+        row.append("</when></TimeStamp><description>");
+        for (int i = 0; i < sample.simCount(); i++) {
+            if (i > 0) {
+                row.append("; ");
+            }
+            ExportText.appendXml(row, sample.operatorNames[i]);
+            if (sample.dbm[i] == Sample.NO_SIGNAL) {
+                row.append(" N/A");
+            } else {
+                row.append(' ').append(sample.dbm[i]).append(" dBm");
+            }
+        }
+        if (sample.accuracyDecimeters != Sample.NO_ACCURACY) {
+            row.append("; \u00b1").append(sample.accuracyDecimeters / 10).append('.')
+                    .append(sample.accuracyDecimeters % 10).append(" m");
+        }
+        row.append("</description><Point><coordinates>");
+        ExportText.appendE6(row, sample.longitudeE6);
+        row.append(',');
+        ExportText.appendE6(row, sample.latitudeE6);
+        row.append("</coordinates></Point></Placemark>\n");
+        out.append(row);
+    }
+
+    /** Samples left out because they had no fix. */
+    public long skipped() {
+        return skipped;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (!started) {
+                start();
+            }
+            out.write("</Document>\n</kml>\n");
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.sabbir.dbmtracker.core;
+
+/**
+ * Immutable view of what the logger is seeing right now: tracking state,
+ * per-SIM operator and dBm, and the last fix. Built once per sample on the
+ * sampler thread and handed to the UI as is.
+ */
+public final class LiveSnapshot {
+
+    public final long timestampMillis;
+    public final boolean tracking;
+    public final boolean paused;
+    public final SamplingMode mode;
+    public final boolean hasFix;
+    public final int latitudeE6;
+    public final int longitudeE6;
+    /** Horizontal accuracy in metres, or NaN if unknown. */
+    public final float accuracyMeters;
+    public final long fixTimeMillis;
+    /** Why sessions are not being written or published right now, or null if they are. */
+    public final String storageError;
+    private final String[] operatorNames;
+    private final int[] dbm;
+
+    private LiveSnapshot(long timestampMillis, boolean tracking, boolean paused, SamplingMode mode, boolean hasFix,
+                         int latitudeE6, int longitudeE6, float accuracyMeters, long fixTimeMillis,
+                         String[] operatorNames, int[] dbm, String storageError) {
+        this.timestampMillis = timestampMillis;
+        this.tracking = tracking;
+        this.paused = paused;
+        this.mode = mode;
+        this.hasFix = hasFix;
+        this.latitudeE6 = latitudeE6;
+        this.longitudeE6 = longitudeE6;
+        this.accuracyMeters = accuracyMeters;
+        this.fixTimeMillis = fixTimeMillis;
+        this.operatorNames = operatorNames;
+        this.dbm = dbm;
+        this.storageError = storageError;
+    }
+
+    /** Copies the SIM columns and position out of {@code sample}, which the caller keeps reusing. */
+    public static LiveSnapshot of(Sample sample, boolean tracking, boolean paused, SamplingMode mode,
+                                  float accuracyMeters, long fixTimeMillis) {
+        return of(sample, tracking, paused, mode, accuracyMeters, fixTimeMillis, null);
+    }
+
+    /** As above, with the current storage error, if any. */
+    public static LiveSnapshot of(Sample sample, boolean tracking, boolean paused, SamplingMode mode,
+                                  float accuracyMeters, long fixTimeMillis, String storageError) {
+        int simCount = sample.simCount();
+        String[] names = new String[simCount];
+        int[] values = new int[simCount];
+        System.arraycopy(sample.operatorNames, 0, names, 0, simCount);
+        System.arraycopy(sample.dbm, 0, values, 0, simCount);
+        return new LiveSnapshot(sample.timestampMillis, tracking, paused, mode, sample.hasLocation,
+                sample.latitudeE6, sample.longitudeE6, sample.hasLocation ? accuracyMeters : Float.NaN,
+                sample.hasLocation ? fixTimeMillis : 0, names, values, storageError);
+    }
+
+    public int simCount() {
+        return dbm.length;
+    }
+
+    public String operatorName(int column) {
+        return operatorNames[column];
+    }
+
+    /** dBm for a SIM column, or {@link Sample#NO_SIGNAL}. */
+    public int dbm(int column) {
+        return dbm[column];
+    }
+}
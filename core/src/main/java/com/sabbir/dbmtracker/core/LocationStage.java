@@ -0,0 +1,241 @@
+package com.sabbir.dbmtracker.core;
+
+/**
+ * Gives each sample a position at its own timestamp before it is written.
+ * <p>
+ * Fixes are gated first: null-island coordinates, fixes less accurate than
+ * {@link Policy#maxAccuracyMeters}, fixes delivered more than
+ * {@link Policy#maxFixAgeMillis} late, and fixes older than the last one
+ * are rejected, as is any fix that would need more than
+ * {@link Policy#maxSpeedMps} to reach from the last accepted fix, allowing
+ * for both fixes' accuracy. After {@link Policy#maxConsecutiveOutliers}
+ * rejections in a row the new position is believed instead, so a genuine
+ * jump (or a bad first fix) cannot lock the filter out.
+ * <p>
+ * Samples taken after the newest fix are held, in order, for up to
+ * {@link Policy#maxHoldMillis} waiting for the next one, then released with
+ * their position interpolated linearly between the two fixes around them.
+ * Samples that cannot be bracketed take the nearest fix if it is within
+ * {@link Policy#maxFixAgeMillis} and no position otherwise. Either way the
+ * sample's {@link Sample#fixAgeMillis} and {@link Sample#accuracyDecimeters}
+ * say how good the position is. Until the first fix is accepted nothing
+ * is held: samples go straight on without a position, so a cold start or a
+ * resume after process death writes its first row on the tick it is taken.
+ * <p>
+ * All state, including the held samples, is preallocated; each fix and each
+ * sample costs constant time, amortized over the samples a fix releases.
+ * Not thread-safe: the service drives it from the sampler thread.
+ */
+public final class LocationStage {
+
+    public static final int FIX_ACCEPTED = 0;
+    public static final int FIX_NULL_ISLAND = 1;
+    public static final int FIX_INACCURATE = 2;
+    public static final int FIX_STALE = 3;
+    public static final int FIX_OUT_OF_ORDER = 4;
+    public static final int FIX_OUTLIER = 5;
+
+    /** Receives samples, in timestamp order, once they have a position. */
+    public interface Output {
+        void accept(Sample sample);
+    }
+
+    /** Tunable gates and timings. */
+    public static final class Policy {
+        public float maxAccuracyMeters = 50;
+        public long maxFixAgeMillis = 30_000;
+        public double maxSpeedMps = 70;
+        public int maxConsecutiveOutliers = 3;
+        public long maxInterpolationGapMillis = 30_000;
+        public long maxHoldMillis = 5_000;
+        public int holdCapacity = 32;
+    }
+
+    private final Policy policy;
+    private final Output output;
+    private final Sample[] held;
+    private int heldHead;
+    private int heldCount;
+
+    private boolean hasLast;
+    private long lastTime;
+    private int lastLatitudeE6;
+    private int lastLongitudeE6;
+    private int lastAccuracyDm;
+    private boolean hasPrevious;
+    private long previousTime;
+    private int previousLatitudeE6;
+    private int previousLongitudeE6;
+    private int previousAccuracyDm;
+    private int consecutiveOutliers;
+
+    private final long[] outcomes = new long[FIX_OUTLIER + 1];
+    private long interpolated;
+
+    public LocationStage(Policy policy, int simCount, Output output) {
+        this.policy = policy;
+        this.output = output;
+        held = new Sample[policy.holdCapacity];
+        for (int i = 0; i < held.length; i++) {
+            held[i] = new Sample(simCount);
+        }
+    }
+
+    /**
+     * Offers a fix and returns {@link #FIX_ACCEPTED} or the reason it was
+     * rejected. An accepted fix releases the held samples it brackets.
+     *
+     * @param accuracyMeters NaN if the fix has no accuracy
+     */
+    public int onFix(long fixTimeMillis, int latitudeE6, int longitudeE6, float accuracyMeters, long nowMillis) {
+        int result = gate(fixTimeMillis, latitudeE6, longitudeE6, accuracyMeters, nowMillis);
+        outcomes[result]++;
+        if (result != FIX_ACCEPTED) {
+            return result;
+        }
+        hasPrevious = hasLast;
+        previousTime = lastTime;
+        previousLatitudeE6 = lastLatitudeE6;
+        previousLongitudeE6 = lastLongitudeE6;
+        previousAccuracyDm = lastAccuracyDm;
+        hasLast = true;
+        lastTime = fixTimeMillis;
+        lastLatitudeE6 = latitudeE6;
+        lastLongitudeE6 = longitudeE6;
+        lastAccuracyDm = Float.isNaN(accuracyMeters) ? Sample.NO_ACCURACY : Math.round(accuracyMeters * 10);
+        release(nowMillis);
+        return FIX_ACCEPTED;
+    }
+
+    private int gate(long fixTimeMillis, int latitudeE6, int longitudeE6, float accuracyMeters, long nowMillis) {
+        if (latitudeE6 == 0 && longitudeE6 == 0) {
+            return FIX_NULL_ISLAND;
+        }
+        if (accuracyMeters > policy.maxAccuracyMeters) {
+            return FIX_INACCURATE;
+        }
+        if (nowMillis - fixTimeMillis > policy.maxFixAgeMillis) {
+            return FIX_STALE;
+        }
+        if (!hasLast) {
+            return FIX_ACCEPTED;
+        }
+        if (fixTimeMillis <= lastTime) {
+            return FIX_OUT_OF_ORDER;
+        }
+        double meters = ChangeDetector.distanceMeters(lastLatitudeE6, lastLongitudeE6, latitudeE6, longitudeE6);
+        double slack = (lastAccuracyDm == Sample.NO_ACCURACY ? 0 : lastAccuracyDm / 10.0)
+                + (Float.isNaN(accuracyMeters) ? 0 : accuracyMeters);
+        if (meters - slack > policy.maxSpeedMps * (fixTimeMillis - lastTime) / 1000.0) {
+            if (++consecutiveOutliers <= policy.maxConsecutiveOutliers) {
+                return FIX_OUTLIER;
+            }
+            // Believe the jump, but do not interpolate across it.
+            hasLast = false;
+        }
+        consecutiveOutliers = 0;
+        return FIX_ACCEPTED;
+    }
+
+    /**
+     * Hands {@code sample} on, positioned, as soon as a fix at or after its
+     * time is known; until then a copy is held. Before any fix has been
+     * accepted it is handed on at once with no position. The caller may
+     * reuse {@code sample} straight away.
+     */
+    public void submit(Sample sample, long nowMillis) {
+        if (heldCount == 0 && (!hasLast || sample.timestampMillis <= lastTime)) {
+            locate(sample);
+            output.accept(sample);
+            return;
+        }
+        if (heldCount == held.length) {
+            releaseHead();
+        }
+        held[(heldHead + heldCount) % held.length].copyFrom(sample);
+        heldCount++;
+        release(nowMillis);
+    }
+
+    /** Releases held samples that a fix now brackets or that have waited {@link Policy#maxHoldMillis}. */
+    public void release(long nowMillis) {
+        while (heldCount > 0) {
+            Sample head = held[heldHead];
+            boolean bracketed = hasLast && head.timestampMillis <= lastTime;
+            if (!bracketed && nowMillis - head.timestampMillis < policy.maxHoldMillis) {
+                return;
+            }
+            releaseHead();
+        }
+    }
+
+    /** Releases every held sample with the best position known now, e.g. before pausing or closing. */
+    public void flush() {
+        while (heldCount > 0) {
+            releaseHead();
+        }
+    }
+
+    private void releaseHead() {
+        Sample head = held[heldHead];
+        heldHead = (heldHead + 1) % held.length;
+        heldCount--;
+        locate(head);
+        output.accept(head);
+    }
+
+    /** Sets {@code sample}'s position and fix quality for its timestamp from the fixes accepted so far. */
+    public void locate(Sample sample) {
+        long t = sample.timestampMillis;
+        if (!hasLast) {
+            sample.clearLocation();
+            sample.clearFixQuality();
+            return;
+        }
+        if (hasPrevious && t >= previousTime && t <= lastTime
+                && lastTime - previousTime <= policy.maxInterpolationGapMillis) {
+            double fraction = (t - previousTime) / (double) (lastTime - previousTime);
+            sample.hasLocation = true;
+            sample.latitudeE6 = previousLatitudeE6 + (int) Math.round((lastLatitudeE6 - previousLatitudeE6) * fraction);
+            sample.longitudeE6 = previousLongitudeE6
+                    + (int) Math.round((lastLongitudeE6 - previousLongitudeE6) * fraction);
+            sample.fixAgeMillis = (int) Math.min(t - previousTime, lastTime - t);
+            boolean accuracyKnown = previousAccuracyDm != Sample.NO_ACCURACY && lastAccuracyDm != Sample.NO_ACCURACY;
+            sample.accuracyDecimeters = accuracyKnown
+                    ? Math.max(previousAccuracyDm, lastAccuracyDm) : Sample.NO_ACCURACY;
+            interpolated++;
+            return;
+        }
+        boolean usePrevious = hasPrevious && Math.abs(t - previousTime) < Math.abs(t - lastTime);
+        long age = Math.abs(t - (usePrevious ? previousTime : lastTime));
+        sample.fixAgeMillis = (int) Math.min(age, Integer.MAX_VALUE);
+        if (age > policy.maxFixAgeMillis) {
+            sample.clearLocation();
+            sample.accuracyDecimeters = Sample.NO_ACCURACY;
+            return;
+        }
+        sample.hasLocation = true;
+        sample.latitudeE6 = usePrevious ? previousLatitudeE6 : lastLatitudeE6;
+        sample.longitudeE6 = usePrevious ? previousLongitudeE6 : lastLongitudeE6;
+        sample.accuracyDecimeters = usePrevious ? previousAccuracyDm : lastAccuracyDm;
+    }
+
+    /** Time of the newest accepted fix, or 0 if there is none. */
+    public long lastFixTime() {
+        return hasLast ? lastTime : 0;
+    }
+
+    /** Fixes seen so far with the given {@code FIX_*} outcome. */
+    public long fixes(int result) {
+        return outcomes[result];
+    }
+
+    /** Positions interpolated between two fixes so far. */
+    public long interpolated() {
+        return interpolated;
+    }
+
+    public int heldCount() {
+        return heldCount;
+    }
+}
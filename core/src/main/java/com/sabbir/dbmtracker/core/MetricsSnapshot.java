@@ -0,0 +1,48 @@
+package com.sabbir.dbmtracker.core;
+
+/** An immutable point-in-time view of {@link PipelineMetrics}. Ages are -1 when there was no event yet. */
+public final class MetricsSnapshot {
+
+    public final long timestampMillis;
+    public final long samplesWritten;
+    public final double samplesPerSecond;
+    public final long millisSinceFix;
+    private final long[] millisSinceSignal;
+    public final long writeCount;
+    public final long writeP50Micros;
+    public final long writeP99Micros;
+    public final long writeMaxMicros;
+    public final long bytesWritten;
+    public final int queueDepth;
+    public final int queueCapacity;
+    public final long queueDrops;
+    public final long wakeLockHeldMillis;
+
+    MetricsSnapshot(long timestampMillis, long samplesWritten, double samplesPerSecond, long millisSinceFix,
+                    long[] millisSinceSignal, long writeCount, long writeP50Micros, long writeP99Micros,
+                    long writeMaxMicros, long bytesWritten, int queueDepth, int queueCapacity, long queueDrops,
+                    long wakeLockHeldMillis) {
+        this.timestampMillis = timestampMillis;
+        this.samplesWritten = samplesWritten;
+        this.samplesPerSecond = samplesPerSecond;
+        this.millisSinceFix = millisSinceFix;
+        this.millisSinceSignal = millisSinceSignal;
+        this.writeCount = writeCount;
+        this.writeP50Micros = writeP50Micros;
+        this.writeP99Micros = writeP99Micros;
+        this.writeMaxMicros = writeMaxMicros;
+        this.bytesWritten = bytesWritten;
+        this.queueDepth = queueDepth;
+        this.queueCapacity = queueCapacity;
+        this.queueDrops = queueDrops;
+        this.wakeLockHeldMillis = wakeLockHeldMillis;
+    }
+
+    public int signalColumnCount() {
+        return millisSinceSignal.length;
+    }
+
+    public long millisSinceSignal(int column) {
+        return millisSinceSignal[column];
+    }
+}
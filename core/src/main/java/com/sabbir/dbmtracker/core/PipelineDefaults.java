@@ -0,0 +1,43 @@
+package com.sabbir.dbmtracker.core;
+
+/**
+ * Tuning of the logging pipeline as the app ships it. TrackingService and the
+ * replay harness both build their pipeline from these, so a change to how
+ * sessions are captured or written is measured by the harness as soon as the
+ * app runs it.
+ */
+public final class PipelineDefaults {
+
+    public static final int SAMPLE_QUEUE_CAPACITY = 256;
+    public static final int MIN_SIM_COLUMNS = 2;
+    public static final int WRITER_BATCH_ROWS = 30;
+    public static final long WRITER_BATCH_WINDOW_MS = 60_000;
+    public static final double EVENT_MIN_DISTANCE_METERS = 25;
+    public static final int EVENT_MIN_DBM_DELTA = 3;
+    public static final long EVENT_MAX_SILENCE_MS = 60_000;
+    // ~111 m of latitude per tile.
+    public static final int TILE_SIZE_E6 = 1000;
+    // Segments roll at whichever limit comes first.
+    public static final long MAX_SEGMENT_BYTES = 8L << 20;
+    public static final long MAX_SEGMENT_MS = 6 * 60 * 60_000L;
+    // Checkpoints ride along with queue drains on the writer thread, at most this often.
+    public static final long CHECKPOINT_INTERVAL_MS = 10_000;
+
+    private PipelineDefaults() {
+    }
+
+    /** Recorder options the service writes sessions with; the caller may still set {@code segmentStreams}. */
+    public static SessionRecorder.Options recorderOptions() {
+        SessionRecorder.Options options = new SessionRecorder.Options();
+        options.maxSegmentBytes = MAX_SEGMENT_BYTES;
+        options.maxSegmentMillis = MAX_SEGMENT_MS;
+        options.batchRows = WRITER_BATCH_ROWS;
+        options.batchWindowMillis = WRITER_BATCH_WINDOW_MS;
+        options.checkpointIntervalMillis = CHECKPOINT_INTERVAL_MS;
+        return options;
+    }
+
+    public static ChangeDetector changeDetector(int simCount) {
+        return new ChangeDetector(simCount, EVENT_MIN_DISTANCE_METERS, EVENT_MIN_DBM_DELTA, EVENT_MAX_SILENCE_MS);
+    }
+}
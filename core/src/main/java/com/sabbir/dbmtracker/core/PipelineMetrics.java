@@ -0,0 +1,104 @@
+package com.sabbir.dbmtracker.core;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for the logging pipeline, cheap enough to update on every sample.
+ * Totals are {@link LongAdder}s, so threads recording at once never contend
+ * on a shared cache line; timestamps are single volatile writes from the
+ * thread that owns the event; write latency is a single-writer
+ * {@link LatencyHistogram} fed from the writer thread. Readers take a
+ * consistent-enough {@link MetricsSnapshot} at any time.
+ */
+public final class PipelineMetrics {
+
+    private final LongAdder samplesWritten = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LatencyHistogram writeLatencyMicros = new LatencyHistogram();
+    private volatile long lastFixMillis = -1;
+    private volatile AtomicLongArray lastSignalMillis = newSignalArray(0);
+
+    // Wake-lock accounting is rare and comes from more than one thread.
+    private long wakeLockAcquiredAt = -1;
+    private long wakeLockHeldMillis;
+
+    /** Writer thread: one sample persisted, taking {@code micros}. */
+    public void onSampleWritten(long micros) {
+        samplesWritten.increment();
+        writeLatencyMicros.record(micros);
+    }
+
+    public void onBytesWritten(long bytes) {
+        bytesWritten.add(bytes);
+    }
+
+    public void onFix(long nowMillis) {
+        lastFixMillis = nowMillis;
+    }
+
+    /** Single writer (the sampler thread), which also grows the per-column array. */
+    public void onSignal(int column, long nowMillis) {
+        AtomicLongArray signals = lastSignalMillis;
+        if (column >= signals.length()) {
+            AtomicLongArray grown = newSignalArray(column + 1);
+            for (int i = 0; i < signals.length(); i++) {
+                grown.set(i, signals.get(i));
+            }
+            lastSignalMillis = grown;
+            signals = grown;
+        }
+        signals.lazySet(column, nowMillis);
+    }
+
+    public synchronized void onWakeLockAcquired(long nowMillis) {
+        if (wakeLockAcquiredAt < 0) {
+            wakeLockAcquiredAt = nowMillis;
+        }
+    }
+
+    public synchronized void onWakeLockReleased(long nowMillis) {
+        if (wakeLockAcquiredAt >= 0) {
+            wakeLockHeldMillis += nowMillis - wakeLockAcquiredAt;
+            wakeLockAcquiredAt = -1;
+        }
+    }
+
+    private synchronized long wakeLockHeldMillis(long nowMillis) {
+        return wakeLockHeldMillis + (wakeLockAcquiredAt >= 0 ? nowMillis - wakeLockAcquiredAt : 0);
+    }
+
+    /**
+     * @param previous the last snapshot taken, used for the sample rate; null for the first one
+     * @param queue    the sample queue feeding the writer, or null
+     */
+    public MetricsSnapshot snapshot(long nowMillis, MetricsSnapshot previous, SampleQueue queue) {
+        long samples = samplesWritten.sum();
+        double rate = 0;
+        if (previous != null && nowMillis > previous.timestampMillis) {
+            rate = (samples - previous.samplesWritten) * 1000.0 / (nowMillis - previous.timestampMillis);
+        }
+        AtomicLongArray signals = lastSignalMillis;
+        long[] signalAges = new long[signals.length()];
+        for (int i = 0; i < signalAges.length; i++) {
+            signalAges[i] = age(nowMillis, signals.get(i));
+        }
+        return new MetricsSnapshot(nowMillis, samples, rate, age(nowMillis, lastFixMillis), signalAges,
+                writeLatencyMicros.count(), writeLatencyMicros.percentile(0.50), writeLatencyMicros.percentile(0.99),
+                writeLatencyMicros.max(), bytesWritten.sum(),
+                queue != null ? queue.depth() : 0, queue != null ? queue.capacity() : 0,
+                queue != null ? queue.drops() : 0, wakeLockHeldMillis(nowMillis));
+    }
+
+    private static long age(long nowMillis, long eventMillis) {
+        return eventMillis < 0 ? -1 : Math.max(0, nowMillis - eventMillis);
+    }
+
+    private static AtomicLongArray newSignalArray(int length) {
+        AtomicLongArray array = new AtomicLongArray(length);
+        for (int i = 0; i < length; i++) {
+            array.set(i, -1);
+        }
+        return array;
+    }
+}
@@ -0,0 +1,137 @@
+package com.sabbir.dbmtracker.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Appends to a file through a {@link FileChannel} and a direct buffer, which
+ * the channel writes straight from instead of first copying a heap array
+ * into one of its own. The file is grown a whole extent at a time ahead of
+ * the data by an {@link Allocator}. The default one, {@link #EXTEND}, only
+ * extends the file, which most file systems keep sparse, so blocks are still
+ * found as the data lands. One that reserves them, such as
+ * {@code posix_fallocate}, does that once per extent, and an append is left
+ * with only its own bytes to write. Closing trims the file to the bytes
+ * written. A file whose stream was never closed keeps a zero-filled tail,
+ * which {@link BinarySessionReader} reads as the end of the session.
+ * <p>
+ * The buffer can be shared by streams that are never open at the same time,
+ * e.g. consecutive segments of one session.
+ */
+public final class PreallocatedFileOutputStream extends OutputStream {
+
+    public static final int DEFAULT_BUFFER_BYTES = 256 * 1024;
+    public static final long DEFAULT_EXTENT_BYTES = 1L << 20;
+
+    /** Grows a file to cover {@code length} more bytes from {@code offset}, its current allocated end. */
+    public interface Allocator {
+        void allocate(RandomAccessFile file, long offset, long length) throws IOException;
+    }
+
+    /** Sets the file's length and leaves finding blocks to the file system. */
+    public static final Allocator EXTEND = (file, offset, length) -> file.setLength(offset + length);
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final long extentBytes;
+    private final Allocator allocator;
+    private long position;
+    private long allocated;
+    private boolean closed;
+
+    public PreallocatedFileOutputStream(File file) throws IOException {
+        this(file, ByteBuffer.allocateDirect(DEFAULT_BUFFER_BYTES), DEFAULT_EXTENT_BYTES);
+    }
+
+    public PreallocatedFileOutputStream(File file, ByteBuffer buffer, long extentBytes) throws IOException {
+        this(file, buffer, extentBytes, EXTEND);
+    }
+
+    /** Creates or truncates {@code file}. */
+    public PreallocatedFileOutputStream(File file, ByteBuffer buffer, long extentBytes, Allocator allocator)
+            throws IOException {
+        if (extentBytes <= 0) {
+            throw new IllegalArgumentException("extentBytes must be positive: " + extentBytes);
+        }
+        this.file = new RandomAccessFile(file, "rw");
+        this.channel = this.file.getChannel();
+        this.buffer = buffer;
+        this.extentBytes = extentBytes;
+        this.allocator = allocator;
+        channel.truncate(0);
+        buffer.clear();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            drain();
+        }
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.put(b, off, count);
+            off += count;
+            len -= count;
+        }
+    }
+
+    /** Hands buffered bytes to the file; they are not forced to the device, see {@link #sync()}. */
+    @Override
+    public void flush() throws IOException {
+        drain();
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        if (buffer.hasRemaining()) {
+            long end = position + buffer.remaining();
+            if (end > allocated) {
+                long grown = (end + extentBytes - 1) / extentBytes * extentBytes;
+                allocator.allocate(file, allocated, grown - allocated);
+                allocated = grown;
+            }
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        }
+        buffer.clear();
+    }
+
+    /** Flushes and forces the written bytes to the storage device. */
+    public void sync() throws IOException {
+        drain();
+        channel.force(false);
+    }
+
+    /** Bytes written so far, buffered ones included. */
+    public long length() {
+        return position + buffer.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            drain();
+            channel.truncate(position);
+        } finally {
+            file.close();
+        }
+    }
+}
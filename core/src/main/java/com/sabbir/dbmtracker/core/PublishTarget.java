@@ -0,0 +1,22 @@
+package com.sabbir.dbmtracker.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Somewhere outside the app's own storage that finished sessions are copied
+ * to for the user, e.g. a shared Documents folder or a folder they picked.
+ */
+public interface PublishTarget {
+
+    interface Content {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Creates a file called {@code name} and has {@code content} write it.
+     * The file only becomes visible once it is complete, replacing one of
+     * the same name; if {@code content} throws, nothing is left behind.
+     */
+    void publish(String name, String mimeType, Content content) throws IOException;
+}
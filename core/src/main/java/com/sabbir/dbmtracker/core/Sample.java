@@ -0,0 +1,131 @@
+package com.sabbir.dbmtracker.core;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * One logging tick, held in primitive fields so a single instance can be
+ * reused for every row. Coordinates are fixed-point degrees scaled by 1e6,
+ * signal strengths are dBm with {@link #NO_SIGNAL} meaning "N/A".
+ */
+public final class Sample {
+
+    public static final int NO_SIGNAL = -999;
+    public static final int E6 = 1_000_000;
+    /** {@link #fixAgeMillis} when no fix has been seen. */
+    public static final int NO_FIX_AGE = -1;
+    /** {@link #accuracyDecimeters} when the fix did not report an accuracy. */
+    public static final int NO_ACCURACY = -1;
+
+    public long timestampMillis;
+    public boolean hasLocation;
+    public int latitudeE6;
+    public int longitudeE6;
+    /**
+     * How far the sample's time is from the fix its position came from (the
+     * nearer one when interpolated), or {@link #NO_FIX_AGE}. Also set on rows
+     * whose only fix was too old to use, so staleness stays visible.
+     */
+    public int fixAgeMillis = NO_FIX_AGE;
+    /** Horizontal accuracy of that fix in 0.1 m, or {@link #NO_ACCURACY}. */
+    public int accuracyDecimeters = NO_ACCURACY;
+    public String[] operatorNames;
+    public int[] dbm;
+    /**
+     * Cells reported for every subscription. Only filled on ticks where a new
+     * cell snapshot arrived; empty otherwise.
+     */
+    public final CellBatch cells = new CellBatch(16);
+
+    public Sample(int simCount) {
+        operatorNames = new String[0];
+        dbm = new int[0];
+        setSimCount(simCount);
+    }
+
+    public int simCount() {
+        return dbm.length;
+    }
+
+    /**
+     * Changes the number of SIM columns, keeping existing values and filling
+     * new columns with "Unknown"/{@link #NO_SIGNAL}. Only allocates when the
+     * count actually changes, which happens when subscriptions come and go.
+     */
+    public void setSimCount(int simCount) {
+        if (simCount == dbm.length) {
+            return;
+        }
+        String[] names = new String[simCount];
+        int[] signals = new int[simCount];
+        int kept = Math.min(simCount, dbm.length);
+        System.arraycopy(operatorNames, 0, names, 0, kept);
+        System.arraycopy(dbm, 0, signals, 0, kept);
+        for (int i = kept; i < simCount; i++) {
+            names[i] = "Unknown";
+            signals[i] = NO_SIGNAL;
+        }
+        operatorNames = names;
+        dbm = signals;
+    }
+
+    public void copyFrom(Sample other) {
+        timestampMillis = other.timestampMillis;
+        hasLocation = other.hasLocation;
+        latitudeE6 = other.latitudeE6;
+        longitudeE6 = other.longitudeE6;
+        fixAgeMillis = other.fixAgeMillis;
+        accuracyDecimeters = other.accuracyDecimeters;
+        setSimCount(other.simCount());
+        System.arraycopy(other.operatorNames, 0, operatorNames, 0, operatorNames.length);
+        System.arraycopy(other.dbm, 0, dbm, 0, dbm.length);
+        cells.copyFrom(other.cells);
+    }
+
+    /** True if every field, cells included, equals {@code other}'s. */
+    public boolean sameAs(Sample other) {
+        if (timestampMillis != other.timestampMillis || hasLocation != other.hasLocation
+                || latitudeE6 != other.latitudeE6 || longitudeE6 != other.longitudeE6
+                || fixAgeMillis != other.fixAgeMillis || accuracyDecimeters != other.accuracyDecimeters
+                || simCount() != other.simCount()) {
+            return false;
+        }
+        for (int i = 0; i < dbm.length; i++) {
+            if (dbm[i] != other.dbm[i] || !operatorNames[i].equals(other.operatorNames[i])) {
+                return false;
+            }
+        }
+        return cells.sameAs(other.cells);
+    }
+
+    public void setLocation(double latitude, double longitude) {
+        hasLocation = true;
+        latitudeE6 = toE6(latitude);
+        longitudeE6 = toE6(longitude);
+    }
+
+    public void clearLocation() {
+        hasLocation = false;
+        latitudeE6 = 0;
+        longitudeE6 = 0;
+    }
+
+    public void clearFixQuality() {
+        fixAgeMillis = NO_FIX_AGE;
+        accuracyDecimeters = NO_ACCURACY;
+    }
+
+    /**
+     * Rounds to micro-degrees as {@code %.6f} does: half away from zero, on
+     * the shortest decimal form of {@code degrees}. Only values within
+     * rounding error of a tie take the exact, allocating path.
+     */
+    public static int toE6(double degrees) {
+        double scaled = Math.abs(degrees) * E6;
+        if (Math.abs(scaled - Math.floor(scaled) - 0.5) < 1e-6) {
+            return new BigDecimal(Double.toString(degrees)).setScale(6, RoundingMode.HALF_UP)
+                    .unscaledValue().intValue();
+        }
+        return (int) Math.copySign(Math.round(scaled), degrees);
+    }
+}
@@ -0,0 +1,222 @@
+package com.sabbir.dbmtracker.core;
+
+import java.util.TimeZone;
+
+/**
+ * Encodes a {@link Sample} as one CSV row into a reusable char buffer:
+ * {@code yyyy-MM-dd HH:mm:ss,lat,lon,name1,dbm1,name2,dbm2...\n}.
+ * <p>
+ * The output matches {@code SimpleDateFormat("yyyy-MM-dd HH:mm:ss")} and
+ * {@code String.format("%.6f")} under an ASCII-digit locale, with "0.0" for a
+ * missing fix and "N/A" for a missing signal. Unlike those, it always writes
+ * ASCII digits and a '.' separator regardless of the device locale, and it does
+ * not allocate once the buffer has grown to fit the longest row.
+ * <p>
+ * With fix quality columns on, every row also ends in
+ * {@code ,fixAgeMillis,accuracyMeters} ("N/A" when unknown).
+ */
+public final class SampleEncoder {
+
+    private static final char[] NO_FIX = {'0', '.', '0'};
+    private static final char[] NOT_AVAILABLE = {'N', '/', 'A'};
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private final TimeZone timeZone;
+    private final boolean fixQuality;
+    private char[] buffer = new char[128];
+    private int length;
+
+    private long cachedDay = Long.MIN_VALUE;
+    private final char[] cachedDate = new char[10];
+
+    public SampleEncoder() {
+        this(TimeZone.getDefault());
+    }
+
+    public SampleEncoder(TimeZone timeZone) {
+        this(timeZone, false);
+    }
+
+    public SampleEncoder(TimeZone timeZone, boolean fixQuality) {
+        this.timeZone = timeZone;
+        this.fixQuality = fixQuality;
+    }
+
+    public static String csvHeader(int simCount) {
+        return csvHeader(simCount, false);
+    }
+
+    public static String csvHeader(int simCount, boolean fixQuality) {
+        StringBuilder header = new StringBuilder("Timestamp,Latitude,Longitude");
+        for (int i = 1; i <= simCount; i++) {
+            header.append(",SIM").append(i).append(" Name,SIM").append(i).append(" Signal Strength (dBm)");
+        }
+        if (fixQuality) {
+            header.append(",Fix Age (ms),Accuracy (m)");
+        }
+        return header.append('\n').toString();
+    }
+
+    /** Encodes the sample and returns the row length; the row is in {@link #buffer()}. */
+    public int encode(Sample sample) {
+        length = 0;
+        ensureCapacity(64 + sample.simCount() * 16);
+        appendTimestamp(sample.timestampMillis);
+        buffer[length++] = ',';
+        if (sample.hasLocation) {
+            appendFixed6(sample.latitudeE6);
+            buffer[length++] = ',';
+            appendFixed6(sample.longitudeE6);
+        } else {
+            appendChars(NO_FIX);
+            buffer[length++] = ',';
+            appendChars(NO_FIX);
+        }
+        for (int i = 0; i < sample.simCount(); i++) {
+            buffer[length++] = ',';
+            appendString(sample.operatorNames[i]);
+            ensureCapacity(length + 14);
+            buffer[length++] = ',';
+            if (sample.dbm[i] == Sample.NO_SIGNAL) {
+                appendChars(NOT_AVAILABLE);
+            } else {
+                appendInt(sample.dbm[i]);
+            }
+        }
+        if (fixQuality) {
+            ensureCapacity(length + 40);
+            buffer[length++] = ',';
+            if (sample.fixAgeMillis == Sample.NO_FIX_AGE) {
+                appendChars(NOT_AVAILABLE);
+            } else {
+                appendInt(sample.fixAgeMillis);
+            }
+            buffer[length++] = ',';
+            if (sample.accuracyDecimeters == Sample.NO_ACCURACY) {
+                appendChars(NOT_AVAILABLE);
+            } else {
+                appendInt(sample.accuracyDecimeters / 10);
+                buffer[length++] = '.';
+                buffer[length++] = (char) ('0' + sample.accuracyDecimeters % 10);
+            }
+        }
+        buffer[length++] = '\n';
+        return length;
+    }
+
+    /**
+     * Encodes just the timestamp, {@code yyyy-MM-dd HH:mm:ss} in this
+     * encoder's time zone, and returns its length; it is in {@link #buffer()}.
+     */
+    public int encodeTimestamp(long utcMillis) {
+        length = 0;
+        appendTimestamp(utcMillis);
+        return length;
+    }
+
+    public char[] buffer() {
+        return buffer;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    private void appendTimestamp(long utcMillis) {
+        long local = utcMillis + timeZone.getOffset(utcMillis);
+        long day = Math.floorDiv(local, MILLIS_PER_DAY);
+        if (day != cachedDay) {
+            fillDate(day);
+            cachedDay = day;
+        }
+        System.arraycopy(cachedDate, 0, buffer, length, cachedDate.length);
+        length += cachedDate.length;
+        int secondOfDay = (int) (Math.floorMod(local, MILLIS_PER_DAY) / 1000);
+        buffer[length++] = ' ';
+        appendTwoDigits(secondOfDay / 3600);
+        buffer[length++] = ':';
+        appendTwoDigits(secondOfDay / 60 % 60);
+        buffer[length++] = ':';
+        appendTwoDigits(secondOfDay % 60);
+    }
+
+    /** Civil-from-days conversion (proleptic Gregorian), see Howard Hinnant's date algorithms. */
+    private void fillDate(long epochDay) {
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int dayOfMonth = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+
+        cachedDate[0] = (char) ('0' + year / 1000 % 10);
+        cachedDate[1] = (char) ('0' + year / 100 % 10);
+        cachedDate[2] = (char) ('0' + year / 10 % 10);
+        cachedDate[3] = (char) ('0' + year % 10);
+        cachedDate[4] = '-';
+        cachedDate[5] = (char) ('0' + month / 10);
+        cachedDate[6] = (char) ('0' + month % 10);
+        cachedDate[7] = '-';
+        cachedDate[8] = (char) ('0' + dayOfMonth / 10);
+        cachedDate[9] = (char) ('0' + dayOfMonth % 10);
+    }
+
+    private void appendTwoDigits(int value) {
+        buffer[length++] = (char) ('0' + value / 10);
+        buffer[length++] = (char) ('0' + value % 10);
+    }
+
+    private void appendFixed6(int valueE6) {
+        long value = valueE6;
+        if (value < 0) {
+            buffer[length++] = '-';
+            value = -value;
+        }
+        appendInt(value / Sample.E6);
+        buffer[length++] = '.';
+        int fraction = (int) (value % Sample.E6);
+        for (int divisor = 100_000; divisor > 0; divisor /= 10) {
+            buffer[length++] = (char) ('0' + fraction / divisor % 10);
+        }
+    }
+
+    private void appendInt(long value) {
+        if (value < 0) {
+            buffer[length++] = '-';
+            value = -value;
+        }
+        int start = length;
+        do {
+            buffer[length++] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        for (int i = start, j = length - 1; i < j; i++, j--) {
+            char c = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = c;
+        }
+    }
+
+    private void appendChars(char[] chars) {
+        System.arraycopy(chars, 0, buffer, length, chars.length);
+        length += chars.length;
+    }
+
+    private void appendString(String value) {
+        int n = value.length();
+        ensureCapacity(length + n + 32);
+        value.getChars(0, n, buffer, length);
+        length += n;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > buffer.length) {
+            char[] grown = new char[Math.max(capacity, buffer.length * 2)];
+            System.arraycopy(buffer, 0, grown, 0, length);
+            buffer = grown;
+        }
+    }
+}
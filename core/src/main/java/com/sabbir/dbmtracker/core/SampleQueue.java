@@ -0,0 +1,88 @@
+package com.sabbir.dbmtracker.core;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free single-producer/single-consumer ring of preallocated samples.
+ * The producer copies into a free slot with {@link #offer(Sample)}; the
+ * consumer hands published slots straight to a writer with
+ * {@link #drainTo(SampleWriter)}. When the ring is full the new sample is
+ * dropped and counted rather than blocking the producer.
+ */
+public final class SampleQueue {
+
+    private final Sample[] slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long drops;
+    private volatile int highWaterMark;
+
+    public SampleQueue(int capacity, int simCount) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        slots = new Sample[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Sample(simCount);
+        }
+        mask = capacity - 1;
+    }
+
+    /** Producer side. Returns false, and counts a drop, if the queue is full. */
+    public boolean offer(Sample sample) {
+        long t = tail.get();
+        int depth = (int) (t - head.get());
+        if (depth == slots.length) {
+            drops++;
+            return false;
+        }
+        slots[(int) t & mask].copyFrom(sample);
+        tail.lazySet(t + 1);
+        if (depth + 1 > highWaterMark) {
+            highWaterMark = depth + 1;
+        }
+        return true;
+    }
+
+    /**
+     * Consumer side. Writes every published sample and returns how many were
+     * taken. A sample whose write fails is still consumed, so one bad write
+     * cannot wedge the queue.
+     */
+    public int drainTo(SampleWriter writer) throws IOException {
+        long h = head.get();
+        long t = tail.get();
+        int drained = 0;
+        try {
+            for (; h < t; h++) {
+                writer.write(slots[(int) h & mask]);
+                drained++;
+            }
+        } finally {
+            head.lazySet(h == t ? h : h + 1);
+        }
+        return drained;
+    }
+
+    public int depth() {
+        return (int) (tail.get() - head.get());
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    public long published() {
+        return tail.get();
+    }
+
+    public long drops() {
+        return drops;
+    }
+
+    public int highWaterMark() {
+        return highWaterMark;
+    }
+}
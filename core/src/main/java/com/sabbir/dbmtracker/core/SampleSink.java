@@ -0,0 +1,19 @@
+package com.sabbir.dbmtracker.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destination for encoded sample rows. Implementations decide when rows
+ * actually reach storage; {@link #flush()} forces everything pending out.
+ */
+public interface SampleSink extends Closeable {
+
+    void append(char[] row, int offset, int length) throws IOException;
+
+    default void append(String row) throws IOException {
+        append(row.toCharArray(), 0, row.length());
+    }
+
+    void flush() throws IOException;
+}
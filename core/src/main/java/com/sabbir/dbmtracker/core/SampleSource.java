@@ -0,0 +1,14 @@
+package com.sabbir.dbmtracker.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/** Anything samples can be read back from one at a time, into a reused {@link Sample}. */
+public interface SampleSource extends Closeable {
+
+    /**
+     * Reads the next sample into {@code sample}, resizing its SIM columns if
+     * needed; returns false when there are no more.
+     */
+    boolean next(Sample sample) throws IOException;
+}
@@ -0,0 +1,17 @@
+package com.sabbir.dbmtracker.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/** Persists {@link Sample}s in some on-disk format. */
+public interface SampleWriter extends Closeable {
+
+    void write(Sample sample) throws IOException;
+
+    void flush() throws IOException;
+
+    /** Bytes produced so far, including any still buffered, or -1 if this writer does not track it. */
+    default long position() {
+        return -1;
+    }
+}
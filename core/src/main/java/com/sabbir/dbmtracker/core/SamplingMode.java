@@ -0,0 +1,8 @@
+package com.sabbir.dbmtracker.core;
+
+public enum SamplingMode {
+    /** One row per logging tick, whether or not anything changed. */
+    FIXED_INTERVAL,
+    /** Rows only when position or signal changed enough, plus a heartbeat. */
+    EVENT_DRIVEN
+}
@@ -0,0 +1,120 @@
+package com.sabbir.dbmtracker.core;
+
+import java.io.IOException;
+
+/**
+ * Splits a session into segments, each written by its own
+ * {@link SampleWriter}. A new segment starts whenever the number of SIM
+ * columns changes, so every segment has a fixed schema, and, when limits are
+ * set, once a segment reaches a size in bytes or a span of sample time, so
+ * multi-day sessions stay in files that are quick to open and move.
+ */
+public class SegmentedSessionWriter implements SampleWriter {
+
+    public interface SegmentFactory {
+        SampleWriter open(int segmentIndex, int simCount) throws IOException;
+    }
+
+    /** Told about every segment once it has been closed, e.g. to record it in a {@link SessionManifest}. */
+    public interface SegmentListener {
+        void onSegmentClosed(int segmentIndex, int simCount, long firstMillis, long lastMillis, long records)
+                throws IOException;
+    }
+
+    private final SegmentFactory factory;
+    private final long maxSegmentBytes;
+    private final long maxSegmentMillis;
+    private final SegmentListener listener;
+    private SampleWriter current;
+    private int currentSimCount = -1;
+    private int segmentIndex;
+    private long firstMillis;
+    private long lastMillis;
+    private long records;
+
+    public SegmentedSessionWriter(SegmentFactory factory) {
+        this(factory, Long.MAX_VALUE, Long.MAX_VALUE, null);
+    }
+
+    /**
+     * @param maxSegmentBytes  roll once the segment writer's {@link SampleWriter#position()} reaches this
+     * @param maxSegmentMillis roll once a segment spans this much sample time
+     * @param listener         notified as segments close; may be null
+     */
+    public SegmentedSessionWriter(SegmentFactory factory, long maxSegmentBytes, long maxSegmentMillis,
+                                  SegmentListener listener) {
+        this(factory, 0, maxSegmentBytes, maxSegmentMillis, listener);
+    }
+
+    /** As above, numbering segments from {@code firstSegmentIndex}, e.g. to carry on a session after a restart. */
+    public SegmentedSessionWriter(SegmentFactory factory, int firstSegmentIndex, long maxSegmentBytes,
+                                  long maxSegmentMillis, SegmentListener listener) {
+        this.segmentIndex = firstSegmentIndex - 1;
+        this.factory = factory;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.maxSegmentMillis = maxSegmentMillis;
+        this.listener = listener;
+    }
+
+    @Override
+    public void write(Sample sample) throws IOException {
+        if (current == null || sample.simCount() != currentSimCount || full(sample.timestampMillis)) {
+            roll(sample.simCount());
+            firstMillis = sample.timestampMillis;
+        }
+        current.write(sample);
+        lastMillis = sample.timestampMillis;
+        records++;
+    }
+
+    private boolean full(long timestampMillis) {
+        return current.position() >= maxSegmentBytes || timestampMillis - firstMillis >= maxSegmentMillis;
+    }
+
+    private void roll(int simCount) throws IOException {
+        closeCurrent();
+        segmentIndex++;
+        current = factory.open(segmentIndex, simCount);
+        currentSimCount = simCount;
+        records = 0;
+    }
+
+    private void closeCurrent() throws IOException {
+        if (current == null) {
+            return;
+        }
+        SampleWriter previous = current;
+        current = null;
+        previous.close();
+        if (listener != null && records > 0) {
+            listener.onSegmentClosed(segmentIndex, currentSimCount, firstMillis, lastMillis, records);
+        }
+    }
+
+    public int segmentCount() {
+        return segmentIndex + 1;
+    }
+
+    /** Index of the segment being written, or of the last one opened. */
+    public int currentSegmentIndex() {
+        return segmentIndex;
+    }
+
+    /** Bytes in the current segment, counting bytes still buffered; 0 before the first write. */
+    @Override
+    public long position() {
+        return current != null ? current.position() : 0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (current != null) {
+            current.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeCurrent();
+    }
+}
@@ -0,0 +1,116 @@
+package com.sabbir.dbmtracker.core;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * The little a tracking service needs to carry on after its process is
+ * killed: which session it was writing, whether it was tracking or paused,
+ * how many rows it had written and where the current segment ended. A
+ * few dozen bytes, little-endian:
+ * <pre>
+ * 'D' 'B' 'M' 'K'  version:u8  flags:u8  mode:u8  reserved:u8
+ * savedAt:i64  sequence:i64  lastSample:i64  segmentIndex:i32  segmentOffset:i64
+ * baseLength:u16  base:utf8[baseLength]  crc32:u32
+ * </pre>
+ * The file is replaced atomically and carries a checksum, so a torn or
+ * foreign file reads as "no checkpoint" rather than as bad state.
+ */
+public final class SessionCheckpoint {
+
+    public static final String FILE_NAME = "tracking.checkpoint";
+    static final byte[] MAGIC = {'D', 'B', 'M', 'K'};
+    static final int VERSION = 1;
+    private static final int FLAG_TRACKING = 1;
+    private static final int FLAG_PAUSED = 2;
+    private static final int FIXED_SIZE = 8 + 8 + 8 + 8 + 4 + 8 + 2;
+
+    /** Session name: segment, manifest and tile files all start with it. */
+    public String sessionBase;
+    public boolean tracking;
+    public boolean paused;
+    public SamplingMode mode = SamplingMode.FIXED_INTERVAL;
+    public long savedAtMillis;
+    /** Rows written to the session so far. */
+    public long sequence;
+    public long lastSampleMillis;
+    public int segmentIndex;
+    /** Length of the current segment when saved, counting bytes not yet flushed. */
+    public long segmentOffset;
+
+    public void writeTo(File file) throws IOException {
+        byte[] base = sessionBase.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(FIXED_SIZE + base.length + 4).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(MAGIC).put((byte) VERSION)
+                .put((byte) ((tracking ? FLAG_TRACKING : 0) | (paused ? FLAG_PAUSED : 0)))
+                .put((byte) mode.ordinal()).put((byte) 0)
+                .putLong(savedAtMillis).putLong(sequence).putLong(lastSampleMillis)
+                .putInt(segmentIndex).putLong(segmentOffset)
+                .putShort((short) base.length).put(base);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(buffer.array(), 0, buffer.position());
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Could not replace " + file);
+        }
+    }
+
+    /** Returns the checkpoint in {@code file}, or null if there is none or it does not verify. */
+    public static SessionCheckpoint readFrom(File file) {
+        long length = file.length();
+        if (length < FIXED_SIZE + 4 || length > 4096) {
+            return null;
+        }
+        byte[] bytes = new byte[(int) length];
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            in.readFully(bytes);
+        } catch (IOException e) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 4);
+        if (buffer.getInt(bytes.length - 4) != (int) crc.getValue()) {
+            return null;
+        }
+        for (byte b : MAGIC) {
+            if (buffer.get() != b) {
+                return null;
+            }
+        }
+        if (buffer.get() != VERSION) {
+            return null;
+        }
+        SessionCheckpoint checkpoint = new SessionCheckpoint();
+        int flags = buffer.get();
+        checkpoint.tracking = (flags & FLAG_TRACKING) != 0;
+        checkpoint.paused = (flags & FLAG_PAUSED) != 0;
+        int mode = buffer.get();
+        SamplingMode[] modes = SamplingMode.values();
+        checkpoint.mode = mode >= 0 && mode < modes.length ? modes[mode] : SamplingMode.FIXED_INTERVAL;
+        buffer.get();
+        checkpoint.savedAtMillis = buffer.getLong();
+        checkpoint.sequence = buffer.getLong();
+        checkpoint.lastSampleMillis = buffer.getLong();
+        checkpoint.segmentIndex = buffer.getInt();
+        checkpoint.segmentOffset = buffer.getLong();
+        int baseLength = buffer.getShort() & 0xFFFF;
+        if (baseLength != bytes.length - FIXED_SIZE - 4) {
+            return null;
+        }
+        checkpoint.sessionBase = new String(bytes, buffer.position(), baseLength, StandardCharsets.UTF_8);
+        return checkpoint;
+    }
+}
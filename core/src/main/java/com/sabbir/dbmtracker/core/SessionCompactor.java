@@ -0,0 +1,189 @@
+package com.sabbir.dbmtracker.core;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Rewrites a closed session into fewer, compressed segments. Consecutive
+ * segments with the same SIM column count are packed together until about
+ * {@code targetSegmentBytes} of uncompressed data, rows that exactly repeat
+ * the row before them are dropped, and each packed segment is written as a
+ * deflate stream ({@link SessionStore#COMPRESSED_EXTENSION}) with its own
+ * {@link SessionIndex}. The manifest is replaced atomically before the old
+ * segments are deleted, so an interrupted run leaves the session readable:
+ * killed before the swap, the run is simply repeated; killed after it, the
+ * next run deletes the segments the compacted manifest no longer lists.
+ * Meant for a low-priority background thread.
+ */
+public final class SessionCompactor {
+
+    static final String COMPACTED_SUFFIX = "_c";
+
+    private final long targetSegmentBytes;
+    private long segmentsIn;
+    private long segmentsOut;
+    private long bytesIn;
+    private long bytesOut;
+    private long duplicatesDropped;
+
+    public SessionCompactor(long targetSegmentBytes) {
+        if (targetSegmentBytes <= 0) {
+            throw new IllegalArgumentException("targetSegmentBytes must be positive: " + targetSegmentBytes);
+        }
+        this.targetSegmentBytes = targetSegmentBytes;
+    }
+
+    /**
+     * Compacts the session described by {@code manifestFile}. Returns false
+     * if the session is still open, which is left untouched, or was already
+     * compacted, in which case segments left over from an interrupted run
+     * are deleted.
+     */
+    public boolean compact(File manifestFile) throws IOException {
+        SessionManifest manifest = SessionManifest.read(manifestFile);
+        if (!manifest.isClosed()) {
+            return false;
+        }
+        if (manifest.isCompacted()) {
+            deleteUnlisted(manifest);
+            return false;
+        }
+        String base = manifest.baseName();
+
+        List<SessionManifest.Segment> inputs = manifest.segments();
+        List<SessionManifest.Segment> outputs = new ArrayList<>();
+        int start = 0;
+        while (start < inputs.size()) {
+            int simCount = inputs.get(start).simCount;
+            long groupBytes = manifest.segmentFile(inputs.get(start)).length();
+            int end = start + 1;
+            while (end < inputs.size() && inputs.get(end).simCount == simCount) {
+                long length = manifest.segmentFile(inputs.get(end)).length();
+                if (groupBytes + length > targetSegmentBytes) {
+                    break;
+                }
+                groupBytes += length;
+                end++;
+            }
+            String name = base + COMPACTED_SUFFIX + outputs.size() + SessionStore.COMPRESSED_EXTENSION;
+            outputs.add(pack(manifest, inputs.subList(start, end), simCount, name));
+            start = end;
+        }
+
+        List<SessionManifest.Segment> replaced = new ArrayList<>(inputs);
+        manifest.replaceSegments(outputs);
+        manifest.setCompacted(true);
+        manifest.write();
+
+        for (SessionManifest.Segment segment : replaced) {
+            File file = manifest.segmentFile(segment);
+            segmentsIn++;
+            bytesIn += file.length();
+            file.delete();
+            SessionStore.indexFileFor(file).delete();
+        }
+        for (SessionManifest.Segment segment : outputs) {
+            segmentsOut++;
+            bytesOut += manifest.segmentFile(segment).length();
+        }
+        return true;
+    }
+
+    /** Deletes this session's segments and indexes that {@code manifest} does not list. */
+    private static void deleteUnlisted(SessionManifest manifest) {
+        Set<String> listed = new HashSet<>();
+        for (SessionManifest.Segment segment : manifest.segments()) {
+            listed.add(segment.name);
+        }
+        // base.dbms, base_1.dbms ... as recorded, base_c0.dbmz ... as compacted.
+        Pattern ours = Pattern.compile(Pattern.quote(manifest.baseName())
+                + "(_\\d+|" + Pattern.quote(COMPACTED_SUFFIX) + "\\d+)?"
+                + "(" + Pattern.quote(SessionStore.SESSION_EXTENSION)
+                + "|" + Pattern.quote(SessionStore.COMPRESSED_EXTENSION) + ")");
+        File[] files = manifest.directory().listFiles(
+                (dir, name) -> !listed.contains(name) && ours.matcher(name).matches());
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            file.delete();
+            SessionStore.indexFileFor(file).delete();
+        }
+    }
+
+    private SessionManifest.Segment pack(SessionManifest manifest, List<SessionManifest.Segment> group,
+                                         int simCount, String name) throws IOException {
+        File target = new File(manifest.directory(), name);
+        Sample sample = new Sample(simCount);
+        Sample previous = new Sample(simCount);
+        boolean hasPrevious = false;
+        long first = 0;
+        long last = 0;
+        long records = 0;
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            OutputStream out = new DeflaterOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(target)), deflater, 8192);
+            BinarySessionWriter session = new BinarySessionWriter(out, simCount,
+                    IndexedSessionWriter.DEFAULT_BLOCK_RECORDS, Long.MAX_VALUE);
+            try (IndexedSessionWriter writer = new IndexedSessionWriter(session,
+                    new BufferedOutputStream(new FileOutputStream(SessionStore.indexFileFor(target))),
+                    IndexedSessionWriter.DEFAULT_BLOCK_RECORDS)) {
+                for (SessionManifest.Segment segment : group) {
+                    try (BinarySessionReader reader = new BinarySessionReader(
+                            SessionStore.openSegment(manifest.segmentFile(segment)))) {
+                        while (reader.next(sample)) {
+                            if (hasPrevious && sample.sameAs(previous)) {
+                                duplicatesDropped++;
+                                continue;
+                            }
+                            writer.write(sample);
+                            previous.copyFrom(sample);
+                            if (records == 0) {
+                                first = sample.timestampMillis;
+                            }
+                            last = sample.timestampMillis;
+                            hasPrevious = true;
+                            records++;
+                        }
+                    }
+                }
+            }
+        } finally {
+            deflater.end();
+        }
+        return new SessionManifest.Segment(name, simCount, first, last, records);
+    }
+
+    /** Segments replaced by {@link #compact(File)} calls so far. */
+    public long segmentsIn() {
+        return segmentsIn;
+    }
+
+    /** Segments written by {@link #compact(File)} calls so far. */
+    public long segmentsOut() {
+        return segmentsOut;
+    }
+
+    public long bytesIn() {
+        return bytesIn;
+    }
+
+    public long bytesOut() {
+        return bytesOut;
+    }
+
+    public long duplicatesDropped() {
+        return duplicatesDropped;
+    }
+}
@@ -0,0 +1,55 @@
+package com.sabbir.dbmtracker.core;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Copies a whole session from a {@link SampleSource} to an export writer in
+ * chunks, through one reused {@link Sample}, so memory use is bounded by the
+ * writers' own buffers however long the session is. Between chunks the
+ * cancel flag is checked and progress is reported.
+ */
+public final class SessionExporter {
+
+    public static final int CHUNK_ROWS = 4096;
+
+    public interface Progress {
+        void onProgress(long rows);
+    }
+
+    private SessionExporter() {
+    }
+
+    /**
+     * Writes every sample of {@code source} to {@code out} and returns the
+     * row count. Neither is closed. Throws {@link InterruptedIOException}
+     * once {@code cancelled} is set; the partial output is the caller's to
+     * discard.
+     *
+     * @param progress may be null
+     */
+    public static long export(SampleSource source, SampleWriter out, AtomicBoolean cancelled, Progress progress)
+            throws IOException {
+        Sample sample = new Sample(0);
+        long rows = 0;
+        while (true) {
+            if (cancelled.get()) {
+                throw new InterruptedIOException("Export cancelled after " + rows + " rows");
+            }
+            int chunk = 0;
+            while (chunk < CHUNK_ROWS && source.next(sample)) {
+                out.write(sample);
+                chunk++;
+            }
+            rows += chunk;
+            if (progress != null) {
+                progress.onProgress(rows);
+            }
+            if (chunk < CHUNK_ROWS) {
+                out.flush();
+                return rows;
+            }
+        }
+    }
+}
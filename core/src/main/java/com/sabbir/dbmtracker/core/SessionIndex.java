@@ -0,0 +1,170 @@
+package com.sabbir.dbmtracker.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Sparse index over one binary session segment, kept in a side file. The
+ * segment is cut into blocks of a few hundred records that each start with
+ * {@link BinarySessionWriter#startBlock()}; the index stores one entry per
+ * finished block with its byte range, time range and the bounding box of its
+ * fixes. All values little-endian.
+ * <pre>
+ * header:  'D' 'B' 'M' 'I'  version:u8  simCount:u8  reserved:u16
+ * entry:   offset:i64 length:i32 records:i32 minTime:i64 maxTime:i64
+ *          minLat:i32 minLon:i32 maxLat:i32 maxLon:i32              (48 bytes)
+ * </pre>
+ * Entries are appended as blocks complete, so the file grows with the
+ * session; a partial trailing entry is ignored. In memory the entries form
+ * the leaf level of a two-level packed R-tree: every {@link #GROUP_SIZE}
+ * consecutive blocks share a parent node with the union of their time ranges
+ * and boxes. Consecutive blocks of a track are close in time and space, so a
+ * parent usually rules out all its children at once.
+ */
+public final class SessionIndex {
+
+    public static final String EXTENSION = ".idx";
+    static final byte[] MAGIC = {'D', 'B', 'M', 'I'};
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int ENTRY_SIZE = 48;
+    static final int GROUP_SIZE = 32;
+
+    private final int simCount;
+    private final int size;
+    private final long[] offsets;
+    private final int[] lengths;
+    private final int[] records;
+    private final long[] minTimes;
+    private final long[] maxTimes;
+    private final int[] boxes;
+    private final long[] groupMinTimes;
+    private final long[] groupMaxTimes;
+    private final int[] groupBoxes;
+
+    private SessionIndex(int simCount, ByteBuffer entries, int size) {
+        this.simCount = simCount;
+        this.size = size;
+        offsets = new long[size];
+        lengths = new int[size];
+        records = new int[size];
+        minTimes = new long[size];
+        maxTimes = new long[size];
+        boxes = new int[size * 4];
+        for (int i = 0; i < size; i++) {
+            offsets[i] = entries.getLong();
+            lengths[i] = entries.getInt();
+            records[i] = entries.getInt();
+            minTimes[i] = entries.getLong();
+            maxTimes[i] = entries.getLong();
+            for (int j = 0; j < 4; j++) {
+                boxes[i * 4 + j] = entries.getInt();
+            }
+        }
+        int groups = (size + GROUP_SIZE - 1) / GROUP_SIZE;
+        groupMinTimes = new long[groups];
+        groupMaxTimes = new long[groups];
+        groupBoxes = new int[groups * 4];
+        Arrays.fill(groupMinTimes, Long.MAX_VALUE);
+        Arrays.fill(groupMaxTimes, Long.MIN_VALUE);
+        for (int g = 0; g < groups; g++) {
+            groupBoxes[g * 4] = Integer.MAX_VALUE;
+            groupBoxes[g * 4 + 1] = Integer.MAX_VALUE;
+            groupBoxes[g * 4 + 2] = Integer.MIN_VALUE;
+            groupBoxes[g * 4 + 3] = Integer.MIN_VALUE;
+        }
+        for (int i = 0; i < size; i++) {
+            int g = i / GROUP_SIZE;
+            groupMinTimes[g] = Math.min(groupMinTimes[g], minTimes[i]);
+            groupMaxTimes[g] = Math.max(groupMaxTimes[g], maxTimes[i]);
+            groupBoxes[g * 4] = Math.min(groupBoxes[g * 4], boxes[i * 4]);
+            groupBoxes[g * 4 + 1] = Math.min(groupBoxes[g * 4 + 1], boxes[i * 4 + 1]);
+            groupBoxes[g * 4 + 2] = Math.max(groupBoxes[g * 4 + 2], boxes[i * 4 + 2]);
+            groupBoxes[g * 4 + 3] = Math.max(groupBoxes[g * 4 + 3], boxes[i * 4 + 3]);
+        }
+    }
+
+    public static SessionIndex read(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        for (int read; (read = in.read(chunk)) > 0; ) {
+            bytes.write(chunk, 0, read);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < HEADER_SIZE) {
+            throw new IOException("Not a session index: too short");
+        }
+        for (byte b : MAGIC) {
+            if (buffer.get() != b) {
+                throw new IOException("Not a session index: bad magic");
+            }
+        }
+        int version = buffer.get() & 0xFF;
+        if (version != VERSION) {
+            throw new IOException("Unsupported session index version " + version);
+        }
+        int simCount = buffer.get() & 0xFF;
+        buffer.getShort();
+        return new SessionIndex(simCount, buffer, buffer.remaining() / ENTRY_SIZE);
+    }
+
+    static void writeHeader(ByteBuffer buffer, int simCount) {
+        buffer.put(MAGIC).put((byte) VERSION).put((byte) simCount).putShort((short) 0);
+    }
+
+    public int simCount() {
+        return simCount;
+    }
+
+    /** Number of indexed blocks. */
+    public int size() {
+        return size;
+    }
+
+    public long offset(int block) {
+        return offsets[block];
+    }
+
+    public int length(int block) {
+        return lengths[block];
+    }
+
+    public int records(int block) {
+        return records[block];
+    }
+
+    /** Byte offset just past the last indexed block, where unindexed data starts. */
+    public long indexedEnd() {
+        return size == 0 ? BinarySessionWriter.HEADER_SIZE : offsets[size - 1] + lengths[size - 1];
+    }
+
+    /**
+     * Returns the first block at or after {@code fromBlock} that may hold
+     * samples in the time range and box (null for anywhere), or -1.
+     */
+    public int nextCandidate(int fromBlock, long fromMillis, long toMillis, BoundingBox box) {
+        int block = fromBlock;
+        while (block < size) {
+            int g = block / GROUP_SIZE;
+            if (!matches(groupMinTimes[g], groupMaxTimes[g], groupBoxes, g, fromMillis, toMillis, box)) {
+                block = (g + 1) * GROUP_SIZE;
+                continue;
+            }
+            if (matches(minTimes[block], maxTimes[block], boxes, block, fromMillis, toMillis, box)) {
+                return block;
+            }
+            block++;
+        }
+        return -1;
+    }
+
+    private static boolean matches(long minTime, long maxTime, int[] boxes, int i, long fromMillis, long toMillis,
+                                   BoundingBox box) {
+        return minTime <= toMillis && maxTime >= fromMillis
+                && (box == null || box.intersects(boxes[i * 4], boxes[i * 4 + 1], boxes[i * 4 + 2], boxes[i * 4 + 3]));
+    }
+}
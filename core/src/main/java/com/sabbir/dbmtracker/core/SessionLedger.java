@@ -0,0 +1,52 @@
+package com.sabbir.dbmtracker.core;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Names of sessions some one-off job has been done for, e.g. uploaded or
+ * published, one per line in an append-only text file next to the
+ * sessions. Kept apart from the manifests so that marking a session never
+ * rewrites a file that may itself be uploaded.
+ */
+final class SessionLedger {
+
+    private final File file;
+    private final Set<String> names = new HashSet<>();
+
+    SessionLedger(File file) throws IOException {
+        this.file = file;
+        if (file.isFile()) {
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file),
+                    StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (!line.isEmpty()) {
+                        names.add(line);
+                    }
+                }
+            }
+        }
+    }
+
+    boolean contains(String base) {
+        return names.contains(base);
+    }
+
+    void add(String base) throws IOException {
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8)) {
+            out.write(base);
+            out.write('\n');
+        }
+        names.add(base);
+    }
+}
@@ -0,0 +1,224 @@
+package com.sabbir.dbmtracker.core;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Lists the segments that make up one logical session, in order, so a
+ * session split by rollover or rewritten by {@link SessionCompactor} still
+ * reads as a single stream (see {@link SessionReader}). Stored as text next
+ * to the segments:
+ * <pre>
+ * DBMSESSION 1
+ * closed 0|1
+ * compacted 0|1
+ * segment name simCount firstMillis lastMillis records
+ * ...
+ * </pre>
+ * Segment names are relative to the manifest's directory. The file is always
+ * replaced atomically, so a reader sees either the old or the new list.
+ */
+public final class SessionManifest {
+
+    public static final String EXTENSION = ".session";
+    static final String MAGIC = "DBMSESSION";
+    static final int VERSION = 1;
+
+    public static final class Segment {
+        public final String name;
+        public final int simCount;
+        public final long firstMillis;
+        public final long lastMillis;
+        public final long records;
+
+        public Segment(String name, int simCount, long firstMillis, long lastMillis, long records) {
+            this.name = name;
+            this.simCount = simCount;
+            this.firstMillis = firstMillis;
+            this.lastMillis = lastMillis;
+            this.records = records;
+        }
+    }
+
+    private final File file;
+    private final List<Segment> segments = new ArrayList<>();
+    private boolean closed;
+    private boolean compacted;
+
+    public SessionManifest(File file) {
+        this.file = file;
+    }
+
+    /** Manifest of the session whose segments are named {@code base}*. */
+    public static File fileFor(File directory, String base) {
+        return new File(directory, base + EXTENSION);
+    }
+
+    public static SessionManifest read(File file) throws IOException {
+        SessionManifest manifest = new SessionManifest(file);
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String header = in.readLine();
+            if (header == null || !header.startsWith(MAGIC + " ")) {
+                throw new IOException("Not a session manifest: " + file);
+            }
+            int version = Integer.parseInt(header.substring(MAGIC.length() + 1).trim());
+            if (version != VERSION) {
+                throw new IOException("Unsupported manifest version " + version);
+            }
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] fields = line.trim().split(" ");
+                try {
+                    switch (fields[0]) {
+                        case "closed":
+                            manifest.closed = "1".equals(fields[1]);
+                            break;
+                        case "compacted":
+                            manifest.compacted = "1".equals(fields[1]);
+                            break;
+                        case "segment":
+                            manifest.segments.add(new Segment(fields[1], Integer.parseInt(fields[2]),
+                                    Long.parseLong(fields[3]), Long.parseLong(fields[4]),
+                                    Long.parseLong(fields[5])));
+                            break;
+                        default:
+                            // Blank or unknown lines are skipped so newer fields stay readable.
+                            break;
+                    }
+                } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+                    throw new IOException("Bad manifest line: " + line, e);
+                }
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Every session in {@code directory}, oldest first: those with a
+     * manifest, plus one unsaved single-segment manifest for each segment no
+     * manifest lists (sessions recorded before manifests existed, or the
+     * open segment of a session that did not shut down cleanly).
+     */
+    public static List<SessionManifest> listSessions(File directory) throws IOException {
+        List<SessionManifest> sessions = new ArrayList<>();
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return sessions;
+        }
+        Arrays.sort(files);
+        Set<String> listed = new HashSet<>();
+        for (File file : files) {
+            if (file.getName().endsWith(EXTENSION)) {
+                SessionManifest manifest = read(file);
+                sessions.add(manifest);
+                for (Segment segment : manifest.segments) {
+                    listed.add(segment.name);
+                }
+            }
+        }
+        for (File file : files) {
+            String name = file.getName();
+            boolean segment = name.endsWith(SessionStore.SESSION_EXTENSION)
+                    || name.endsWith(SessionStore.COMPRESSED_EXTENSION);
+            if (segment && !listed.contains(name)) {
+                SessionManifest orphan = new SessionManifest(fileFor(directory, SessionStore.baseName(file)));
+                orphan.addSegment(new Segment(name, 0, 0, 0, 0));
+                sessions.add(orphan);
+            }
+        }
+        sessions.sort((a, b) -> a.file.getName().compareTo(b.file.getName()));
+        return sessions;
+    }
+
+    /** Session name: the manifest file name without {@link #EXTENSION}. */
+    public String baseName() {
+        String name = file.getName();
+        return name.endsWith(EXTENSION) ? name.substring(0, name.length() - EXTENSION.length()) : name;
+    }
+
+    /** Writes to a temporary file and renames it over the manifest. */
+    public void write() throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8)) {
+            out.write(MAGIC + " " + VERSION + "\n");
+            out.write("closed " + (closed ? 1 : 0) + "\n");
+            out.write("compacted " + (compacted ? 1 : 0) + "\n");
+            for (Segment segment : segments) {
+                out.write("segment " + segment.name + " " + segment.simCount + " " + segment.firstMillis + " "
+                        + segment.lastMillis + " " + segment.records + "\n");
+            }
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Could not replace " + file);
+        }
+    }
+
+    public File file() {
+        return file;
+    }
+
+    /** Directory the segment names are relative to. */
+    public File directory() {
+        return file.getAbsoluteFile().getParentFile();
+    }
+
+    public File segmentFile(Segment segment) {
+        return new File(directory(), segment.name);
+    }
+
+    public void addSegment(Segment segment) {
+        if (segment.name.indexOf(' ') >= 0) {
+            throw new IllegalArgumentException("Segment name must not contain spaces: " + segment.name);
+        }
+        segments.add(segment);
+    }
+
+    public void replaceSegments(List<Segment> replacement) {
+        segments.clear();
+        for (Segment segment : replacement) {
+            addSegment(segment);
+        }
+    }
+
+    public List<Segment> segments() {
+        return Collections.unmodifiableList(segments);
+    }
+
+    public long records() {
+        long records = 0;
+        for (Segment segment : segments) {
+            records += segment.records;
+        }
+        return records;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public void setClosed(boolean closed) {
+        this.closed = closed;
+    }
+
+    public boolean isCompacted() {
+        return compacted;
+    }
+
+    public void setCompacted(boolean compacted) {
+        this.compacted = compacted;
+    }
+}
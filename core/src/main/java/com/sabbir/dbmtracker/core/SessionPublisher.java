@@ -0,0 +1,105 @@
+package com.sabbir.dbmtracker.core;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Copies every closed session to a {@link PublishTarget} as CSV, in the
+ * schema of {@link CsvExporter} with fix quality columns, once. A CSV has
+ * one set of SIM columns, so a session whose SIM count changed is published
+ * as one file per run of segments with the same count: {@code base.csv},
+ * then {@code base_part2.csv} and so on. Published sessions are recorded in
+ * {@link #LEDGER_FILE}. Exports the user asks for go through
+ * {@link #publish(SessionManifest, AtomicBoolean)} into the same place.
+ */
+public final class SessionPublisher {
+
+    public static final String LEDGER_FILE = "published.ledger";
+    public static final String CSV_MIME_TYPE = "text/csv";
+
+    private final PublishTarget target;
+    private final TimeZone timeZone;
+    private long rowsPublished;
+
+    public SessionPublisher(PublishTarget target, TimeZone timeZone) {
+        this.target = target;
+        this.timeZone = timeZone;
+    }
+
+    /**
+     * Publishes the closed sessions in {@code directory} that have not been
+     * yet and returns how many were. Stops at the first failure and throws
+     * it; sessions published before it stay recorded.
+     */
+    public int publishClosed(File directory) throws IOException {
+        SessionLedger published = new SessionLedger(new File(directory, LEDGER_FILE));
+        int count = 0;
+        for (SessionManifest session : SessionManifest.listSessions(directory)) {
+            if (!session.isClosed() || published.contains(session.baseName()) || session.segments().isEmpty()) {
+                continue;
+            }
+            publish(session, new AtomicBoolean());
+            published.add(session.baseName());
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Publishes the segments {@code session} lists so far, closed or not,
+     * without recording it. Throws {@link InterruptedIOException} once
+     * {@code cancelled} is set, checked on every row; the file being
+     * written is then never made visible.
+     */
+    public void publish(SessionManifest session, AtomicBoolean cancelled) throws IOException {
+        List<SessionManifest.Segment> segments = session.segments();
+        int part = 1;
+        for (int start = 0; start < segments.size(); part++) {
+            int simCount = segments.get(start).simCount;
+            int end = start + 1;
+            while (end < segments.size() && segments.get(end).simCount == simCount) {
+                end++;
+            }
+            String name = session.baseName() + (part == 1 ? "" : "_part" + part) + ".csv";
+            List<SessionManifest.Segment> run = segments.subList(start, end);
+            target.publish(name, CSV_MIME_TYPE, out -> {
+                Writer csv = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+                writeCsv(session, run, simCount, csv, cancelled);
+                csv.flush();
+            });
+            start = end;
+        }
+    }
+
+    private void writeCsv(SessionManifest session, List<SessionManifest.Segment> run, int simCount, Writer csv,
+                          AtomicBoolean cancelled) throws IOException {
+        SampleEncoder encoder = new SampleEncoder(timeZone, true);
+        Sample sample = new Sample(simCount);
+        csv.write(SampleEncoder.csvHeader(simCount, true));
+        for (SessionManifest.Segment segment : run) {
+            try (BinarySessionReader reader = new BinarySessionReader(
+                    SessionStore.openSegment(session.segmentFile(segment)))) {
+                while (reader.next(sample)) {
+                    if (cancelled.get()) {
+                        throw new InterruptedIOException("Export cancelled in " + session.baseName());
+                    }
+                    int length = encoder.encode(sample);
+                    csv.write(encoder.buffer(), 0, length);
+                    rowsPublished++;
+                }
+            }
+        }
+    }
+
+    public long rowsPublished() {
+        return rowsPublished;
+    }
+}
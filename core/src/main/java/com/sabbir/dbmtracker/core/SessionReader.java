@@ -0,0 +1,81 @@
+package com.sabbir.dbmtracker.core;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Reads the segments of a {@link SessionManifest} back to back as one
+ * stream of samples, whether they are plain or compressed. The SIM column
+ * count can change from one segment to the next; {@link #next(Sample)}
+ * resizes the sample to match.
+ */
+public final class SessionReader implements SampleSource {
+
+    private final SessionManifest manifest;
+    private final List<SessionManifest.Segment> segments;
+    private int nextSegment;
+    private BinarySessionReader current;
+
+    public SessionReader(SessionManifest manifest) {
+        this.manifest = manifest;
+        this.segments = manifest.segments();
+    }
+
+    /**
+     * Passes over the next {@code rows} samples, or all that are left. Whole
+     * segments are passed over by their record count without being opened.
+     */
+    public void skip(long rows) throws IOException {
+        Sample scratch = null;
+        while (rows > 0) {
+            if (current == null) {
+                if (nextSegment == segments.size()) {
+                    return;
+                }
+                SessionManifest.Segment segment = segments.get(nextSegment++);
+                if (segment.records <= rows) {
+                    rows -= segment.records;
+                    continue;
+                }
+                current = new BinarySessionReader(SessionStore.openSegment(manifest.segmentFile(segment)));
+            }
+            if (scratch == null) {
+                scratch = new Sample(0);
+            }
+            if (current.next(scratch)) {
+                rows--;
+            } else {
+                current.close();
+                current = null;
+            }
+        }
+    }
+
+    /** Reads the next sample into {@code sample}; returns false once every segment is exhausted. */
+    @Override
+    public boolean next(Sample sample) throws IOException {
+        while (true) {
+            if (current == null) {
+                if (nextSegment == segments.size()) {
+                    return false;
+                }
+                current = new BinarySessionReader(
+                        SessionStore.openSegment(manifest.segmentFile(segments.get(nextSegment++))));
+            }
+            if (current.next(sample)) {
+                return true;
+            }
+            current.close();
+            current = null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+        nextSegment = segments.size();
+    }
+}
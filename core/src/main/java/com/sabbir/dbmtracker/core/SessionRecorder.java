@@ -0,0 +1,257 @@
+package com.sabbir.dbmtracker.core;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Writes one logical session into a directory: indexed segments rolled by
+ * {@link SegmentedSessionWriter}, the {@link SessionManifest} listing them,
+ * and a {@link SessionCheckpoint} taken at most every
+ * {@link Options#checkpointIntervalMillis}, so a process that is killed can
+ * {@link #resume} the same session instead of starting a new one.
+ * <p>
+ * Segments are written through a {@link PreallocatedFileOutputStream}
+ * sharing one direct buffer. Resuming never appends to the segment that was
+ * open: its tail may be a torn record or preallocated zeros. That segment is
+ * scanned, trimmed after its last whole record, added to the manifest, and
+ * writing carries on in a fresh segment. Checkpoints are only taken when
+ * asked, so the caller decides which thread pays for them. Not thread-safe.
+ */
+public final class SessionRecorder implements SampleWriter {
+
+    /** Lets the caller wrap each segment's stream, e.g. to count bytes. */
+    public interface StreamWrapper {
+        OutputStream wrap(OutputStream out);
+    }
+
+    public static final class Options {
+        public long maxSegmentBytes = 8L << 20;
+        public long maxSegmentMillis = 6 * 60 * 60_000L;
+        public int batchRows = 30;
+        public long batchWindowMillis = 60_000;
+        public int blockRecords = IndexedSessionWriter.DEFAULT_BLOCK_RECORDS;
+        public long checkpointIntervalMillis = 5_000;
+        public int writeBufferBytes = PreallocatedFileOutputStream.DEFAULT_BUFFER_BYTES;
+        public long preallocateBytes = PreallocatedFileOutputStream.DEFAULT_EXTENT_BYTES;
+        public PreallocatedFileOutputStream.Allocator allocator = PreallocatedFileOutputStream.EXTEND;
+        /** May be null. */
+        public StreamWrapper segmentStreams;
+    }
+
+    private final File directory;
+    private final String base;
+    private final Options options;
+    private final SessionManifest manifest;
+    private final SegmentedSessionWriter segments;
+    private final File checkpointFile;
+    private final ByteBuffer segmentBuffer;
+    private final SessionCheckpoint checkpoint = new SessionCheckpoint();
+    private boolean checkpointed;
+    private long lastCheckpointAt;
+    private boolean dirty = true;
+
+    private SessionRecorder(File directory, String base, Options options, SessionManifest manifest,
+                            int firstSegmentIndex, long sequence) {
+        this.directory = directory;
+        this.base = base;
+        this.options = options;
+        this.manifest = manifest;
+        this.checkpointFile = checkpointFile(directory);
+        this.segmentBuffer = ByteBuffer.allocateDirect(options.writeBufferBytes);
+        checkpoint.sessionBase = base;
+        checkpoint.sequence = sequence;
+        segments = new SegmentedSessionWriter(this::openSegment, firstSegmentIndex, options.maxSegmentBytes,
+                options.maxSegmentMillis, (segmentIndex, simCount, firstMillis, lastMillis, records) -> {
+                    manifest.addSegment(new SessionManifest.Segment(segmentName(base, segmentIndex),
+                            simCount, firstMillis, lastMillis, records));
+                    manifest.write();
+                });
+    }
+
+    /** Starts a new session named {@code base}. */
+    public static SessionRecorder start(File directory, String base, Options options) throws IOException {
+        SessionManifest manifest = new SessionManifest(SessionManifest.fileFor(directory, base));
+        manifest.write();
+        return new SessionRecorder(directory, base, options, manifest, 0, 0);
+    }
+
+    /**
+     * Carries on the session {@code checkpoint} names: segments written
+     * since the manifest was last saved are recovered into it and new rows go
+     * to the next segment. The recorder starts out in the checkpoint's
+     * tracking state.
+     */
+    public static SessionRecorder resume(File directory, SessionCheckpoint checkpoint, Options options)
+            throws IOException {
+        SessionManifest manifest = recover(directory, checkpoint);
+        int next = nextSegmentIndex(directory, checkpoint);
+        SessionRecorder recorder = new SessionRecorder(directory, checkpoint.sessionBase, options, manifest, next,
+                manifest.records());
+        recorder.setState(checkpoint.tracking, checkpoint.paused, checkpoint.mode);
+        recorder.checkpoint.lastSampleMillis = checkpoint.lastSampleMillis;
+        return recorder;
+    }
+
+    /**
+     * Recovers and closes the session {@code checkpoint} names, for when it
+     * will not be resumed, so it can be compacted like any other.
+     */
+    public static void finish(File directory, SessionCheckpoint checkpoint) throws IOException {
+        SessionManifest manifest = recover(directory, checkpoint);
+        manifest.setClosed(true);
+        manifest.write();
+        checkpointFile(directory).delete();
+    }
+
+    /** Where the checkpoint of the session being recorded in {@code directory} is kept. */
+    public static File checkpointFile(File directory) {
+        return new File(directory, SessionCheckpoint.FILE_NAME);
+    }
+
+    public static String segmentName(String base, int segmentIndex) {
+        return base + (segmentIndex == 0 ? "" : "_" + segmentIndex) + SessionStore.SESSION_EXTENSION;
+    }
+
+    private static SessionManifest recover(File directory, SessionCheckpoint checkpoint) throws IOException {
+        File manifestFile = SessionManifest.fileFor(directory, checkpoint.sessionBase);
+        SessionManifest manifest = manifestFile.isFile()
+                ? SessionManifest.read(manifestFile) : new SessionManifest(manifestFile);
+        Set<String> listed = new HashSet<>();
+        for (SessionManifest.Segment segment : manifest.segments()) {
+            listed.add(segment.name);
+        }
+        int end = nextSegmentIndex(directory, checkpoint);
+        for (int index = 0; index < end; index++) {
+            File file = new File(directory, segmentName(checkpoint.sessionBase, index));
+            if (file.isFile() && !listed.contains(file.getName())) {
+                SessionManifest.Segment recovered = scan(file);
+                if (recovered != null) {
+                    manifest.addSegment(recovered);
+                }
+            }
+        }
+        manifest.write();
+        return manifest;
+    }
+
+    /** First index past both the checkpointed segment and any segment rolled after the checkpoint. */
+    private static int nextSegmentIndex(File directory, SessionCheckpoint checkpoint) {
+        int index = checkpoint.segmentIndex + 1;
+        while (new File(directory, segmentName(checkpoint.sessionBase, index)).isFile()) {
+            index++;
+        }
+        return index;
+    }
+
+    /** Reads a segment to its last whole record and trims what follows; null if it holds none. */
+    private static SessionManifest.Segment scan(File file) {
+        try (BinarySessionReader reader = new BinarySessionReader(SessionStore.openSegment(file))) {
+            Sample sample = new Sample(reader.simCount());
+            long records = 0;
+            long first = 0;
+            long last = 0;
+            while (reader.next(sample)) {
+                if (records == 0) {
+                    first = sample.timestampMillis;
+                }
+                last = sample.timestampMillis;
+                records++;
+            }
+            if (records > 0 && file.length() > reader.recordEnd()) {
+                try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                    raf.setLength(reader.recordEnd());
+                }
+            }
+            return records == 0 ? null
+                    : new SessionManifest.Segment(file.getName(), reader.simCount(), first, last, records);
+        } catch (IOException e) {
+            // Not even a whole header made it to disk.
+            return null;
+        }
+    }
+
+    private SampleWriter openSegment(int segmentIndex, int simCount) throws IOException {
+        File file = new File(directory, segmentName(base, segmentIndex));
+        OutputStream out = new PreallocatedFileOutputStream(file, segmentBuffer, options.preallocateBytes,
+                options.allocator);
+        if (options.segmentStreams != null) {
+            out = options.segmentStreams.wrap(out);
+        }
+        BinarySessionWriter session = new BinarySessionWriter(out, simCount, options.batchRows,
+                options.batchWindowMillis);
+        return new IndexedSessionWriter(session, new FileOutputStream(SessionStore.indexFileFor(file)),
+                options.blockRecords);
+    }
+
+    @Override
+    public void write(Sample sample) throws IOException {
+        segments.write(sample);
+        checkpoint.sequence++;
+        checkpoint.lastSampleMillis = sample.timestampMillis;
+        dirty = true;
+    }
+
+    public void setState(boolean tracking, boolean paused, SamplingMode mode) {
+        checkpoint.tracking = tracking;
+        checkpoint.paused = paused;
+        checkpoint.mode = mode;
+        dirty = true;
+    }
+
+    /** Takes a checkpoint if anything changed and the last one is at least the configured interval old. */
+    public boolean maybeCheckpoint(long nowMillis) throws IOException {
+        if (!dirty || checkpointed && nowMillis - lastCheckpointAt < options.checkpointIntervalMillis) {
+            return false;
+        }
+        checkpoint(nowMillis);
+        return true;
+    }
+
+    public void checkpoint(long nowMillis) throws IOException {
+        checkpoint.savedAtMillis = nowMillis;
+        checkpoint.segmentIndex = Math.max(0, segments.currentSegmentIndex());
+        checkpoint.segmentOffset = segments.position();
+        checkpoint.writeTo(checkpointFile);
+        checkpointed = true;
+        lastCheckpointAt = nowMillis;
+        dirty = false;
+    }
+
+    public String base() {
+        return base;
+    }
+
+    /** Rows in the session so far, including those written before a resume. */
+    public long sequence() {
+        return checkpoint.sequence;
+    }
+
+    public SessionManifest manifest() {
+        return manifest;
+    }
+
+    @Override
+    public long position() {
+        return segments.position();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        segments.flush();
+    }
+
+    /** Closes the last segment, marks the session closed and removes the checkpoint: nothing left to resume. */
+    @Override
+    public void close() throws IOException {
+        segments.close();
+        manifest.setClosed(true);
+        manifest.write();
+        checkpointFile.delete();
+    }
+}
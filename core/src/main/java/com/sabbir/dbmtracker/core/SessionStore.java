@@ -0,0 +1,324 @@
+package com.sabbir.dbmtracker.core;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Answers time-range and bounding-box queries over every binary session
+ * segment in a directory. Segments with a {@link SessionIndex} only have
+ * their candidate blocks read, as contiguous byte ranges; the unindexed
+ * tail of a segment still being written, and segments without an index, are
+ * scanned. Indexes are cached and reloaded when their file grows.
+ * <p>
+ * Compressed segments ({@link #COMPRESSED_EXTENSION}, written by
+ * {@link SessionCompactor}) are deflate streams whose index offsets are in
+ * uncompressed bytes; they are inflated from the start, and everything
+ * between candidate blocks is skipped rather than decoded.
+ * Not thread-safe.
+ */
+public final class SessionStore {
+
+    public static final String SESSION_EXTENSION = ".dbms";
+    public static final String COMPRESSED_EXTENSION = ".dbmz";
+
+    private final File directory;
+    private final Map<String, CachedIndex> indexes = new HashMap<>();
+    private long blocksRead;
+    private long bytesRead;
+
+    private static final class CachedIndex {
+        final long fileLength;
+        final SessionIndex index;
+
+        CachedIndex(long fileLength, SessionIndex index) {
+            this.fileLength = fileLength;
+            this.index = index;
+        }
+    }
+
+    public SessionStore(File directory) {
+        this.directory = directory;
+    }
+
+    /** Index file that belongs to a session segment. */
+    public static File indexFileFor(File segment) {
+        return new File(segment.getParentFile(), baseName(segment) + SessionIndex.EXTENSION);
+    }
+
+    /** Segment file name without its {@link #SESSION_EXTENSION} or {@link #COMPRESSED_EXTENSION}. */
+    public static String baseName(File segment) {
+        String name = segment.getName();
+        if (name.endsWith(SESSION_EXTENSION)) {
+            return name.substring(0, name.length() - SESSION_EXTENSION.length());
+        }
+        if (name.endsWith(COMPRESSED_EXTENSION)) {
+            return name.substring(0, name.length() - COMPRESSED_EXTENSION.length());
+        }
+        return name;
+    }
+
+    public static boolean isCompressed(File segment) {
+        return segment.getName().endsWith(COMPRESSED_EXTENSION);
+    }
+
+    /** Opens a segment for sequential reading, inflating it if it is compressed. */
+    public static InputStream openSegment(File segment) throws IOException {
+        InputStream in = new FileInputStream(segment);
+        return isCompressed(segment) ? new InflaterInputStream(new BufferedInputStream(in))
+                : new BufferedInputStream(in);
+    }
+
+    /**
+     * Streams every sample with {@code fromMillis <= t <= toMillis} and, when
+     * {@code box} is not null, a fix inside it, to {@code sink} in segment
+     * order. The sample passed to the sink is reused. Returns the match count.
+     */
+    public long query(long fromMillis, long toMillis, BoundingBox box, SampleWriter sink) throws IOException {
+        File[] segments = directory.listFiles((dir, name) ->
+                name.endsWith(SESSION_EXTENSION) || name.endsWith(COMPRESSED_EXTENSION));
+        if (segments == null) {
+            return 0;
+        }
+        Arrays.sort(segments);
+        long matches = 0;
+        for (File segment : segments) {
+            SessionIndex index = loadIndex(segment);
+            if (index == null) {
+                try (BinarySessionReader reader = new BinarySessionReader(openSegment(segment))) {
+                    bytesRead += segment.length();
+                    matches += scan(reader, new Sample(reader.simCount()), Long.MAX_VALUE,
+                            fromMillis, toMillis, box, sink);
+                }
+                continue;
+            }
+            if (isCompressed(segment)) {
+                matches += queryCompressed(segment, index, fromMillis, toMillis, box, sink);
+            } else {
+                matches += queryIndexed(segment, index, fromMillis, toMillis, box, sink);
+            }
+        }
+        return matches;
+    }
+
+    private long queryIndexed(File segment, SessionIndex index, long fromMillis, long toMillis, BoundingBox box,
+                              SampleWriter sink) throws IOException {
+        long matches = 0;
+        Sample sample = new Sample(index.simCount());
+        try (RandomAccessFile file = new RandomAccessFile(segment, "r")) {
+            byte[] header = new byte[BinarySessionWriter.HEADER_SIZE];
+            file.readFully(header);
+            int version = BinarySessionReader.version(header);
+            int block = index.nextCandidate(0, fromMillis, toMillis, box);
+            while (block >= 0) {
+                // Adjacent candidates are read as one range; each block decodes on from the previous one.
+                int end = block;
+                long records = index.records(block);
+                int next = index.nextCandidate(block + 1, fromMillis, toMillis, box);
+                while (next == end + 1) {
+                    end = next;
+                    records += index.records(end);
+                    next = index.nextCandidate(end + 1, fromMillis, toMillis, box);
+                }
+                long offset = index.offset(block);
+                long length = index.offset(end) + index.length(end) - offset;
+                blocksRead += end - block + 1;
+                bytesRead += length;
+                BinarySessionReader reader = new BinarySessionReader(
+                        new RangeInputStream(file, offset, length), index.simCount(), version);
+                matches += scan(reader, sample, records, fromMillis, toMillis, box, sink);
+                block = next;
+            }
+            long tail = index.indexedEnd();
+            if (file.length() > tail) {
+                bytesRead += file.length() - tail;
+                BinarySessionReader reader = new BinarySessionReader(
+                        new RangeInputStream(file, tail, file.length() - tail), index.simCount(), version);
+                matches += scan(reader, sample, Long.MAX_VALUE, fromMillis, toMillis, box, sink);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * A compressed segment is complete when written, so there is no unindexed
+     * tail; candidate blocks are found as for {@link #queryIndexed} and the
+     * inflated bytes in between are skipped.
+     */
+    private long queryCompressed(File segment, SessionIndex index, long fromMillis, long toMillis, BoundingBox box,
+                                 SampleWriter sink) throws IOException {
+        int block = index.nextCandidate(0, fromMillis, toMillis, box);
+        if (block < 0) {
+            return 0;
+        }
+        long matches = 0;
+        Sample sample = new Sample(index.simCount());
+        try (InputStream in = openSegment(segment)) {
+            byte[] header = new byte[BinarySessionWriter.HEADER_SIZE];
+            new DataInputStream(in).readFully(header);
+            int version = BinarySessionReader.version(header);
+            long position = header.length;
+            while (block >= 0) {
+                int end = block;
+                long records = index.records(block);
+                int next = index.nextCandidate(block + 1, fromMillis, toMillis, box);
+                while (next == end + 1) {
+                    end = next;
+                    records += index.records(end);
+                    next = index.nextCandidate(end + 1, fromMillis, toMillis, box);
+                }
+                long offset = index.offset(block);
+                long length = index.offset(end) + index.length(end) - offset;
+                skipFully(in, offset - position);
+                blocksRead += end - block + 1;
+                bytesRead += length;
+                BoundedInputStream range = new BoundedInputStream(in, length);
+                BinarySessionReader reader = new BinarySessionReader(range, index.simCount(), version);
+                matches += scan(reader, sample, records, fromMillis, toMillis, box, sink);
+                skipFully(range, range.remaining);
+                position = offset + length;
+                block = next;
+            }
+        }
+        return matches;
+    }
+
+    private static void skipFully(InputStream in, long bytes) throws IOException {
+        while (bytes > 0) {
+            long skipped = in.skip(bytes);
+            if (skipped <= 0) {
+                throw new IOException("Segment shorter than its index");
+            }
+            bytes -= skipped;
+        }
+    }
+
+    private static long scan(BinarySessionReader reader, Sample sample, long maxRecords, long fromMillis,
+                             long toMillis, BoundingBox box, SampleWriter sink) throws IOException {
+        long matches = 0;
+        for (long i = 0; i < maxRecords && reader.next(sample); i++) {
+            if (sample.timestampMillis < fromMillis || sample.timestampMillis > toMillis) {
+                continue;
+            }
+            if (box != null && (!sample.hasLocation || !box.contains(sample.latitudeE6, sample.longitudeE6))) {
+                continue;
+            }
+            sink.write(sample);
+            matches++;
+        }
+        return matches;
+    }
+
+    private SessionIndex loadIndex(File segment) throws IOException {
+        File indexFile = indexFileFor(segment);
+        if (!indexFile.isFile()) {
+            return null;
+        }
+        long length = indexFile.length();
+        CachedIndex cached = indexes.get(indexFile.getPath());
+        if (cached == null || cached.fileLength != length) {
+            try (InputStream in = new FileInputStream(indexFile)) {
+                cached = new CachedIndex(length, SessionIndex.read(in));
+            }
+            indexes.put(indexFile.getPath(), cached);
+        }
+        return cached.index;
+    }
+
+    /** Indexed blocks decoded by queries so far. */
+    public long blocksRead() {
+        return blocksRead;
+    }
+
+    /** Segment bytes read by queries so far, excluding index files. */
+    public long bytesRead() {
+        return bytesRead;
+    }
+
+    /** Reads at most {@code remaining} bytes of a stream shared with the query. */
+    private static final class BoundedInputStream extends InputStream {
+        private final InputStream in;
+        long remaining;
+
+        BoundedInputStream(InputStream in, long length) {
+            this.in = in;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = in.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public void close() {
+            // The stream belongs to the query.
+        }
+    }
+
+    /** Reads {@code length} bytes of a file starting at {@code offset}. */
+    private static final class RangeInputStream extends InputStream {
+        private final RandomAccessFile file;
+        private long position;
+        private long remaining;
+
+        RangeInputStream(RandomAccessFile file, long offset, long length) {
+            this.file = file;
+            this.position = offset;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            file.seek(position);
+            int read = file.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                position += read;
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() {
+            // The file belongs to the query.
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.sabbir.dbmtracker.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Ships finished sessions to a collector: every session that has been
+ * closed and compacted, segment by segment and then its manifest, in chunks
+ * of {@link Policy#chunkBytes}. Before each file the collector is asked how
+ * much of it it already has, so an upload cut short by a lost network, a
+ * cancelled job or a killed process carries on from there. Failed requests
+ * are retried with exponential backoff and full jitter; a chunk whose
+ * acknowledgement was lost is sent again under the same id and the
+ * collector keeps only one copy.
+ * <p>
+ * Sessions that made it are appended to {@link #LEDGER_FILE} and skipped
+ * from then on. Blocking; meant for a background job, one at a time per
+ * directory.
+ */
+public final class SessionUploader {
+
+    public static final String LEDGER_FILE = "uploads.ledger";
+
+    public static final class Policy {
+        public int chunkBytes = 256 * 1024;
+        /** Tries per request before the run gives up. */
+        public int maxAttempts = 6;
+        public long initialBackoffMillis = 1_000;
+        public long maxBackoffMillis = 60_000;
+    }
+
+    private final File directory;
+    private final UploadTransport transport;
+    private final Policy policy;
+    private final Random random = new Random();
+    private final byte[] raw;
+    private UploadChunk chunk;
+
+    private long bytesRead;
+    private long bytesSent;
+    private long chunksSent;
+    private long retries;
+    private int sessionsUploaded;
+
+    public SessionUploader(File directory, UploadTransport transport, Policy policy) {
+        this.directory = directory;
+        this.transport = transport;
+        this.policy = policy;
+        this.raw = new byte[policy.chunkBytes];
+    }
+
+    /**
+     * Uploads every finished session not in the ledger yet. Returns true if
+     * nothing is left to upload, false if a session was rejected or the
+     * collector stayed unreachable; the next run carries on where this one
+     * stopped. Throws {@link InterruptedIOException} once {@code cancelled}
+     * is set or the thread is interrupted.
+     */
+    public boolean uploadPending(AtomicBoolean cancelled) throws IOException {
+        SessionLedger uploaded = new SessionLedger(new File(directory, LEDGER_FILE));
+        boolean complete = true;
+        chunk = new UploadChunk(policy.chunkBytes);
+        try {
+            for (SessionManifest session : SessionManifest.listSessions(directory)) {
+                if (!session.isClosed() || !session.isCompacted() || uploaded.contains(session.baseName())) {
+                    continue;
+                }
+                try {
+                    for (SessionManifest.Segment segment : session.segments()) {
+                        upload(session.segmentFile(segment), cancelled);
+                    }
+                    // Last, so a collector that has the manifest has every segment it lists.
+                    upload(session.file(), cancelled);
+                } catch (InterruptedIOException e) {
+                    throw e;
+                } catch (IOException e) {
+                    complete = false;
+                    if (e instanceof UploadRejectedException) {
+                        continue;
+                    }
+                    // Collector unreachable: the remaining sessions would only fail the same way.
+                    return false;
+                }
+                uploaded.add(session.baseName());
+                sessionsUploaded++;
+            }
+        } finally {
+            chunk.release();
+        }
+        return complete;
+    }
+
+    private void upload(File file, AtomicBoolean cancelled) throws IOException {
+        String object = file.getName();
+        boolean compress = !SessionStore.isCompressed(file);
+        long length = file.length();
+        long offset = committed(object, cancelled);
+        if (offset > length) {
+            throw new UploadRejectedException("Collector has " + offset + " bytes of " + object + ", file has "
+                    + length);
+        }
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            while (offset < length) {
+                checkCancelled(cancelled);
+                int count = (int) Math.min(raw.length, length - offset);
+                in.seek(offset);
+                in.readFully(raw, 0, count);
+                bytesRead += count;
+                chunk.fill(object, offset, length, raw, count, compress);
+                long committed = put(object, cancelled);
+                if (committed < 0 || committed > length) {
+                    throw new UploadRejectedException("Collector has " + committed + " bytes of " + object
+                            + ", file has " + length);
+                }
+                offset = committed;
+            }
+        }
+    }
+
+    private long committed(String object, AtomicBoolean cancelled) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            checkCancelled(cancelled);
+            try {
+                return transport.committed(object);
+            } catch (UploadRejectedException e) {
+                throw e;
+            } catch (IOException e) {
+                backOff(attempt, e, cancelled);
+            }
+        }
+    }
+
+    private long put(String object, AtomicBoolean cancelled) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            checkCancelled(cancelled);
+            try {
+                bytesSent += chunk.bodyLength;
+                long committed = transport.put(object, chunk);
+                chunksSent++;
+                if (committed == chunk.offset) {
+                    throw new IOException("Collector did not take " + chunk.id);
+                }
+                return committed;
+            } catch (UploadRejectedException e) {
+                throw e;
+            } catch (IOException e) {
+                backOff(attempt, e, cancelled);
+            }
+        }
+    }
+
+    /** Sleeps before the next attempt, or rethrows {@code failure} once attempts run out. */
+    private void backOff(int attempt, IOException failure, AtomicBoolean cancelled) throws IOException {
+        if (attempt >= policy.maxAttempts) {
+            throw failure;
+        }
+        retries++;
+        long ceiling = Math.min(policy.maxBackoffMillis, policy.initialBackoffMillis << Math.min(attempt - 1, 30));
+        long delay = (long) (random.nextDouble() * ceiling);
+        checkCancelled(cancelled);
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Upload cancelled");
+        }
+    }
+
+    private static void checkCancelled(AtomicBoolean cancelled) throws InterruptedIOException {
+        if (cancelled.get() || Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Upload cancelled");
+        }
+    }
+
+    /** Bytes of session files read for upload, uncompressed. */
+    public long bytesRead() {
+        return bytesRead;
+    }
+
+    /** Request body bytes sent, retries included. */
+    public long bytesSent() {
+        return bytesSent;
+    }
+
+    public long chunksSent() {
+        return chunksSent;
+    }
+
+    public long retries() {
+        return retries;
+    }
+
+    public int sessionsUploaded() {
+        return sessionsUploaded;
+    }
+}
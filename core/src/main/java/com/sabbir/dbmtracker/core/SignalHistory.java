@@ -0,0 +1,73 @@
+package com.sabbir.dbmtracker.core;
+
+/**
+ * Fixed-size ring of recent per-SIM dBm readings for drawing a sparkline.
+ * Storage is allocated once, so appending forever never grows memory; the
+ * oldest reading is overwritten when the ring is full. Single-threaded.
+ */
+public final class SignalHistory {
+
+    private final long[] timestamps;
+    private final int[] values;
+    private final int maxColumns;
+    private int start;
+    private int size;
+    private int columnCount;
+
+    public SignalHistory(int capacity, int maxColumns) {
+        this.timestamps = new long[capacity];
+        this.values = new int[capacity * maxColumns];
+        this.maxColumns = maxColumns;
+    }
+
+    /** Appends a snapshot; ignored if it is not newer than the last one. Columns beyond the maximum are dropped. */
+    public void add(LiveSnapshot snapshot) {
+        if (size > 0 && snapshot.timestampMillis <= timestampAt(size - 1)) {
+            return;
+        }
+        int slot;
+        if (size < timestamps.length) {
+            slot = (start + size) % timestamps.length;
+            size++;
+        } else {
+            slot = start;
+            start = (start + 1) % timestamps.length;
+        }
+        timestamps[slot] = snapshot.timestampMillis;
+        int columns = Math.min(snapshot.simCount(), maxColumns);
+        columnCount = Math.max(columnCount, columns);
+        int base = slot * maxColumns;
+        for (int column = 0; column < maxColumns; column++) {
+            values[base + column] = column < columns ? snapshot.dbm(column) : Sample.NO_SIGNAL;
+        }
+    }
+
+    public void clear() {
+        start = 0;
+        size = 0;
+        columnCount = 0;
+    }
+
+    public int capacity() {
+        return timestamps.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Widest SIM column count seen since the last clear. */
+    public int columnCount() {
+        return columnCount;
+    }
+
+    /** @param index 0 is the oldest reading */
+    public long timestampAt(int index) {
+        return timestamps[(start + index) % timestamps.length];
+    }
+
+    /** dBm at {@code index} (0 is oldest), or {@link Sample#NO_SIGNAL}. */
+    public int valueAt(int index, int column) {
+        return values[((start + index) % timestamps.length) * maxColumns + column];
+    }
+}
@@ -0,0 +1,132 @@
+package com.sabbir.dbmtracker.core;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Brings subsystems up in parallel, each on its own executor, and records
+ * how long every phase of startup took. Phases are named by the caller; the
+ * first time a phase is marked wins, so a phase that can be reached from
+ * more than one thread (the first sample, say) is timed once.
+ * <p>
+ * Subsystems are {@link #add added} up front and started together by
+ * {@link #start()}, which marks {@link #START}; each marks its own name when
+ * its bring-up returns, and the last one to finish marks {@link #READY}.
+ * Nothing else waits for {@link #READY}: work that needs one subsystem is
+ * queued behind that subsystem's bring-up on the same executor.
+ */
+public final class StagedStartup {
+
+    public static final String START = "start";
+    public static final String READY = "ready";
+    public static final String FIRST_SAMPLE = "firstSample";
+
+    private final long originNanos;
+    private final Map<String, Long> marks = new LinkedHashMap<>();
+    private final List<Subsystem> subsystems = new ArrayList<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile boolean started;
+
+    private static final class Subsystem {
+        final String name;
+        final Executor executor;
+        final Runnable bringUp;
+
+        Subsystem(String name, Executor executor, Runnable bringUp) {
+            this.name = name;
+            this.executor = executor;
+            this.bringUp = bringUp;
+        }
+    }
+
+    /** Times every phase from now. */
+    public StagedStartup() {
+        this(System.nanoTime());
+    }
+
+    /** Times every phase from {@code originNanos}, a {@link System#nanoTime()} reading. */
+    public StagedStartup(long originNanos) {
+        this.originNanos = originNanos;
+    }
+
+    /** Runs {@code bringUp} on {@code executor} once {@link #start()} is called. */
+    public void add(String name, Executor executor, Runnable bringUp) {
+        if (started) {
+            throw new IllegalStateException("Already started");
+        }
+        subsystems.add(new Subsystem(name, executor, bringUp));
+    }
+
+    /** Hands every subsystem to its executor; does nothing after the first call. */
+    public void start() {
+        if (started) {
+            return;
+        }
+        pending.set(subsystems.size());
+        started = true;
+        mark(START);
+        if (subsystems.isEmpty()) {
+            mark(READY);
+        }
+        for (Subsystem subsystem : subsystems) {
+            subsystem.executor.execute(() -> {
+                try {
+                    subsystem.bringUp.run();
+                } finally {
+                    mark(subsystem.name);
+                    if (pending.decrementAndGet() == 0) {
+                        mark(READY);
+                    }
+                }
+            });
+        }
+    }
+
+    public boolean started() {
+        return started;
+    }
+
+    /** True once every subsystem has come up. */
+    public boolean ready() {
+        return pending.get() == 0 && started;
+    }
+
+    /** Records that {@code phase} was reached now; false if it had been already. */
+    public synchronized boolean mark(String phase) {
+        if (marks.containsKey(phase)) {
+            return false;
+        }
+        marks.put(phase, System.nanoTime() - originNanos);
+        return true;
+    }
+
+    /** Milliseconds from the origin to {@code phase}, or -1 if it has not been reached. */
+    public synchronized long elapsedMillis(String phase) {
+        Long nanos = marks.get(phase);
+        return nanos != null ? nanos / 1_000_000 : -1;
+    }
+
+    /** Milliseconds from {@code from} to {@code to}, or -1 unless both have been reached. */
+    public synchronized long millisBetween(String from, String to) {
+        Long start = marks.get(from);
+        Long end = marks.get(to);
+        return start != null && end != null ? (end - start) / 1_000_000 : -1;
+    }
+
+    /** Every phase reached so far in order, e.g. {@code "foreground 4 ms, start 1830 ms, file 1842 ms"}. */
+    @Override
+    public synchronized String toString() {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, Long> mark : marks.entrySet()) {
+            if (text.length() > 0) {
+                text.append(", ");
+            }
+            text.append(mark.getKey()).append(' ').append(mark.getValue() / 1_000_000).append(" ms");
+        }
+        return text.toString();
+    }
+}
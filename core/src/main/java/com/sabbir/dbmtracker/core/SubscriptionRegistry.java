@@ -0,0 +1,175 @@
+package com.sabbir.dbmtracker.core;
+
+/**
+ * Maps active subscriptions to output columns and owns their latest
+ * operator name and dBm. A subscription keeps its column for as long as it
+ * stays active. A new one prefers the column matching its SIM slot and
+ * otherwise takes the lowest free column. {@link #sync} binds listeners for
+ * new subscriptions and unbinds the ones that went away through the
+ * {@link Binder}, so tracking continues across SIM changes.
+ * <p>
+ * Per-event updates go straight to a column index ({@link #setDbm}), so
+ * dispatch is O(1) however many subscriptions there are. Not thread-safe;
+ * confine it to one thread.
+ *
+ * @param <H> handle returned by the binder, e.g. a per-subscription listener
+ */
+public final class SubscriptionRegistry<H> {
+
+    public interface Binder<H> {
+        H bind(int subscriptionId, int column);
+
+        void unbind(H handle);
+    }
+
+    private static final int FREE = Integer.MIN_VALUE;
+
+    private final Binder<H> binder;
+    private final int minColumns;
+    private int[] subscriptionIds = new int[0];
+    private Object[] handles = new Object[0];
+    private String[] names = new String[0];
+    private int[] dbm = new int[0];
+    private boolean[] seen = new boolean[0];
+
+    public SubscriptionRegistry(int minColumns, Binder<H> binder) {
+        this.minColumns = minColumns;
+        this.binder = binder;
+        ensureColumns(minColumns);
+    }
+
+    /**
+     * Brings the registry in line with the currently active subscriptions:
+     * the first {@code count} entries of the arrays. Slot indexes below zero
+     * mean "no slot preference".
+     */
+    public void sync(int[] activeIds, int[] slotIndexes, String[] operatorNames, int count) {
+        for (int c = 0; c < seen.length; c++) {
+            seen[c] = false;
+        }
+        for (int i = 0; i < count; i++) {
+            int column = columnOf(activeIds[i]);
+            if (column != FREE) {
+                seen[column] = true;
+                names[column] = operatorNames[i];
+            }
+        }
+        for (int c = 0; c < subscriptionIds.length; c++) {
+            if (subscriptionIds[c] != FREE && !seen[c]) {
+                release(c);
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            if (columnOf(activeIds[i]) == FREE) {
+                int column = freeColumn(slotIndexes[i]);
+                subscriptionIds[column] = activeIds[i];
+                names[column] = operatorNames[i];
+                dbm[column] = Sample.NO_SIGNAL;
+                handles[column] = binder.bind(activeIds[i], column);
+            }
+        }
+    }
+
+    /** Unbinds every subscription. */
+    public void clear() {
+        for (int c = 0; c < subscriptionIds.length; c++) {
+            if (subscriptionIds[c] != FREE) {
+                release(c);
+            }
+        }
+    }
+
+    public void setDbm(int column, int value) {
+        dbm[column] = value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public H handle(int column) {
+        return column < handles.length ? (H) handles[column] : null;
+    }
+
+    public int subscriptionId(int column) {
+        return subscriptionIds[column];
+    }
+
+    /** Columns in the output: at least minColumns, and up to the highest bound column. */
+    public int columnCount() {
+        int count = minColumns;
+        for (int c = subscriptionIds.length - 1; c >= minColumns; c--) {
+            if (subscriptionIds[c] != FREE) {
+                count = c + 1;
+                break;
+            }
+        }
+        return count;
+    }
+
+    /** Copies names and dBm of every column into the sample, resizing it to {@link #columnCount()}. */
+    public void fill(Sample sample) {
+        int columns = columnCount();
+        sample.setSimCount(columns);
+        System.arraycopy(names, 0, sample.operatorNames, 0, columns);
+        System.arraycopy(dbm, 0, sample.dbm, 0, columns);
+    }
+
+    private int columnOf(int subscriptionId) {
+        for (int c = 0; c < subscriptionIds.length; c++) {
+            if (subscriptionIds[c] == subscriptionId) {
+                return c;
+            }
+        }
+        return FREE;
+    }
+
+    private int freeColumn(int preferred) {
+        if (preferred >= 0) {
+            ensureColumns(preferred + 1);
+            if (subscriptionIds[preferred] == FREE) {
+                return preferred;
+            }
+        }
+        for (int c = 0; c < subscriptionIds.length; c++) {
+            if (subscriptionIds[c] == FREE) {
+                return c;
+            }
+        }
+        int column = subscriptionIds.length;
+        ensureColumns(column + 1);
+        return column;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void release(int column) {
+        H handle = (H) handles[column];
+        subscriptionIds[column] = FREE;
+        handles[column] = null;
+        names[column] = "Unknown";
+        dbm[column] = Sample.NO_SIGNAL;
+        binder.unbind(handle);
+    }
+
+    private void ensureColumns(int columns) {
+        int old = subscriptionIds.length;
+        if (columns <= old) {
+            return;
+        }
+        int[] ids = new int[columns];
+        Object[] newHandles = new Object[columns];
+        String[] newNames = new String[columns];
+        int[] newDbm = new int[columns];
+        System.arraycopy(subscriptionIds, 0, ids, 0, old);
+        System.arraycopy(handles, 0, newHandles, 0, old);
+        System.arraycopy(names, 0, newNames, 0, old);
+        System.arraycopy(dbm, 0, newDbm, 0, old);
+        for (int c = old; c < columns; c++) {
+            ids[c] = FREE;
+            newNames[c] = "Unknown";
+            newDbm[c] = Sample.NO_SIGNAL;
+        }
+        subscriptionIds = ids;
+        handles = newHandles;
+        names = newNames;
+        dbm = newDbm;
+        seen = new boolean[columns];
+    }
+}
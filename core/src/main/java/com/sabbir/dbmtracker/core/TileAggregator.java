@@ -0,0 +1,344 @@
+package com.sabbir.dbmtracker.core;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Streaming per-tile, per-operator signal statistics. Each sample is binned
+ * into a square lat/lon grid tile of {@code tileSizeE6} micro-degrees and
+ * updates count, sum, min, max and a fixed dBm histogram for every operator
+ * it carries a signal for.
+ * <p>
+ * The histogram has {@link #BIN_COUNT} bins of {@link #BIN_WIDTH_DB} dB, so
+ * P10/P50/P90 are exact to within one bin. It is mergeable by adding bins,
+ * which makes two aggregators (e.g. from two devices) merge exactly. Every
+ * tile costs the same fixed amount of memory however many samples land in it.
+ * <p>
+ * Entries live in an open-addressing table keyed by a packed long (tile
+ * row, tile column, operator id), with one primitive array per field. The
+ * table only allocates when it doubles. Not thread-safe.
+ * <p>
+ * The aggregate also counts the {@link #rows() rows} it has been fed, saved
+ * with it, so an aggregate kept alongside a session knows which prefix of
+ * the session it covers.
+ */
+public final class TileAggregator {
+
+    public static final int BIN_WIDTH_DB = 2;
+    public static final int BIN_COUNT = 64;
+    /** Lowest dBm of the first bin; lower and higher readings are clamped into the edge bins. */
+    public static final int MIN_BIN_DBM = -150;
+
+    private static final byte[] MAGIC = {'D', 'B', 'M', 'T'};
+    private static final int VERSION = 2;
+    private static final long EMPTY = -1L;
+    private static final int MIN_TILE_SIZE_E6 = 100;
+
+    /** Receives one tile/operator entry at a time from {@link #forEach}. */
+    public interface Visitor {
+        void visit(int centerLatitudeE6, int centerLongitudeE6, String operator, long count, double meanDbm,
+                   int minDbm, int maxDbm, int p10Dbm, int p50Dbm, int p90Dbm);
+    }
+
+    private final int tileSizeE6;
+    private String[] operators = new String[4];
+    private int operatorCount;
+    private String[] lastNames = new String[0];
+    private int[] lastIds = new int[0];
+
+    private long[] keys;
+    private long[] counts;
+    private long[] sums;
+    private int[] mins;
+    private int[] maxs;
+    private int[] bins;
+    private int size;
+    private int mask;
+    private long rows;
+
+    public TileAggregator(int tileSizeE6) {
+        if (tileSizeE6 < MIN_TILE_SIZE_E6) {
+            throw new IllegalArgumentException("tileSizeE6 must be at least " + MIN_TILE_SIZE_E6 + ": " + tileSizeE6);
+        }
+        this.tileSizeE6 = tileSizeE6;
+        allocate(64);
+    }
+
+    public int tileSizeE6() {
+        return tileSizeE6;
+    }
+
+    /** Number of tile/operator entries. */
+    public int size() {
+        return size;
+    }
+
+    /** Rows passed to {@link #add(Sample)}, with or without a fix, including those of merged aggregators. */
+    public long rows() {
+        return rows;
+    }
+
+    /** Adds every SIM reading of a sample that has both a fix and a signal. */
+    public void add(Sample sample) {
+        rows++;
+        if (!sample.hasLocation) {
+            return;
+        }
+        if (lastNames.length != sample.simCount()) {
+            lastNames = new String[sample.simCount()];
+            lastIds = new int[sample.simCount()];
+        }
+        for (int i = 0; i < sample.simCount(); i++) {
+            int dbm = sample.dbm[i];
+            if (dbm == Sample.NO_SIGNAL) {
+                continue;
+            }
+            String name = sample.operatorNames[i];
+            if (name != lastNames[i]) {
+                lastNames[i] = name;
+                lastIds[i] = operatorId(name);
+            }
+            add(sample.latitudeE6, sample.longitudeE6, lastIds[i], dbm);
+        }
+    }
+
+    public void add(int latitudeE6, int longitudeE6, String operator, int dbm) {
+        add(latitudeE6, longitudeE6, operatorId(operator), dbm);
+    }
+
+    private void add(int latitudeE6, int longitudeE6, int operatorId, int dbm) {
+        int slot = slotFor(key(Math.floorDiv(latitudeE6, tileSizeE6), Math.floorDiv(longitudeE6, tileSizeE6), operatorId));
+        counts[slot]++;
+        sums[slot] += dbm;
+        mins[slot] = Math.min(mins[slot], dbm);
+        maxs[slot] = Math.max(maxs[slot], dbm);
+        bins[slot * BIN_COUNT + binOf(dbm)]++;
+    }
+
+    /** Folds another aggregator with the same tile size into this one. */
+    public void merge(TileAggregator other) {
+        if (other.tileSizeE6 != tileSizeE6) {
+            throw new IllegalArgumentException("Tile sizes differ: " + tileSizeE6 + " vs " + other.tileSizeE6);
+        }
+        rows += other.rows;
+        for (int from = 0; from < other.keys.length; from++) {
+            long key = other.keys[from];
+            if (key == EMPTY) {
+                continue;
+            }
+            int operatorId = operatorId(other.operators[(int) (key & 0xFFFF)]);
+            int slot = slotFor((key & ~0xFFFFL) | operatorId);
+            counts[slot] += other.counts[from];
+            sums[slot] += other.sums[from];
+            mins[slot] = Math.min(mins[slot], other.mins[from]);
+            maxs[slot] = Math.max(maxs[slot], other.maxs[from]);
+            for (int b = 0; b < BIN_COUNT; b++) {
+                bins[slot * BIN_COUNT + b] += other.bins[from * BIN_COUNT + b];
+            }
+        }
+    }
+
+    public void forEach(Visitor visitor) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            long key = keys[slot];
+            if (key == EMPTY) {
+                continue;
+            }
+            int row = (int) (key >> 40) << 10 >> 10;
+            int column = (int) (key >> 16) << 8 >> 8;
+            long count = counts[slot];
+            visitor.visit(row * tileSizeE6 + tileSizeE6 / 2, column * tileSizeE6 + tileSizeE6 / 2,
+                    operators[(int) (key & 0xFFFF)], count, (double) sums[slot] / count, mins[slot], maxs[slot],
+                    percentile(slot, 0.10), percentile(slot, 0.50), percentile(slot, 0.90));
+        }
+    }
+
+    /** Lower edge of the bin holding the q-quantile, clamped to the observed min/max. */
+    private int percentile(int slot, double q) {
+        long rank = (long) Math.ceil(q * counts[slot]);
+        long seen = 0;
+        int base = slot * BIN_COUNT;
+        for (int b = 0; b < BIN_COUNT; b++) {
+            seen += bins[base + b];
+            if (seen >= rank && seen > 0) {
+                int dbm = MIN_BIN_DBM + b * BIN_WIDTH_DB;
+                return Math.max(mins[slot], Math.min(maxs[slot], dbm));
+            }
+        }
+        return maxs[slot];
+    }
+
+    private static int binOf(int dbm) {
+        int bin = Math.floorDiv(dbm - MIN_BIN_DBM, BIN_WIDTH_DB);
+        return Math.max(0, Math.min(BIN_COUNT - 1, bin));
+    }
+
+    /** 22 bits tile row, 24 bits tile column, 16 bits operator id; never negative, so never EMPTY. */
+    private static long key(int row, int column, int operatorId) {
+        return ((long) (row & 0x3FFFFF) << 40) | ((long) (column & 0xFFFFFF) << 16) | operatorId;
+    }
+
+    private int operatorId(String name) {
+        for (int i = 0; i < operatorCount; i++) {
+            if (operators[i].equals(name)) {
+                return i;
+            }
+        }
+        if (operatorCount == 0xFFFF) {
+            throw new IllegalStateException("Too many operators");
+        }
+        if (operatorCount == operators.length) {
+            String[] grown = new String[operators.length * 2];
+            System.arraycopy(operators, 0, grown, 0, operatorCount);
+            operators = grown;
+        }
+        operators[operatorCount] = name;
+        return operatorCount++;
+    }
+
+    private int slotFor(long key) {
+        int slot = (int) mix(key) & mask;
+        while (true) {
+            long existing = keys[slot];
+            if (existing == key) {
+                return slot;
+            }
+            if (existing == EMPTY) {
+                if ((size + 1) * 2 > keys.length) {
+                    rehash(keys.length * 2);
+                    return slotFor(key);
+                }
+                keys[slot] = key;
+                mins[slot] = Integer.MAX_VALUE;
+                maxs[slot] = Integer.MIN_VALUE;
+                size++;
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        counts = new long[capacity];
+        sums = new long[capacity];
+        mins = new int[capacity];
+        maxs = new int[capacity];
+        bins = new int[capacity * BIN_COUNT];
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldCounts = counts;
+        long[] oldSums = sums;
+        int[] oldMins = mins;
+        int[] oldMaxs = maxs;
+        int[] oldBins = bins;
+        allocate(capacity);
+        for (int from = 0; from < oldKeys.length; from++) {
+            if (oldKeys[from] == EMPTY) {
+                continue;
+            }
+            int slot = slotFor(oldKeys[from]);
+            counts[slot] = oldCounts[from];
+            sums[slot] = oldSums[from];
+            mins[slot] = oldMins[from];
+            maxs[slot] = oldMaxs[from];
+            System.arraycopy(oldBins, from * BIN_COUNT, bins, slot * BIN_COUNT, BIN_COUNT);
+        }
+    }
+
+    /**
+     * Writes the aggregate: header, operator dictionary, then one record per
+     * entry with its histogram stored sparsely as (bin, count) pairs.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.write(MAGIC);
+        data.writeByte(VERSION);
+        data.writeInt(tileSizeE6);
+        data.writeLong(rows);
+        data.writeShort(operatorCount);
+        for (int i = 0; i < operatorCount; i++) {
+            byte[] utf8 = operators[i].getBytes(StandardCharsets.UTF_8);
+            data.writeShort(utf8.length);
+            data.write(utf8);
+        }
+        data.writeInt(size);
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] == EMPTY) {
+                continue;
+            }
+            data.writeLong(keys[slot]);
+            data.writeLong(counts[slot]);
+            data.writeLong(sums[slot]);
+            data.writeInt(mins[slot]);
+            data.writeInt(maxs[slot]);
+            int nonEmpty = 0;
+            for (int b = 0; b < BIN_COUNT; b++) {
+                if (bins[slot * BIN_COUNT + b] != 0) {
+                    nonEmpty++;
+                }
+            }
+            data.writeByte(nonEmpty);
+            for (int b = 0; b < BIN_COUNT; b++) {
+                int binCount = bins[slot * BIN_COUNT + b];
+                if (binCount != 0) {
+                    data.writeByte(b);
+                    data.writeInt(binCount);
+                }
+            }
+        }
+        data.flush();
+    }
+
+    public static TileAggregator readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        for (byte b : MAGIC) {
+            if (data.readByte() != b) {
+                throw new IOException("Not a tile aggregate: bad magic");
+            }
+        }
+        int version = data.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported tile aggregate version " + version);
+        }
+        TileAggregator aggregator = new TileAggregator(data.readInt());
+        aggregator.rows = data.readLong();
+        int operatorCount = data.readUnsignedShort();
+        for (int i = 0; i < operatorCount; i++) {
+            byte[] utf8 = new byte[data.readUnsignedShort()];
+            data.readFully(utf8);
+            aggregator.operatorId(new String(utf8, StandardCharsets.UTF_8));
+        }
+        int entries = data.readInt();
+        for (int i = 0; i < entries; i++) {
+            int slot = aggregator.slotFor(data.readLong());
+            aggregator.counts[slot] = data.readLong();
+            aggregator.sums[slot] = data.readLong();
+            aggregator.mins[slot] = data.readInt();
+            aggregator.maxs[slot] = data.readInt();
+            int nonEmpty = data.readUnsignedByte();
+            for (int b = 0; b < nonEmpty; b++) {
+                int bin = data.readUnsignedByte();
+                aggregator.bins[slot * BIN_COUNT + bin] = data.readInt();
+            }
+        }
+        return aggregator;
+    }
+}
@@ -0,0 +1,66 @@
+package com.sabbir.dbmtracker.core;
+
+import java.util.Locale;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * One chunk of a file on its way to the collector; reused from chunk to
+ * chunk. The body is deflated (zlib, i.e. HTTP {@code Content-Encoding:
+ * deflate}) unless that would not make it smaller, which is the case for
+ * already compressed segments.
+ * <p>
+ * The id depends only on the object, the range and its checksum, so a
+ * chunk sent twice, e.g. after its acknowledgement was lost, is recognised
+ * by the collector as the same chunk.
+ */
+public final class UploadChunk {
+
+    public long offset;
+    /** Bytes of the original file this chunk covers. */
+    public int length;
+    public long totalLength;
+    public long crc32;
+    public String id;
+    public boolean deflated;
+    public byte[] body;
+    public int bodyLength;
+
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final CRC32 crc = new CRC32();
+
+    UploadChunk(int capacity) {
+        body = new byte[capacity + capacity / 16 + 64];
+    }
+
+    void fill(String object, long offset, long totalLength, byte[] raw, int length, boolean compress) {
+        this.offset = offset;
+        this.length = length;
+        this.totalLength = totalLength;
+        crc.reset();
+        crc.update(raw, 0, length);
+        crc32 = crc.getValue();
+        id = String.format(Locale.ROOT, "%s@%d+%d#%08x", object, offset, length, crc32);
+
+        deflated = false;
+        if (compress) {
+            deflater.reset();
+            deflater.setInput(raw, 0, length);
+            deflater.finish();
+            int size = 0;
+            while (!deflater.finished() && size < length) {
+                size += deflater.deflate(body, size, body.length - size);
+            }
+            deflated = deflater.finished() && size < length;
+            bodyLength = size;
+        }
+        if (!deflated) {
+            System.arraycopy(raw, 0, body, 0, length);
+            bodyLength = length;
+        }
+    }
+
+    void release() {
+        deflater.end();
+    }
+}
@@ -0,0 +1,13 @@
+package com.sabbir.dbmtracker.core;
+
+import java.io.IOException;
+
+/** The collector turned a request down for good; sending it again will not help. */
+public class UploadRejectedException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public UploadRejectedException(String message) {
+        super(message);
+    }
+}
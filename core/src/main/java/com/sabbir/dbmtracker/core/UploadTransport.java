@@ -0,0 +1,25 @@
+package com.sabbir.dbmtracker.core;
+
+import java.io.IOException;
+
+/**
+ * Moves chunks of a file to a collector. Objects are named by file name and
+ * addressed by byte offset into the original, uncompressed file, so a
+ * transfer can pick up wherever the collector says it stopped.
+ * <p>
+ * A plain {@link IOException} means the request may be retried;
+ * {@link UploadRejectedException} means retrying will not help.
+ */
+public interface UploadTransport {
+
+    /** Bytes of {@code object} the collector already has; 0 if it has none. */
+    long committed(String object) throws IOException;
+
+    /**
+     * Sends one chunk and returns how many bytes of {@code object} the
+     * collector has afterwards. A chunk it already has is acknowledged
+     * without being applied again; a chunk that does not start where the
+     * collector is gets the collector's length back instead.
+     */
+    long put(String object, UploadChunk chunk) throws IOException;
+}
@@ -0,0 +1,83 @@
+package com.sabbir.dbmtracker.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveSchedulerTest {
+
+    private final AdaptiveScheduler.Policy policy = new AdaptiveScheduler.Policy();
+
+    /** Drives the scheduler like the service does: one fix per plan interval, update after each. */
+    private static long run(AdaptiveScheduler scheduler, long start, long durationMillis,
+                            double speedMps, double[] position) {
+        long now = start;
+        while (now < start + durationMillis) {
+            long step = scheduler.plan().locationIntervalMillis;
+            now += step;
+            position[0] += speedMps * step / 1000.0 / 111_320.0;
+            scheduler.onFix(now, Sample.toE6(position[0]), Sample.toE6(position[1]));
+            scheduler.update(now);
+        }
+        return now;
+    }
+
+    @Test
+    public void parkedVehicleLetsCpuSleepAfterDwell() {
+        AdaptiveScheduler scheduler = new AdaptiveScheduler(policy);
+        double[] position = {23.81, 90.41};
+        scheduler.update(0);
+        long now = run(scheduler, 0, policy.stationaryDwellMillis - 10_000, 0, position);
+        assertSame(policy.moving, scheduler.plan());
+        now = run(scheduler, now, 20_000, 0, position);
+        assertSame(policy.stationary, scheduler.plan());
+
+        now = run(scheduler, now, 10_000, 10, position);
+        assertSame(policy.moving, scheduler.plan());
+        run(scheduler, now, 60_000, 25, position);
+        assertSame(policy.fast, scheduler.plan());
+    }
+
+    @Test
+    public void batteryLimitsApplyUnlessCharging() {
+        AdaptiveScheduler scheduler = new AdaptiveScheduler(policy);
+        scheduler.onFix(0, 0, 0);
+        scheduler.onFix(1000, 100, 0);
+        scheduler.onBattery(15, false);
+        assertSame(policy.lowBattery, scheduler.update(1000));
+        scheduler.onBattery(5, false);
+        assertSame(policy.criticalBattery, scheduler.update(2000));
+        scheduler.onBattery(5, true);
+        assertSame(policy.moving, scheduler.update(3000));
+    }
+
+    @Test
+    public void reportsWakeTimeSavedOverSimulatedSurveyDay() {
+        AdaptiveScheduler scheduler = new AdaptiveScheduler(policy);
+        double[] position = {23.81, 90.41};
+        long now = 0;
+        scheduler.update(now);
+        // 8 h survey: alternating 20 min driving and 40 min parked at sites.
+        for (int hour = 0; hour < 8; hour++) {
+            now = run(scheduler, now, 20 * 60_000, 12, position);
+            now = run(scheduler, now, 40 * 60_000, 0, position);
+        }
+        double savedFraction = (double) scheduler.wakeTimeSavedMillis() / scheduler.trackedMillis();
+        assertTrue("saved " + savedFraction, savedFraction > 0.55 && savedFraction < 0.67);
+    }
+
+    @Test
+    public void suspendStopsTimeAccounting() {
+        AdaptiveScheduler scheduler = new AdaptiveScheduler(policy);
+        scheduler.onBattery(5, false);
+        scheduler.update(0);
+        scheduler.update(1000);
+        scheduler.suspend();
+        scheduler.update(100_000);
+        scheduler.update(101_000);
+        assertEquals(2000, scheduler.trackedMillis());
+        assertEquals(2000, scheduler.wakeTimeSavedMillis());
+    }
+}
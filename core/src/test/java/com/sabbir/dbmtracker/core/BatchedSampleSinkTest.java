@@ -0,0 +1,142 @@
+package com.sabbir.dbmtracker.core;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BatchedSampleSinkTest {
+
+    private static final long TICK_MS = 2000;
+    private static final int ROWS_PER_HOUR = (int) (3_600_000 / TICK_MS);
+
+    /** Writer that counts flushes; each flush of a FileWriter is one write syscall. */
+    static class CountingWriter extends StringWriter {
+        int flushes;
+
+        @Override
+        public void flush() {
+            super.flush();
+            flushes++;
+        }
+    }
+
+    @Test
+    public void batchingCutsWriteSyscallsPerHour() throws IOException {
+        CountingWriter perRow = new CountingWriter();
+        for (int i = 0; i < ROWS_PER_HOUR; i++) {
+            perRow.append(row(i));
+            perRow.flush();
+        }
+
+        CountingWriter batched = new CountingWriter();
+        long[] now = {0};
+        BatchedSampleSink sink = new BatchedSampleSink(batched, 30, 60_000, () -> now[0]);
+        for (int i = 0; i < ROWS_PER_HOUR; i++) {
+            sink.append(row(i));
+            now[0] += TICK_MS;
+        }
+        sink.close();
+
+        assertEquals(ROWS_PER_HOUR, perRow.flushes);
+        assertEquals(ROWS_PER_HOUR / 30, batched.flushes);
+        assertEquals(perRow.toString(), batched.toString());
+    }
+
+    @Test
+    public void flushesWhenRowLimitReached() throws IOException {
+        CountingWriter out = new CountingWriter();
+        BatchedSampleSink sink = new BatchedSampleSink(out, 3, Long.MAX_VALUE, () -> 0L);
+        sink.append(row(0));
+        sink.append(row(1));
+        assertEquals(0, out.flushes);
+        assertEquals("", out.toString());
+        sink.append(row(2));
+        assertEquals(1, out.flushes);
+        assertEquals(0, sink.pendingRows());
+        assertEquals(row(0) + row(1) + row(2), out.toString());
+    }
+
+    @Test
+    public void flushesWhenTimeWindowElapses() throws IOException {
+        CountingWriter out = new CountingWriter();
+        long[] now = {1000};
+        BatchedSampleSink sink = new BatchedSampleSink(out, 100, 5000, () -> now[0]);
+        sink.append(row(0));
+        now[0] += 4999;
+        sink.append(row(1));
+        assertEquals(0, out.flushes);
+        now[0] += 1;
+        sink.append(row(2));
+        assertEquals(1, out.flushes);
+        assertEquals(1, sink.batchesWritten());
+    }
+
+    @Test
+    public void flushIfDueEmptiesAnIdleBatchOnceTheWindowElapses() throws IOException {
+        CountingWriter out = new CountingWriter();
+        long[] now = {1000};
+        BatchedSampleSink sink = new BatchedSampleSink(out, 100, 5000, () -> now[0]);
+        sink.flushIfDue();
+        sink.append(row(0));
+        now[0] += 4999;
+        sink.flushIfDue();
+        assertEquals(0, out.flushes);
+        assertEquals(1, sink.pendingRows());
+        now[0] += 1;
+        sink.flushIfDue();
+        assertEquals(1, out.flushes);
+        assertEquals(0, sink.pendingRows());
+        assertEquals(row(0), out.toString());
+    }
+
+    @Test
+    public void explicitFlushDrainsPendingRows() throws IOException {
+        CountingWriter out = new CountingWriter();
+        BatchedSampleSink sink = new BatchedSampleSink(out, 10, 60_000, () -> 0L);
+        sink.append(row(0));
+        sink.flush();
+        sink.flush();
+        assertEquals(1, out.flushes);
+        assertEquals(row(0), out.toString());
+    }
+
+    @Test
+    public void pendingRowsNeverExceedOneBatch() throws IOException {
+        CountingWriter out = new CountingWriter();
+        BatchedSampleSink sink = new BatchedSampleSink(out, 7, 60_000, () -> 0L);
+        for (int i = 0; i < 100; i++) {
+            sink.append(row(i));
+            assertTrue(sink.pendingRows() < 7);
+        }
+    }
+
+    @Test
+    public void longRowsSpillWithoutGrowingTheBuffer() throws IOException {
+        CountingWriter out = new CountingWriter();
+        BatchedSampleSink sink = new BatchedSampleSink(out, 4, 60_000, () -> 0L);
+        StringBuilder expected = new StringBuilder();
+        StringBuilder longRow = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            longRow.append("cell").append(i).append(',');
+        }
+        longRow.append('\n');
+        for (int i = 0; i < 12; i++) {
+            String row = i % 3 == 0 ? longRow.toString() : row(i);
+            sink.append(row);
+            expected.append(row);
+        }
+        sink.close();
+        assertEquals(expected.toString(), out.toString());
+        // Spilling a batch early writes, but does not flush.
+        assertEquals(3, out.flushes);
+        assertEquals(3, sink.batchesWritten());
+    }
+
+    private static String row(int i) {
+        return "2025-02-08 16:15:" + (i % 60) + ",23.810332,90.412518,GP,-85,Robi,-97\n";
+    }
+}
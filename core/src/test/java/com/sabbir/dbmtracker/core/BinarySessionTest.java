@@ -0,0 +1,245 @@
+package com.sabbir.dbmtracker.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BinarySessionTest {
+
+    private static final TimeZone ZONE = TimeZone.getTimeZone("Asia/Dhaka");
+
+    /** Synthetic drive: 2 s ticks, moving at up to ~30 m/s, occasional fix and signal dropouts. */
+    private static void drive(int rows, long seed, SampleWriter... writers) throws IOException {
+        Random random = new Random(seed);
+        Sample sample = new Sample(2);
+        sample.operatorNames[0] = "Grameenphone";
+        sample.operatorNames[1] = "Robi";
+        long time = 1_738_999_999_000L;
+        double lat = 23.810332;
+        double lon = 90.412518;
+        for (int i = 0; i < rows; i++) {
+            time += 2000 + random.nextInt(20);
+            lat += (random.nextDouble() - 0.5) * 0.0004;
+            lon += (random.nextDouble() - 0.5) * 0.0004;
+            if (random.nextInt(50) == 0) {
+                sample.clearLocation();
+            } else {
+                sample.setLocation(lat, lon);
+            }
+            sample.timestampMillis = time;
+            sample.dbm[0] = random.nextInt(30) == 0 ? Sample.NO_SIGNAL : -70 - random.nextInt(40);
+            sample.dbm[1] = random.nextInt(30) == 0 ? Sample.NO_SIGNAL : -80 - random.nextInt(40);
+            if (i == rows / 2) {
+                sample.operatorNames[1] = "Banglalink";
+                time += 600_000;
+            }
+            for (SampleWriter writer : writers) {
+                writer.write(sample);
+            }
+        }
+        for (SampleWriter writer : writers) {
+            writer.close();
+        }
+    }
+
+    private static CsvSampleWriter csvWriter(StringWriter out) throws IOException {
+        CsvSampleWriter writer = new CsvSampleWriter(
+                new BatchedSampleSink(out, 30, Long.MAX_VALUE), new SampleEncoder(ZONE));
+        writer.writeHeader(2);
+        return writer;
+    }
+
+    @Test
+    public void exportReproducesCsvExactly() throws IOException {
+        StringWriter csv = new StringWriter();
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        drive(5000, 1, csvWriter(csv), new BinarySessionWriter(binary, 2, 30, 60_000));
+
+        StringWriter exported = new StringWriter();
+        long rows = CsvExporter.export(new ByteArrayInputStream(binary.toByteArray()), exported, ZONE);
+
+        assertEquals(5000, rows);
+        assertEquals(csv.toString(), exported.toString());
+    }
+
+    @Test
+    public void binaryIsAtLeastFiveTimesSmaller() throws IOException {
+        StringWriter csv = new StringWriter();
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        drive(43_200, 2, csvWriter(csv), new BinarySessionWriter(binary, 2, 30, 60_000));
+
+        int csvBytes = csv.toString().getBytes(StandardCharsets.UTF_8).length;
+        int binaryBytes = binary.size();
+        assertTrue("ratio " + (double) csvBytes / binaryBytes, csvBytes >= 5L * binaryBytes);
+    }
+
+    @Test
+    public void outOfRangeValuesFallBackToKeyRecords() throws IOException {
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        BinarySessionWriter writer = new BinarySessionWriter(binary, 1, 30, 60_000);
+        Sample sample = new Sample(1);
+        long[] times = {1000, 3000, 3000 + 70_000, 1000};
+        int[] dbms = {-90, Integer.MAX_VALUE, -128, 31};
+        double[][] fixes = {{10, 10}, {10.0001, 10.0001}, {-45, 170}, {-45.0001, 170}};
+        for (int i = 0; i < times.length; i++) {
+            sample.timestampMillis = times[i];
+            sample.dbm[0] = dbms[i];
+            sample.setLocation(fixes[i][0], fixes[i][1]);
+            writer.write(sample);
+        }
+        writer.close();
+
+        BinarySessionReader reader = new BinarySessionReader(new ByteArrayInputStream(binary.toByteArray()));
+        Sample read = new Sample(1);
+        for (int i = 0; i < times.length; i++) {
+            assertTrue(reader.next(read));
+            assertEquals(times[i], read.timestampMillis);
+            assertEquals(dbms[i], read.dbm[0]);
+            assertEquals(Sample.toE6(fixes[i][0]), read.latitudeE6);
+            assertEquals(Sample.toE6(fixes[i][1]), read.longitudeE6);
+        }
+        assertFalse(reader.next(read));
+    }
+
+    @Test
+    public void truncatedTailEndsSessionCleanly() throws IOException {
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        drive(100, 3, new BinarySessionWriter(binary, 2, 30, 60_000));
+        byte[] bytes = binary.toByteArray();
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 3);
+
+        BinarySessionReader reader = new BinarySessionReader(new ByteArrayInputStream(truncated));
+        Sample sample = new Sample(2);
+        int rows = 0;
+        while (reader.next(sample)) {
+            rows++;
+        }
+        assertEquals(99, rows);
+    }
+
+    @Test
+    public void cellSnapshotsRoundTripWithTheirSample() throws IOException {
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        BinarySessionWriter writer = new BinarySessionWriter(binary, 2, 30, 60_000);
+        Sample sample = new Sample(2);
+        sample.timestampMillis = 1000;
+        int lte = sample.cells.add(0, CellBatch.RAT_LTE, true);
+        sample.cells.set(CellBatch.PCI, lte, 301);
+        sample.cells.set(CellBatch.CHANNEL, lte, 1850);
+        sample.cells.set(CellBatch.DBM, lte, -95);
+        sample.cells.set(CellBatch.RSRP, lte, -95);
+        sample.cells.set(CellBatch.RSRQ, lte, -11);
+        sample.cells.set(CellBatch.SINR, lte, 13);
+        int nr = sample.cells.add(1, CellBatch.RAT_NR, false);
+        sample.cells.set(CellBatch.CHANNEL, nr, 636_666);
+        sample.cells.set(CellBatch.RSRP, nr, -104);
+        sample.cells.set(CellBatch.SINR, nr, 100_000);
+        writer.write(sample);
+        sample.cells.clear();
+        sample.timestampMillis = 3000;
+        writer.write(sample);
+        writer.close();
+
+        BinarySessionReader reader = new BinarySessionReader(new ByteArrayInputStream(binary.toByteArray()));
+        Sample read = new Sample(2);
+        assertTrue(reader.next(read));
+        assertEquals(2, read.cells.size());
+        assertEquals(CellBatch.RAT_LTE, read.cells.get(CellBatch.RAT, 0));
+        assertEquals(1, read.cells.get(CellBatch.REGISTERED, 0));
+        assertEquals(301, read.cells.get(CellBatch.PCI, 0));
+        assertEquals(1850, read.cells.get(CellBatch.CHANNEL, 0));
+        assertEquals(-11, read.cells.get(CellBatch.RSRQ, 0));
+        assertEquals(13, read.cells.get(CellBatch.SINR, 0));
+        assertEquals(1, read.cells.get(CellBatch.SLOT, 1));
+        assertEquals(CellBatch.RAT_NR, read.cells.get(CellBatch.RAT, 1));
+        assertEquals(0, read.cells.get(CellBatch.REGISTERED, 1));
+        assertEquals(CellBatch.UNAVAILABLE, read.cells.get(CellBatch.PCI, 1));
+        assertEquals(636_666, read.cells.get(CellBatch.CHANNEL, 1));
+        assertEquals(-104, read.cells.get(CellBatch.RSRP, 1));
+        assertEquals(CellBatch.UNAVAILABLE, read.cells.get(CellBatch.DBM, 1));
+        assertEquals(CellBatch.UNAVAILABLE, read.cells.get(CellBatch.SINR, 1));
+
+        assertTrue(reader.next(read));
+        assertEquals(3000, read.timestampMillis);
+        assertEquals(0, read.cells.size());
+        assertFalse(reader.next(read));
+    }
+
+    @Test
+    public void fixQualityRoundTripsAndExportsAsColumns() throws IOException {
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        BinarySessionWriter writer = new BinarySessionWriter(binary, 1, 30, 60_000);
+        Sample sample = new Sample(1);
+        sample.operatorNames[0] = "Robi";
+        sample.dbm[0] = -90;
+        sample.timestampMillis = 1000;
+        sample.setLocation(23.81, 90.41);
+        sample.fixAgeMillis = 350;
+        sample.accuracyDecimeters = 42;
+        writer.write(sample);
+        sample.timestampMillis = 2000;
+        sample.clearLocation();
+        sample.fixAgeMillis = 120_000;
+        sample.accuracyDecimeters = Sample.NO_ACCURACY;
+        writer.write(sample);
+        sample.timestampMillis = 3000;
+        sample.clearFixQuality();
+        writer.write(sample);
+        writer.close();
+
+        BinarySessionReader reader = new BinarySessionReader(new ByteArrayInputStream(binary.toByteArray()));
+        Sample read = new Sample(1);
+        assertTrue(reader.next(read));
+        assertEquals(350, read.fixAgeMillis);
+        assertEquals(42, read.accuracyDecimeters);
+        assertTrue(reader.next(read));
+        assertEquals(0xFFFF, read.fixAgeMillis);
+        assertEquals(Sample.NO_ACCURACY, read.accuracyDecimeters);
+        assertTrue(reader.next(read));
+        assertEquals(Sample.NO_FIX_AGE, read.fixAgeMillis);
+        assertFalse(reader.next(read));
+
+        StringWriter csv = new StringWriter();
+        CsvExporter.export(new ByteArrayInputStream(binary.toByteArray()), csv, ZONE, true);
+        assertEquals(SampleEncoder.csvHeader(1, true)
+                + "1970-01-01 06:00:01,23.810000,90.410000,Robi,-90,350,4.2\n"
+                + "1970-01-01 06:00:02,0.0,0.0,Robi,-90,65535,N/A\n"
+                + "1970-01-01 06:00:03,0.0,0.0,Robi,-90,N/A,N/A\n", csv.toString());
+    }
+
+    @Test
+    public void readsVersionThreeRecordsWithoutTagFlag() throws IOException {
+        ByteBuffer v3 = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+        v3.put(BinarySessionWriter.MAGIC).put((byte) 3).put((byte) 1).putShort((short) 0);
+        v3.put((byte) BinarySessionWriter.KIND_KEY).putLong(1000).putInt(0).putInt(0).putInt(-90);
+        // A DELTA record without a fix or quality: tag 0, which ends a version 4 session.
+        v3.put((byte) BinarySessionWriter.KIND_DELTA).putShort((short) 1000).putShort((short) 0)
+                .putShort((short) 0).put((byte) -91);
+
+        BinarySessionReader reader = new BinarySessionReader(new ByteArrayInputStream(v3.array(), 0, v3.position()));
+        Sample read = new Sample(1);
+        assertTrue(reader.next(read));
+        assertTrue(reader.next(read));
+        assertEquals(2000, read.timestampMillis);
+        assertEquals(-91, read.dbm[0]);
+        assertFalse(reader.next(read));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsForeignFiles() throws IOException {
+        new BinarySessionReader(new ByteArrayInputStream("Timestamp,Latitude\n".getBytes(StandardCharsets.UTF_8)));
+    }
+}
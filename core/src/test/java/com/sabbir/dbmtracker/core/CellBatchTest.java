@@ -0,0 +1,42 @@
+package com.sabbir.dbmtracker.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class CellBatchTest {
+
+    @Test
+    public void growsAndDefaultsToUnavailable() {
+        CellBatch batch = new CellBatch(1);
+        for (int i = 0; i < 40; i++) {
+            int row = batch.add(i % 2, CellBatch.RAT_LTE, i == 0);
+            batch.set(CellBatch.RSRP, row, -80 - i);
+        }
+        assertEquals(40, batch.size());
+        assertEquals(1, batch.get(CellBatch.REGISTERED, 0));
+        assertEquals(0, batch.get(CellBatch.REGISTERED, 39));
+        assertEquals(-119, batch.get(CellBatch.RSRP, 39));
+        assertEquals(CellBatch.UNAVAILABLE, batch.get(CellBatch.SINR, 39));
+    }
+
+    @Test
+    public void copyReplacesContentsAndClearResets() {
+        CellBatch source = new CellBatch(4);
+        int row = source.add(1, CellBatch.RAT_NR, true);
+        source.set(CellBatch.SINR, row, 21);
+        CellBatch target = new CellBatch(0);
+        target.add(0, CellBatch.RAT_GSM, false);
+        target.add(0, CellBatch.RAT_GSM, false);
+
+        target.copyFrom(source);
+        assertEquals(1, target.size());
+        assertEquals(CellBatch.RAT_NR, target.get(CellBatch.RAT, 0));
+        assertEquals(21, target.get(CellBatch.SINR, 0));
+
+        target.clear();
+        assertEquals(0, target.size());
+        assertEquals(0, target.add(0, CellBatch.RAT_WCDMA, false));
+        assertEquals(CellBatch.UNAVAILABLE, target.get(CellBatch.SINR, 0));
+    }
+}
@@ -0,0 +1,61 @@
+package com.sabbir.dbmtracker.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class CellCaptureTest {
+
+    /** A cell as {rat, registered, pci, channel, dbm, rsrp, rsrq, sinr}. */
+    private static final CellCapture.Reader<int[]> READER = new CellCapture.Reader<int[]>() {
+        @Override
+        public int rat(int[] cell) {
+            return cell[0];
+        }
+
+        @Override
+        public boolean registered(int[] cell) {
+            return cell[1] != 0;
+        }
+
+        @Override
+        public int get(int[] cell, int rat, int column) {
+            return cell[column - CellBatch.PCI + 2];
+        }
+    };
+
+    @Test
+    public void copiesOnlyTheMetricsEachRatReports() {
+        List<int[]> cells = Arrays.asList(
+                new int[] {CellBatch.RAT_LTE, 1, 312, 1300, -97, -98, -11, 7},
+                new int[] {CellBatch.RAT_UNKNOWN, 0, 1, 2, 3, 4, 5, 6},
+                new int[] {CellBatch.RAT_GSM, 0, 41, 62, -89, -1, -1, -1},
+                new int[] {CellBatch.RAT_CDMA, 0, 9, 9, -80, -1, -1, -1});
+        CellBatch batch = new CellBatch(2);
+        CellCapture.extract(cells, 1, batch, READER);
+
+        assertEquals(3, batch.size());
+        assertEquals(1, batch.get(CellBatch.SLOT, 0));
+        assertEquals(1, batch.get(CellBatch.REGISTERED, 0));
+        assertEquals(7, batch.get(CellBatch.SINR, 0));
+        assertEquals(-98, batch.get(CellBatch.RSRP, 0));
+
+        assertEquals(CellBatch.RAT_GSM, batch.get(CellBatch.RAT, 1));
+        assertEquals(62, batch.get(CellBatch.CHANNEL, 1));
+        assertEquals(-89, batch.get(CellBatch.DBM, 1));
+        assertEquals(CellBatch.UNAVAILABLE, batch.get(CellBatch.RSRP, 1));
+
+        assertEquals(CellBatch.UNAVAILABLE, batch.get(CellBatch.PCI, 2));
+        assertEquals(-80, batch.get(CellBatch.DBM, 2));
+    }
+
+    @Test
+    public void toleratesMissingCellList() {
+        CellBatch batch = new CellBatch(1);
+        CellCapture.extract(null, 0, batch, READER);
+        assertEquals(0, batch.size());
+    }
+}
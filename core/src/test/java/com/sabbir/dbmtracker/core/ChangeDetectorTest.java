@@ -0,0 +1,113 @@
+package com.sabbir.dbmtracker.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ChangeDetectorTest {
+
+    private static final double MIN_DISTANCE_METERS = 25;
+    private static final int MIN_DBM_DELTA = 3;
+    private static final long MAX_SILENCE_MS = 60_000;
+
+    /**
+     * Recorded-style trace at 1 Hz: 20 min parked, 30 min driving at ~12 m/s,
+     * 20 min parked. GPS jitters by a couple of metres and signal by +/-1 dB.
+     */
+    private static List<Sample> trace() {
+        Random random = new Random(7);
+        List<Sample> trace = new ArrayList<>();
+        double lat = 23.810332;
+        double lon = 90.412518;
+        double heading = 0;
+        long time = 1_700_000_000_000L;
+        for (int second = 0; second < 70 * 60; second++) {
+            boolean driving = second >= 20 * 60 && second < 50 * 60;
+            if (driving) {
+                heading += (random.nextDouble() - 0.5) * 0.2;
+                lat += 12 * Math.cos(heading) / 111_320.0;
+                lon += 12 * Math.sin(heading) / (111_320.0 * Math.cos(Math.toRadians(lat)));
+            }
+            Sample sample = new Sample(2);
+            sample.timestampMillis = time + second * 1000L;
+            sample.setLocation(lat + random.nextGaussian() * 1.5 / 111_320.0,
+                    lon + random.nextGaussian() * 1.5 / 111_320.0);
+            int base = driving ? -75 - (second / 20) % 30 : -88;
+            sample.dbm[0] = base + random.nextInt(3) - 1;
+            sample.dbm[1] = base - 10 + random.nextInt(3) - 1;
+            trace.add(sample);
+        }
+        return trace;
+    }
+
+    @Test
+    public void replayCutsRowsAndKeepsRouteCovered() {
+        List<Sample> trace = trace();
+        int fixedRows = trace.size() / 2;
+
+        ChangeDetector detector = new ChangeDetector(2, MIN_DISTANCE_METERS, MIN_DBM_DELTA, MAX_SILENCE_MS);
+        Sample lastEmitted = null;
+        int eventRows = 0;
+        int parkedRows = 0;
+        for (int i = 0; i < trace.size(); i++) {
+            Sample sample = trace.get(i);
+            if (detector.shouldEmit(sample)) {
+                eventRows++;
+                boolean parked = i < 20 * 60 || i >= 50 * 60;
+                if (parked) {
+                    parkedRows++;
+                }
+                if (lastEmitted != null) {
+                    assertTrue(sample.timestampMillis - lastEmitted.timestampMillis <= MAX_SILENCE_MS);
+                }
+                lastEmitted = sample;
+            }
+            double distance = ChangeDetector.distanceMeters(lastEmitted.latitudeE6, lastEmitted.longitudeE6,
+                    sample.latitudeE6, sample.longitudeE6);
+            assertTrue("point " + i + " is " + distance + " m from the last row", distance < MIN_DISTANCE_METERS);
+        }
+
+        assertTrue("event-driven rows " + eventRows + " of " + fixedRows, eventRows * 2 < fixedRows);
+        assertTrue("parked rows " + parkedRows, parkedRows < 40 * 60 / 2 / 10);
+    }
+
+    @Test
+    public void emitsOnSignalChangeAndHeartbeat() {
+        ChangeDetector detector = new ChangeDetector(1, MIN_DISTANCE_METERS, MIN_DBM_DELTA, MAX_SILENCE_MS);
+        Sample sample = new Sample(1);
+        sample.setLocation(10, 10);
+        sample.dbm[0] = -90;
+        assertTrue(detector.shouldEmit(sample));
+
+        sample.timestampMillis = 1000;
+        sample.dbm[0] = -92;
+        assertFalse(detector.shouldEmit(sample));
+        sample.dbm[0] = -93;
+        assertTrue(detector.shouldEmit(sample));
+
+        sample.dbm[0] = Sample.NO_SIGNAL;
+        assertTrue(detector.shouldEmit(sample));
+        sample.operatorNames[0] = "Robi";
+        assertTrue(detector.shouldEmit(sample));
+
+        sample.clearLocation();
+        assertTrue(detector.shouldEmit(sample));
+        sample.timestampMillis = 1000 + MAX_SILENCE_MS - 1;
+        assertFalse(detector.shouldEmit(sample));
+        sample.timestampMillis = 1000 + MAX_SILENCE_MS;
+        assertTrue(detector.shouldEmit(sample));
+    }
+
+    @Test
+    public void distanceMatchesKnownValue() {
+        // One arc-minute of latitude is one nautical mile.
+        double meters = ChangeDetector.distanceMeters(0, 0, Sample.toE6(1 / 60.0), 0);
+        assertEquals(1853.2, meters, 1.0);
+    }
+}
@@ -0,0 +1,46 @@
+package com.sabbir.dbmtracker.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketBoundsCoverEveryValue() {
+        for (long value = 0; value < 100_000; value++) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(value + " above its bucket", value <= LatencyHistogram.upperBound(index));
+            assertTrue(value + " below its bucket", index == 0 || value > LatencyHistogram.upperBound(index - 1));
+        }
+        assertTrue(LatencyHistogram.upperBound(LatencyHistogram.indexOf(Long.MAX_VALUE)) >= 0);
+    }
+
+    @Test
+    public void percentilesStayWithinBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(3);
+        long[] values = new long[50_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.exp(random.nextDouble() * 12);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double q : new double[]{0.5, 0.9, 0.99}) {
+            long exact = values[(int) Math.ceil(q * values.length) - 1];
+            long reported = histogram.percentile(q);
+            assertTrue(q + ": " + reported + " vs " + exact, reported >= exact && reported <= exact * 1.125 + 1);
+        }
+        assertEquals(values.length, histogram.count());
+        assertEquals(values[values.length - 1], histogram.percentile(1.0));
+    }
+
+    @Test
+    public void emptyHistogramReportsZero() {
+        assertEquals(0, new LatencyHistogram().percentile(0.99));
+    }
+}
@@ -0,0 +1,118 @@
+package com.sabbir.dbmtracker.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LocationStageTest {
+
+    private static final long T0 = 1_735_689_600_000L;
+    private static final int LAT = 23_810_000;
+    private static final int LON = 90_410_000;
+
+    private final List<long[]> out = new ArrayList<>();
+    private final LocationStage stage = new LocationStage(new LocationStage.Policy(), 1, sample ->
+            out.add(new long[]{sample.timestampMillis, sample.hasLocation ? 1 : 0, sample.latitudeE6,
+                    sample.longitudeE6, sample.fixAgeMillis, sample.accuracyDecimeters}));
+    private final Sample sample = new Sample(1);
+
+    private void submit(long t, long now) {
+        sample.timestampMillis = t;
+        stage.submit(sample, now);
+    }
+
+    @Test
+    public void interpolatesSamplesBetweenFixesAtTheirOwnTime() {
+        assertEquals(LocationStage.FIX_ACCEPTED, stage.onFix(T0, LAT, LON, 4f, T0));
+        submit(T0 + 250, T0 + 250);
+        submit(T0 + 500, T0 + 500);
+        assertEquals(0, out.size());
+        assertEquals(2, stage.heldCount());
+        // 44 m north 0.8 s later.
+        assertEquals(LocationStage.FIX_ACCEPTED, stage.onFix(T0 + 800, LAT + 400, LON, 6f, T0 + 900));
+        assertEquals(2, out.size());
+        assertTrue(Arrays.equals(new long[]{T0 + 250, 1, LAT + 125, LON, 250, 60}, out.get(0)));
+        assertTrue(Arrays.equals(new long[]{T0 + 500, 1, LAT + 250, LON, 300, 60}, out.get(1)));
+        assertEquals(2, stage.interpolated());
+    }
+
+    @Test
+    public void gatesBadFixes() {
+        assertEquals(LocationStage.FIX_NULL_ISLAND, stage.onFix(T0, 0, 0, 3f, T0));
+        assertEquals(LocationStage.FIX_INACCURATE, stage.onFix(T0, LAT, LON, 120f, T0));
+        assertEquals(LocationStage.FIX_STALE, stage.onFix(T0 - 60_000, LAT, LON, 3f, T0));
+        assertEquals(LocationStage.FIX_ACCEPTED, stage.onFix(T0, LAT, LON, Float.NaN, T0));
+        assertEquals(LocationStage.FIX_OUT_OF_ORDER, stage.onFix(T0, LAT + 10, LON, 3f, T0));
+        // 1 km in one second is not a car.
+        assertEquals(LocationStage.FIX_OUTLIER, stage.onFix(T0 + 1000, LAT + 9000, LON, 5f, T0 + 1000));
+        assertEquals(LocationStage.FIX_ACCEPTED, stage.onFix(T0 + 2000, LAT + 20, LON, 5f, T0 + 2000));
+        assertEquals(1, stage.fixes(LocationStage.FIX_OUTLIER));
+        assertEquals(2, stage.fixes(LocationStage.FIX_ACCEPTED));
+    }
+
+    @Test
+    public void believesAPersistentJump() {
+        stage.onFix(T0, LAT, LON, 5f, T0);
+        for (int i = 1; i <= 3; i++) {
+            assertEquals(LocationStage.FIX_OUTLIER, stage.onFix(T0 + i * 1000, LAT + 90_000, LON, 5f, T0 + i * 1000));
+        }
+        assertEquals(LocationStage.FIX_ACCEPTED, stage.onFix(T0 + 4000, LAT + 90_000, LON, 5f, T0 + 4000));
+        // No interpolation across the jump: a sample just before it takes the nearest fix.
+        sample.timestampMillis = T0 + 3900;
+        stage.locate(sample);
+        assertEquals(LAT + 90_000, sample.latitudeE6);
+        assertEquals(100, sample.fixAgeMillis);
+    }
+
+    @Test
+    public void releasesAfterHoldAndMarksStaleRows() {
+        // No fix yet, as at a cold start: not held at all, and without a position.
+        submit(T0, T0);
+        assertEquals(1, out.size());
+        assertEquals(0, stage.heldCount());
+        assertEquals(0, out.get(0)[1]);
+        assertEquals(Sample.NO_FIX_AGE, out.get(0)[4]);
+
+        stage.onFix(T0 + 2000, LAT, LON, 3f, T0 + 2000);
+        // Taken a second before the first fix and delivered after it: nearest fix, not interpolated.
+        submit(T0 + 1000, T0 + 2100);
+        assertEquals(2, out.size());
+        assertTrue(Arrays.equals(new long[]{T0 + 1000, 1, LAT, LON, 1000, 30}, out.get(1)));
+
+        // No later fix: released with the nearest one once the hold runs out.
+        submit(T0 + 3000, T0 + 3000);
+        assertEquals(2, out.size());
+        stage.release(T0 + 8000);
+        assertTrue(Arrays.equals(new long[]{T0 + 3000, 1, LAT, LON, 1000, 30}, out.get(2)));
+
+        // Long after the fix: the row keeps its age but loses the stale position.
+        submit(T0 + 60_000, T0 + 60_000);
+        stage.flush();
+        long[] stale = out.get(3);
+        assertEquals(0, stale[1]);
+        assertEquals(58_000, stale[4]);
+        assertEquals(Sample.NO_ACCURACY, stale[5]);
+    }
+
+    @Test
+    public void keepsOrderWhenHoldOverflows() {
+        stage.onFix(T0, LAT, LON, 3f, T0);
+        int capacity = new LocationStage.Policy().holdCapacity;
+        for (int i = 1; i <= capacity + 5; i++) {
+            submit(T0 + i * 100, T0 + i * 100);
+        }
+        assertEquals(5, out.size());
+        stage.flush();
+        assertEquals(capacity + 5, out.size());
+        for (int i = 1; i < out.size(); i++) {
+            assertTrue(out.get(i)[0] > out.get(i - 1)[0]);
+        }
+        assertFalse(stage.heldCount() > 0);
+    }
+}
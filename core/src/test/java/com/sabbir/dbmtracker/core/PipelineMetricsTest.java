@@ -0,0 +1,86 @@
+package com.sabbir.dbmtracker.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+public class PipelineMetricsTest {
+
+    @Test
+    public void snapshotReportsRatesAndAges() {
+        PipelineMetrics metrics = new PipelineMetrics();
+        MetricsSnapshot first = metrics.snapshot(1_000, null, null);
+        assertEquals(-1, first.millisSinceFix);
+        assertEquals(0, first.signalColumnCount());
+
+        for (int i = 0; i < 20; i++) {
+            metrics.onSampleWritten(100);
+        }
+        metrics.onFix(3_500);
+        metrics.onSignal(1, 4_000);
+        SampleQueue queue = new SampleQueue(8, 2);
+        queue.offer(new Sample(2));
+
+        MetricsSnapshot second = metrics.snapshot(6_000, first, queue);
+        assertEquals(20, second.samplesWritten);
+        assertEquals(4.0, second.samplesPerSecond, 1e-9);
+        assertEquals(2_500, second.millisSinceFix);
+        assertEquals(2, second.signalColumnCount());
+        assertEquals(-1, second.millisSinceSignal(0));
+        assertEquals(2_000, second.millisSinceSignal(1));
+        assertEquals(100, second.writeP99Micros);
+        assertEquals(1, second.queueDepth);
+        assertEquals(8, second.queueCapacity);
+    }
+
+    @Test
+    public void wakeLockTimeAccumulatesAcrossHolds() {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.onWakeLockAcquired(1_000);
+        metrics.onWakeLockAcquired(2_000);
+        metrics.onWakeLockReleased(4_000);
+        metrics.onWakeLockReleased(5_000);
+        metrics.onWakeLockAcquired(10_000);
+        assertEquals(3_000 + 500, metrics.snapshot(10_500, null, null).wakeLockHeldMillis);
+    }
+
+    @Test
+    public void countsBytesThatReachTheStream() throws IOException {
+        PipelineMetrics metrics = new PipelineMetrics();
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        try (CountingOutputStream out = new CountingOutputStream(sink, metrics)) {
+            out.write(new byte[100], 10, 50);
+            out.write(7);
+        }
+        assertEquals(51, metrics.snapshot(0, null, null).bytesWritten);
+        assertEquals(51, sink.size());
+    }
+
+    @Test
+    public void instrumentedWriterReportsTheWrappedPosition() throws IOException {
+        SampleWriter writer = new SampleWriter() {
+            @Override
+            public void write(Sample sample) {
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+
+            @Override
+            public long position() {
+                return 4096;
+            }
+        };
+        try (SampleWriter instrumented = new InstrumentedSampleWriter(writer, new PipelineMetrics())) {
+            assertEquals(4096, instrumented.position());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.sabbir.dbmtracker.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class PreallocatedFileOutputStreamTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void growsByExtentsAndTrimsOnClose() throws IOException {
+        File file = folder.newFile("segment.dbms");
+        Random random = new Random(7);
+        byte[] expected = new byte[5000];
+        random.nextBytes(expected);
+
+        PreallocatedFileOutputStream out = new PreallocatedFileOutputStream(file, ByteBuffer.allocateDirect(64), 1024);
+        int written = 0;
+        while (written < expected.length) {
+            int count = Math.min(expected.length - written, random.nextInt(300));
+            if (count == 1) {
+                out.write(expected[written]);
+            } else {
+                out.write(expected, written, count);
+            }
+            written += count;
+            assertEquals(written, out.length());
+        }
+        out.flush();
+        assertEquals(5120, file.length());
+        out.close();
+        out.close();
+
+        assertEquals(expected.length, file.length());
+        assertArrayEquals(expected, Files.readAllBytes(file.toPath()));
+    }
+
+    @Test
+    public void allocatesEachExtentOnce() throws IOException {
+        File file = folder.newFile("segment.dbms");
+        List<Long> extents = new ArrayList<>();
+        PreallocatedFileOutputStream.Allocator recording = (raf, offset, length) -> {
+            extents.add(offset);
+            extents.add(length);
+            PreallocatedFileOutputStream.EXTEND.allocate(raf, offset, length);
+        };
+        try (PreallocatedFileOutputStream out = new PreallocatedFileOutputStream(file,
+                ByteBuffer.allocateDirect(64), 1024, recording)) {
+            for (int i = 0; i < 82; i++) {
+                out.write(new byte[50]);
+            }
+        }
+        assertEquals(Arrays.asList(0L, 1024L, 1024L, 1024L, 2048L, 1024L, 3072L, 1024L, 4096L, 1024L), extents);
+        assertEquals(4100, file.length());
+    }
+
+    @Test
+    public void unclosedSessionEndsAtPreallocatedTail() throws IOException {
+        File file = folder.newFile("segment.dbms");
+        PreallocatedFileOutputStream out = new PreallocatedFileOutputStream(file);
+        BinarySessionWriter writer = new BinarySessionWriter(out, 1, 10, 60_000);
+        Sample sample = new Sample(1);
+        sample.operatorNames[0] = "Robi";
+        for (int i = 0; i < 25; i++) {
+            sample.timestampMillis = 1000L * i;
+            // No fix and no quality: before version 4 these were tag 0 records.
+            sample.clearLocation();
+            sample.dbm[0] = -90 - i % 5;
+            writer.write(sample);
+        }
+        // Killed here: two batches reached the file, the third did not.
+        assertEquals(PreallocatedFileOutputStream.DEFAULT_EXTENT_BYTES, file.length());
+
+        long rows = 0;
+        try (BinarySessionReader reader = new BinarySessionReader(new FileInputStream(file))) {
+            Sample read = new Sample(1);
+            while (reader.next(read)) {
+                assertEquals(1000L * rows, read.timestampMillis);
+                rows++;
+            }
+            assertEquals(writer.bytesWritten(), reader.recordEnd());
+        }
+        assertEquals(20, rows);
+        byte[] tail = Arrays.copyOfRange(Files.readAllBytes(file.toPath()), (int) writer.bytesWritten(),
+                (int) writer.bytesWritten() + 16);
+        assertArrayEquals(new byte[16], tail);
+        out.close();
+        assertEquals(writer.bytesWritten(), file.length());
+    }
+}
@@ -0,0 +1,111 @@
+package com.sabbir.dbmtracker.core;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+public class SampleEncoderTest {
+
+    /** The row format used by TrackingService.writeDataToCSV() before the encoder. */
+    private static String legacyRow(long millis, TimeZone zone, boolean hasFix, double lat, double lon,
+                                    String sim1, int dbm1, String sim2, int dbm2) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
+        format.setTimeZone(zone);
+        String timestamp = format.format(new Date(millis));
+        return String.format(Locale.US, "%s,%s,%s,%s,%s,%s,%s\n",
+                timestamp,
+                hasFix ? String.format(Locale.US, "%.6f", lat) : "0.0",
+                hasFix ? String.format(Locale.US, "%.6f", lon) : "0.0",
+                sim1, dbm1 == -999 ? "N/A" : String.valueOf(dbm1),
+                sim2, dbm2 == -999 ? "N/A" : String.valueOf(dbm2));
+    }
+
+    private static String encode(SampleEncoder encoder, Sample sample) {
+        int length = encoder.encode(sample);
+        return new String(encoder.buffer(), 0, length);
+    }
+
+    @Test
+    public void matchesLegacyFormatOnRandomSamples() {
+        Random random = new Random(42);
+        for (String zoneId : new String[]{"UTC", "Asia/Dhaka", "America/St_Johns", "Pacific/Kiritimati"}) {
+            TimeZone zone = TimeZone.getTimeZone(zoneId);
+            SampleEncoder encoder = new SampleEncoder(zone);
+            Sample sample = new Sample(2);
+            for (int i = 0; i < 20_000; i++) {
+                long millis = (long) (random.nextDouble() * 4_102_444_800_000L);
+                boolean hasFix = random.nextInt(10) != 0;
+                double lat = Sample.toE6(random.nextDouble() * 180 - 90) / 1e6;
+                double lon = Sample.toE6(random.nextDouble() * 360 - 180) / 1e6;
+                int dbm1 = random.nextInt(8) == 0 ? Sample.NO_SIGNAL : -40 - random.nextInt(100);
+                int dbm2 = random.nextInt(8) == 0 ? Sample.NO_SIGNAL : -40 - random.nextInt(100);
+
+                sample.timestampMillis = millis;
+                if (hasFix) {
+                    sample.setLocation(lat, lon);
+                } else {
+                    sample.clearLocation();
+                }
+                sample.operatorNames[0] = "Grameenphone";
+                sample.operatorNames[1] = "Robi";
+                sample.dbm[0] = dbm1;
+                sample.dbm[1] = dbm2;
+
+                assertEquals(legacyRow(millis, zone, hasFix, lat, lon, "Grameenphone", dbm1, "Robi", dbm2),
+                        encode(encoder, sample));
+            }
+        }
+    }
+
+    @Test
+    public void roundsRawCoordinatesLikePercentSixF() {
+        SampleEncoder encoder = new SampleEncoder(TimeZone.getTimeZone("UTC"));
+        Sample sample = new Sample(2);
+        double[][] fixes = {
+                {23.8103324999, 90.4125185001},
+                {-33.8688197, 151.2092955},
+                {0.0000004, -0.0000006},
+                {-89.9999999, 179.9999996},
+                // Half-way: %.6f rounds away from zero, on both sides.
+                {-70.1387655, 70.1387655},
+                {-0.0000005, 0.0000005},
+                {-33.8688195, -151.2092945},
+                {-23.0000015, -90.0000025},
+        };
+        for (double[] fix : fixes) {
+            sample.setLocation(fix[0], fix[1]);
+            assertEquals(legacyRow(0, TimeZone.getTimeZone("UTC"), true, fix[0], fix[1],
+                    "Unknown", -999, "Unknown", -999), encode(encoder, sample));
+        }
+        // Raw fixes with a 5 in the seventh decimal, as a receiver may report them.
+        Random random = new Random(5);
+        for (int i = 0; i < 20_000; i++) {
+            double lat = (random.nextInt(180_000_000) - 90_000_000 + 0.5) / 1e6;
+            double lon = (random.nextInt(360_000_000) - 180_000_000 + 0.5) / 1e6;
+            sample.setLocation(lat, lon);
+            assertEquals(legacyRow(0, TimeZone.getTimeZone("UTC"), true, lat, lon,
+                    "Unknown", -999, "Unknown", -999), encode(encoder, sample));
+        }
+    }
+
+    @Test
+    public void growsForLongOperatorNamesAndManySims() {
+        SampleEncoder encoder = new SampleEncoder(TimeZone.getTimeZone("UTC"));
+        Sample sample = new Sample(4);
+        StringBuilder longName = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            longName.append('x');
+        }
+        sample.operatorNames[2] = longName.toString();
+        sample.dbm[3] = Integer.MIN_VALUE + 1;
+        String row = encode(encoder, sample);
+        assertEquals("1970-01-01 00:00:00,0.0,0.0,Unknown,N/A,Unknown,N/A," + longName
+                + ",N/A,Unknown," + (Integer.MIN_VALUE + 1) + "\n", row);
+    }
+}
@@ -0,0 +1,99 @@
+package com.sabbir.dbmtracker.core;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SampleQueueTest {
+
+    /** Checks samples arrive in timestamp order without gaps. */
+    static class OrderCheckingWriter implements SampleWriter {
+        long expected;
+        long written;
+
+        @Override
+        public void write(Sample sample) {
+            assertEquals(expected++, sample.timestampMillis);
+            assertEquals((int) sample.timestampMillis, sample.dbm[0]);
+            written++;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    public void dropsAndCountsWhenFull() throws IOException {
+        SampleQueue queue = new SampleQueue(4, 1);
+        Sample sample = new Sample(1);
+        for (int i = 0; i < 6; i++) {
+            sample.timestampMillis = i;
+            sample.dbm[0] = i;
+            boolean accepted = queue.offer(sample);
+            assertEquals(i < 4, accepted);
+        }
+        assertEquals(4, queue.depth());
+        assertEquals(2, queue.drops());
+        assertEquals(4, queue.highWaterMark());
+
+        OrderCheckingWriter writer = new OrderCheckingWriter();
+        assertEquals(4, queue.drainTo(writer));
+        assertEquals(0, queue.depth());
+        assertTrue(queue.offer(sample));
+    }
+
+    @Test
+    public void failedWriteIsConsumed() throws IOException {
+        SampleQueue queue = new SampleQueue(4, 1);
+        Sample sample = new Sample(1);
+        queue.offer(sample);
+        queue.offer(sample);
+        SampleWriter failing = new OrderCheckingWriter() {
+            @Override
+            public void write(Sample s) {
+                throw new IllegalStateException("disk full");
+            }
+        };
+        try {
+            queue.drainTo(failing);
+        } catch (IllegalStateException expected) {
+            // first sample is dropped, second stays queued
+        }
+        assertEquals(1, queue.depth());
+    }
+
+    @Test
+    public void concurrentProducerAndConsumerKeepOrder() throws Exception {
+        final int total = 2_000_000;
+        SampleQueue queue = new SampleQueue(1024, 1);
+        OrderCheckingWriter writer = new OrderCheckingWriter();
+        Thread producer = new Thread(() -> {
+            Sample sample = new Sample(1);
+            for (int i = 0; i < total; ) {
+                sample.timestampMillis = i;
+                sample.dbm[0] = i;
+                if (queue.offer(sample)) {
+                    i++;
+                } else {
+                    Thread.yield();
+                }
+            }
+        });
+        producer.start();
+        while (writer.written < total) {
+            queue.drainTo(writer);
+        }
+        producer.join();
+        assertEquals(total, writer.written);
+        assertFalse(queue.highWaterMark() > queue.capacity());
+    }
+}
@@ -0,0 +1,83 @@
+package com.sabbir.dbmtracker.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SegmentedSessionWriterTest {
+
+    @Test
+    public void startsNewSegmentWhenSimColumnsChange() throws IOException {
+        List<ByteArrayOutputStream> segments = new ArrayList<>();
+        SegmentedSessionWriter writer = new SegmentedSessionWriter((index, simCount) -> {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            segments.add(out);
+            return new BinarySessionWriter(out, simCount, 30, 60_000);
+        });
+        Sample sample = new Sample(2);
+        sample.timestampMillis = 0;
+        writer.write(sample);
+        sample.timestampMillis = 2000;
+        writer.write(sample);
+        sample.setSimCount(3);
+        sample.operatorNames[2] = "eSIM";
+        sample.dbm[2] = -101;
+        sample.timestampMillis = 4000;
+        writer.write(sample);
+        writer.close();
+
+        assertEquals(2, writer.segmentCount());
+        StringWriter csv = new StringWriter();
+        CsvExporter.export(new ByteArrayInputStream(segments.get(1).toByteArray()), csv, TimeZone.getTimeZone("UTC"));
+        assertEquals(SampleEncoder.csvHeader(3)
+                + "1970-01-01 00:00:04,0.0,0.0,Unknown,N/A,Unknown,N/A,eSIM,-101\n", csv.toString());
+        assertTrue(csv.toString().startsWith("Timestamp,Latitude,Longitude,SIM1 Name"));
+    }
+
+    @Test
+    public void rollsOverOnSizeAndTimeAndReportsClosedSegments() throws IOException {
+        List<long[]> closed = new ArrayList<>();
+        SegmentedSessionWriter writer = new SegmentedSessionWriter(
+                (index, simCount) -> new BinarySessionWriter(new ByteArrayOutputStream(), simCount, 1, 60_000),
+                200, 10_000,
+                (index, simCount, first, last, records) -> closed.add(new long[]{index, first, last, records}));
+        Sample sample = new Sample(1);
+        // Jumps too large for a DELTA: 8-byte header, 11-byte name, then 21-byte KEY records, so nine per segment.
+        for (int i = 0; i < 12; i++) {
+            sample.timestampMillis = i * 1000L;
+            sample.setLocation(23.0 + i * 0.1, 90.0);
+            writer.write(sample);
+        }
+        // Then a slow drift in time: DELTA records, rolled by the 10 s span instead.
+        for (int i = 0; i < 25; i++) {
+            sample.timestampMillis = 2_000_000L + i * 1000L;
+            writer.write(sample);
+        }
+        writer.close();
+
+        assertEquals(5, writer.segmentCount());
+        assertEquals(5, closed.size());
+        assertEquals(9, closed.get(0)[3]);
+        assertEquals(0, closed.get(0)[1]);
+        assertEquals(8000, closed.get(0)[2]);
+        assertEquals(3, closed.get(1)[3]);
+        long[] spanned = closed.get(2);
+        assertEquals(2_000_000, spanned[1]);
+        assertEquals(2_009_000, spanned[2]);
+        assertEquals(10, spanned[3]);
+        long total = 0;
+        for (long[] segment : closed) {
+            total += segment[3];
+        }
+        assertEquals(37, total);
+    }
+}
@@ -0,0 +1,174 @@
+package com.sabbir.dbmtracker.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SessionCompactorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final long START = 1_735_689_600_000L;
+
+    /** Writes a session the way the service does: small rolled segments, listed in a manifest. */
+    private SessionManifest writeSession(File directory, String base, int rows, boolean close) throws IOException {
+        SessionManifest manifest = new SessionManifest(SessionManifest.fileFor(directory, base));
+        SegmentedSessionWriter writer = new SegmentedSessionWriter((index, simCount) -> {
+            File file = new File(directory, base + "_" + index + SessionStore.SESSION_EXTENSION);
+            return new IndexedSessionWriter(new BinarySessionWriter(new FileOutputStream(file), simCount, 30, 60_000),
+                    new FileOutputStream(SessionStore.indexFileFor(file)), 64);
+        }, 4096, Long.MAX_VALUE, (index, simCount, first, last, records) -> {
+            manifest.addSegment(new SessionManifest.Segment(base + "_" + index + SessionStore.SESSION_EXTENSION,
+                    simCount, first, last, records));
+            manifest.write();
+        });
+        Sample sample = new Sample(2);
+        sample.operatorNames[0] = "Grameenphone";
+        sample.operatorNames[1] = "Robi";
+        for (int i = 0; i < rows; i++) {
+            if (i == rows / 2) {
+                sample.setSimCount(3);
+                sample.operatorNames[2] = "eSIM";
+            }
+            sample.timestampMillis = START + (i / 2) * 1000L;
+            sample.setLocation(23.81 + i / 2 * 1e-4, 90.41);
+            sample.dbm[0] = -70 - (i / 2) % 40;
+            // Every other row repeats the one before it exactly.
+            writer.write(sample);
+        }
+        writer.close();
+        manifest.setClosed(close);
+        manifest.write();
+        return manifest;
+    }
+
+    private static List<long[]> readAll(SessionManifest manifest) throws IOException {
+        List<long[]> rows = new ArrayList<>();
+        Sample sample = new Sample(0);
+        try (SessionReader reader = new SessionReader(manifest)) {
+            while (reader.next(sample)) {
+                rows.add(new long[]{sample.timestampMillis, sample.simCount(), sample.latitudeE6, sample.dbm[0]});
+            }
+        }
+        return rows;
+    }
+
+    @Test
+    public void packsSegmentsDropsDuplicatesAndStaysReadable() throws IOException {
+        File directory = folder.newFolder();
+        SessionManifest written = writeSession(directory, "tracking_data_1", 4000, true);
+        assertTrue(written.segments().size() > 4);
+        List<long[]> before = readAll(written);
+        assertEquals(4000, before.size());
+
+        SessionCompactor compactor = new SessionCompactor(1 << 20);
+        assertTrue(compactor.compact(written.file()));
+        SessionManifest compacted = SessionManifest.read(written.file());
+        assertTrue(compacted.isCompacted());
+        // One packed segment per SIM column count.
+        assertEquals(2, compacted.segments().size());
+        assertEquals(2000, compacted.records());
+        assertEquals(2000, compactor.duplicatesDropped());
+        assertTrue(compactor.bytesOut() < compactor.bytesIn());
+
+        List<long[]> after = readAll(compacted);
+        assertEquals(2000, after.size());
+        for (int i = 0; i < after.size(); i++) {
+            long[] expected = before.get(i * 2);
+            long[] actual = after.get(i);
+            for (int c = 0; c < expected.length; c++) {
+                assertEquals(expected[c], actual[c]);
+            }
+        }
+        String[] left = directory.list();
+        for (String name : left) {
+            assertFalse(name, name.endsWith(SessionStore.SESSION_EXTENSION));
+        }
+
+        // Queries still prune by index inside the compressed segments.
+        SessionStore store = new SessionStore(directory);
+        long from = START + 500_000;
+        long to = from + 60_000;
+        List<long[]> matched = new ArrayList<>();
+        long count = store.query(from, to, null, new SampleWriter() {
+            @Override
+            public void write(Sample sample) {
+                matched.add(new long[]{sample.timestampMillis, sample.simCount(), sample.latitudeE6, sample.dbm[0]});
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        assertEquals(61, count);
+        assertEquals(from, matched.get(0)[0]);
+        assertEquals(to, matched.get(60)[0]);
+        assertTrue(store.blocksRead() < 5);
+    }
+
+    @Test
+    public void leavesOpenAndCompactedSessionsAlone() throws IOException {
+        File directory = folder.newFolder();
+        SessionManifest open = writeSession(directory, "tracking_data_2", 500, false);
+        SessionCompactor compactor = new SessionCompactor(1 << 20);
+        assertFalse(compactor.compact(open.file()));
+        assertEquals(open.segments().size(), SessionManifest.read(open.file()).segments().size());
+
+        open.setClosed(true);
+        open.write();
+        assertTrue(compactor.compact(open.file()));
+        assertFalse(compactor.compact(open.file()));
+    }
+
+    @Test
+    public void removesSegmentsLeftByAKillAfterTheManifestSwap() throws IOException {
+        File directory = folder.newFolder();
+        SessionManifest session = writeSession(directory, "tracking_data_3", 2000, true);
+        Map<File, byte[]> originals = new LinkedHashMap<>();
+        for (SessionManifest.Segment segment : session.segments()) {
+            File file = session.segmentFile(segment);
+            originals.put(file, Files.readAllBytes(file.toPath()));
+            File index = SessionStore.indexFileFor(file);
+            originals.put(index, Files.readAllBytes(index.toPath()));
+        }
+        // Another session whose name starts the same way is not touched.
+        SessionManifest other = writeSession(directory, "tracking_data_30", 100, false);
+        SessionCompactor compactor = new SessionCompactor(1 << 20);
+        assertTrue(compactor.compact(session.file()));
+        int compactedRows = readAll(SessionManifest.read(session.file())).size();
+        // Killed before the old segments were deleted: each shows up as a session of its own.
+        for (Map.Entry<File, byte[]> original : originals.entrySet()) {
+            Files.write(original.getKey().toPath(), original.getValue());
+        }
+        assertEquals(2 + originals.size() / 2, SessionManifest.listSessions(directory).size());
+
+        assertFalse(compactor.compact(session.file()));
+        for (File file : originals.keySet()) {
+            assertFalse(file.getName(), file.exists());
+        }
+        assertEquals(2, SessionManifest.listSessions(directory).size());
+        assertEquals(compactedRows, readAll(SessionManifest.read(session.file())).size());
+        assertEquals(other.segments().size(), SessionManifest.read(other.file()).segments().size());
+        for (SessionManifest.Segment segment : other.segments()) {
+            assertTrue(other.segmentFile(segment).exists());
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.sabbir.dbmtracker.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SessionExporterTest {
+
+    private static final long START = 1_735_689_600_000L;
+
+    /** In-memory source: a 1 Hz drive, a fix gap every 100 rows, and a third SIM for the second half. */
+    private static final class Drive implements SampleSource {
+        final int rows;
+        int row;
+
+        Drive(int rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public boolean next(Sample sample) {
+            if (row == rows) {
+                return false;
+            }
+            sample.setSimCount(row < rows / 2 ? 2 : 3);
+            sample.timestampMillis = START + row * 1000L + (row % 3);
+            sample.fixAgeMillis = row % 100 < 5 ? 40_000 + row % 100 : row % 1000;
+            sample.accuracyDecimeters = row % 100 < 5 ? Sample.NO_ACCURACY : 30 + row % 17;
+            if (row % 100 < 5) {
+                sample.clearLocation();
+            } else {
+                sample.hasLocation = true;
+                sample.latitudeE6 = 23_810_000 + row * 7;
+                sample.longitudeE6 = 90_410_000 - row * 3;
+            }
+            for (int i = 0; i < sample.simCount(); i++) {
+                sample.operatorNames[i] = i == 0 ? "Grameenphone" : i == 1 ? (row % 500 < 250 ? "Robi" : "Airtel")
+                        : "eSIM";
+                sample.dbm[i] = (row + i) % 11 == 0 ? Sample.NO_SIGNAL : -60 - (row * (i + 3)) % 65;
+            }
+            row++;
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static Sample single() {
+        Sample sample = new Sample(2);
+        sample.timestampMillis = START + 61_000;
+        sample.setLocation(23.8103324, 90.4125181);
+        sample.operatorNames[0] = "Grameen\"phone";
+        sample.operatorNames[1] = "R&bi";
+        sample.dbm[0] = -87;
+        sample.dbm[1] = Sample.NO_SIGNAL;
+        sample.fixAgeMillis = 1200;
+        sample.accuracyDecimeters = 45;
+        return sample;
+    }
+
+    @Test
+    public void geoJsonFeaturePerSample() throws IOException {
+        StringWriter out = new StringWriter();
+        GeoJsonSampleWriter writer = new GeoJsonSampleWriter(out);
+        Sample sample = single();
+        writer.write(sample);
+        sample.clearLocation();
+        sample.clearFixQuality();
+        writer.write(sample);
+        writer.close();
+        assertEquals("{\"type\":\"FeatureCollection\",\"features\":[\n"
+                + "{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[90.412518,23.810332]},"
+                + "\"properties\":{\"time\":\"2025-01-01T00:01:01Z\",\"sims\":[{\"name\":\"Grameen\\\"phone\","
+                + "\"dbm\":-87},{\"name\":\"R&bi\",\"dbm\":null}],\"fixAgeMs\":1200,\"accuracyM\":4.5}},\n"
+                + "{\"type\":\"Feature\",\"geometry\":null,"
+                + "\"properties\":{\"time\":\"2025-01-01T00:01:01Z\",\"sims\":[{\"name\":\"Grameen\\\"phone\","
+                + "\"dbm\":-87},{\"name\":\"R&bi\",\"dbm\":null}]}}\n]}\n", out.toString());
+    }
+
+    @Test
+    public void kmlColoursBySignalAndSkipsRowsWithoutFix() throws IOException {
+        StringWriter out = new StringWriter();
+        KmlSampleWriter writer = new KmlSampleWriter(out, "Drive <1>");
+        Sample sample = single();
+        writer.write(sample);
+        sample.clearLocation();
+        writer.write(sample);
+        writer.close();
+        String kml = out.toString();
+        assertTrue(kml.contains("<name>Drive &lt;1&gt;</name>"));
+        assertTrue(kml.contains("<Placemark><styleUrl>#s1</styleUrl><TimeStamp><when>2025-01-01T00:01:01Z</when>"
+                + "</TimeStamp><description>Grameen&quot;phone -87 dBm; R&amp;bi N/A; \u00b14.5 m</description>"
+                + "<Point><coordinates>90.412518,23.810332</coordinates></Point></Placemark>\n"));
+        assertEquals(1, kml.split("<Placemark>", -1).length - 1);
+        assertEquals(1, writer.skipped());
+        assertTrue(kml.endsWith("</Document>\n</kml>\n"));
+
+        sample.dbm[0] = -79;
+        assertEquals(0, KmlSampleWriter.styleOf(sample));
+        sample.dbm[0] = -111;
+        assertEquals(4, KmlSampleWriter.styleOf(sample));
+        sample.dbm[1] = -95;
+        assertEquals(2, KmlSampleWriter.styleOf(sample));
+        sample.dbm[0] = Sample.NO_SIGNAL;
+        sample.dbm[1] = Sample.NO_SIGNAL;
+        assertEquals(KmlSampleWriter.NO_SIGNAL_STYLE, KmlSampleWriter.styleOf(sample));
+    }
+
+    @Test
+    public void columnarRoundTripsAcrossChunksAndSimChanges() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        long rows;
+        try (ColumnarSampleWriter writer = new ColumnarSampleWriter(bytes, 700)) {
+            rows = SessionExporter.export(new Drive(5000), writer, new AtomicBoolean(), null);
+        }
+        assertEquals(5000, rows);
+
+        Drive expected = new Drive(5000);
+        Sample want = new Sample(0);
+        Sample got = new Sample(0);
+        int read = 0;
+        try (ColumnarSessionReader reader = new ColumnarSessionReader(new ByteArrayInputStream(bytes.toByteArray()))) {
+            while (reader.next(got)) {
+                assertTrue(expected.next(want));
+                assertTrue("row " + read, want.sameAs(got));
+                read++;
+            }
+        }
+        assertEquals(5000, read);
+        // Deltas and runs: far smaller than the raw columns, 8 bytes for the time and 4 for each other value.
+        assertTrue(String.valueOf(bytes.size()), bytes.size() < 5000 * (8 + 4 * 4 + 2 * 8) / 4);
+    }
+
+    @Test
+    public void cancelStopsBetweenChunks() throws IOException {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        List<Long> reported = new ArrayList<>();
+        StringWriter out = new StringWriter();
+        try (GeoJsonSampleWriter writer = new GeoJsonSampleWriter(out)) {
+            SessionExporter.export(new Drive(100_000), writer, cancelled, rows -> {
+                reported.add(rows);
+                if (rows >= 2 * SessionExporter.CHUNK_ROWS) {
+                    cancelled.set(true);
+                }
+            });
+            fail("export should have been cancelled");
+        } catch (InterruptedIOException expected) {
+            assertEquals(2, reported.size());
+            assertEquals(2L * SessionExporter.CHUNK_ROWS, (long) reported.get(1));
+        }
+    }
+}
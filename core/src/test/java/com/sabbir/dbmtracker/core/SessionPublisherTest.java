@@ -0,0 +1,139 @@
+package com.sabbir.dbmtracker.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SessionPublisherTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final long START = 1_735_689_600_000L;
+    private static final TimeZone ZONE = TimeZone.getTimeZone("Asia/Dhaka");
+
+    /** Keeps published files in memory; can be told to fail halfway through the next one. */
+    private static final class MemoryTarget implements PublishTarget {
+        final Map<String, String> files = new LinkedHashMap<>();
+        boolean failNext;
+
+        @Override
+        public void publish(String name, String mimeType, Content content) throws IOException {
+            assertEquals(SessionPublisher.CSV_MIME_TYPE, mimeType);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            content.writeTo(out);
+            if (failNext) {
+                failNext = false;
+                throw new IOException("Volume removed");
+            }
+            files.put(name, out.toString(StandardCharsets.UTF_8.name()));
+        }
+    }
+
+    private static void record(File directory, String base, int rows, boolean close) throws IOException {
+        SessionRecorder recorder = SessionRecorder.start(directory, base, new SessionRecorder.Options());
+        Sample sample = new Sample(2);
+        sample.operatorNames[0] = "Grameenphone";
+        sample.operatorNames[1] = "Robi";
+        for (int i = 0; i < rows; i++) {
+            if (i == rows / 2) {
+                sample.setSimCount(3);
+                sample.operatorNames[2] = "eSIM";
+                sample.dbm[2] = -100;
+            }
+            sample.timestampMillis = START + i * 1000L;
+            sample.setLocation(23.81, 90.41);
+            sample.dbm[0] = -70;
+            sample.dbm[1] = -90;
+            recorder.write(sample);
+        }
+        if (close) {
+            recorder.close();
+        } else {
+            recorder.flush();
+        }
+    }
+
+    private static int lines(String csv) {
+        return csv.split("\n").length;
+    }
+
+    @Test
+    public void publishesClosedSessionsAsCsvOnce() throws IOException {
+        File directory = folder.getRoot();
+        record(directory, "tracking_data_20250101_000000", 100, true);
+        record(directory, "tracking_data_20250102_000000", 10, false);
+        MemoryTarget target = new MemoryTarget();
+
+        SessionPublisher publisher = new SessionPublisher(target, ZONE);
+        assertEquals(1, publisher.publishClosed(directory));
+        assertEquals(100, publisher.rowsPublished());
+        // The SIM count changed halfway, so the CSV is split where its columns change.
+        assertEquals(2, target.files.size());
+        String first = target.files.get("tracking_data_20250101_000000.csv");
+        String second = target.files.get("tracking_data_20250101_000000_part2.csv");
+        assertTrue(first.startsWith(SampleEncoder.csvHeader(2, true)));
+        assertTrue(second.startsWith(SampleEncoder.csvHeader(3, true)));
+        assertEquals(51, lines(first));
+        assertEquals(51, lines(second));
+        assertTrue(first.contains("\n2025-01-01 06:00:00,23.810000,90.410000,Grameenphone,-70,Robi,-90,"));
+
+        assertEquals(0, new SessionPublisher(target, ZONE).publishClosed(directory));
+    }
+
+    @Test
+    public void failedPublishIsRetried() throws IOException {
+        File directory = folder.getRoot();
+        record(directory, "tracking_data_20250101_000000", 20, true);
+        MemoryTarget target = new MemoryTarget();
+        target.failNext = true;
+        try {
+            new SessionPublisher(target, ZONE).publishClosed(directory);
+            fail("publish should have failed");
+        } catch (IOException expected) {
+            assertEquals("Volume removed", expected.getMessage());
+        }
+        assertTrue(target.files.isEmpty());
+
+        assertEquals(1, new SessionPublisher(target, ZONE).publishClosed(directory));
+        assertEquals(2, target.files.size());
+    }
+
+    @Test
+    public void exportPublishesOpenSessionUntilCancelled() throws IOException {
+        File directory = folder.getRoot();
+        record(directory, "tracking_data_20250101_000000", 20, false);
+        SessionManifest open = SessionManifest.listSessions(directory).get(0);
+        MemoryTarget target = new MemoryTarget();
+        SessionPublisher publisher = new SessionPublisher(target, ZONE);
+
+        AtomicBoolean cancelled = new AtomicBoolean(true);
+        try {
+            publisher.publish(open, cancelled);
+            fail("export should have been cancelled");
+        } catch (InterruptedIOException expected) {
+            // nothing published
+        }
+        assertTrue(target.files.isEmpty());
+
+        cancelled.set(false);
+        publisher.publish(open, cancelled);
+        // Only the segment closed by the SIM change is listed yet.
+        assertEquals(1, target.files.size());
+        assertEquals(11, lines(target.files.get("tracking_data_20250101_000000.csv")));
+    }
+}
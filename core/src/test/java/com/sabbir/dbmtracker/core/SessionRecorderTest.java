@@ -0,0 +1,261 @@
+package com.sabbir.dbmtracker.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SessionRecorderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final long START = 1_735_689_600_000L;
+    private static final String BASE = "tracking_data_20250101_000000";
+
+    private static SessionRecorder.Options options() {
+        SessionRecorder.Options options = new SessionRecorder.Options();
+        options.maxSegmentBytes = 2048;
+        options.batchRows = 8;
+        options.blockRecords = 16;
+        return options;
+    }
+
+    private static void writeRows(SampleWriter writer, Sample sample, int from, int to) throws IOException {
+        for (int i = from; i < to; i++) {
+            writer.write(row(sample, i));
+        }
+    }
+
+    private static Sample row(Sample sample, int i) {
+        sample.timestampMillis = START + i * 1000L;
+        sample.setLocation(23.81 + i * 1e-4, 90.41);
+        sample.dbm[0] = -70 - i % 40;
+        sample.dbm[1] = -90;
+        return sample;
+    }
+
+    private static Sample sample() {
+        Sample sample = new Sample(2);
+        sample.operatorNames[0] = "Grameenphone";
+        sample.operatorNames[1] = "Robi";
+        return sample;
+    }
+
+    @Test
+    public void checkpointRoundTrip() throws IOException {
+        SessionCheckpoint checkpoint = new SessionCheckpoint();
+        checkpoint.sessionBase = BASE;
+        checkpoint.tracking = true;
+        checkpoint.paused = true;
+        checkpoint.mode = SamplingMode.EVENT_DRIVEN;
+        checkpoint.savedAtMillis = START;
+        checkpoint.sequence = 12345;
+        checkpoint.lastSampleMillis = START - 1000;
+        checkpoint.segmentIndex = 3;
+        checkpoint.segmentOffset = 987_654;
+        File file = folder.newFile(SessionCheckpoint.FILE_NAME);
+        checkpoint.writeTo(file);
+
+        SessionCheckpoint read = SessionCheckpoint.readFrom(file);
+        assertNotNull(read);
+        assertEquals(BASE, read.sessionBase);
+        assertTrue(read.tracking);
+        assertTrue(read.paused);
+        assertEquals(SamplingMode.EVENT_DRIVEN, read.mode);
+        assertEquals(START, read.savedAtMillis);
+        assertEquals(12345, read.sequence);
+        assertEquals(START - 1000, read.lastSampleMillis);
+        assertEquals(3, read.segmentIndex);
+        assertEquals(987_654, read.segmentOffset);
+    }
+
+    @Test
+    public void damagedCheckpointReadsAsNone() throws IOException {
+        assertNull(SessionCheckpoint.readFrom(new File(folder.getRoot(), "missing")));
+
+        SessionCheckpoint checkpoint = new SessionCheckpoint();
+        checkpoint.sessionBase = BASE;
+        File file = folder.newFile(SessionCheckpoint.FILE_NAME);
+        checkpoint.writeTo(file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(20);
+            raf.write(0x5A);
+        }
+        assertNull(SessionCheckpoint.readFrom(file));
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(30);
+        }
+        assertNull(SessionCheckpoint.readFrom(file));
+    }
+
+    @Test
+    public void checkpointsAreThrottled() throws IOException {
+        File directory = folder.getRoot();
+        SessionRecorder recorder = SessionRecorder.start(directory, BASE, options());
+        recorder.setState(true, false, SamplingMode.FIXED_INTERVAL);
+        assertTrue(recorder.maybeCheckpoint(START));
+        Sample sample = sample();
+        writeRows(recorder, sample, 0, 3);
+        assertFalse(recorder.maybeCheckpoint(START + 4_999));
+        assertTrue(recorder.maybeCheckpoint(START + 5_000));
+        // Nothing changed since.
+        assertFalse(recorder.maybeCheckpoint(START + 60_000));
+        assertEquals(3, SessionCheckpoint.readFrom(SessionRecorder.checkpointFile(directory)).sequence);
+
+        recorder.close();
+        assertFalse(SessionRecorder.checkpointFile(directory).exists());
+        assertTrue(SessionManifest.read(SessionManifest.fileFor(directory, BASE)).isClosed());
+    }
+
+    @Test
+    public void resumesSameSessionAfterProcessDeath() throws IOException {
+        File directory = folder.getRoot();
+        SessionRecorder recorder = SessionRecorder.start(directory, BASE, options());
+        recorder.setState(true, false, SamplingMode.EVENT_DRIVEN);
+        Sample sample = sample();
+        writeRows(recorder, sample, 0, 150);
+        recorder.checkpoint(START + 150_000);
+        // Rows after the checkpoint that reached the file are kept too; the
+        // buffered ones die with the process. The recorder is never closed.
+        writeRows(recorder, sample, 150, 170);
+        recorder.flush();
+        writeRows(recorder, sample, 170, 175);
+        assertTrue(SessionRecorder.checkpointFile(directory).exists());
+
+        long began = System.nanoTime();
+        SessionCheckpoint checkpoint = SessionCheckpoint.readFrom(SessionRecorder.checkpointFile(directory));
+        assertNotNull(checkpoint);
+        SessionRecorder resumed = SessionRecorder.resume(directory, checkpoint, options());
+        SampleWriter session = AggregatingSampleWriter.resume(resumed, 1000,
+                AggregatingSampleWriter.fileFor(directory, BASE));
+        // The first row after the restart takes the service's path: a location stage that has no fix
+        // yet, the sample queue, then the writer's drain.
+        SampleQueue queue = new SampleQueue(16, 2);
+        LocationStage locationStage = new LocationStage(new LocationStage.Policy(), 2, queue::offer);
+        Sample next = sample();
+        locationStage.submit(row(next, 200), START + 200_000);
+        assertEquals(1, queue.drainTo(session));
+        session.flush();
+        long resumeMillis = (System.nanoTime() - began) / 1_000_000;
+        // One sampling tick at the fastest interval.
+        assertTrue("resume took " + resumeMillis + " ms", resumeMillis < 1000);
+
+        assertEquals(BASE, resumed.base());
+        assertEquals(171, resumed.sequence());
+        writeRows(session, next, 201, 230);
+        session.close();
+
+        SessionManifest manifest = SessionManifest.read(SessionManifest.fileFor(directory, BASE));
+        assertTrue(manifest.isClosed());
+        assertEquals(200, manifest.records());
+        Sample row = new Sample(0);
+        long last = Long.MIN_VALUE;
+        int rows = 0;
+        try (SessionReader reader = new SessionReader(manifest)) {
+            while (reader.next(row)) {
+                assertTrue(row.timestampMillis > last);
+                last = row.timestampMillis;
+                rows++;
+            }
+        }
+        assertEquals(200, rows);
+        assertEquals(START + 229_000, last);
+        // The segment open at the kill was trimmed after its last row; the rest were closed normally.
+        for (SessionManifest.Segment segment : manifest.segments()) {
+            File file = manifest.segmentFile(segment);
+            try (BinarySessionReader reader = new BinarySessionReader(SessionStore.openSegment(file))) {
+                while (reader.next(row)) {
+                    // to the end
+                }
+                assertEquals(file.getName(), file.length(), reader.recordEnd());
+            }
+        }
+    }
+
+    @Test
+    public void tilesCatchUpAfterProcessDeath() throws IOException {
+        File directory = folder.getRoot();
+        File tilesFile = AggregatingSampleWriter.fileFor(directory, BASE);
+        SessionRecorder recorder = SessionRecorder.start(directory, BASE, options());
+        recorder.setState(true, false, SamplingMode.FIXED_INTERVAL);
+        AggregatingSampleWriter tiles = AggregatingSampleWriter.resume(recorder, 1000, tilesFile);
+        Sample sample = sample();
+        writeRows(tiles, sample, 0, 40);
+        tiles.flush();
+        writeRows(tiles, sample, 40, 150);
+        recorder.checkpoint(START + 150_000);
+        // Rows reach the segments between tile saves, through segment rolls
+        // and full write buffers; then the process dies.
+        writeRows(tiles, sample, 150, 170);
+        recorder.flush();
+        writeRows(tiles, sample, 170, 175);
+        try (InputStream in = new FileInputStream(tilesFile)) {
+            assertEquals(40, TileAggregator.readFrom(in).rows());
+        }
+
+        SessionCheckpoint checkpoint = SessionCheckpoint.readFrom(SessionRecorder.checkpointFile(directory));
+        SessionRecorder resumed = SessionRecorder.resume(directory, checkpoint, options());
+        AggregatingSampleWriter resumedTiles = AggregatingSampleWriter.resume(resumed, 1000, tilesFile);
+
+        TileAggregator expected = new TileAggregator(1000);
+        Sample row = sample();
+        for (int i = 0; i < 170; i++) {
+            expected.add(row(row, i));
+        }
+        assertEquals(170, resumedTiles.aggregator().rows());
+        assertEquals(entries(expected), entries(resumedTiles.aggregator()));
+
+        writeRows(resumedTiles, sample(), 200, 210);
+        resumedTiles.close();
+        try (InputStream in = new FileInputStream(tilesFile)) {
+            assertEquals(180, TileAggregator.readFrom(in).rows());
+        }
+    }
+
+    /** "operator@lat,lon" -> "count mean min max p10 p50 p90", in a stable order. */
+    private static Map<String, String> entries(TileAggregator aggregator) {
+        Map<String, String> entries = new TreeMap<>();
+        aggregator.forEach((lat, lon, operator, count, mean, min, max, p10, p50, p90) ->
+                entries.put(operator + "@" + lat + "," + lon,
+                        count + " " + mean + " " + min + " " + max + " " + p10 + " " + p50 + " " + p90));
+        return entries;
+    }
+
+    @Test
+    public void finishClosesAbandonedSession() throws IOException {
+        File directory = folder.getRoot();
+        SessionRecorder recorder = SessionRecorder.start(directory, BASE, options());
+        writeRows(recorder, sample(), 0, 40);
+        recorder.checkpoint(START + 40_000);
+        recorder.flush();
+
+        // A torn segment past the checkpoint: not even a header.
+        try (FileOutputStream out = new FileOutputStream(new File(directory,
+                SessionRecorder.segmentName(BASE, recorder.manifest().segments().size() + 1)))) {
+            out.write(new byte[] {'D', 'B'});
+        }
+        SessionRecorder.finish(directory, SessionCheckpoint.readFrom(SessionRecorder.checkpointFile(directory)));
+
+        SessionManifest manifest = SessionManifest.read(SessionManifest.fileFor(directory, BASE));
+        assertTrue(manifest.isClosed());
+        assertEquals(40, manifest.records());
+        assertFalse(SessionRecorder.checkpointFile(directory).exists());
+        assertTrue(new SessionCompactor(1 << 20).compact(manifest.file()));
+    }
+}
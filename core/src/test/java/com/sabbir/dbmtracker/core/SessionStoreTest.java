@@ -0,0 +1,153 @@
+package com.sabbir.dbmtracker.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SessionStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final long START = 1_735_689_600_000L;
+
+    /** A drive at 1 Hz with a gap in the fix every so often; returns the samples as written. */
+    private static List<long[]> writeTrack(SampleWriter writer, int rows, long start, int seed) throws IOException {
+        Random random = new Random(seed);
+        List<long[]> written = new ArrayList<>();
+        Sample sample = new Sample(2);
+        sample.operatorNames[0] = "Grameenphone";
+        sample.operatorNames[1] = "Robi";
+        int lat = 23_810_000;
+        int lon = 90_410_000;
+        for (int i = 0; i < rows; i++) {
+            lat += random.nextInt(201) - 60;
+            lon += random.nextInt(201) - 100;
+            sample.timestampMillis = start + i * 1000L;
+            if (i % 500 < 20) {
+                sample.clearLocation();
+            } else {
+                sample.hasLocation = true;
+                sample.latitudeE6 = lat;
+                sample.longitudeE6 = lon;
+            }
+            sample.dbm[0] = -70 - random.nextInt(50);
+            sample.dbm[1] = i % 7 == 0 ? Sample.NO_SIGNAL : -80 - random.nextInt(40);
+            writer.write(sample);
+            written.add(new long[]{sample.timestampMillis, sample.hasLocation ? 1 : 0, sample.latitudeE6,
+                    sample.longitudeE6, sample.dbm[0], sample.dbm[1]});
+        }
+        return written;
+    }
+
+    private IndexedSessionWriter indexedWriter(File directory, String name) throws IOException {
+        File segment = new File(directory, name + SessionStore.SESSION_EXTENSION);
+        return new IndexedSessionWriter(new BinarySessionWriter(new FileOutputStream(segment), 2, 30, 60_000),
+                new FileOutputStream(SessionStore.indexFileFor(segment)), 128);
+    }
+
+    private static List<long[]> expected(List<long[]> rows, long from, long to, BoundingBox box) {
+        List<long[]> matches = new ArrayList<>();
+        for (long[] row : rows) {
+            if (row[0] < from || row[0] > to) {
+                continue;
+            }
+            if (box != null && (row[1] == 0 || !box.contains((int) row[2], (int) row[3]))) {
+                continue;
+            }
+            matches.add(row);
+        }
+        return matches;
+    }
+
+    private static List<long[]> run(SessionStore store, long from, long to, BoundingBox box) throws IOException {
+        List<long[]> matches = new ArrayList<>();
+        long count = store.query(from, to, box, new SampleWriter() {
+            @Override
+            public void write(Sample sample) {
+                matches.add(new long[]{sample.timestampMillis, sample.hasLocation ? 1 : 0, sample.latitudeE6,
+                        sample.longitudeE6, sample.dbm[0], sample.dbm[1]});
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        assertEquals(matches.size(), count);
+        return matches;
+    }
+
+    private static void assertRows(List<long[]> expected, List<long[]> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            for (int j = 0; j < expected.get(i).length; j++) {
+                assertEquals("row " + i + " column " + j, expected.get(i)[j], actual.get(i)[j]);
+            }
+        }
+    }
+
+    @Test
+    public void indexedQueriesMatchAFullScan() throws IOException {
+        File directory = folder.newFolder();
+        List<long[]> rows = new ArrayList<>();
+        try (IndexedSessionWriter writer = indexedWriter(directory, "a")) {
+            rows.addAll(writeTrack(writer, 20_000, START, 1));
+        }
+        try (IndexedSessionWriter writer = indexedWriter(directory, "b")) {
+            rows.addAll(writeTrack(writer, 5_000, START + 30_000_000L, 2));
+        }
+        SessionStore store = new SessionStore(directory);
+
+        long from = START + 4_000_000L;
+        long to = from + 3_600_000L;
+        assertRows(expected(rows, from, to, null), run(store, from, to, null));
+
+        long[] middle = rows.get(12_100);
+        BoundingBox box = new BoundingBox((int) middle[2] - 3_000, (int) middle[3] - 3_000,
+                (int) middle[2] + 3_000, (int) middle[3] + 3_000);
+        List<long[]> inBox = expected(rows, Long.MIN_VALUE, Long.MAX_VALUE, box);
+        assertTrue(inBox.size() > 10);
+        long before = store.blocksRead();
+        assertRows(inBox, run(store, Long.MIN_VALUE, Long.MAX_VALUE, box));
+        long blocks = store.blocksRead() - before;
+        assertTrue("read " + blocks + " of ~196 blocks", blocks > 0 && blocks < 20);
+
+        assertRows(expected(rows, from, to, box), run(store, from, to, box));
+        assertRows(rows, run(store, Long.MIN_VALUE, Long.MAX_VALUE, null));
+    }
+
+    @Test
+    public void findsUnindexedTailAndLegacySegments() throws IOException {
+        File directory = folder.newFolder();
+        IndexedSessionWriter open = indexedWriter(directory, "live");
+        List<long[]> live = writeTrack(open, 300, START, 3);
+        open.flush();
+        File legacy = new File(directory, "old" + SessionStore.SESSION_EXTENSION);
+        List<long[]> old;
+        try (BinarySessionWriter writer = new BinarySessionWriter(new FileOutputStream(legacy), 2, 30, 60_000)) {
+            old = writeTrack(writer, 400, START - 10_000_000L, 4);
+        }
+
+        SessionStore store = new SessionStore(directory);
+        List<long[]> all = new ArrayList<>(live);
+        all.addAll(old);
+        assertRows(all, run(store, Long.MIN_VALUE, Long.MAX_VALUE, null));
+        // The live segment has two indexed blocks and a 44-row tail still open.
+        assertEquals(2, store.blocksRead());
+        open.close();
+    }
+}
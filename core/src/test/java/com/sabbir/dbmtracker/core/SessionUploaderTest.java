@@ -0,0 +1,288 @@
+package com.sabbir.dbmtracker.core;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SessionUploaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final long START = 1_735_689_600_000L;
+    private static final String DEVICE = "pixel-7";
+    // Far below any uplink; only a stall per chunk or request gets under it.
+    private static final long MIN_UPLOAD_BYTES_PER_SECOND = 64 * 1024;
+
+    private Collector collector;
+    private HttpServer server;
+
+    /**
+     * Stand-in collector: keeps each object in memory, applies a chunk only
+     * at its committed length, acknowledges repeats by chunk id, and can be
+     * told to fail or to apply a chunk and then drop the answer.
+     */
+    private static final class Collector {
+        final Map<String, ByteArrayOutputStream> objects = new HashMap<>();
+        final Set<String> chunkIds = new HashSet<>();
+        int requests;
+        int duplicates;
+        /** Every n-th PUT answers 503 without applying; 0 for never. */
+        int failEvery;
+        /** Every n-th PUT is applied but answered 500, as if the acknowledgement was lost. */
+        int loseAckEvery;
+        boolean down;
+
+        synchronized void handle(HttpExchange exchange) throws IOException {
+            requests++;
+            String path = exchange.getRequestURI().getPath();
+            String object = path.substring(path.lastIndexOf('/') + 1);
+            ByteArrayOutputStream stored = objects.get(object);
+            long committed = stored == null ? 0 : stored.size();
+            if (down) {
+                respond(exchange, 503, -1);
+                return;
+            }
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                respond(exchange, stored == null ? 404 : 200, committed);
+                return;
+            }
+            if (failEvery > 0 && requests % failEvery == 0) {
+                respond(exchange, 503, -1);
+                return;
+            }
+            long offset = Long.parseLong(exchange.getRequestURI().getQuery().substring("offset=".length()));
+            String id = exchange.getRequestHeaders().getFirst("X-Chunk-Id");
+            InputStream in = exchange.getRequestBody();
+            if ("deflate".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+                in = new InflaterInputStream(in);
+            }
+            byte[] body = in.readAllBytes();
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            assertEquals(exchange.getRequestHeaders().getFirst("X-Chunk-Crc32"), Long.toHexString(crc.getValue()));
+            assertEquals(Integer.parseInt(exchange.getRequestHeaders().getFirst("X-Chunk-Length")), body.length);
+            if (chunkIds.contains(id)) {
+                duplicates++;
+                respond(exchange, 200, committed);
+                return;
+            }
+            if (offset != committed) {
+                respond(exchange, 409, committed);
+                return;
+            }
+            if (stored == null) {
+                stored = new ByteArrayOutputStream();
+                objects.put(object, stored);
+            }
+            stored.write(body);
+            chunkIds.add(id);
+            boolean loseAck = loseAckEvery > 0 && requests % loseAckEvery == 0;
+            respond(exchange, loseAck ? 500 : 200, stored.size());
+        }
+
+        private static void respond(HttpExchange exchange, int status, long committed) throws IOException {
+            // Whatever is left of the body has to be read for the connection to be kept alive.
+            exchange.getRequestBody().readAllBytes();
+            if (committed >= 0) {
+                exchange.getResponseHeaders().set("X-Committed-Length", Long.toString(committed));
+            }
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        }
+
+        synchronized byte[] object(String name) {
+            ByteArrayOutputStream stored = objects.get(name);
+            return stored == null ? null : stored.toByteArray();
+        }
+    }
+
+    @Before
+    public void startCollector() throws IOException {
+        collector = new Collector();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/upload/", collector::handle);
+        server.start();
+    }
+
+    @After
+    public void stopCollector() {
+        server.stop(0);
+    }
+
+    private UploadTransport transport() {
+        return new HttpUploadTransport("http://127.0.0.1:" + server.getAddress().getPort() + "/upload",
+                DEVICE, 2_000, 5_000);
+    }
+
+    private static SessionUploader.Policy policy(int chunkBytes) {
+        SessionUploader.Policy policy = new SessionUploader.Policy();
+        policy.chunkBytes = chunkBytes;
+        policy.initialBackoffMillis = 1;
+        policy.maxBackoffMillis = 4;
+        return policy;
+    }
+
+    /** Records, closes and compacts a session, as the service and compactor leave it. */
+    private SessionManifest finishedSession(File directory, String base, int rows) throws IOException {
+        SessionRecorder.Options options = new SessionRecorder.Options();
+        options.maxSegmentBytes = 64 * 1024;
+        SessionRecorder recorder = SessionRecorder.start(directory, base, options);
+        Sample sample = new Sample(2);
+        sample.operatorNames[0] = "Grameenphone";
+        sample.operatorNames[1] = "Robi";
+        for (int i = 0; i < rows; i++) {
+            sample.timestampMillis = START + i * 1000L;
+            sample.setLocation(23.81 + (i % 997) * 1e-4, 90.41 + (i % 101) * 1e-4);
+            sample.dbm[0] = -70 - i % 37;
+            sample.dbm[1] = -85 - i % 23;
+            recorder.write(sample);
+        }
+        recorder.close();
+        File manifestFile = SessionManifest.fileFor(directory, base);
+        assertTrue(new SessionCompactor(256 * 1024).compact(manifestFile));
+        return SessionManifest.read(manifestFile);
+    }
+
+    private void assertUploaded(SessionManifest session) throws IOException {
+        for (SessionManifest.Segment segment : session.segments()) {
+            assertArrayEquals(segment.name, Files.readAllBytes(session.segmentFile(segment).toPath()),
+                    collector.object(segment.name));
+        }
+        assertArrayEquals(Files.readAllBytes(session.file().toPath()), collector.object(session.file().getName()));
+    }
+
+    @Test
+    public void uploadsFinishedSessionsOnce() throws IOException {
+        File directory = folder.getRoot();
+        SessionManifest first = finishedSession(directory, "tracking_data_20250101_000000", 200_000);
+        SessionManifest second = finishedSession(directory, "tracking_data_20250102_000000", 5_000);
+        // Still open: left alone.
+        SessionRecorder.start(directory, "tracking_data_20250103_000000", new SessionRecorder.Options());
+
+        SessionUploader uploader = new SessionUploader(directory, transport(), policy(64 * 1024));
+        long began = System.nanoTime();
+        assertTrue(uploader.uploadPending(new AtomicBoolean()));
+        long elapsedMillis = Math.max(1, (System.nanoTime() - began) / 1_000_000);
+        long bytesPerSecond = uploader.bytesRead() * 1000 / elapsedMillis;
+        assertTrue("upload: " + uploader.bytesRead() + " B in " + uploader.chunksSent() + " chunks / "
+                        + collector.requests + " requests at " + bytesPerSecond + " B/s",
+                bytesPerSecond >= MIN_UPLOAD_BYTES_PER_SECOND);
+
+        assertEquals(2, uploader.sessionsUploaded());
+        assertEquals(0, uploader.retries());
+        assertUploaded(first);
+        assertUploaded(second);
+        assertEquals(null, collector.object("tracking_data_20250103_000000" + SessionManifest.EXTENSION));
+
+        int requests = collector.requests;
+        SessionUploader again = new SessionUploader(directory, transport(), policy(64 * 1024));
+        assertTrue(again.uploadPending(new AtomicBoolean()));
+        assertEquals(0, again.chunksSent());
+        assertEquals(requests, collector.requests);
+    }
+
+    @Test
+    public void retriesFailedAndUnacknowledgedChunks() throws IOException {
+        File directory = folder.getRoot();
+        SessionManifest session = finishedSession(directory, "tracking_data_20250101_000000", 50_000);
+        collector.failEvery = 3;
+        collector.loseAckEvery = 4;
+
+        SessionUploader uploader = new SessionUploader(directory, transport(), policy(16 * 1024));
+        assertTrue(uploader.uploadPending(new AtomicBoolean()));
+        assertTrue(uploader.retries() > 0);
+        assertTrue(collector.duplicates > 0);
+        assertUploaded(session);
+    }
+
+    @Test
+    public void resumesWhereCollectorStopped() throws IOException {
+        File directory = folder.getRoot();
+        SessionManifest session = finishedSession(directory, "tracking_data_20250101_000000", 100_000);
+        AtomicBoolean cancelled = new AtomicBoolean();
+        UploadTransport transport = transport();
+        // Cancelled, e.g. by the job losing its network, after a few chunks.
+        UploadTransport cancelling = new UploadTransport() {
+            int puts;
+
+            @Override
+            public long committed(String object) throws IOException {
+                return transport.committed(object);
+            }
+
+            @Override
+            public long put(String object, UploadChunk chunk) throws IOException {
+                if (++puts == 3) {
+                    cancelled.set(true);
+                }
+                return transport.put(object, chunk);
+            }
+        };
+        SessionUploader interrupted = new SessionUploader(directory, cancelling, policy(8 * 1024));
+        try {
+            interrupted.uploadPending(cancelled);
+            fail("upload should have been cancelled");
+        } catch (InterruptedIOException expected) {
+            // carries on below
+        }
+        assertEquals(3, interrupted.chunksSent());
+
+        SessionUploader resumed = new SessionUploader(directory, transport, policy(8 * 1024));
+        assertTrue(resumed.uploadPending(new AtomicBoolean()));
+        assertEquals(1, resumed.sessionsUploaded());
+        assertEquals(0, collector.duplicates);
+        long total = 0;
+        for (SessionManifest.Segment segment : session.segments()) {
+            total += session.segmentFile(segment).length();
+        }
+        total += session.file().length();
+        assertEquals(total, interrupted.bytesRead() + resumed.bytesRead());
+        assertUploaded(session);
+    }
+
+    @Test
+    public void givesUpWhileCollectorIsDown() throws IOException {
+        File directory = folder.getRoot();
+        SessionManifest session = finishedSession(directory, "tracking_data_20250101_000000", 1_000);
+        collector.down = true;
+        SessionUploader.Policy policy = policy(8 * 1024);
+        policy.maxAttempts = 4;
+
+        SessionUploader uploader = new SessionUploader(directory, transport(), policy);
+        assertFalse(uploader.uploadPending(new AtomicBoolean()));
+        assertEquals(3, uploader.retries());
+        assertEquals(4, collector.requests);
+        assertFalse(new File(directory, SessionUploader.LEDGER_FILE).exists());
+
+        collector.down = false;
+        assertTrue(new SessionUploader(directory, transport(), policy).uploadPending(new AtomicBoolean()));
+        assertUploaded(session);
+    }
+}
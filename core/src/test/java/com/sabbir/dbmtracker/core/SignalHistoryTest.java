@@ -0,0 +1,57 @@
+package com.sabbir.dbmtracker.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SignalHistoryTest {
+
+    private static LiveSnapshot snapshot(long timestampMillis, int... dbm) {
+        Sample sample = new Sample(dbm.length);
+        sample.timestampMillis = timestampMillis;
+        System.arraycopy(dbm, 0, sample.dbm, 0, dbm.length);
+        return LiveSnapshot.of(sample, true, false, SamplingMode.FIXED_INTERVAL, Float.NaN, 0);
+    }
+
+    @Test
+    public void overwritesOldestWhenFull() {
+        SignalHistory history = new SignalHistory(3, 2);
+        for (int i = 1; i <= 5; i++) {
+            history.add(snapshot(i * 1000L, -80 - i, -90 - i));
+        }
+        assertEquals(3, history.size());
+        assertEquals(3000, history.timestampAt(0));
+        assertEquals(5000, history.timestampAt(2));
+        assertEquals(-83, history.valueAt(0, 0));
+        assertEquals(-95, history.valueAt(2, 1));
+    }
+
+    @Test
+    public void ignoresStaleSnapshotsAndPadsMissingColumns() {
+        SignalHistory history = new SignalHistory(4, 3);
+        history.add(snapshot(2000, -80, -90));
+        history.add(snapshot(2000, -70, -70));
+        history.add(snapshot(1000, -70, -70));
+        history.add(snapshot(3000, -81, -91, -101));
+        assertEquals(2, history.size());
+        assertEquals(3, history.columnCount());
+        assertEquals(-80, history.valueAt(0, 0));
+        assertEquals(Sample.NO_SIGNAL, history.valueAt(0, 2));
+        assertEquals(-101, history.valueAt(1, 2));
+    }
+
+    @Test
+    public void snapshotIsIndependentOfTheReusedSample() {
+        Sample sample = new Sample(2);
+        sample.operatorNames[0] = "Robi";
+        sample.dbm[0] = -88;
+        sample.setLocation(23.81, 90.41);
+        LiveSnapshot snapshot = LiveSnapshot.of(sample, true, true, SamplingMode.EVENT_DRIVEN, 4.5f, 123);
+        sample.dbm[0] = -60;
+        sample.operatorNames[0] = "Other";
+        assertEquals(-88, snapshot.dbm(0));
+        assertEquals("Robi", snapshot.operatorName(0));
+        assertEquals(4.5f, snapshot.accuracyMeters, 0f);
+        assertEquals(23_810_000, snapshot.latitudeE6);
+    }
+}
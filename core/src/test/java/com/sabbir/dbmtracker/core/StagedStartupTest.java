@@ -0,0 +1,137 @@
+package com.sabbir.dbmtracker.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StagedStartupTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // One sampling tick at the fastest interval, as for a resume.
+    private static final long TIME_TO_FIRST_SAMPLE_BUDGET_MS = 1000;
+
+    @Test
+    public void subsystemsComeUpInParallel() throws InterruptedException {
+        ExecutorService file = Executors.newSingleThreadExecutor();
+        ExecutorService telephony = Executors.newSingleThreadExecutor();
+        ExecutorService location = Executors.newSingleThreadExecutor();
+        // Each bring-up waits for the other two, so a serial startup could never finish.
+        CyclicBarrier together = new CyclicBarrier(3);
+        Runnable bringUp = () -> {
+            try {
+                together.await(5, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        };
+        StagedStartup startup = new StagedStartup();
+        startup.add("file", file, bringUp);
+        startup.add("telephony", telephony, bringUp);
+        startup.add("location", location, bringUp);
+        assertFalse(startup.ready());
+        startup.start();
+        startup.start();
+        for (ExecutorService executor : new ExecutorService[] {file, telephony, location}) {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        }
+
+        assertTrue(startup.ready());
+        assertFalse(together.isBroken());
+        long ready = startup.elapsedMillis(StagedStartup.READY);
+        for (String name : new String[] {"file", "telephony", "location"}) {
+            assertTrue(name, startup.elapsedMillis(name) >= startup.elapsedMillis(StagedStartup.START));
+            assertTrue(name, startup.elapsedMillis(name) <= ready);
+        }
+        assertFalse(startup.mark(StagedStartup.READY));
+        assertEquals(ready, startup.elapsedMillis(StagedStartup.READY));
+        assertEquals(-1, startup.elapsedMillis(StagedStartup.FIRST_SAMPLE));
+    }
+
+    @Test
+    public void firstSampleDoesNotWaitForRadios() throws Exception {
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        ExecutorService sampler = Executors.newSingleThreadExecutor();
+        ExecutorService location = Executors.newSingleThreadExecutor();
+        CountDownLatch radios = new CountDownLatch(1);
+        Runnable slowRadio = () -> {
+            try {
+                radios.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        SampleQueue queue = new SampleQueue(16, 2);
+        SessionRecorder[] recorder = new SessionRecorder[1];
+        CountDownLatch written = new CountDownLatch(1);
+
+        StagedStartup startup = new StagedStartup();
+        startup.add("file", writer, () -> {
+            try {
+                recorder[0] = SessionRecorder.start(folder.getRoot(), "tracking_data_20250101_000000",
+                        new SessionRecorder.Options());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        startup.add("telephony", sampler, slowRadio);
+        startup.add("location", location, slowRadio);
+        startup.start();
+
+        // The service's path for a row: the location stage, the queue, then a drain on the writer thread.
+        Runnable drain = () -> {
+            try {
+                if (queue.drainTo(recorder[0]) > 0) {
+                    recorder[0].flush();
+                    startup.mark(StagedStartup.FIRST_SAMPLE);
+                    written.countDown();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+        LocationStage locationStage = new LocationStage(new LocationStage.Policy(), 2, positioned -> {
+            queue.offer(positioned);
+            writer.execute(drain);
+        });
+        // The first tick, with no signal or fix yet, published from the main thread the way "start" does.
+        Sample sample = new Sample(2);
+        sample.timestampMillis = System.currentTimeMillis();
+        locationStage.submit(sample, sample.timestampMillis);
+
+        assertTrue(written.await(5, TimeUnit.SECONDS));
+        long timeToFirstSample = startup.millisBetween(StagedStartup.START, StagedStartup.FIRST_SAMPLE);
+        assertTrue("first sample after " + timeToFirstSample + " ms; " + startup,
+                timeToFirstSample >= 0 && timeToFirstSample < TIME_TO_FIRST_SAMPLE_BUDGET_MS);
+        assertFalse(startup.ready());
+
+        radios.countDown();
+        writer.execute(() -> {
+            try {
+                recorder[0].close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        for (ExecutorService executor : new ExecutorService[] {writer, sampler, location}) {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        }
+        assertTrue(startup.ready());
+        assertEquals(1, recorder[0].sequence());
+    }
+}
@@ -0,0 +1,83 @@
+package com.sabbir.dbmtracker.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SubscriptionRegistryTest {
+
+    private final List<String> events = new ArrayList<>();
+    private final SubscriptionRegistry<String> registry = new SubscriptionRegistry<>(2,
+            new SubscriptionRegistry.Binder<String>() {
+                @Override
+                public String bind(int subscriptionId, int column) {
+                    String handle = "sub" + subscriptionId + "@" + column;
+                    events.add("bind " + handle);
+                    return handle;
+                }
+
+                @Override
+                public void unbind(String handle) {
+                    events.add("unbind " + handle);
+                }
+            });
+
+    private void sync(int[] ids, int[] slots, String... names) {
+        registry.sync(ids, slots, names, ids.length);
+    }
+
+    @Test
+    public void dualSimKeepsTodaysColumns() {
+        Sample sample = new Sample(0);
+        registry.fill(sample);
+        assertEquals(2, sample.simCount());
+        assertEquals("Unknown", sample.operatorNames[1]);
+
+        sync(new int[]{7, 3}, new int[]{1, 0}, "Robi", "GP");
+        registry.setDbm(0, -80);
+        registry.fill(sample);
+        assertEquals("GP", sample.operatorNames[0]);
+        assertEquals("Robi", sample.operatorNames[1]);
+        assertEquals(-80, sample.dbm[0]);
+        assertEquals(Sample.NO_SIGNAL, sample.dbm[1]);
+        assertEquals("sub3@0", registry.handle(0));
+    }
+
+    @Test
+    public void thirdSubscriptionGrowsSchemaAndRemovalShrinksIt() {
+        sync(new int[]{1, 2}, new int[]{0, 1}, "GP", "Robi");
+        sync(new int[]{1, 2, 9}, new int[]{0, 1, 0}, "GP", "Robi", "eSIM");
+        assertEquals(3, registry.columnCount());
+        assertEquals("sub9@2", registry.handle(2));
+
+        sync(new int[]{1, 9}, new int[]{0, 0}, "GP", "eSIM");
+        assertEquals(3, registry.columnCount());
+        assertNull(registry.handle(1));
+
+        sync(new int[]{1}, new int[]{0}, "GP");
+        assertEquals(2, registry.columnCount());
+        assertEquals(List.of("bind sub1@0", "bind sub2@1", "bind sub9@2", "unbind sub2@1", "unbind sub9@2"),
+                events);
+    }
+
+    @Test
+    public void existingSubscriptionsAreNotRebound() {
+        sync(new int[]{1}, new int[]{0}, "GP");
+        registry.setDbm(0, -90);
+        sync(new int[]{1}, new int[]{0}, "Grameenphone");
+        Sample sample = new Sample(2);
+        registry.fill(sample);
+        assertEquals("Grameenphone", sample.operatorNames[0]);
+        assertEquals(-90, sample.dbm[0]);
+        assertEquals(List.of("bind sub1@0"), events);
+
+        registry.clear();
+        assertEquals(List.of("bind sub1@0", "unbind sub1@0"), events);
+        registry.fill(sample);
+        assertEquals(Sample.NO_SIGNAL, sample.dbm[0]);
+    }
+}
@@ -0,0 +1,129 @@
+package com.sabbir.dbmtracker.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TileAggregatorTest {
+
+    private static final int TILE = 1000;
+
+    @Test
+    public void computesStatsPerTileAndOperator() {
+        TileAggregator aggregator = new TileAggregator(TILE);
+        for (int dbm = -120; dbm <= -71; dbm++) {
+            aggregator.add(23_810_100, 90_412_900, "Grameenphone", dbm);
+        }
+        aggregator.add(23_810_100, 90_412_900, "Robi", -90);
+        aggregator.add(23_811_100, 90_412_900, "Robi", -80);
+
+        Map<String, long[]> seen = collect(aggregator);
+        assertEquals(3, aggregator.size());
+        long[] gp = seen.get("Grameenphone@23810500,90412500");
+        assertEquals(50, gp[0]);
+        assertEquals(-955, gp[1]);
+        assertEquals(-120, gp[2]);
+        assertEquals(-71, gp[3]);
+        assertTrue(Math.abs(gp[4] - -116) <= TileAggregator.BIN_WIDTH_DB);
+        assertTrue(Math.abs(gp[5] - -96) <= TileAggregator.BIN_WIDTH_DB);
+        assertTrue(Math.abs(gp[6] - -76) <= TileAggregator.BIN_WIDTH_DB);
+        assertEquals(-90, seen.get("Robi@23810500,90412500")[5]);
+        assertEquals(-80, seen.get("Robi@23811500,90412500")[5]);
+    }
+
+    @Test
+    public void binsNegativeCoordinatesByFloor() {
+        TileAggregator aggregator = new TileAggregator(TILE);
+        aggregator.add(-1, -1, "A", -100);
+        assertTrue(collect(aggregator).containsKey("A@-500,-500"));
+    }
+
+    @Test
+    public void skipsSamplesWithoutFixOrSignal() {
+        TileAggregator aggregator = new TileAggregator(TILE);
+        Sample sample = new Sample(2);
+        sample.operatorNames[0] = "A";
+        sample.dbm[0] = -95;
+        aggregator.add(sample);
+        assertEquals(0, aggregator.size());
+        sample.setLocation(23.81, 90.41);
+        aggregator.add(sample);
+        assertEquals(1, aggregator.size());
+        // Both rows are covered, fix or not.
+        assertEquals(2, aggregator.rows());
+    }
+
+    @Test
+    public void mergeMatchesAggregatingTheUnion() {
+        Random random = new Random(7);
+        TileAggregator left = new TileAggregator(TILE);
+        TileAggregator right = new TileAggregator(TILE);
+        TileAggregator union = new TileAggregator(TILE);
+        // Different first-seen operator order on each side exercises id remapping.
+        right.add(0, 0, "B", -100);
+        union.add(0, 0, "B", -100);
+        for (int i = 0; i < 20_000; i++) {
+            int lat = 23_700_000 + random.nextInt(200_000);
+            int lon = 90_300_000 + random.nextInt(200_000);
+            String operator = random.nextBoolean() ? "A" : "B";
+            int dbm = -130 + random.nextInt(80);
+            (i % 3 == 0 ? left : right).add(lat, lon, operator, dbm);
+            union.add(lat, lon, operator, dbm);
+        }
+        left.merge(right);
+        assertSameEntries(union, left);
+    }
+
+    @Test
+    public void persistedAggregateRoundTrips() throws IOException {
+        TileAggregator aggregator = new TileAggregator(TILE);
+        Random random = new Random(11);
+        for (int i = 0; i < 5_000; i++) {
+            aggregator.add(random.nextInt(1_000_000), random.nextInt(1_000_000), "Op" + random.nextInt(3),
+                    -140 + random.nextInt(100));
+        }
+        aggregator.add(new Sample(1));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        aggregator.writeTo(out);
+        TileAggregator read = TileAggregator.readFrom(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(TILE, read.tileSizeE6());
+        assertEquals(aggregator.rows(), read.rows());
+        assertSameEntries(aggregator, read);
+    }
+
+    @Test
+    public void memoryDoesNotGrowWithSamplesInTheSameTile() {
+        TileAggregator aggregator = new TileAggregator(TILE);
+        for (int i = 0; i < 100_000; i++) {
+            aggregator.add(23_810_000 + i % TILE, 90_410_000, "A", -60 - i % 90);
+        }
+        assertEquals(1, aggregator.size());
+    }
+
+    private static void assertSameEntries(TileAggregator expected, TileAggregator actual) {
+        Map<String, long[]> expectedEntries = collect(expected);
+        Map<String, long[]> actualEntries = collect(actual);
+        assertEquals(expectedEntries.keySet(), actualEntries.keySet());
+        for (Map.Entry<String, long[]> entry : expectedEntries.entrySet()) {
+            assertTrue(entry.getKey(), Arrays.equals(entry.getValue(), actualEntries.get(entry.getKey())));
+        }
+    }
+
+    /** operator@lat,lon -> [count, mean*10, min, max, p10, p50, p90]. */
+    private static Map<String, long[]> collect(TileAggregator aggregator) {
+        Map<String, long[]> entries = new HashMap<>();
+        aggregator.forEach((lat, lon, operator, count, mean, min, max, p10, p50, p90) ->
+                entries.put(operator + "@" + lat + "," + lon,
+                        new long[]{count, Math.round(mean * 10), min, max, p10, p50, p90}));
+        return entries;
+    }
+}
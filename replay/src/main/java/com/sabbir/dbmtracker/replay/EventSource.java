@@ -0,0 +1,12 @@
+package com.sabbir.dbmtracker.replay;
+
+import java.io.IOException;
+
+/** A time-ordered stream of location and signal events. */
+interface EventSource {
+
+    int simCount();
+
+    /** Fills {@code event} with the next event; returns false at the end of the stream. */
+    boolean next(ReplayEvent event) throws IOException;
+}
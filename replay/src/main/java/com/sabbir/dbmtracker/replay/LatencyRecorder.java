@@ -0,0 +1,42 @@
+package com.sabbir.dbmtracker.replay;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/** Collects per-operation durations from a single thread and reports percentiles. */
+final class LatencyRecorder {
+
+    private long[] nanos;
+    private int count;
+
+    LatencyRecorder(int expected) {
+        nanos = new long[Math.max(16, expected)];
+    }
+
+    void record(long durationNanos) {
+        if (count == nanos.length) {
+            nanos = Arrays.copyOf(nanos, count * 2);
+        }
+        nanos[count++] = durationNanos;
+    }
+
+    int count() {
+        return count;
+    }
+
+    /** Returns the q-quantile in nanoseconds; sorts the recorded values in place. */
+    long percentile(double q) {
+        if (count == 0) {
+            return 0;
+        }
+        Arrays.sort(nanos, 0, count);
+        int index = (int) Math.min(count - 1, Math.max(0, Math.ceil(q * count) - 1));
+        return nanos[index];
+    }
+
+    String summary() {
+        return String.format(Locale.ROOT, "n=%d p50=%.1fus p90=%.1fus p99=%.1fus max=%.1fus",
+                count, percentile(0.50) / 1e3, percentile(0.90) / 1e3, percentile(0.99) / 1e3,
+                percentile(1.0) / 1e3);
+    }
+}
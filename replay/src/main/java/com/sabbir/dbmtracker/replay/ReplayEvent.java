@@ -0,0 +1,17 @@
+package com.sabbir.dbmtracker.replay;
+
+/** One mutable input event; sources overwrite the same instance to keep replay allocation-free. */
+final class ReplayEvent {
+
+    static final int LOCATION = 0;
+    static final int SIGNAL = 1;
+
+    int type;
+    long timeMillis;
+    int latitudeE6;
+    int longitudeE6;
+    /** NaN if the fix has no accuracy. */
+    float accuracyMeters = Float.NaN;
+    int column;
+    int dbm;
+}
@@ -0,0 +1,360 @@
+package com.sabbir.dbmtracker.replay;
+
+import com.sabbir.dbmtracker.core.AggregatingSampleWriter;
+import com.sabbir.dbmtracker.core.ChangeDetector;
+import com.sabbir.dbmtracker.core.LocationStage;
+import com.sabbir.dbmtracker.core.PipelineDefaults;
+import com.sabbir.dbmtracker.core.Sample;
+import com.sabbir.dbmtracker.core.SampleQueue;
+import com.sabbir.dbmtracker.core.SampleWriter;
+import com.sabbir.dbmtracker.core.SamplingMode;
+import com.sabbir.dbmtracker.core.SessionRecorder;
+import com.sabbir.dbmtracker.core.SubscriptionRegistry;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives the TrackingService pipeline headless on the JVM as fast as it will
+ * go: a producer thread turns location and signal events into samples the
+ * way the sampler thread does (subscription registry, change detector,
+ * location stage, bounded queue), and a writer thread drains them into a
+ * {@link SessionRecorder} plus tile aggregate, checkpointing as it goes, the
+ * way the writer thread does. Both sides are built from
+ * {@link PipelineDefaults}; when the service's capture or write path
+ * changes, this harness changes with it.
+ * <p>
+ * Reports throughput, per-stage latency percentiles, bytes allocated per
+ * thread and bytes written. With {@code --max-p99-us} it exits non-zero when
+ * a stage's p99 exceeds the budget, so it can gate CI.
+ * <pre>
+ * ./gradlew :replay:run --args="--hours 24 --mode event"
+ * ./gradlew :replay:run --args="--input tracking_data_20250101_120000.dbms"
+ * </pre>
+ */
+public final class ReplayHarness {
+
+    private static final String SESSION_BASE = "replay";
+
+    private final EventSource source;
+    private final SamplingMode mode;
+    private final long intervalMillis;
+    private final File outputDirectory;
+
+    private final SubscriptionRegistry<Integer> subscriptions;
+    private final ChangeDetector changeDetector;
+    private final LocationStage locationStage;
+    private final SampleQueue queue;
+    private final Sample sample;
+    private SessionRecorder recorder;
+
+    private final LatencyRecorder captureLatency = new LatencyRecorder(1 << 16);
+    private final LatencyRecorder enqueueLatency = new LatencyRecorder(1 << 16);
+    private final LatencyRecorder persistLatency = new LatencyRecorder(1 << 16);
+    private long events;
+    private long backpressureSpins;
+    private volatile boolean producerDone;
+
+    ReplayHarness(EventSource source, SamplingMode mode, long intervalMillis, File outputDirectory) {
+        this.source = source;
+        this.mode = mode;
+        this.intervalMillis = intervalMillis;
+        this.outputDirectory = outputDirectory;
+        int simCount = source.simCount();
+        this.subscriptions = new SubscriptionRegistry<>(simCount, new SubscriptionRegistry.Binder<Integer>() {
+            @Override
+            public Integer bind(int subscriptionId, int column) {
+                return column;
+            }
+
+            @Override
+            public void unbind(Integer handle) {
+            }
+        });
+        int[] ids = new int[simCount];
+        int[] slots = new int[simCount];
+        String[] names = new String[simCount];
+        for (int i = 0; i < simCount; i++) {
+            ids[i] = i + 1;
+            slots[i] = i;
+            names[i] = "Operator " + (i + 1);
+        }
+        subscriptions.sync(ids, slots, names, simCount);
+        this.changeDetector = PipelineDefaults.changeDetector(simCount);
+        this.locationStage = new LocationStage(new LocationStage.Policy(), simCount, this::enqueue);
+        this.queue = new SampleQueue(PipelineDefaults.SAMPLE_QUEUE_CAPACITY, simCount);
+        this.sample = new Sample(simCount);
+    }
+
+    public static void main(String[] args) throws Exception {
+        double hours = 24;
+        int sims = 2;
+        long seed = 1;
+        long intervalMillis = 1000;
+        SamplingMode mode = SamplingMode.FIXED_INTERVAL;
+        File input = null;
+        File output = null;
+        double maxP99Micros = Double.NaN;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--hours": hours = Double.parseDouble(args[++i]); break;
+                case "--sims": sims = Integer.parseInt(args[++i]); break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                case "--interval-ms": intervalMillis = Long.parseLong(args[++i]); break;
+                case "--mode": mode = "event".equals(args[++i]) ? SamplingMode.EVENT_DRIVEN : SamplingMode.FIXED_INTERVAL; break;
+                case "--input": input = new File(args[++i]); break;
+                case "--out": output = new File(args[++i]); break;
+                case "--max-p99-us": maxP99Micros = Double.parseDouble(args[++i]); break;
+                default:
+                    System.err.println("Unknown argument " + args[i]);
+                    System.err.println("Usage: [--hours H] [--sims N] [--seed S] [--interval-ms MS] [--mode fixed|event]"
+                            + " [--input session.dbms] [--out DIR] [--max-p99-us US]");
+                    System.exit(2);
+            }
+        }
+        EventSource source = input != null
+                ? new SessionTrace(new BufferedInputStream(new FileInputStream(input)))
+                : new SyntheticTrace(seed, sims, (long) (hours * 3_600_000));
+        if (output == null) {
+            output = Files.createTempDirectory("dbm-replay").toFile();
+        }
+        output.mkdirs();
+        ReplayHarness harness = new ReplayHarness(source, mode, intervalMillis, output);
+        Report report = harness.run();
+        report.print(System.out);
+        System.exit(report.withinBudget(maxP99Micros, System.out) ? 0 : 1);
+    }
+
+    /** What one {@link #run} measured. */
+    final class Report {
+        final long virtualMillis;
+        final long elapsedNanos;
+        final long events;
+        final long samples;
+        final long drops;
+        final long backpressureSpins;
+        final long producerAllocated;
+        final long writerAllocated;
+        final long bytesWritten;
+
+        Report(long virtualMillis, long elapsedNanos, long producerAllocated, long writerAllocated,
+               long bytesWritten) {
+            this.virtualMillis = virtualMillis;
+            this.elapsedNanos = elapsedNanos;
+            this.events = ReplayHarness.this.events;
+            this.samples = queue.published();
+            this.drops = queue.drops();
+            this.backpressureSpins = ReplayHarness.this.backpressureSpins;
+            this.producerAllocated = producerAllocated;
+            this.writerAllocated = writerAllocated;
+            this.bytesWritten = bytesWritten;
+        }
+
+        void print(PrintStream out) {
+            double seconds = elapsedNanos / 1e9;
+            out.printf(Locale.ROOT, "replayed     %.1f h of input (%d events, mode=%s) in %.2f s (%.0fx real time)%n",
+                    virtualMillis / 3_600_000.0, events, mode, seconds, virtualMillis / 1000.0 / seconds);
+            out.printf(Locale.ROOT, "throughput   %.0f events/s, %.0f samples/s (%d samples, %d drops, %d backpressure spins)%n",
+                    events / seconds, samples / seconds, samples, drops, backpressureSpins);
+            out.println("capture      " + captureLatency.summary());
+            out.println("enqueue      " + enqueueLatency.summary());
+            out.println("persist      " + persistLatency.summary());
+            out.printf(Locale.ROOT, "allocated    producer %s (%.1f B/sample), writer %s (%.1f B/sample), %.1f MB/s%n",
+                    formatBytes(producerAllocated), perSample(producerAllocated, samples), formatBytes(writerAllocated),
+                    perSample(writerAllocated, samples), (producerAllocated + writerAllocated) / 1e6 / seconds);
+            out.printf(Locale.ROOT, "written      %s to %s (%.1f B/sample)%n",
+                    formatBytes(bytesWritten), outputDirectory, perSample(bytesWritten, samples));
+        }
+
+        /** True if no stage's p99 exceeds {@code maxP99Micros} (always, for NaN); reports each that does. */
+        boolean withinBudget(double maxP99Micros, PrintStream out) {
+            if (Double.isNaN(maxP99Micros)) {
+                return true;
+            }
+            boolean withinBudget = true;
+            LatencyRecorder[] stages = {captureLatency, enqueueLatency, persistLatency};
+            String[] names = {"capture", "enqueue", "persist"};
+            for (int i = 0; i < stages.length; i++) {
+                double p99Micros = stages[i].percentile(0.99) / 1e3;
+                if (p99Micros > maxP99Micros) {
+                    out.printf(Locale.ROOT, "FAIL         %s p99 %.1fus exceeds budget %.1fus%n",
+                            names[i], p99Micros, maxP99Micros);
+                    withinBudget = false;
+                }
+            }
+            return withinBudget;
+        }
+    }
+
+    Report run() throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        SampleWriter writer = openWriter();
+        long[] writerAllocated = new long[1];
+        Throwable[] writerFailure = new Throwable[1];
+        Thread writerThread = new Thread(() -> {
+            long before = allocatedBytes(threads);
+            try {
+                drainUntilDone(writer);
+                writer.close();
+            } catch (Throwable t) {
+                writerFailure[0] = t;
+            }
+            writerAllocated[0] = allocatedBytes(threads) - before;
+        }, "replay-writer");
+
+        long producerBefore = allocatedBytes(threads);
+        long start = System.nanoTime();
+        writerThread.start();
+        long virtualMillis = produce();
+        producerDone = true;
+        long producerAllocated = allocatedBytes(threads) - producerBefore;
+        writerThread.join();
+        long elapsedNanos = System.nanoTime() - start;
+        if (writerFailure[0] != null) {
+            throw new IOException("Writer failed", writerFailure[0]);
+        }
+
+        long bytesWritten = 0;
+        File[] files = outputDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                bytesWritten += file.length();
+            }
+        }
+        return new Report(virtualMillis, elapsedNanos, producerAllocated, writerAllocated[0], bytesWritten);
+    }
+
+    /** The writer thread's stack in TrackingService.openSession, timed per sample. */
+    private SampleWriter openWriter() throws IOException {
+        recorder = SessionRecorder.start(outputDirectory, SESSION_BASE, PipelineDefaults.recorderOptions());
+        recorder.setState(true, false, mode);
+        SampleWriter session = AggregatingSampleWriter.resume(recorder, PipelineDefaults.TILE_SIZE_E6,
+                AggregatingSampleWriter.fileFor(outputDirectory, SESSION_BASE));
+        return new SampleWriter() {
+            @Override
+            public void write(Sample sample) throws IOException {
+                long start = System.nanoTime();
+                session.write(sample);
+                persistLatency.record(System.nanoTime() - start);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                session.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                session.close();
+            }
+        };
+    }
+
+    /** Rows the recorder has written; after {@link #run} this is every sample the producer published. */
+    long samplesWritten() {
+        return recorder.sequence();
+    }
+
+    long samplesPublished() {
+        return queue.published();
+    }
+
+    /** Producer side: feeds events in time order and runs logging ticks on a virtual clock. */
+    private long produce() throws IOException {
+        ReplayEvent event = new ReplayEvent();
+        long nextTickMillis = -1;
+        long lastMillis = 0;
+        while (source.next(event)) {
+            events++;
+            if (nextTickMillis < 0) {
+                nextTickMillis = event.timeMillis;
+            }
+            if (mode == SamplingMode.FIXED_INTERVAL) {
+                while (nextTickMillis <= event.timeMillis) {
+                    publish(nextTickMillis, false);
+                    nextTickMillis += intervalMillis;
+                }
+            }
+            if (event.type == ReplayEvent.LOCATION) {
+                locationStage.onFix(event.timeMillis, event.latitudeE6, event.longitudeE6, event.accuracyMeters,
+                        event.timeMillis);
+            } else {
+                subscriptions.setDbm(event.column, event.dbm);
+            }
+            if (mode == SamplingMode.EVENT_DRIVEN) {
+                publish(event.timeMillis, true);
+            }
+            locationStage.release(event.timeMillis);
+            lastMillis = event.timeMillis;
+        }
+        // As on pause or stop: nothing stays held waiting for a fix.
+        locationStage.flush();
+        return lastMillis;
+    }
+
+    private void publish(long timeMillis, boolean filter) {
+        long start = System.nanoTime();
+        sample.timestampMillis = timeMillis;
+        locationStage.locate(sample);
+        subscriptions.fill(sample);
+        boolean emit = !filter || changeDetector.shouldEmit(sample);
+        long captured = System.nanoTime();
+        captureLatency.record(captured - start);
+        if (!emit) {
+            return;
+        }
+        // Includes positioning: the stage hands the row on, or holds it for the next fix.
+        locationStage.submit(sample, timeMillis);
+        enqueueLatency.record(System.nanoTime() - captured);
+    }
+
+    /** The location stage's output, as TrackingService.enqueueSample. */
+    private void enqueue(Sample positioned) {
+        // The service drops on a full queue; the harness runs faster than real
+        // time, so it applies backpressure instead to replay every sample.
+        while (queue.depth() == queue.capacity()) {
+            backpressureSpins++;
+            Thread.onSpinWait();
+        }
+        queue.offer(positioned);
+    }
+
+    private void drainUntilDone(SampleWriter writer) throws IOException {
+        while (true) {
+            boolean done = producerDone;
+            if (queue.drainTo(writer) == 0) {
+                if (done) {
+                    return;
+                }
+                LockSupport.parkNanos(50_000);
+            } else {
+                recorder.maybeCheckpoint(System.currentTimeMillis());
+            }
+        }
+    }
+
+    private static long allocatedBytes(ThreadMXBean threads) {
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    private static double perSample(long bytes, long samples) {
+        return samples == 0 ? 0 : (double) bytes / samples;
+    }
+
+    private static String formatBytes(long bytes) {
+        return bytes >= 1 << 20
+                ? String.format(Locale.ROOT, "%.1f MB", bytes / (double) (1 << 20))
+                : String.format(Locale.ROOT, "%.1f KB", bytes / 1024.0);
+    }
+}
@@ -0,0 +1,61 @@
+package com.sabbir.dbmtracker.replay;
+
+import com.sabbir.dbmtracker.core.BinarySessionReader;
+import com.sabbir.dbmtracker.core.Sample;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Replays a recorded {@code .dbms} session: every stored sample becomes a
+ * location event (when it had a fix) followed by one signal event per SIM.
+ */
+final class SessionTrace implements EventSource {
+
+    private final BinarySessionReader reader;
+    private final Sample sample;
+    private int cursor = -1;
+    private boolean exhausted;
+
+    SessionTrace(InputStream in) throws IOException {
+        this.reader = new BinarySessionReader(in);
+        this.sample = new Sample(reader.simCount());
+    }
+
+    @Override
+    public int simCount() {
+        return reader.simCount();
+    }
+
+    @Override
+    public boolean next(ReplayEvent event) throws IOException {
+        while (!exhausted) {
+            if (cursor < 0 || cursor >= sample.simCount()) {
+                if (!reader.next(sample)) {
+                    exhausted = true;
+                    reader.close();
+                    return false;
+                }
+                cursor = -1;
+                if (sample.hasLocation) {
+                    event.type = ReplayEvent.LOCATION;
+                    event.timeMillis = sample.timestampMillis;
+                    event.latitudeE6 = sample.latitudeE6;
+                    event.longitudeE6 = sample.longitudeE6;
+                    event.accuracyMeters = sample.accuracyDecimeters == Sample.NO_ACCURACY
+                            ? Float.NaN : sample.accuracyDecimeters / 10f;
+                    cursor = 0;
+                    return true;
+                }
+                cursor = 0;
+            }
+            event.type = ReplayEvent.SIGNAL;
+            event.timeMillis = sample.timestampMillis;
+            event.column = cursor;
+            event.dbm = sample.dbm[cursor];
+            cursor++;
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,90 @@
+package com.sabbir.dbmtracker.replay;
+
+import com.sabbir.dbmtracker.core.Sample;
+
+import java.util.Random;
+
+/**
+ * A seeded survey day: alternating drives and stops with a 1 Hz location
+ * fix accurate to 3-15 m, and a signal update per SIM every one to three
+ * seconds that random walks between -125 and -65 dBm.
+ */
+final class SyntheticTrace implements EventSource {
+
+    private static final double METERS_PER_DEGREE = 111_320;
+
+    private final Random random;
+    private final int simCount;
+    private final long endMillis;
+    private final long[] nextSignalMillis;
+    private final int[] dbm;
+
+    private long nextFixMillis;
+    private double latitude = 23.8103;
+    private double longitude = 90.4125;
+    private double headingRadians;
+    private double speedMps;
+    private long legEndMillis;
+
+    SyntheticTrace(long seed, int simCount, long durationMillis) {
+        this.random = new Random(seed);
+        this.simCount = simCount;
+        this.endMillis = durationMillis;
+        this.nextSignalMillis = new long[simCount];
+        this.dbm = new int[simCount];
+        for (int i = 0; i < simCount; i++) {
+            dbm[i] = -95;
+            nextSignalMillis[i] = random.nextInt(1000);
+        }
+    }
+
+    @Override
+    public int simCount() {
+        return simCount;
+    }
+
+    @Override
+    public boolean next(ReplayEvent event) {
+        int column = 0;
+        for (int i = 1; i < simCount; i++) {
+            if (nextSignalMillis[i] < nextSignalMillis[column]) {
+                column = i;
+            }
+        }
+        if (nextFixMillis <= nextSignalMillis[column]) {
+            if (nextFixMillis >= endMillis) {
+                return false;
+            }
+            move(nextFixMillis);
+            event.type = ReplayEvent.LOCATION;
+            event.timeMillis = nextFixMillis;
+            event.latitudeE6 = Sample.toE6(latitude);
+            event.longitudeE6 = Sample.toE6(longitude);
+            event.accuracyMeters = 3 + random.nextFloat() * 12;
+            nextFixMillis += 1000;
+            return true;
+        }
+        if (nextSignalMillis[column] >= endMillis) {
+            return false;
+        }
+        dbm[column] = Math.max(-125, Math.min(-65, dbm[column] + random.nextInt(7) - 3));
+        event.type = ReplayEvent.SIGNAL;
+        event.timeMillis = nextSignalMillis[column];
+        event.column = column;
+        event.dbm = dbm[column];
+        nextSignalMillis[column] += 1000 + random.nextInt(2000);
+        return true;
+    }
+
+    private void move(long nowMillis) {
+        if (nowMillis >= legEndMillis) {
+            boolean drive = random.nextInt(3) > 0;
+            speedMps = drive ? 5 + random.nextDouble() * 15 : 0;
+            headingRadians = random.nextDouble() * 2 * Math.PI;
+            legEndMillis = nowMillis + (drive ? 300_000 : 900_000) + random.nextInt(600_000);
+        }
+        double meters = speedMps + random.nextGaussian() * 2;
+        latitude += Math.cos(headingRadians) * meters / METERS_PER_DEGREE;
+        longitude += Math.sin(headingRadians) * meters / (METERS_PER_DEGREE * Math.cos(Math.toRadians(latitude)));
+    }
+}
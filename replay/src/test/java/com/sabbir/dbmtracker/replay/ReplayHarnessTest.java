@@ -0,0 +1,43 @@
+package com.sabbir.dbmtracker.replay;
+
+import com.sabbir.dbmtracker.core.SamplingMode;
+import com.sabbir.dbmtracker.core.SessionManifest;
+import com.sabbir.dbmtracker.core.SessionRecorder;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ReplayHarnessTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void replaysShortTraceIntoClosedSession() throws Exception {
+        File directory = folder.getRoot();
+        // Ten minutes of 1 Hz fixes; a tick every second from the first event to the last.
+        SyntheticTrace trace = new SyntheticTrace(7, 2, 10 * 60_000);
+        ReplayHarness harness = new ReplayHarness(trace, SamplingMode.FIXED_INTERVAL, 1000, directory);
+
+        ReplayHarness.Report report = harness.run();
+
+        assertEquals(600, report.samples);
+        assertEquals(0, report.drops);
+        assertTrue(report.events >= 600);
+        assertTrue(report.bytesWritten > 0);
+        assertTrue(report.withinBudget(Double.NaN, null));
+        assertEquals(600, harness.samplesPublished());
+        assertEquals(600, harness.samplesWritten());
+        SessionManifest manifest = SessionManifest.read(SessionManifest.fileFor(directory, "replay"));
+        assertTrue(manifest.isClosed());
+        assertEquals(600, manifest.records());
+        assertFalse(SessionRecorder.checkpointFile(directory).exists());
+    }
+}